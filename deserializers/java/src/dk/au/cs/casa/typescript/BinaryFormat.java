@@ -0,0 +1,142 @@
+package dk.au.cs.casa.typescript;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Layout of the binary specification format written by {@link BinarySpecWriter} and read by {@link BinarySpecReader}.
+ * <p>
+ * A file consists of a fixed size header followed by the string pool, the type table, the ids of the types, the named types and the locations:
+ * <pre>
+ *   header:     magic, version, stringCount, typeCount, stringIndexOffset, typeIndexOffset, namedTypesOffset, locationsOffset, idIndexOffset, firstId (big-endian int32 each)
+ *   strings:    stringCount * (varint byteLength, UTF-8 bytes)
+ *   string index: stringCount * int32 absolute offset of the string
+ *   types:      typeCount * (kind byte, fields of the kind)
+ *   type index: typeCount * int32 absolute offset of the type record
+ *   id index:   typeCount * int32 {@link dk.au.cs.casa.typescript.types.Type#id()} of the type when it was written, {@link dk.au.cs.casa.typescript.types.TypeIds#NONE} for an unowned type
+ *   named types: globals, types, ambient, each a varint count of (string list qName, type reference)
+ *   locations:  varint file count of (string file name, varint block length, varint count of (string location, type reference, string kind, string debug))
+ * </pre>
+ * References to types and strings are stored as varint (id + 1), where 0 means null.
+ * Lists and maps are stored as varint (size + 1) followed by their elements, where 0 means a null list or map.
+ * The index sections make it possible to decode a single type or string without reading the rest of the file.
+ * A type read back gets the id it was written with, and firstId is the first id of the allocator of the specification, so the ids are the same as in the load that was written.
+ */
+final class BinaryFormat {
+    static final int MAGIC = 0x54535342; // "TSSB"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 10 * 4;
+
+    static final int STRING_COUNT = 8;
+    static final int TYPE_COUNT = 12;
+    static final int STRING_INDEX = 16;
+    static final int TYPE_INDEX = 20;
+    static final int NAMED_TYPES = 24;
+    static final int LOCATIONS = 28;
+    static final int ID_INDEX = 32;
+    static final int FIRST_ID = 36;
+
+    /**
+     * Kind tag of an {@link dk.au.cs.casa.typescript.types.UnresolvedType} left in the graph, other kinds are tagged with their {@link dk.au.cs.casa.typescript.types.TypeKind} ordinal.
+     */
+    static final int UNRESOLVED = 0xFF;
+
+    private BinaryFormat() {}
+
+    /**
+     * A growable byte buffer with the varint encodings of the format.
+     */
+    static final class Sink {
+        private byte[] bytes = new byte[1 << 12];
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[size++] = (byte) b;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            setInt(size, value);
+            size += 4;
+        }
+
+        void setInt(int position, int value) {
+            bytes[position] = (byte) (value >>> 24);
+            bytes[position + 1] = (byte) (value >>> 16);
+            bytes[position + 2] = (byte) (value >>> 8);
+            bytes[position + 3] = (byte) value;
+        }
+
+        void writeDouble(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            writeInt((int) (bits >>> 32));
+            writeInt((int) bits);
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeUtf8(String string) {
+            byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+            writeVarint(encoded.length);
+            write(encoded, 0, encoded.length);
+        }
+
+        void write(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        void writeTo(Sink other) {
+            other.write(bytes, 0, size);
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+    }
+
+    static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static String readUtf8(ByteBuffer buffer) {
+        int length = readVarint(buffer);
+        String result;
+        if (buffer.hasArray()) {
+            result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.duplicate().get(bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+}
@@ -0,0 +1,792 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.ElementInfo;
+import dk.au.cs.casa.typescript.SpecReader.NamedType;
+import dk.au.cs.casa.typescript.SpecReader.Spec;
+import dk.au.cs.casa.typescript.types.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Reads the binary format written by {@link BinarySpecWriter}.
+ * <p>
+ * The kind of every type is known from the type index, so all type objects are allocated first and their fields are filled in afterwards, pointing directly at the final objects.
+ * <p>
+ * In the lazy mode of {@link #map(Path)} a type is only decoded when its id is first resolved, and lists, maps and signatures of a decoded type keep referring to ids until they are accessed.
+ * The types that a decoded type refers to directly, e.g. its target or constraint, are decoded with it, from a worklist so that long chains of such references do not exhaust the call stack.
+ * All lazy decoding moves the position of the one buffer of the reader, so it happens under the lock of the reader, and the types decoded together are only registered with the resolver
+ * once all of them are filled in. The resolver publishes them with volatile writes and reads, so another thread never gets a type whose fields are still being read or not yet visible to it.
+ */
+public final class BinarySpecReader {
+    private final ByteBuffer buffer;
+    private final String[] strings;
+    /**
+     * The pool the decoded strings are interned into, or null.
+     */
+    private final StringPool stringPool;
+    private final Type[] types;
+    private final TypeResolver lazyResolver;
+    private final FieldReader fieldReader = new FieldReader();
+    /**
+     * The ids and field positions of the types whose fields are still to be read by the decoding in progress, as pairs.
+     */
+    private int[] pending = new int[16];
+    private int pendingSize = 0;
+    private boolean decoding = false;
+    /**
+     * The types allocated by the decoding in progress at their ids, they are registered when it is done.
+     */
+    private Type[] decoded;
+    /**
+     * The ids of the types allocated by the decoding in progress.
+     */
+    private int[] decodedIds = new int[16];
+    private int decodedSize = 0;
+
+    private BinarySpecReader(ByteBuffer buffer, boolean lazy, StringPool stringPool) {
+        this.buffer = buffer;
+        this.stringPool = stringPool;
+        if (buffer.getInt(0) != BinaryFormat.MAGIC) {
+            throw new IllegalArgumentException("Not a binary specification");
+        }
+        if (buffer.getInt(4) != BinaryFormat.VERSION) {
+            throw new IllegalArgumentException("Unsupported binary specification version: " + buffer.getInt(4));
+        }
+        this.strings = new String[buffer.getInt(BinaryFormat.STRING_COUNT)];
+        this.types = lazy ? null : new Type[buffer.getInt(BinaryFormat.TYPE_COUNT)];
+        this.lazyResolver = lazy ? new TypeResolver(buffer.getInt(BinaryFormat.TYPE_COUNT), this::decode) : null;
+    }
+
+    /**
+     * Reads a binary specification from a file.
+     */
+    public static SpecReader read(Path file) {
+        try {
+            return read(ByteBuffer.wrap(Files.readAllBytes(file)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads a binary specification from the content of a buffer.
+     */
+    public static SpecReader read(ByteBuffer buffer) {
+        return new SpecReader(new BinarySpecReader(buffer.duplicate(), false, null).readSpec());
+    }
+
+    /**
+     * Memory-maps a binary specification and decodes its types lazily.
+     * Heap use and load time are proportional to the part of the specification that is accessed.
+     * Its lists and maps decode their elements when they are accessed, and are decoded completely into ordinary lists and maps when they are first changed. Threads that read it concurrently decode its types one at a time and never see a type that is partly decoded,
+     * but like a parsed specification it should be {@link SpecReader#freeze() frozen} before it is shared, so that its types are immutable.
+     */
+    public static SpecReader map(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SpecReader(map(channel, null));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Memory-maps a binary specification from an open channel, the mapping stays valid after the channel is closed.
+     *
+     * @param stringPool the pool the strings are interned into when they are decoded, or null to only share the strings within the specification
+     */
+    static Spec map(FileChannel channel, StringPool stringPool) throws IOException {
+        return new BinarySpecReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), true, stringPool).readLazySpec();
+    }
+
+    private Spec readLazySpec() {
+        buffer.position(buffer.getInt(BinaryFormat.NAMED_TYPES));
+        int globalCount = BinaryFormat.readVarint(buffer);
+        String[] globalNames = new String[globalCount];
+        int[] globalIds = new int[globalCount];
+        for (int i = 0; i < globalCount; i++) {
+            BinaryFormat.readVarint(buffer); // the qName of a global has a single element
+            globalNames[i] = readString();
+            globalIds[i] = BinaryFormat.readVarint(buffer) - 1;
+        }
+        TypeIds typeIds = new TypeIds(buffer.getInt(BinaryFormat.FIRST_ID));
+        InterfaceType global = SpecReader.makeEmptySyntheticInterfaceType(typeIds.next());
+        global.setDeclaredProperties(new LazyTypeMap(lazyResolver, globalNames, globalIds));
+        List<NamedType> namedTypes = new LazyNamedTypeList();
+        List<NamedType> ambient = new LazyNamedTypeList();
+
+        buffer.position(buffer.getInt(BinaryFormat.LOCATIONS));
+        int fileCount = BinaryFormat.readVarint(buffer);
+        List<String> files = new ArrayList<>(fileCount);
+        int[] fileOffsets = new int[fileCount];
+        for (int i = 0; i < fileCount; i++) {
+            files.add(readString());
+            int length = BinaryFormat.readVarint(buffer);
+            fileOffsets[i] = buffer.position();
+            buffer.position(buffer.position() + length);
+        }
+        return new Spec(global, namedTypes, ambient, new LazyLocations(files, file -> {
+            synchronized (this) {
+                int position = buffer.position();
+                buffer.position(fileOffsets[file]);
+                Map<String, ElementInfo> fileLocations = readFileLocations();
+                buffer.position(position);
+                return fileLocations;
+            }
+        }), typeIds);
+    }
+
+    /**
+     * Decodes a type for the lazy resolver, the current position in the buffer is preserved.
+     * A type that is resolved while another is decoded is only allocated, and its fields are read once those of the first type are, before the first type is returned.
+     * The types are registered with the resolver when all their fields are read.
+     */
+    private synchronized Type decode(int id) {
+        if (decoded == null) {
+            decoded = new Type[buffer.getInt(BinaryFormat.TYPE_COUNT)];
+        }
+        Type type = decoding ? decoded[id] : lazyResolver.registered(id);
+        if (type != null) {
+            return type; // allocated by the decoding in progress, or decoded by another thread while this one waited for the lock
+        }
+        int position = buffer.position();
+        buffer.position(typeOffset(id));
+        type = allocate(buffer.get() & 0xFF, id);
+        decoded[id] = type;
+        if (decodedSize == decodedIds.length) {
+            decodedIds = Arrays.copyOf(decodedIds, decodedSize * 2);
+        }
+        decodedIds[decodedSize++] = id;
+        if (decoding) {
+            if (pendingSize == pending.length) {
+                pending = Arrays.copyOf(pending, pendingSize * 2);
+            }
+            pending[pendingSize++] = id;
+            pending[pendingSize++] = buffer.position();
+            buffer.position(position);
+            return type;
+        }
+        decoding = true;
+        try {
+            type.accept(fieldReader);
+            while (pendingSize > 0) {
+                pendingSize -= 2;
+                buffer.position(pending[pendingSize + 1]);
+                decoded[pending[pendingSize]].accept(fieldReader);
+            }
+            for (int i = 0; i < decodedSize; i++) {
+                lazyResolver.register(decodedIds[i], decoded[decodedIds[i]]);
+            }
+        } finally {
+            decoding = false;
+            pendingSize = 0;
+            for (int i = 0; i < decodedSize; i++) {
+                decoded[decodedIds[i]] = null;
+            }
+            decodedSize = 0;
+            buffer.position(position);
+        }
+        return type;
+    }
+
+    private Spec readSpec() {
+        for (int id = 0; id < types.length; id++) {
+            buffer.position(typeOffset(id));
+            types[id] = allocate(buffer.get() & 0xFF, id);
+        }
+        for (int id = 0; id < types.length; id++) {
+            buffer.position(typeOffset(id) + 1);
+            types[id].accept(fieldReader);
+        }
+
+        buffer.position(buffer.getInt(BinaryFormat.NAMED_TYPES));
+        List<NamedType> globals = readNamedTypes();
+        List<NamedType> namedTypes = readNamedTypes();
+        List<NamedType> ambient = readNamedTypes();
+
+        buffer.position(buffer.getInt(BinaryFormat.LOCATIONS));
+        int fileCount = BinaryFormat.readVarint(buffer);
+        Map<String, Map<String, ElementInfo>> locations = new HashMap<>();
+        for (int i = 0; i < fileCount; i++) {
+            String file = readString();
+            BinaryFormat.readVarint(buffer); // block length
+            locations.put(file, readFileLocations());
+        }
+        return new Spec(globals, namedTypes, ambient, locations, new TypeIds(buffer.getInt(BinaryFormat.FIRST_ID)));
+    }
+
+    private Map<String, ElementInfo> readFileLocations() {
+        int count = BinaryFormat.readVarint(buffer);
+        Map<String, ElementInfo> fileLocations = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String location = readString();
+            Type type = readType();
+            String kind = readString();
+            String debug = readString();
+            fileLocations.put(location, new ElementInfo(type, kind, debug));
+        }
+        return fileLocations;
+    }
+
+    private int typeOffset(int id) {
+        return buffer.getInt(buffer.getInt(BinaryFormat.TYPE_INDEX) + id * 4);
+    }
+
+    /**
+     * Creates the object for a type record, only the values of literal types are read.
+     *
+     * @param index the index of the type in the type index, the type gets the id it was written with
+     */
+    private Type allocate(int tag, int index) {
+        if (tag == BinaryFormat.UNRESOLVED) {
+            return new UnresolvedType(BinaryFormat.readVarint(buffer) - 1);
+        }
+        TypeKind kind = TypeKind.values()[tag];
+        int id = buffer.getInt(buffer.getInt(BinaryFormat.ID_INDEX) + index * 4);
+        switch (kind) {
+            case Any:
+            case String:
+            case Number:
+            case Boolean:
+            case Void:
+            case Undefined:
+            case Null:
+            case Enum:
+            case Symbol:
+            case Never:
+            case Object:
+                return SimpleType.get(SimpleTypeKind.valueOf(kind.name()));
+            case StringLiteral:
+                return StringLiteral.of(readString());
+            case BooleanLiteral:
+                return BooleanLiteral.of(buffer.get() != 0);
+            case NumberLiteral:
+                return NumberLiteral.of(buffer.getDouble());
+            case Union:
+                return new UnionType(owned(id));
+            case Intersection:
+                return new IntersectionType(owned(id));
+            case Interface:
+                return new InterfaceType(owned(id));
+            case TypeParameter:
+                return new TypeParameterType(owned(id));
+            case Class:
+                return new ClassType(owned(id));
+            case ClassInstance:
+                return new ClassInstanceType(owned(id));
+            case Reference:
+                return new ReferenceType(owned(id));
+            case Generic:
+                return new GenericType(owned(id));
+            case Tuple:
+                return new TupleType(owned(id));
+            case Anonymous:
+                return new AnonymousType(owned(id));
+            case ThisType:
+                return new ThisType(owned(id));
+            case Index:
+                return new IndexType(owned(id));
+            case IndexedAccess:
+                return new IndexedAccessType(owned(id));
+            default:
+                throw new RuntimeException("Unhandled case: " + kind);
+        }
+    }
+
+    /**
+     * @return the id, or a new unowned id for a type that had none when it was written
+     */
+    private static int owned(int id) {
+        return id == TypeIds.NONE ? TypeIds.UNOWNED.next() : id;
+    }
+
+    /**
+     * Reads the fields of a type record, the field order must match {@link BinarySpecWriter}.
+     */
+    private final class FieldReader implements TypeVisitor<Void> {
+        @Override
+        public Void visit(AnonymousType t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(ClassType t) {
+            t.setConstructors(readSignatures());
+            t.setCallSignatures(readSignatures());
+            t.setBaseTypes(readTypes());
+            t.setStaticProperties(readTypeMap());
+            t.setInstanceProperties(readTypeMap());
+            t.setDeclaredStringIndexType(readType());
+            t.setDeclaredNumberIndexType(readType());
+            t.setTarget(readType());
+            t.setTypeParameters(readTypes());
+            t.setTypeArguments(readTypes());
+            t.setStaticReadonlyProperties(readStrings());
+            t.setInstanceReadOnlyProperties(readStrings());
+            return null;
+        }
+
+        @Override
+        public Void visit(GenericType t) {
+            t.setTypeParameters(readTypes());
+            t.setBaseTypes(readTypes());
+            t.setDeclaredProperties(readTypeMap());
+            t.setDeclaredCallSignatures(readSignatures());
+            t.setDeclaredConstructSignatures(readSignatures());
+            t.setDeclaredStringIndexType(readType());
+            t.setDeclaredNumberIndexType(readType());
+            t.setTarget(readType());
+            t.setTypeArguments(readTypes());
+            return null;
+        }
+
+        @Override
+        public Void visit(InterfaceType t) {
+            t.setTypeParameters(readTypes());
+            t.setBaseTypes(readTypes());
+            t.setDeclaredProperties(readTypeMap());
+            t.setReadonlyDeclarations(readStrings());
+            t.setDeclaredCallSignatures(readSignatures());
+            t.setDeclaredConstructSignatures(readSignatures());
+            t.setDeclaredStringIndexType(readType());
+            t.setDeclaredNumberIndexType(readType());
+            return null;
+        }
+
+        @Override
+        public Void visit(ReferenceType t) {
+            t.setTarget(readType());
+            t.setTypeArguments(readTypes());
+            return null;
+        }
+
+        @Override
+        public Void visit(SimpleType t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(TupleType t) {
+            t.setElementTypes(readTypes());
+            t.setMinLength(BinaryFormat.readVarint(buffer));
+            return null;
+        }
+
+        @Override
+        public Void visit(UnionType t) {
+            t.setElements(readTypes());
+            return null;
+        }
+
+        @Override
+        public Void visit(UnresolvedType t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(TypeParameterType t) {
+            t.setConstraint(readType());
+            return null;
+        }
+
+        @Override
+        public Void visit(StringLiteral t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(BooleanLiteral t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(NumberLiteral t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(IntersectionType t) {
+            t.setElements(readTypes());
+            return null;
+        }
+
+        @Override
+        public Void visit(ClassInstanceType t) {
+            t.setClassType(readType());
+            return null;
+        }
+
+        @Override
+        public Void visit(ThisType t) {
+            t.setConstraint(readType());
+            return null;
+        }
+
+        @Override
+        public Void visit(IndexType t) {
+            t.setType(readType());
+            return null;
+        }
+
+        @Override
+        public Void visit(IndexedAccessType t) {
+            t.setObjectType(readType());
+            t.setIndexType(readType());
+            return null;
+        }
+    }
+
+    private List<NamedType> readNamedTypes() {
+        int count = BinaryFormat.readVarint(buffer);
+        List<NamedType> namedTypes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> qName = readStrings();
+            namedTypes.add(new NamedType(readType(), qName));
+        }
+        return namedTypes;
+    }
+
+    private Type readType() {
+        int id = BinaryFormat.readVarint(buffer) - 1;
+        if (id < 0) {
+            return null;
+        }
+        return lazyResolver != null ? lazyResolver.resolve(id) : types[id];
+    }
+
+    private List<Type> readTypes() {
+        int size = BinaryFormat.readVarint(buffer) - 1;
+        if (size < 0) {
+            return null;
+        }
+        if (lazyResolver != null) {
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = BinaryFormat.readVarint(buffer) - 1;
+            }
+            return new LazyTypeList(lazyResolver, ids);
+        }
+        List<Type> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(readType());
+        }
+        return result;
+    }
+
+    private Map<String, Type> readTypeMap() {
+        int size = BinaryFormat.readVarint(buffer) - 1;
+        if (size < 0) {
+            return null;
+        }
+        if (lazyResolver != null) {
+            String[] names = new String[size];
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++) {
+                names[i] = readString();
+                ids[i] = BinaryFormat.readVarint(buffer) - 1;
+            }
+            return new LazyTypeMap(lazyResolver, names, ids);
+        }
+        String[] names = new String[size];
+        Type[] types = new Type[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = readString();
+            types[i] = readType();
+        }
+        return new PropertyTable(names, types);
+    }
+
+    private String readString() {
+        int id = BinaryFormat.readVarint(buffer) - 1;
+        if (id < 0) {
+            return null;
+        }
+        String string = strings[id];
+        if (string == null) {
+            int position = buffer.position();
+            buffer.position(buffer.getInt(buffer.getInt(BinaryFormat.STRING_INDEX) + id * 4));
+            string = BinaryFormat.readUtf8(buffer);
+            if (stringPool != null) {
+                string = stringPool.intern(string);
+            }
+            buffer.position(position);
+            strings[id] = string;
+        }
+        return string;
+    }
+
+    private List<String> readStrings() {
+        int size = BinaryFormat.readVarint(buffer) - 1;
+        if (size < 0) {
+            return null;
+        }
+        List<String> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(readString());
+        }
+        return result;
+    }
+
+    private List<Signature> readSignatures() {
+        int size = BinaryFormat.readVarint(buffer) - 1;
+        if (size < 0) {
+            return null;
+        }
+        if (lazyResolver != null && size > 0) {
+            List<Signature> result = new LazySignatureList(buffer.position(), size);
+            for (int i = 0; i < size; i++) {
+                skipSignature();
+            }
+            return result;
+        }
+        List<Signature> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(readSignature());
+        }
+        return result;
+    }
+
+    private Signature readSignature() {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        Signature signature = new Signature();
+        signature.setTypeParameters(readTypes());
+        int parameterCount = BinaryFormat.readVarint(buffer) - 1;
+        if (parameterCount >= 0) {
+            List<Signature.Parameter> parameters = new ArrayList<>(parameterCount);
+            for (int i = 0; i < parameterCount; i++) {
+                String name = readString();
+                parameters.add(new Signature.Parameter(name, readType()));
+            }
+            signature.setParameters(parameters);
+        }
+        signature.setResolvedReturnType(readType());
+        signature.setMinArgumentCount(BinaryFormat.readVarint(buffer));
+        signature.setHasRestParameter(buffer.get() != 0);
+        signature.setTarget(readSignature());
+        signature.setUnionSignatures(readSignatures());
+        signature.setIsolatedSignatureType(readType());
+        return signature;
+    }
+
+    private void skipVarints(int count) {
+        for (int i = 0; i < count; i++) {
+            BinaryFormat.readVarint(buffer);
+        }
+    }
+
+    private void skipList(int varintsPerElement) {
+        int size = BinaryFormat.readVarint(buffer) - 1;
+        skipVarints(Math.max(size, 0) * varintsPerElement);
+    }
+
+    private void skipSignature() {
+        if (buffer.get() == 0) {
+            return;
+        }
+        skipList(1); // typeParameters
+        skipList(2); // parameters
+        skipVarints(2); // resolvedReturnType, minArgumentCount
+        buffer.get(); // hasRestParameter
+        skipSignature(); // target
+        int unionSignatures = BinaryFormat.readVarint(buffer) - 1;
+        for (int i = 0; i < unionSignatures; i++) {
+            skipSignature();
+        }
+        skipVarints(1); // isolatedSignatureType
+    }
+
+    /**
+     * A list of signatures that is decoded when it is first accessed, under the lock of the reader. Changing the list changes the decoded signatures.
+     */
+    private final class LazySignatureList extends AbstractList<Signature> implements RandomAccess {
+        private final int offset;
+        private final int size;
+        private volatile List<Signature> signatures;
+
+        private LazySignatureList(int offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+
+        private List<Signature> signatures() {
+            List<Signature> signatures = this.signatures;
+            if (signatures == null) {
+                synchronized (BinarySpecReader.this) {
+                    signatures = this.signatures;
+                    if (signatures == null) {
+                        int position = buffer.position();
+                        buffer.position(offset);
+                        signatures = new ArrayList<>(size);
+                        for (int i = 0; i < size; i++) {
+                            signatures.add(readSignature());
+                        }
+                        buffer.position(position);
+                        this.signatures = signatures;
+                    }
+                }
+            }
+            return signatures;
+        }
+
+        @Override
+        public Signature get(int index) {
+            return signatures().get(index);
+        }
+
+        @Override
+        public int size() {
+            List<Signature> signatures = this.signatures;
+            return signatures != null ? signatures.size() : size;
+        }
+
+        @Override
+        public Signature set(int index, Signature signature) {
+            return signatures().set(index, signature);
+        }
+
+        @Override
+        public void add(int index, Signature signature) {
+            signatures().add(index, signature);
+            modCount++;
+        }
+
+        @Override
+        public Signature remove(int index) {
+            Signature removed = signatures().remove(index);
+            modCount++;
+            return removed;
+        }
+    }
+
+    /**
+     * The named types of the next named types section, each is decoded when it is first accessed, under the lock of the reader.
+     * Creating the list moves the buffer past the section. The first change decodes all named types into an {@link ArrayList} that holds them from then on.
+     */
+    final class LazyNamedTypeList extends AbstractList<NamedType> implements RandomAccess {
+        private final int[] offsets;
+        private final NamedType[] namedTypes;
+        /**
+         * The named types once the list has been changed, or null.
+         */
+        private List<NamedType> changed;
+
+        private LazyNamedTypeList() {
+            int count = BinaryFormat.readVarint(buffer);
+            offsets = new int[count];
+            namedTypes = new NamedType[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = buffer.position();
+                skipList(1); // qName
+                skipVarints(1); // type
+            }
+        }
+
+        private LazyNamedTypeList(LazyNamedTypeList other) {
+            this.offsets = other.offsets;
+            this.namedTypes = other.namedTypes;
+        }
+
+        /**
+         * @return an unmodifiable copy of the list as it is now, whose elements are still decoded when they are accessed unless the list has been changed
+         */
+        List<NamedType> copy() {
+            synchronized (BinarySpecReader.this) {
+                if (changed != null) {
+                    return Collections.unmodifiableList(new ArrayList<>(changed));
+                }
+                return new LazyNamedTypeList(this);
+            }
+        }
+
+        private List<NamedType> changed() {
+            synchronized (BinarySpecReader.this) {
+                if (changed == null) {
+                    List<NamedType> decoded = new ArrayList<>(offsets.length);
+                    for (int i = 0; i < offsets.length; i++) {
+                        decoded.add(get(i));
+                    }
+                    changed = decoded;
+                }
+                return changed;
+            }
+        }
+
+        @Override
+        public NamedType get(int index) {
+            synchronized (BinarySpecReader.this) {
+                if (changed != null) {
+                    return changed.get(index);
+                }
+                NamedType namedType = namedTypes[index];
+                if (namedType == null) {
+                    int position = buffer.position();
+                    buffer.position(offsets[index]);
+                    List<String> qName = readStrings();
+                    namedType = new NamedType(readType(), qName);
+                    buffer.position(position);
+                    namedTypes[index] = namedType;
+                }
+                return namedType;
+            }
+        }
+
+        /**
+         * @return the qualified name of the element at the index, without resolving its type
+         */
+        List<String> qNameAt(int index) {
+            synchronized (BinarySpecReader.this) {
+                NamedType namedType = changed != null ? changed.get(index) : namedTypes[index];
+                if (namedType != null) {
+                    return namedType.qName;
+                }
+                if (changed != null) {
+                    return null;
+                }
+                int position = buffer.position();
+                buffer.position(offsets[index]);
+                List<String> qName = readStrings();
+                buffer.position(position);
+                return qName;
+            }
+        }
+
+        @Override
+        public int size() {
+            synchronized (BinarySpecReader.this) {
+                return changed != null ? changed.size() : offsets.length;
+            }
+        }
+
+        @Override
+        public NamedType set(int index, NamedType namedType) {
+            return changed().set(index, namedType);
+        }
+
+        @Override
+        public void add(int index, NamedType namedType) {
+            changed().add(index, namedType);
+            modCount++;
+        }
+
+        @Override
+        public NamedType remove(int index) {
+            NamedType removed = changed().remove(index);
+            modCount++;
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.BinaryFormat.Sink;
+import dk.au.cs.casa.typescript.SpecReader.ElementInfo;
+import dk.au.cs.casa.typescript.SpecReader.NamedType;
+import dk.au.cs.casa.typescript.SpecReader.Spec;
+import dk.au.cs.casa.typescript.types.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the resolved type graph of a {@link SpecReader} in the binary format described by {@link BinaryFormat}.
+ * Types are numbered in the order they are reached from the globals, the named types, the ambient types and the locations, and the id of each type is written along with it,
+ * so that reading the file gives the types the ids they had, see {@link BinaryFormat}.
+ */
+public final class BinarySpecWriter {
+    private final Map<Type, Integer> typeIds = new IdentityHashMap<>();
+    private final List<Type> types = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final Sink strings = new Sink();
+    private final List<Integer> stringOffsets = new ArrayList<>();
+
+    private BinarySpecWriter() {}
+
+    public static void write(SpecReader reader, Path file) {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            write(reader, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the specification to the stream, the stream is not closed.
+     */
+    public static void write(SpecReader reader, OutputStream out) throws IOException {
+        Sink file = new BinarySpecWriter().encode(reader.getGlobal().getDeclaredProperties(), reader.getNamedTypes(), reader.getAmbientTypes(), reader.getLocations(), reader.getTypeIds());
+        out.write(file.bytes(), 0, file.size());
+    }
+
+    /**
+     * Writes a specification that has been parsed but not made into a reader yet, the stream is not closed.
+     * Locations that have not been looked up are decoded one file at a time and are not kept.
+     */
+    static void write(Spec spec, OutputStream out) throws IOException {
+        Map<String, Type> globals = spec.getGlobal() != null ? spec.getGlobal().getDeclaredProperties() : SpecReader.flattenTypeNameTree(spec.getGlobals());
+        Sink file = new BinarySpecWriter().encode(globals, spec.getTypes(), spec.getAmbient(), spec.getLocations(), spec.getTypeIds());
+        out.write(file.bytes(), 0, file.size());
+    }
+
+    /**
+     * @param typeIds the allocator of the specification, the types created for the specification when it is read back get ids from its first id on, like they did when it was loaded
+     */
+    private Sink encode(Map<String, Type> globalTypes, List<NamedType> namedTypes, List<NamedType> ambientTypes, Map<String, Map<String, ElementInfo>> fileLocations, TypeIds typeIds) {
+        Sink named = new Sink();
+        List<NamedType> globals = new ArrayList<>();
+        globalTypes.forEach((name, type) -> globals.add(new NamedType(type, Collections.singletonList(name))));
+        writeNamedTypes(named, globals);
+        writeNamedTypes(named, namedTypes);
+        writeNamedTypes(named, ambientTypes);
+
+        Sink locations = new Sink();
+        writeLocations(locations, fileLocations);
+
+        // types are encoded last, every reference seen so far has been given an id, and encoding may discover new types
+        Sink typeData = new Sink();
+        List<Integer> typeOffsets = new ArrayList<>();
+        TypeEncoder encoder = new TypeEncoder(typeData);
+        for (int id = 0; id < types.size(); id++) {
+            typeOffsets.add(typeData.size());
+            types.get(id).accept(encoder);
+        }
+        // the shared simple types and literals and the types of no specification are given new ids when they are read
+        int firstId = Math.max(typeIds.getFirst(), 0);
+        int[] originalIds = new int[types.size()];
+        for (int id = 0; id < originalIds.length; id++) {
+            int originalId = types.get(id).id();
+            originalIds[id] = originalId >= 0 ? originalId : TypeIds.NONE;
+            firstId = Math.max(firstId, originalId + 1);
+        }
+
+        Sink file = new Sink();
+        file.writeInt(BinaryFormat.MAGIC);
+        file.writeInt(BinaryFormat.VERSION);
+        file.writeInt(stringOffsets.size());
+        file.writeInt(types.size());
+        for (int i = 0; i < 5; i++) {
+            file.writeInt(0); // section offsets, patched below
+        }
+        file.writeInt(firstId);
+        int stringBase = file.size();
+        strings.writeTo(file);
+        file.setInt(BinaryFormat.STRING_INDEX, file.size());
+        for (int offset : stringOffsets) {
+            file.writeInt(stringBase + offset);
+        }
+        int typeBase = file.size();
+        typeData.writeTo(file);
+        file.setInt(BinaryFormat.TYPE_INDEX, file.size());
+        for (int offset : typeOffsets) {
+            file.writeInt(typeBase + offset);
+        }
+        file.setInt(BinaryFormat.ID_INDEX, file.size());
+        for (int originalId : originalIds) {
+            file.writeInt(originalId);
+        }
+        file.setInt(BinaryFormat.NAMED_TYPES, file.size());
+        named.writeTo(file);
+        file.setInt(BinaryFormat.LOCATIONS, file.size());
+        locations.writeTo(file);
+        return file;
+    }
+
+    private void writeNamedTypes(Sink out, List<NamedType> namedTypes) {
+        out.writeVarint(namedTypes.size());
+        for (NamedType namedType : namedTypes) {
+            writeStrings(out, namedType.qName);
+            writeType(out, namedType.type);
+        }
+    }
+
+    private void writeLocations(Sink out, Map<String, Map<String, ElementInfo>> locations) {
+        out.writeVarint(locations.size());
+        if (locations instanceof LazyLocations) {
+            ((LazyLocations) locations).forEachFile((file, fileLocations) -> writeFileLocations(out, file, fileLocations));
+            return;
+        }
+        for (Map.Entry<String, Map<String, ElementInfo>> file : locations.entrySet()) {
+            writeFileLocations(out, file.getKey(), file.getValue());
+        }
+    }
+
+    private void writeFileLocations(Sink out, String file, Map<String, ElementInfo> fileLocations) {
+        writeString(out, file);
+        Sink block = new Sink();
+        block.writeVarint(fileLocations.size());
+        for (Map.Entry<String, ElementInfo> location : fileLocations.entrySet()) {
+            ElementInfo info = location.getValue();
+            writeString(block, location.getKey());
+            writeType(block, info.type);
+            writeString(block, info.kind);
+            writeString(block, info.debug);
+        }
+        out.writeVarint(block.size());
+        block.writeTo(out);
+    }
+
+    private void writeType(Sink out, Type type) {
+        if (type == null) {
+            out.writeVarint(0);
+            return;
+        }
+        Integer id = typeIds.get(type);
+        if (id == null) {
+            id = types.size();
+            typeIds.put(type, id);
+            types.add(type);
+        }
+        out.writeVarint(id + 1);
+    }
+
+    private void writeTypes(Sink out, List<Type> types) {
+        if (types == null) {
+            out.writeVarint(0);
+            return;
+        }
+        out.writeVarint(types.size() + 1);
+        for (Type type : types) {
+            writeType(out, type);
+        }
+    }
+
+    private void writeTypeMap(Sink out, Map<String, Type> types) {
+        if (types == null) {
+            out.writeVarint(0);
+            return;
+        }
+        out.writeVarint(types.size() + 1);
+        types.forEach((name, type) -> {
+            writeString(out, name);
+            writeType(out, type);
+        });
+    }
+
+    private void writeString(Sink out, String string) {
+        if (string == null) {
+            out.writeVarint(0);
+            return;
+        }
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = stringOffsets.size();
+            stringIds.put(string, id);
+            stringOffsets.add(strings.size());
+            strings.writeUtf8(string);
+        }
+        out.writeVarint(id + 1);
+    }
+
+    private void writeStrings(Sink out, List<String> strings) {
+        if (strings == null) {
+            out.writeVarint(0);
+            return;
+        }
+        out.writeVarint(strings.size() + 1);
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    private void writeSignatures(Sink out, List<Signature> signatures) {
+        if (signatures == null) {
+            out.writeVarint(0);
+            return;
+        }
+        out.writeVarint(signatures.size() + 1);
+        for (Signature signature : signatures) {
+            writeSignature(out, signature);
+        }
+    }
+
+    private void writeSignature(Sink out, Signature signature) {
+        if (signature == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        writeTypes(out, signature.getTypeParameters());
+        List<Signature.Parameter> parameters = signature.getParameters();
+        if (parameters == null) {
+            out.writeVarint(0);
+        } else {
+            out.writeVarint(parameters.size() + 1);
+            for (Signature.Parameter parameter : parameters) {
+                writeString(out, parameter.getName());
+                writeType(out, parameter.getType());
+            }
+        }
+        writeType(out, signature.getResolvedReturnType());
+        out.writeVarint(signature.getMinArgumentCount());
+        out.writeByte(signature.isHasRestParameter() ? 1 : 0);
+        writeSignature(out, signature.getTarget());
+        writeSignatures(out, signature.getUnionSignatures());
+        writeType(out, signature.getIsolatedSignatureType());
+    }
+
+    /**
+     * Writes the record of a single type, the field order must match {@link BinarySpecReader}.
+     */
+    private final class TypeEncoder implements TypeVisitor<Void> {
+        private final Sink out;
+
+        private TypeEncoder(Sink out) {
+            this.out = out;
+        }
+
+        private void kind(TypeKind kind) {
+            out.writeByte(kind.ordinal());
+        }
+
+        @Override
+        public Void visit(AnonymousType t) {
+            kind(TypeKind.Anonymous);
+            return null;
+        }
+
+        @Override
+        public Void visit(ClassType t) {
+            kind(TypeKind.Class);
+            writeSignatures(out, t.getConstructors());
+            writeSignatures(out, t.getCallSignatures());
+            writeTypes(out, t.getBaseTypes());
+            writeTypeMap(out, t.getStaticProperties());
+            writeTypeMap(out, t.getInstanceProperties());
+            writeType(out, t.getDeclaredStringIndexType());
+            writeType(out, t.getDeclaredNumberIndexType());
+            writeType(out, t.getTarget());
+            writeTypes(out, t.getTypeParameters());
+            writeTypes(out, t.getTypeArguments());
+            writeStrings(out, t.getStaticReadonlyProperties());
+            writeStrings(out, t.getInstanceReadOnlyProperties());
+            return null;
+        }
+
+        @Override
+        public Void visit(GenericType t) {
+            kind(TypeKind.Generic);
+            writeTypes(out, t.getTypeParameters());
+            writeTypes(out, t.getBaseTypes());
+            writeTypeMap(out, t.getDeclaredProperties());
+            writeSignatures(out, t.getDeclaredCallSignatures());
+            writeSignatures(out, t.getDeclaredConstructSignatures());
+            writeType(out, t.getDeclaredStringIndexType());
+            writeType(out, t.getDeclaredNumberIndexType());
+            writeType(out, t.getTarget());
+            writeTypes(out, t.getTypeArguments());
+            return null;
+        }
+
+        @Override
+        public Void visit(InterfaceType t) {
+            kind(TypeKind.Interface);
+            writeTypes(out, t.getTypeParameters());
+            writeTypes(out, t.getBaseTypes());
+            writeTypeMap(out, t.getDeclaredProperties());
+            writeStrings(out, t.getReadonlyDeclarations());
+            writeSignatures(out, t.getDeclaredCallSignatures());
+            writeSignatures(out, t.getDeclaredConstructSignatures());
+            writeType(out, t.getDeclaredStringIndexType());
+            writeType(out, t.getDeclaredNumberIndexType());
+            return null;
+        }
+
+        @Override
+        public Void visit(ReferenceType t) {
+            kind(TypeKind.Reference);
+            writeType(out, t.getTarget());
+            writeTypes(out, t.getTypeArguments());
+            return null;
+        }
+
+        @Override
+        public Void visit(SimpleType t) {
+            kind(TypeKind.valueOf(t.getKind().name()));
+            return null;
+        }
+
+        @Override
+        public Void visit(TupleType t) {
+            kind(TypeKind.Tuple);
+            writeTypes(out, t.getElementTypes());
+            out.writeVarint(t.getMinLength());
+            return null;
+        }
+
+        @Override
+        public Void visit(UnionType t) {
+            kind(TypeKind.Union);
+            writeTypes(out, t.getElements());
+            return null;
+        }
+
+        @Override
+        public Void visit(UnresolvedType t) {
+            out.writeByte(BinaryFormat.UNRESOLVED);
+            out.writeVarint(t.getId() + 1);
+            return null;
+        }
+
+        @Override
+        public Void visit(TypeParameterType t) {
+            kind(TypeKind.TypeParameter);
+            writeType(out, t.getConstraint());
+            return null;
+        }
+
+        @Override
+        public Void visit(StringLiteral t) {
+            kind(TypeKind.StringLiteral);
+            writeString(out, t.getText());
+            return null;
+        }
+
+        @Override
+        public Void visit(BooleanLiteral t) {
+            kind(TypeKind.BooleanLiteral);
+            out.writeByte(t.getValue() ? 1 : 0);
+            return null;
+        }
+
+        @Override
+        public Void visit(NumberLiteral t) {
+            kind(TypeKind.NumberLiteral);
+            out.writeDouble(t.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(IntersectionType t) {
+            kind(TypeKind.Intersection);
+            writeTypes(out, t.getElements());
+            return null;
+        }
+
+        @Override
+        public Void visit(ClassInstanceType t) {
+            kind(TypeKind.ClassInstance);
+            writeType(out, t.getClassType());
+            return null;
+        }
+
+        @Override
+        public Void visit(ThisType t) {
+            kind(TypeKind.ThisType);
+            writeType(out, t.getConstraint());
+            return null;
+        }
+
+        @Override
+        public Void visit(IndexType t) {
+            kind(TypeKind.Index);
+            writeType(out, t.getType());
+            return null;
+        }
+
+        @Override
+        public Void visit(IndexedAccessType t) {
+            kind(TypeKind.IndexedAccess);
+            writeType(out, t.getObjectType());
+            writeType(out, t.getIndexType());
+            return null;
+        }
+    }
+}
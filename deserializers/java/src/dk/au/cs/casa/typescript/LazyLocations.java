@@ -0,0 +1,286 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.ElementInfo;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ * A map from file names to the locations of the file, the locations of a file are decoded when the file is first looked up.
+ * <p>
+ * Lookups are thread-safe: each file is decoded once, under the lock of the map, and the decoder is released once every file is decoded.
+ * The locations of all files can also be read without keeping them, see {@link #forEachFile(BiConsumer)}.
+ * The first change decodes the locations of all files into a {@link LinkedHashMap} that holds them from then on, like other maps a changed map is not thread-safe.
+ */
+final class LazyLocations extends AbstractMap<String, Map<String, ElementInfo>> {
+    private final List<String> files;
+    private final Map<String, Integer> indices;
+    private final AtomicReferenceArray<Map<String, ElementInfo>> decoded;
+    private Decoder decoder;
+    private int undecoded;
+    /**
+     * The locations once the map has been changed, or null.
+     */
+    private volatile Map<String, Map<String, ElementInfo>> changed;
+
+    /**
+     * @param files   the distinct file names, in iteration order
+     * @param decoder decodes the locations of the files, it is only called under the lock of the map
+     */
+    LazyLocations(List<String> files, Decoder decoder) {
+        this.files = files;
+        this.indices = new HashMap<>(files.size() * 4 / 3 + 1);
+        for (int i = 0; i < files.size(); i++) {
+            indices.put(files.get(i), i);
+        }
+        this.decoded = new AtomicReferenceArray<>(files.size());
+        this.undecoded = files.size();
+        this.decoder = undecoded == 0 ? null : decoder;
+    }
+
+    private Map<String, ElementInfo> locations(int index) {
+        Map<String, ElementInfo> fileLocations = decoded.get(index);
+        if (fileLocations != null) {
+            return fileLocations;
+        }
+        synchronized (this) {
+            fileLocations = decoded.get(index);
+            if (fileLocations == null) {
+                fileLocations = decoder.decode(index);
+                decoded.set(index, fileLocations);
+                decoder.release(index);
+                if (--undecoded == 0) {
+                    decoder = null;
+                }
+            }
+            return fileLocations;
+        }
+    }
+
+    private synchronized Map<String, Map<String, ElementInfo>> changed() {
+        if (changed == null) {
+            Map<String, Map<String, ElementInfo>> locations = new LinkedHashMap<>(files.size() * 4 / 3 + 1);
+            for (int i = 0; i < files.size(); i++) {
+                locations.put(files.get(i), locations(i));
+            }
+            changed = locations;
+        }
+        return changed;
+    }
+
+    /**
+     * Passes the locations of each file to the action, in iteration order.
+     * A file that has not been looked up is decoded for the action only and stays undecoded, so writing out the locations does not keep them all in memory.
+     */
+    synchronized void forEachFile(BiConsumer<String, Map<String, ElementInfo>> action) {
+        if (changed != null) {
+            changed.forEach(action);
+            return;
+        }
+        for (int i = 0; i < files.size(); i++) {
+            Map<String, ElementInfo> fileLocations = decoded.get(i);
+            action.accept(files.get(i), fileLocations != null ? fileLocations : decoder.decode(i));
+        }
+    }
+
+    /**
+     * @return the number of files that have not been looked up yet
+     */
+    synchronized int undecodedCount() {
+        return undecoded;
+    }
+
+    @Override
+    public Map<String, ElementInfo> get(Object file) {
+        Map<String, Map<String, ElementInfo>> changed = this.changed;
+        if (changed != null) {
+            return changed.get(file);
+        }
+        Integer index = indices.get(file);
+        return index == null ? null : locations(index);
+    }
+
+    @Override
+    public boolean containsKey(Object file) {
+        Map<String, Map<String, ElementInfo>> changed = this.changed;
+        return changed != null ? changed.containsKey(file) : indices.containsKey(file);
+    }
+
+    @Override
+    public int size() {
+        Map<String, Map<String, ElementInfo>> changed = this.changed;
+        return changed != null ? changed.size() : files.size();
+    }
+
+    @Override
+    public Map<String, ElementInfo> put(String file, Map<String, ElementInfo> fileLocations) {
+        return changed().put(file, fileLocations);
+    }
+
+    @Override
+    public Map<String, ElementInfo> remove(Object file) {
+        return changed().remove(file);
+    }
+
+    @Override
+    public void clear() {
+        changed().clear();
+    }
+
+    /**
+     * Iterates the files by position until the map is changed, then continues with an iterator of the changed map at the same position.
+     */
+    private abstract class FileIterator<T> implements Iterator<T> {
+        private int next = 0;
+        /**
+         * The iterator of the changed map, if the map was changed before the iteration or after a removal, at the same position.
+         */
+        private Iterator<T> delegate;
+
+        /**
+         * @param changedIterator an iterator of the changed map, or null if the map has not been changed
+         */
+        FileIterator(Iterator<T> changedIterator) {
+            this.delegate = changedIterator;
+        }
+
+        /**
+         * @return the element of the file at the index, or of the changed map if the map has been changed in the meantime
+         */
+        abstract T element(int index);
+
+        abstract Iterator<T> iterator(Map<String, Map<String, ElementInfo>> changed);
+
+        @Override
+        public boolean hasNext() {
+            return delegate != null ? delegate.hasNext() : next < files.size();
+        }
+
+        @Override
+        public T next() {
+            if (delegate != null) {
+                return delegate.next();
+            }
+            if (next >= files.size()) {
+                throw new NoSuchElementException();
+            }
+            return element(next++);
+        }
+
+        @Override
+        public void remove() {
+            if (delegate == null) {
+                if (next == 0) {
+                    throw new IllegalStateException();
+                }
+                delegate = iterator(changed());
+                for (int i = 0; i < next; i++) {
+                    delegate.next();
+                }
+            }
+            delegate.remove();
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                Map<String, Map<String, ElementInfo>> changed = LazyLocations.this.changed;
+                return new FileIterator<String>(changed != null ? changed.keySet().iterator() : null) {
+                    @Override
+                    String element(int index) {
+                        return files.get(index);
+                    }
+
+                    @Override
+                    Iterator<String> iterator(Map<String, Map<String, ElementInfo>> changed) {
+                        return changed.keySet().iterator();
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object file) {
+                return containsKey(file);
+            }
+
+            @Override
+            public int size() {
+                return LazyLocations.this.size();
+            }
+
+            @Override
+            public void clear() {
+                LazyLocations.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, Map<String, ElementInfo>>> entrySet() {
+        return new AbstractSet<Entry<String, Map<String, ElementInfo>>>() {
+            @Override
+            public Iterator<Entry<String, Map<String, ElementInfo>>> iterator() {
+                Map<String, Map<String, ElementInfo>> changed = LazyLocations.this.changed;
+                return new FileIterator<Entry<String, Map<String, ElementInfo>>>(changed != null ? changed.entrySet().iterator() : null) {
+                    @Override
+                    Entry<String, Map<String, ElementInfo>> element(int index) {
+                        String file = files.get(index);
+                        Map<String, Map<String, ElementInfo>> changed = LazyLocations.this.changed;
+                        return new SimpleEntry<String, Map<String, ElementInfo>>(file, changed != null ? changed.get(file) : locations(index)) {
+                            private static final long serialVersionUID = 1L;
+
+                            @Override
+                            public Map<String, ElementInfo> setValue(Map<String, ElementInfo> fileLocations) {
+                                put(file, fileLocations);
+                                return super.setValue(fileLocations);
+                            }
+                        };
+                    }
+
+                    @Override
+                    Iterator<Entry<String, Map<String, ElementInfo>>> iterator(Map<String, Map<String, ElementInfo>> changed) {
+                        return changed.entrySet().iterator();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LazyLocations.this.size();
+            }
+
+            @Override
+            public void clear() {
+                LazyLocations.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Decodes the locations of a file from the data the map was loaded from.
+     */
+    interface Decoder {
+        /**
+         * @param file an index of the file names
+         * @return the locations of the file, a new map for each call
+         */
+        Map<String, ElementInfo> decode(int file);
+
+        /**
+         * Called once the locations of the file are kept by the map, after which the file is not decoded again.
+         */
+        default void release(int file) {}
+    }
+}
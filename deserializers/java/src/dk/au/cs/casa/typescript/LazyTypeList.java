@@ -0,0 +1,72 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.types.Type;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list of types that only holds type ids, each element is resolved when it is accessed.
+ * The first change resolves all elements into an {@link ArrayList} that holds them from then on.
+ */
+final class LazyTypeList extends AbstractList<Type> implements RandomAccess {
+    private final TypeResolver typeResolver;
+    private final int[] ids;
+    /**
+     * The elements once the list has been changed, or null.
+     */
+    private List<Type> changed;
+
+    /**
+     * @param ids the ids of the elements, -1 for a null element
+     */
+    LazyTypeList(TypeResolver typeResolver, int[] ids) {
+        this.typeResolver = typeResolver;
+        this.ids = ids;
+    }
+
+    private List<Type> changed() {
+        if (changed == null) {
+            List<Type> types = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                types.add(get(i));
+            }
+            changed = types;
+        }
+        return changed;
+    }
+
+    @Override
+    public Type get(int index) {
+        if (changed != null) {
+            return changed.get(index);
+        }
+        int id = ids[index];
+        return id < 0 ? null : typeResolver.resolve(id);
+    }
+
+    @Override
+    public int size() {
+        return changed != null ? changed.size() : ids.length;
+    }
+
+    @Override
+    public Type set(int index, Type type) {
+        return changed().set(index, type);
+    }
+
+    @Override
+    public void add(int index, Type type) {
+        changed().add(index, type);
+        modCount++;
+    }
+
+    @Override
+    public Type remove(int index) {
+        Type removed = changed().remove(index);
+        modCount++;
+        return removed;
+    }
+}
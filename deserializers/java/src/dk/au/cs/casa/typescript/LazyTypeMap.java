@@ -0,0 +1,228 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.types.PropertyTable;
+import dk.au.cs.casa.typescript.types.Type;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * A map from names to types that only holds type ids, each value is resolved when it is accessed.
+ * The entries are iterated in the order they were declared, lookups are binary searches in an index of the names sorted.
+ * The first change, including setting the value of an entry, resolves all values into a {@link PropertyTable} that holds the entries from then on.
+ */
+final class LazyTypeMap extends AbstractMap<String, Type> {
+    private final TypeResolver typeResolver;
+    private final String[] names;
+    private final int[] ids;
+    /**
+     * The positions of the entries, ordered by name.
+     */
+    private final int[] sorted;
+    /**
+     * The entries once the map has been changed, or null.
+     */
+    private PropertyTable changed;
+
+    /**
+     * @param names the distinct names
+     * @param ids   the ids of the values, -1 for a null value
+     */
+    LazyTypeMap(TypeResolver typeResolver, String[] names, int[] ids) {
+        this.typeResolver = typeResolver;
+        this.names = names;
+        this.ids = ids;
+        Integer[] order = new Integer[names.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> names[i]));
+        this.sorted = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = order[i];
+        }
+    }
+
+    private LazyTypeMap(LazyTypeMap other) {
+        this.typeResolver = other.typeResolver;
+        this.names = other.names;
+        this.ids = other.ids;
+        this.sorted = other.sorted;
+    }
+
+    /**
+     * @return an unmodifiable copy of the entries as they are now, whose values are still resolved when they are accessed unless the map has been changed
+     */
+    Map<String, Type> copy() {
+        if (changed != null) {
+            return changed.frozenCopy();
+        }
+        return Collections.unmodifiableMap(new LazyTypeMap(this));
+    }
+
+    /**
+     * Passes the names to the action in iteration order, no value is resolved.
+     */
+    void forEachName(Consumer<String> action) {
+        if (changed != null) {
+            changed.keySet().forEach(action);
+            return;
+        }
+        for (String name : names) {
+            action.accept(name);
+        }
+    }
+
+    private int indexOf(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = names[sorted[middle]].compareTo((String) key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return sorted[middle];
+            }
+        }
+        return -1;
+    }
+
+    private Type valueAt(int index) {
+        int id = ids[index];
+        return id < 0 ? null : typeResolver.resolve(id);
+    }
+
+    private PropertyTable changed() {
+        if (changed == null) {
+            Type[] types = new Type[names.length];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = valueAt(i);
+            }
+            changed = new PropertyTable(names.clone(), types);
+        }
+        return changed;
+    }
+
+    @Override
+    public Type get(Object key) {
+        if (changed != null) {
+            return changed.get(key);
+        }
+        int index = indexOf(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return changed != null ? changed.containsKey(key) : indexOf(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return changed != null ? changed.size() : names.length;
+    }
+
+    @Override
+    public Type put(String key, Type value) {
+        return changed().put(key, value);
+    }
+
+    @Override
+    public Type remove(Object key) {
+        return changed().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        changed().clear();
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Type, ? extends Type> function) {
+        changed().replaceAll(function);
+    }
+
+    @Override
+    public Set<Entry<String, Type>> entrySet() {
+        return new AbstractSet<Entry<String, Type>>() {
+            @Override
+            public Iterator<Entry<String, Type>> iterator() {
+                if (changed != null) {
+                    return changed.entrySet().iterator();
+                }
+                return new Iterator<Entry<String, Type>>() {
+                    private int next = 0;
+                    /**
+                     * The iterator of the changed entries after a removal, at the same position.
+                     */
+                    private Iterator<Entry<String, Type>> delegate;
+
+                    @Override
+                    public boolean hasNext() {
+                        return delegate != null ? delegate.hasNext() : next < names.length;
+                    }
+
+                    @Override
+                    public Entry<String, Type> next() {
+                        if (delegate != null) {
+                            return delegate.next();
+                        }
+                        if (next >= names.length) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        String name = names[index];
+                        return new SimpleEntry<String, Type>(name, changed != null ? changed.get(name) : valueAt(index)) {
+                            private static final long serialVersionUID = 1L;
+
+                            @Override
+                            public Type setValue(Type type) {
+                                put(name, type);
+                                return super.setValue(type);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (delegate == null) {
+                            if (next == 0) {
+                                throw new IllegalStateException();
+                            }
+                            delegate = changed().entrySet().iterator();
+                            for (int i = 0; i < next; i++) {
+                                delegate.next();
+                            }
+                        }
+                        delegate.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LazyTypeMap.this.size();
+            }
+
+            @Override
+            public void clear() {
+                LazyTypeMap.this.clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package dk.au.cs.casa.typescript;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Options for loading a specification.
+ */
+public class LoadOptions {
+    private ForkJoinPool pool;
+    private SpecCache cache;
+    private Set<String> roots;
+    private boolean skipLocations;
+    private StringPool stringPool;
+    private boolean canonicalize;
+    private boolean freeze;
+
+    /**
+     * @return the pool the types are decoded and resolved in, or null if the specification is loaded sequentially
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Decodes and resolves the types in parallel in the given pool, or sequentially if the pool is null.
+     * A parallel load holds the whole (decompressed) specification in memory while the types are decoded.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public boolean isParallel() {
+        return pool != null;
+    }
+
+    /**
+     * Loads in parallel in the common pool, or sequentially.
+     */
+    public void setParallel(boolean parallel) {
+        this.pool = parallel ? ForkJoinPool.commonPool() : null;
+    }
+
+    /**
+     * @return the cache of snapshots that loads from a file go through, or null
+     */
+    public SpecCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Loads files through a cache of binary snapshots, or directly if the cache is null.
+     * Streams and strings are never cached.
+     * A specification loaded from a snapshot decodes its types when they are first accessed, so unlike a parsed one it must not be read by several threads at once
+     * unless it is frozen, see {@link #setFreeze(boolean)}.
+     */
+    public void setCache(SpecCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @return the qualified names the loaded types are reachable from, or null if all types are loaded
+     */
+    public Set<String> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Only loads the types reachable from the given globals and types, or all types if the roots are null.
+     * A qualified name is the dot-separated qName of an entry of "globals" or "types", e.g. "document" or "NodeJS.Process".
+     * Named types, ambient types and locations whose type is not loaded are left out.
+     */
+    public void setRoots(Collection<String> roots) {
+        this.roots = roots == null ? null : Collections.unmodifiableSet(new LinkedHashSet<>(roots));
+    }
+
+    public boolean isSkipLocations() {
+        return skipLocations;
+    }
+
+    /**
+     * Skips the "locations" section, {@link SpecReader#getLocations()} is then empty.
+     * Otherwise the locations of each file are decoded when the file is first looked up.
+     */
+    public void setSkipLocations(boolean skipLocations) {
+        this.skipLocations = skipLocations;
+    }
+
+    /**
+     * @return the string pool shared by the loads with these options, or null if each load uses a pool of its own
+     */
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+
+    /**
+     * Deduplicates the strings of the loaded specifications in the given pool, or in a new pool per load if the pool is null.
+     */
+    public void setStringPool(StringPool stringPool) {
+        this.stringPool = stringPool;
+    }
+
+    public boolean isCanonicalize() {
+        return canonicalize;
+    }
+
+    /**
+     * Merges structurally equal union, intersection, tuple and reference types into one instance each once the types are loaded, see {@link TypeResolver#canonicalize()}.
+     */
+    public void setCanonicalize(boolean canonicalize) {
+        this.canonicalize = canonicalize;
+    }
+
+    public boolean isFreeze() {
+        return freeze;
+    }
+
+    /**
+     * Freezes the loaded specifications, see {@link SpecReader#freeze()}.
+     */
+    public void setFreeze(boolean freeze) {
+        this.freeze = freeze;
+    }
+
+    LoadOptions copy() {
+        LoadOptions copy = new LoadOptions();
+        copy.pool = pool;
+        copy.cache = cache;
+        copy.roots = roots;
+        copy.skipLocations = skipLocations;
+        copy.stringPool = stringPool;
+        copy.canonicalize = canonicalize;
+        copy.freeze = freeze;
+        return copy;
+    }
+}
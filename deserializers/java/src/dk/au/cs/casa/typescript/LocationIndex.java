@@ -0,0 +1,190 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.ElementInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers position queries over the locations of a specification.
+ * <p>
+ * A position is a zero-based line and character, like in the location keys "line:character-line:character" of the specification, and an element covers the positions from its start up to but excluding its end.
+ * The index of a file is built when the file is first queried: the elements are sorted by start position in primitive arrays, and the file is cut into segments that each know their innermost covering element.
+ * Both kinds of queries are binary searches. An index can be queried by several threads concurrently.
+ */
+public final class LocationIndex {
+    private static final FileIndex EMPTY = new FileIndex(new long[0], new long[0], new ElementInfo[0], new long[0], new int[0]);
+
+    private final Map<String, Map<String, ElementInfo>> locations;
+    private final Map<String, FileIndex> files = new ConcurrentHashMap<>();
+
+    public LocationIndex(Map<String, Map<String, ElementInfo>> locations) {
+        this.locations = locations;
+    }
+
+    public static LocationIndex of(SpecReader reader) {
+        return new LocationIndex(reader.getLocations());
+    }
+
+    /**
+     * @return the innermost element of the file that covers the position, or null if there is none
+     */
+    public ElementInfo getInnermost(String file, int line, int character) {
+        return index(file).innermost(position(line, character));
+    }
+
+    /**
+     * @return the elements of the file that lie within the range, outer elements before the elements they contain
+     */
+    public List<ElementInfo> getElementsIn(String file, int startLine, int startCharacter, int endLine, int endCharacter) {
+        return index(file).within(position(startLine, startCharacter), position(endLine, endCharacter));
+    }
+
+    private static long position(int line, int character) {
+        return ((long) line << 32) | (character & 0xFFFFFFFFL);
+    }
+
+    private FileIndex index(String file) {
+        return files.computeIfAbsent(file, f -> {
+            Map<String, ElementInfo> fileLocations = locations.get(f);
+            return fileLocations == null || fileLocations.isEmpty() ? EMPTY : FileIndex.build(fileLocations);
+        });
+    }
+
+    /**
+     * @return the start and end position of a location key
+     */
+    private static long[] parseRange(String location) {
+        int colon1 = location.indexOf(':');
+        int dash = location.indexOf('-', colon1);
+        int colon2 = location.indexOf(':', dash);
+        if (colon1 < 0 || dash < 0 || colon2 < 0) {
+            throw new IllegalArgumentException("Malformed location: " + location);
+        }
+        return new long[]{
+                position(Integer.parseInt(location.substring(0, colon1)), Integer.parseInt(location.substring(colon1 + 1, dash))),
+                position(Integer.parseInt(location.substring(dash + 1, colon2)), Integer.parseInt(location.substring(colon2 + 1)))
+        };
+    }
+
+    private static final class FileIndex {
+        /**
+         * The elements sorted by start ascending, and by end descending for equal starts so an element comes before the elements it contains.
+         */
+        private final long[] starts;
+        private final long[] ends;
+        private final ElementInfo[] elements;
+        /**
+         * The segments of the file, each extends to the start of the next, with the index of the innermost element covering it or -1.
+         */
+        private final long[] segmentStarts;
+        private final int[] segmentElements;
+
+        private FileIndex(long[] starts, long[] ends, ElementInfo[] elements, long[] segmentStarts, int[] segmentElements) {
+            this.starts = starts;
+            this.ends = ends;
+            this.elements = elements;
+            this.segmentStarts = segmentStarts;
+            this.segmentElements = segmentElements;
+        }
+
+        private static FileIndex build(Map<String, ElementInfo> fileLocations) {
+            int count = fileLocations.size();
+            long[][] ranges = new long[count][];
+            ElementInfo[] unsorted = new ElementInfo[count];
+            Integer[] order = new Integer[count];
+            int i = 0;
+            for (Map.Entry<String, ElementInfo> entry : fileLocations.entrySet()) {
+                ranges[i] = parseRange(entry.getKey());
+                unsorted[i] = entry.getValue();
+                order[i] = i;
+                i++;
+            }
+            Arrays.sort(order, (a, b) -> ranges[a][0] != ranges[b][0] ? Long.compare(ranges[a][0], ranges[b][0]) : Long.compare(ranges[b][1], ranges[a][1]));
+            long[] starts = new long[count];
+            long[] ends = new long[count];
+            ElementInfo[] elements = new ElementInfo[count];
+            for (i = 0; i < count; i++) {
+                starts[i] = ranges[order[i]][0];
+                ends[i] = ranges[order[i]][1];
+                elements[i] = unsorted[order[i]];
+            }
+
+            // sweep over the boundaries with a stack of the open elements, the innermost is the most recently started one that is still open
+            long[] segmentStarts = new long[2 * count + 1];
+            int[] segmentElements = new int[2 * count + 1];
+            int segments = 0;
+            int[] stack = new int[count];
+            int open = 0;
+            int next = 0;
+            while (next < count || open > 0) {
+                long nextStart = next < count ? starts[next] : Long.MAX_VALUE;
+                long boundary;
+                if (open > 0 && ends[stack[open - 1]] <= nextStart) {
+                    boundary = ends[stack[open - 1]];
+                    while (open > 0 && ends[stack[open - 1]] <= boundary) {
+                        open--;
+                    }
+                } else {
+                    boundary = nextStart;
+                    while (next < count && starts[next] == boundary) {
+                        stack[open++] = next++;
+                    }
+                }
+                int innermost = open > 0 ? stack[open - 1] : -1;
+                if (segments > 0 && segmentStarts[segments - 1] == boundary) {
+                    segmentElements[segments - 1] = innermost;
+                } else {
+                    segmentStarts[segments] = boundary;
+                    segmentElements[segments] = innermost;
+                    segments++;
+                }
+            }
+            return new FileIndex(starts, ends, elements, Arrays.copyOf(segmentStarts, segments), Arrays.copyOf(segmentElements, segments));
+        }
+
+        private ElementInfo innermost(long position) {
+            int segment = Arrays.binarySearch(segmentStarts, position);
+            if (segment < 0) {
+                segment = -segment - 2;
+            }
+            if (segment < 0) {
+                return null;
+            }
+            int element = segmentElements[segment];
+            return element < 0 ? null : elements[element];
+        }
+
+        private List<ElementInfo> within(long from, long to) {
+            int first = firstStartAtLeast(from);
+            List<ElementInfo> result = null;
+            for (int i = first; i < starts.length && starts[i] <= to; i++) {
+                if (ends[i] <= to) {
+                    if (result == null) {
+                        result = new ArrayList<>();
+                    }
+                    result.add(elements[i]);
+                }
+            }
+            return result == null ? Collections.emptyList() : result;
+        }
+
+        private int firstStartAtLeast(long position) {
+            int low = 0;
+            int high = starts.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (starts[middle] < position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
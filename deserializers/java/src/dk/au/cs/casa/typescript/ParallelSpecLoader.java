@@ -0,0 +1,242 @@
+package dk.au.cs.casa.typescript;
+
+import com.google.gson.stream.JsonReader;
+import dk.au.cs.casa.typescript.SpecReader.Spec;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loads a specification by decoding the elements of the "data" array in parallel.
+ * <p>
+ * A structural scan of the raw bytes finds the boundaries of the elements, which is possible without decoding because all structural characters of JSON are ASCII.
+ * Ranges of elements are then parsed by independent readers that register the shells of the types under their final ids, and finally the shells are filled in parallel.
+ * The remaining sections are read sequentially.
+ */
+final class ParallelSpecLoader {
+    private static final int ELEMENTS_PER_TASK = 512;
+    private static final byte[] EMPTY_ARRAY = {'[', ']'};
+    private static final byte[] OPEN = {'['};
+    private static final byte[] CLOSE = {']'};
+
+    private final byte[] json;
+    private final LoadOptions options;
+    private final ForkJoinPool pool;
+
+    private ParallelSpecLoader(byte[] json, LoadOptions options) {
+        this.json = json;
+        this.options = options;
+        this.pool = options.getPool();
+    }
+
+    /**
+     * @param options options with a pool
+     */
+    static Spec load(byte[] json, LoadOptions options) throws IOException {
+        return new ParallelSpecLoader(json, options).load();
+    }
+
+    private Spec load() throws IOException {
+        DataSection data = findData();
+        if (data == null) {
+            return new SpecParser(new TypeResolver(), 1024, options).parse(reader(stream(json, 0, json.length)));
+        }
+        SpecParser parser = new SpecParser(new TypeResolver(data.count), data.count, options);
+        if (data.count > 0) {
+            try {
+                pool.invoke(new DecodeTask(parser, json, data, 0, data.count));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        parser.fillTypes();
+
+        InputStream rest = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                stream(json, 0, data.start),
+                new ByteArrayInputStream(EMPTY_ARRAY),
+                stream(json, data.end, json.length - data.end))));
+        return parser.parse(reader(rest), false);
+    }
+
+    private static ByteArrayInputStream stream(byte[] bytes, int from, int length) {
+        return new ByteArrayInputStream(bytes, from, length);
+    }
+
+    private static JsonReader reader(InputStream in) {
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Decodes a range of elements of the data array.
+     */
+    private static final class DecodeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SpecParser parser;
+        private final byte[] json;
+        private final DataSection data;
+        private final int from;
+        private final int to;
+
+        private DecodeTask(SpecParser parser, byte[] json, DataSection data, int from, int to) {
+            this.parser = parser;
+            this.json = json;
+            this.data = data;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ELEMENTS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new DecodeTask(parser, json, data, from, middle), new DecodeTask(parser, json, data, middle, to));
+                return;
+            }
+            int start = data.elementStarts[from];
+            int end = data.elementEnds[to - 1];
+            InputStream elements = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                    new ByteArrayInputStream(OPEN),
+                    stream(json, start, end - start),
+                    new ByteArrayInputStream(CLOSE))));
+            try {
+                parser.registerTypes(reader(elements), from);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * The location of the "data" array and its elements in the raw bytes.
+     */
+    private static final class DataSection {
+        private int start; // the opening bracket
+        private int end; // after the closing bracket
+        private int count;
+        private int[] elementStarts = new int[1024];
+        private int[] elementEnds = new int[1024];
+
+        private void add(int elementStart, int elementEnd) {
+            if (count == elementStarts.length) {
+                elementStarts = Arrays.copyOf(elementStarts, count * 2);
+                elementEnds = Arrays.copyOf(elementEnds, count * 2);
+            }
+            elementStarts[count] = elementStart;
+            elementEnds[count] = elementEnd;
+            count++;
+        }
+    }
+
+    /**
+     * Finds the "data" property of the top-level object, or null if there is none.
+     */
+    private DataSection findData() {
+        int depth = 0;
+        int i = 0;
+        while (i < json.length) {
+            byte c = json[i];
+            if (c == '"') {
+                int stringStart = i;
+                i = skipString(i);
+                if (depth == 1 && isData(stringStart, i)) {
+                    int colon = skipWhitespace(i);
+                    if (colon < json.length && json[colon] == ':') {
+                        int value = skipWhitespace(colon + 1);
+                        if (value < json.length && json[value] == '[') {
+                            return scanElements(value);
+                        }
+                    }
+                }
+                continue;
+            }
+            if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+            }
+            i++;
+        }
+        return null;
+    }
+
+    private boolean isData(int stringStart, int stringEnd) {
+        return stringEnd - stringStart == 6
+                && json[stringStart + 1] == 'd' && json[stringStart + 2] == 'a' && json[stringStart + 3] == 't' && json[stringStart + 4] == 'a';
+    }
+
+    private DataSection scanElements(int open) {
+        DataSection data = new DataSection();
+        data.start = open;
+        int i = skipWhitespace(open + 1);
+        if (i < json.length && json[i] == ']') {
+            data.end = i + 1;
+            return data;
+        }
+        while (i < json.length) {
+            int elementStart = i;
+            int depth = 0;
+            while (i < json.length) {
+                byte c = json[i];
+                if (c == '"') {
+                    i = skipString(i);
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    if (depth == 0) {
+                        break;
+                    }
+                    depth--;
+                } else if (c == ',' && depth == 0) {
+                    break;
+                }
+                i++;
+            }
+            data.add(elementStart, i);
+            if (i >= json.length || json[i] == ']') {
+                data.end = i + 1;
+                return data;
+            }
+            i = skipWhitespace(i + 1);
+        }
+        throw new IllegalArgumentException("Unterminated data array");
+    }
+
+    /**
+     * @return the index after the closing quote of the string starting at the given quote
+     */
+    private int skipString(int quote) {
+        int i = quote + 1;
+        while (i < json.length) {
+            byte c = json[i];
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private int skipWhitespace(int i) {
+        while (i < json.length && (json[i] == ' ' || json[i] == '\n' || json[i] == '\r' || json[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+}
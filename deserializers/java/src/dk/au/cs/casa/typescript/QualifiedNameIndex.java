@@ -0,0 +1,225 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.NamedType;
+import dk.au.cs.casa.typescript.types.Type;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * An index of the qualified names of a specification, the globals, named types and ambient types share one trie of name segments.
+ * A lookup hashes one segment per level instead of comparing qNames, and the names below a prefix are found without visiting the other names.
+ * <p>
+ * The index keeps its own copies of the lists, so it reflects the lists and the globals as they were when it was built and is immutable, see {@link SpecReader#getQualifiedNames()}.
+ * If a qualified name occurs more than once in a list, the first occurrence is indexed.
+ * <p>
+ * The lists and globals of a specification that is decoded lazily, see {@link BinarySpecReader#map(java.nio.file.Path)}, are indexed by name only,
+ * a type is decoded when it is looked up and building the index decodes none.
+ */
+public final class QualifiedNameIndex {
+    private final Node root = new Node();
+    private final Map<String, Type> globals;
+    private final List<NamedType> namedTypes;
+    private final List<NamedType> ambientTypes;
+
+    QualifiedNameIndex(Map<String, Type> globals, List<NamedType> namedTypes, List<NamedType> ambientTypes) {
+        if (globals instanceof LazyTypeMap) {
+            this.globals = ((LazyTypeMap) globals).copy();
+            ((LazyTypeMap) globals).forEachName(root::child);
+        } else {
+            this.globals = new HashMap<>(globals);
+            for (String name : this.globals.keySet()) {
+                root.child(name);
+            }
+        }
+        this.namedTypes = copy(namedTypes);
+        this.ambientTypes = copy(ambientTypes);
+        for (int i = 0; i < this.namedTypes.size(); i++) {
+            Node node = insert(qName(this.namedTypes, i));
+            if (node != null && node.named < 0) {
+                node.named = i;
+            }
+        }
+        for (int i = 0; i < this.ambientTypes.size(); i++) {
+            Node node = insert(qName(this.ambientTypes, i));
+            if (node != null && node.ambient < 0) {
+                node.ambient = i;
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the list, that of a list that is decoded lazily still decodes its elements when they are accessed
+     */
+    private static List<NamedType> copy(List<NamedType> list) {
+        if (list instanceof BinarySpecReader.LazyNamedTypeList) {
+            return ((BinarySpecReader.LazyNamedTypeList) list).copy();
+        }
+        return Arrays.asList(list.toArray(new NamedType[0]));
+    }
+
+    private static List<String> qName(List<NamedType> list, int index) {
+        if (list instanceof BinarySpecReader.LazyNamedTypeList) {
+            return ((BinarySpecReader.LazyNamedTypeList) list).qNameAt(index);
+        }
+        return list.get(index).qName;
+    }
+
+    private Node insert(List<String> qName) {
+        if (qName == null) {
+            return null;
+        }
+        Node node = root;
+        for (String segment : qName) {
+            node = node.child(segment);
+        }
+        return node;
+    }
+
+    private Node find(List<String> qName) {
+        Node node = root;
+        for (int i = 0; i < qName.size() && node != null; i++) {
+            node = node.children == null ? null : node.children.get(qName.get(i));
+        }
+        return node;
+    }
+
+    /**
+     * @return the type of the global, or null if there is no such global
+     */
+    public Type getGlobal(String name) {
+        return globals.get(name);
+    }
+
+    /**
+     * @return the named type with the qualified name, or null if there is none
+     */
+    public NamedType getNamedType(List<String> qName) {
+        Node node = find(qName);
+        return node == null || node.named < 0 ? null : namedTypes.get(node.named);
+    }
+
+    /**
+     * @return the ambient type with the qualified name, or null if there is none
+     */
+    public NamedType getAmbientType(List<String> qName) {
+        Node node = find(qName);
+        return node == null || node.ambient < 0 ? null : ambientTypes.get(node.ambient);
+    }
+
+    /**
+     * E.g. the prefix ["NodeJS"] gives the named types of the namespace NodeJS, and the empty prefix gives all named types.
+     *
+     * @return the named types whose qualified name starts with the prefix, in the order of {@link SpecReader#getNamedTypes()}
+     */
+    public List<NamedType> getNamedTypesWithPrefix(List<String> prefix) {
+        return select(namedTypes, collect(find(prefix), true));
+    }
+
+    /**
+     * @return the ambient types whose qualified name starts with the prefix, in the order of {@link SpecReader#getAmbientTypes()}
+     */
+    public List<NamedType> getAmbientTypesWithPrefix(List<String> prefix) {
+        return select(ambientTypes, collect(find(prefix), false));
+    }
+
+    /**
+     * @return the segments that follow the prefix in the names of globals, named types and ambient types, e.g. the members of a namespace
+     */
+    public Set<String> getMemberNames(List<String> prefix) {
+        Node node = find(prefix);
+        return node == null || node.children == null ? Collections.emptySet() : Collections.unmodifiableSet(node.children.keySet());
+    }
+
+    /**
+     * @return true if a global, named type or ambient type has the qualified name or a qualified name that starts with it
+     */
+    public boolean containsPrefix(List<String> prefix) {
+        return find(prefix) != null;
+    }
+
+    /**
+     * @return the sorted indices of the named or ambient types at the node and below it, in the copies of the lists
+     */
+    private static int[] collect(Node start, boolean named) {
+        if (start == null) {
+            return new int[0];
+        }
+        int[] indices = new int[16];
+        int size = 0;
+        Deque<Node> work = new ArrayDeque<>();
+        work.push(start);
+        while (!work.isEmpty()) {
+            Node node = work.pop();
+            int index = named ? node.named : node.ambient;
+            if (index >= 0) {
+                if (size == indices.length) {
+                    indices = Arrays.copyOf(indices, size * 2);
+                }
+                indices[size++] = index;
+            }
+            if (node.children != null) {
+                for (Node child : node.children.values()) {
+                    work.push(child);
+                }
+            }
+        }
+        indices = Arrays.copyOf(indices, size);
+        Arrays.sort(indices);
+        return indices;
+    }
+
+    private static List<NamedType> select(List<NamedType> list, int[] indices) {
+        if (indices.length == 0) {
+            return Collections.emptyList();
+        }
+        return new Selection(list, indices);
+    }
+
+    /**
+     * The elements of the copy of a list at the given indices.
+     */
+    private static final class Selection extends AbstractList<NamedType> implements RandomAccess {
+        private final List<NamedType> list;
+        private final int[] indices;
+
+        private Selection(List<NamedType> list, int[] indices) {
+            this.list = list;
+            this.indices = indices;
+        }
+
+        @Override
+        public NamedType get(int index) {
+            return list.get(indices[index]);
+        }
+
+        @Override
+        public int size() {
+            return indices.length;
+        }
+    }
+
+    /**
+     * A qualified name, or a prefix of one. Most nodes are the last segment of a single name and have no children.
+     */
+    private static final class Node {
+        private Map<String, Node> children;
+        private int named = -1;
+        private int ambient = -1;
+
+        private Node child(String segment) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(segment, s -> new Node());
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.Spec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A directory of binary snapshots of loaded specifications, keyed by the SHA-256 hash of the specification file and the options that change what is loaded.
+ * <p>
+ * On a hit the snapshot is memory-mapped as by {@link BinarySpecReader#map(Path)}, no JSON is parsed and types are decoded when they are first accessed,
+ * so the loaded specification must be {@link LoadOptions#setFreeze(boolean) frozen} before it is read by several threads.
+ * Its lists and maps can be changed as those of a parsed specification can, the strings are interned into the {@link LoadOptions#setStringPool(StringPool) string pool} of the options
+ * as they are decoded.
+ * On a miss the specification is parsed and a snapshot is written to a temporary file that is atomically renamed into place, so other processes never see a partial snapshot.
+ * Writing the snapshot does not keep the locations of the files decoded.
+ * When the snapshots exceed the size bound the least recently used ones are deleted, under a file lock so that only one process evicts at a time.
+ * Failing to write a snapshot does not fail the load, and a snapshot that cannot be mapped, e.g. because it is truncated or of another version of the format, is deleted and the
+ * specification is parsed instead.
+ * <p>
+ * A cache can be used by several threads and several processes at once.
+ */
+public final class SpecCache {
+    private static final String SUFFIX = ".v" + BinaryFormat.VERSION + ".bin";
+    private static final String LOCK_FILE = "cache.lock";
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path directory;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param directory the cache directory, it is created if it does not exist
+     * @param maxBytes  the total size the snapshots are evicted down to after a snapshot has been added
+     */
+    public SpecCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Reads a specification from its snapshot, or parses it with the factory and stores a snapshot.
+     */
+    Spec read(Path specFile, SpecReaderFactory factory) {
+        try {
+            LoadOptions options = factory.getOptions();
+            String variant = variant(options.getRoots(), options.isSkipLocations(), options.isCanonicalize());
+            Path snapshot = directory.resolve(hash(specFile) + variant + SUFFIX);
+            Spec cached = readSnapshot(snapshot, options.getStringPool());
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            misses.incrementAndGet();
+
+            // the file is hashed again while it is parsed, in case it has changed in the meantime
+            MessageDigest digest = newDigest();
+            Spec spec;
+            try (InputStream in = new DigestInputStream(Files.newInputStream(specFile), digest)) {
+                spec = factory.parse(in);
+                drain(in);
+            }
+            writeSnapshot(spec, directory.resolve(hex(digest.digest()) + variant + SUFFIX));
+            return spec;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Spec readSnapshot(Path snapshot, StringPool stringPool) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            Spec spec;
+            try {
+                spec = BinarySpecReader.map(channel, stringPool);
+            } catch (RuntimeException e) {
+                // not a snapshot this version can read, it is replaced by the snapshot of the parse
+                try {
+                    Files.deleteIfExists(snapshot);
+                } catch (IOException deleteFailure) {
+                    // a mapped file cannot be deleted on some platforms, the new snapshot replaces it
+                }
+                return null;
+            }
+            try {
+                Files.setLastModifiedTime(snapshot, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (NoSuchFileException e) {
+                // evicted after it was mapped, the mapping stays valid
+            }
+            return spec;
+        } catch (NoSuchFileException e) {
+            return null; // not cached, or evicted by another process
+        }
+    }
+
+    private void writeSnapshot(Spec spec, Path snapshot) {
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(directory, "snapshot", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                BinarySpecWriter.write(spec, out);
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+            temporary = null;
+            evict();
+        } catch (IOException e) {
+            // the snapshot is only an optimization
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used snapshots until the rest fit in the size bound.
+     */
+    private void evict() throws IOException {
+        // a file lock is held by the whole process, so the threads of this process take turns first
+        synchronized (SpecCache.class) {
+            try (FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    List<Snapshot> snapshots = new ArrayList<>();
+                    long total = 0;
+                    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                        for (Path file : files) {
+                            try {
+                                Snapshot snapshot = new Snapshot(file, Files.getLastModifiedTime(file), Files.size(file));
+                                snapshots.add(snapshot);
+                                total += snapshot.size;
+                            } catch (NoSuchFileException e) {
+                                // evicted by another process
+                            }
+                        }
+                    }
+                    snapshots.sort(Comparator.comparing(snapshot -> snapshot.lastUsed));
+                    for (int i = 0; i < snapshots.size() && total > maxBytes; i++) {
+                        try {
+                            Files.deleteIfExists(snapshots.get(i).file);
+                            total -= snapshots.get(i).size;
+                        } catch (IOException e) {
+                            // a snapshot that is mapped cannot be deleted on some platforms, the next one is tried
+                        }
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private static final class Snapshot {
+        private final Path file;
+        private final FileTime lastUsed;
+        private final long size;
+
+        private Snapshot(Path file, FileTime lastUsed, long size) {
+            this.file = file;
+            this.lastUsed = lastUsed;
+            this.size = size;
+        }
+    }
+
+    /**
+     * @return the part of the snapshot name that distinguishes snapshots of the same file loaded with different options
+     */
+    private static String variant(Set<String> roots, boolean skipLocations, boolean canonicalize) {
+        String variant = (skipLocations ? "-nolocations" : "") + (canonicalize ? "-canonical" : "");
+        if (roots == null) {
+            return variant;
+        }
+        MessageDigest digest = newDigest();
+        for (String root : new TreeSet<>(roots)) {
+            digest.update(root.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        return variant + "-" + hex(digest.digest()).substring(0, 16);
+    }
+
+    private static String hash(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            drain(in);
+        }
+        return hex(digest.digest());
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        while (in.read(buffer) != -1) {
+            // only digested
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        byte[] chars = new byte[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,25 @@
+package dk.au.cs.casa.typescript;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts JSON specifications to the binary format of {@link BinarySpecWriter}.
+ * <p>
+ * Usage: {@code SpecConverter <spec.json[.gz]> <spec.bin>}
+ */
+public final class SpecConverter {
+    private SpecConverter() {}
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: SpecConverter <spec.json[.gz]> <spec.bin>");
+            System.exit(1);
+        }
+        convert(Paths.get(args[0]), Paths.get(args[1]));
+    }
+
+    public static void convert(Path jsonFile, Path binaryFile) {
+        BinarySpecWriter.write(new SpecReader(jsonFile), binaryFile);
+    }
+}
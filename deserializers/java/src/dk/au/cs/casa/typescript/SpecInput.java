@@ -0,0 +1,55 @@
+package dk.au.cs.casa.typescript;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decoding of specification byte streams.
+ */
+final class SpecInput {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private SpecInput() {}
+
+    /**
+     * Decodes a (possibly gzipped) UTF-8 stream incrementally.
+     */
+    static Reader reader(InputStream in) throws IOException {
+        return new InputStreamReader(decompress(in), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a (possibly gzipped) stream into memory.
+     */
+    static byte[] readFully(InputStream in) throws IOException {
+        InputStream decompressed = decompress(in);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = decompressed.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Wraps the stream in a decompressor if it starts with the gzip magic bytes.
+     */
+    static InputStream decompress(InputStream in) throws IOException {
+        InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == (GZIPInputStream.GZIP_MAGIC & 0xff) && second == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        return buffered;
+    }
+}
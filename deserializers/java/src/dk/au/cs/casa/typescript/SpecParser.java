@@ -0,0 +1,1062 @@
+package dk.au.cs.casa.typescript;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import dk.au.cs.casa.typescript.SpecReader.ElementInfo;
+import dk.au.cs.casa.typescript.SpecReader.NamedType;
+import dk.au.cs.casa.typescript.SpecReader.Spec;
+import dk.au.cs.casa.typescript.types.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Reads a specification directly from a JSON token stream.
+ * <p>
+ * The elements of the "data" array are read into compact records that refer to other types by id.
+ * Once an element has been read, an empty shell of the class of its kind is registered for its id. The kind is not necessarily the first property of an element, so the shell waits for the whole element.
+ * Once all shells exist the fields of the shells are filled in, pointing directly at the other shells, so no placeholders are created and no collections are copied.
+ * <p>
+ * If root names are given, no shells are created until the whole document has been read.
+ * The ids reachable from the roots are then found by following the ids in the records, and only those types are created, the named types and locations of other types are dropped.
+ */
+final class SpecParser {
+    private static final int FILL_CHUNK = 1024;
+    private static final int[] NO_IDS = new int[0];
+    private static final String[] NO_NAMES = new String[0];
+    /**
+     * Marks a named type whose type is not reachable from the roots.
+     */
+    private static final Type PRUNED = new UnresolvedType(-1);
+
+    private final TypeResolver typeResolver;
+    private final Set<String> roots;
+    private final ForkJoinPool pool;
+    private final boolean skipLocations;
+    private final StringPool stringPool;
+    private final boolean canonicalize;
+    /**
+     * The records of the registered types that still need their fields filled in, null for types without references.
+     * If there are roots the records of all types are kept until the reachable types are known.
+     */
+    private RawType[] rawTypes;
+    private boolean typesFilled = false;
+    private final List<Runnable> deferred = new ArrayList<>();
+    private final BitSet rootIds = new BitSet();
+    /**
+     * The ids reachable from the roots once they are known, null if there are no roots.
+     */
+    private BitSet reachable;
+
+    SpecParser(TypeResolver typeResolver) {
+        this(typeResolver, 1024, new LoadOptions());
+    }
+
+    /**
+     * @param expectedTypes the number of types, the ids below it can be registered concurrently
+     * @param options       the roots, the pool the types are filled in, and whether locations are skipped
+     */
+    SpecParser(TypeResolver typeResolver, int expectedTypes, LoadOptions options) {
+        this.typeResolver = typeResolver;
+        this.roots = options.getRoots();
+        this.pool = options.getPool();
+        this.skipLocations = options.isSkipLocations();
+        this.stringPool = options.getStringPool() != null ? options.getStringPool() : new StringPool();
+        this.canonicalize = options.isCanonicalize();
+        this.rawTypes = new RawType[Math.max(expectedTypes, 1)];
+    }
+
+    Spec parse(JsonReader in) throws IOException {
+        return parse(in, true);
+    }
+
+    /**
+     * @param readData false if the types of the "data" section have already been registered and filled, the section is then skipped
+     */
+    Spec parse(JsonReader in, boolean readData) throws IOException {
+        List<NamedType> globals = new ArrayList<>();
+        List<NamedType> types = new ArrayList<>();
+        List<NamedType> ambient = new ArrayList<>();
+        Map<String, LocationColumns> locations = new LinkedHashMap<>();
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "data":
+                    if (readData) {
+                        registerTypes(in, 0);
+                        fillTypes();
+                    } else {
+                        in.skipValue();
+                    }
+                    break;
+                case "globals":
+                    readNamedTypes(in, globals, true);
+                    break;
+                case "types":
+                    readNamedTypes(in, types, true);
+                    break;
+                case "ambient":
+                    readNamedTypes(in, ambient, false);
+                    break;
+                case "locations":
+                    if (skipLocations) {
+                        in.skipValue();
+                    } else {
+                        readLocations(in, locations);
+                    }
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (roots != null) {
+            fillReachableTypes();
+        }
+        // the sections are not required to come after "data", ids read before it are resolved now
+        deferred.forEach(Runnable::run);
+        deferred.clear();
+        Map<Type, Type> remapping = Collections.emptyMap();
+        if (canonicalize) {
+            remapping = Collections.unmodifiableMap(typeResolver.canonicalize());
+            for (List<NamedType> namedTypes : Arrays.asList(globals, types, ambient)) {
+                for (NamedType namedType : namedTypes) {
+                    namedType.type = remapping.getOrDefault(namedType.type, namedType.type);
+                }
+            }
+        }
+        if (roots != null) {
+            globals.removeIf(namedType -> namedType.type == PRUNED);
+            types.removeIf(namedType -> namedType.type == PRUNED);
+            ambient.removeIf(namedType -> namedType.type == PRUNED);
+            for (Iterator<LocationColumns> files = locations.values().iterator(); files.hasNext(); ) {
+                LocationColumns fileLocations = files.next();
+                fileLocations.retain(reachable);
+                if (fileLocations.count == 0) {
+                    files.remove();
+                }
+            }
+        }
+        List<String> files = new ArrayList<>(locations.keySet());
+        locations.values().forEach(LocationColumns::trim);
+        LocationDecoder decoder = new LocationDecoder(locations.values().toArray(new LocationColumns[0]), typeResolver, stringPool);
+        Spec spec = new Spec(globals, types, ambient, new LazyLocations(files, decoder), typeResolver.newTypeIds());
+        spec.setCanonicalRemapping(remapping);
+        return spec;
+    }
+
+    /**
+     * Reads an array of types and registers a shell for each of them with consecutive ids.
+     */
+    void registerTypes(JsonReader in, int firstId) throws IOException {
+        in.beginArray();
+        for (int id = firstId; in.hasNext(); id++) {
+            RawType raw = readType(in);
+            if (roots == null) {
+                typeResolver.register(id, raw == null ? null : raw.newShell(id));
+            }
+            if (raw != null && (roots != null || raw.hasReferences())) {
+                if (id >= rawTypes.length) {
+                    rawTypes = Arrays.copyOf(rawTypes, Math.max(id + 1, rawTypes.length * 2));
+                }
+                rawTypes[id] = raw;
+            }
+        }
+        in.endArray();
+    }
+
+    /**
+     * Fills in the fields of all registered shells.
+     * If there are roots nothing happens until the end of {@link #parse(JsonReader, boolean)}, when the roots are known.
+     */
+    void fillTypes() {
+        if (roots != null) {
+            return;
+        }
+        if (pool == null) {
+            fillRange(0, rawTypes.length);
+        } else {
+            pool.invoke(new FillTask(this, 0, rawTypes.length));
+        }
+        rawTypes = null;
+        typesFilled = true;
+    }
+
+    private void fillRange(int from, int to) {
+        for (int id = from; id < to; id++) {
+            RawType raw = rawTypes[id];
+            if (raw != null && raw.hasReferences()) {
+                raw.fill(typeResolver.resolve(id), typeResolver);
+            }
+        }
+    }
+
+    /**
+     * Registers and fills the types reachable from the roots, the records of the other types are dropped.
+     */
+    private void fillReachableTypes() {
+        Reachability reachability = new Reachability();
+        for (int id = rootIds.nextSetBit(0); id >= 0; id = rootIds.nextSetBit(id + 1)) {
+            reachability.accept(id);
+        }
+        while (reachability.size > 0) {
+            int id = reachability.stack[--reachability.size];
+            RawType raw = id < rawTypes.length ? rawTypes[id] : null;
+            if (raw != null) {
+                raw.forEachReference(reachability);
+            }
+        }
+        reachable = reachability.reachable;
+        for (int id = 0; id < rawTypes.length; id++) {
+            if (!reachable.get(id)) {
+                rawTypes[id] = null;
+            }
+        }
+        for (int id = reachable.nextSetBit(0); id >= 0; id = reachable.nextSetBit(id + 1)) {
+            RawType raw = id < rawTypes.length ? rawTypes[id] : null;
+            typeResolver.register(id, raw == null ? null : raw.newShell(id));
+        }
+        if (pool == null) {
+            fillRange(0, rawTypes.length);
+        } else {
+            pool.invoke(new FillTask(this, 0, rawTypes.length));
+        }
+        rawTypes = null;
+        typesFilled = true;
+    }
+
+    /**
+     * @return the type of the id, or {@link #PRUNED} if it is not reachable from the roots
+     */
+    private Type resolveReachable(int id) {
+        if (reachable != null && (id < 0 || !reachable.get(id))) {
+            return PRUNED;
+        }
+        return typeResolver.resolve(id);
+    }
+
+    /**
+     * A depth-first worklist of the ids found to be reachable.
+     */
+    private static final class Reachability implements IntConsumer {
+        private final BitSet reachable = new BitSet();
+        private int[] stack = new int[64];
+        private int size = 0;
+
+        @Override
+        public void accept(int id) {
+            if (id < 0 || reachable.get(id)) {
+                return;
+            }
+            reachable.set(id);
+            if (size == stack.length) {
+                stack = Arrays.copyOf(stack, size * 2);
+            }
+            stack[size++] = id;
+        }
+    }
+
+    private static final class FillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final SpecParser parser;
+        private final int from;
+        private final int to;
+
+        private FillTask(SpecParser parser, int from, int to) {
+            this.parser = parser;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= FILL_CHUNK) {
+                parser.fillRange(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FillTask(parser, from, middle), new FillTask(parser, middle, to));
+        }
+    }
+
+    /**
+     * @param canBeRoots true if the named types are candidates for the roots
+     */
+    private void readNamedTypes(JsonReader in, List<NamedType> result, boolean canBeRoots) throws IOException {
+        in.beginArray();
+        while (in.hasNext()) {
+            NamedType namedType = new NamedType();
+            int typeId = -1;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "qName":
+                        namedType.qName = readStrings(in);
+                        break;
+                    case "type":
+                        typeId = readTypeReference(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            if (canBeRoots && roots != null && typeId >= 0 && namedType.qName != null && roots.contains(String.join(".", namedType.qName))) {
+                rootIds.set(typeId);
+            }
+            if (typesFilled) {
+                namedType.type = typeResolver.resolve(typeId);
+            } else {
+                int id = typeId;
+                deferred.add(() -> namedType.type = resolveReachable(id));
+            }
+            result.add(namedType);
+        }
+        in.endArray();
+    }
+
+    /**
+     * Reads the locations of each file into columns, the types are resolved when a file is first looked up.
+     */
+    private void readLocations(JsonReader in, Map<String, LocationColumns> result) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            LocationColumns fileLocations = new LocationColumns();
+            result.put(in.nextName(), fileLocations);
+            in.beginObject();
+            while (in.hasNext()) {
+                String location = in.nextName();
+                int typeId = -1;
+                String kind = null;
+                String debug = null;
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "type":
+                            typeId = readTypeReference(in);
+                            break;
+                        case "kind":
+                            kind = stringPool.intern(in.nextString());
+                            break;
+                        case "debug":
+                            debug = in.nextString();
+                            break;
+                        default:
+                            in.skipValue();
+                    }
+                }
+                in.endObject();
+                fileLocations.add(location, typeId, kind, debug);
+            }
+            in.endObject();
+        }
+        in.endObject();
+    }
+
+    /**
+     * Reads a single element of the "data" array.
+     * The "kind" property is not necessarily the first property of the object, so all fields are collected before the shell is created.
+     */
+    private RawType readType(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        RawType fields = new RawType();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            switch (name) {
+                case "kind":
+                    fields.kind = TypeKind.valueOf(in.nextString());
+                    break;
+                case "text":
+                    fields.text = in.nextString();
+                    break;
+                case "value":
+                    if (in.peek() == JsonToken.BOOLEAN) {
+                        fields.booleanValue = in.nextBoolean();
+                    } else {
+                        fields.numberValue = in.nextDouble();
+                    }
+                    break;
+                case "minLength":
+                    fields.minLength = in.nextInt();
+                    break;
+                case "typeParameters":
+                    fields.typeParameters = readTypeReferences(in);
+                    break;
+                case "baseTypes":
+                    fields.baseTypes = readTypeReferences(in);
+                    break;
+                case "typeArguments":
+                    fields.typeArguments = readTypeReferences(in);
+                    break;
+                case "elements":
+                case "elementTypes":
+                    fields.elements = readTypeReferences(in);
+                    break;
+                case "declaredProperties":
+                case "instanceProperties":
+                    fields.properties = readTypeReferenceMap(in);
+                    break;
+                case "staticProperties":
+                    fields.staticProperties = readTypeReferenceMap(in);
+                    break;
+                case "readonlyDeclarations":
+                case "instanceReadOnlyProperties":
+                    fields.readonlyProperties = readStrings(in);
+                    break;
+                case "staticReadonlyProperties":
+                    fields.staticReadonlyProperties = readStrings(in);
+                    break;
+                case "declaredCallSignatures":
+                case "callSignatures":
+                    fields.callSignatures = readSignatures(in);
+                    break;
+                case "declaredConstructSignatures":
+                case "constructors":
+                    fields.constructSignatures = readSignatures(in);
+                    break;
+                case "declaredStringIndexType":
+                    fields.stringIndexType = readTypeReference(in);
+                    break;
+                case "declaredNumberIndexType":
+                    fields.numberIndexType = readTypeReference(in);
+                    break;
+                case "target":
+                    fields.target = readTypeReference(in);
+                    break;
+                case "constraint":
+                case "classType":
+                case "type":
+                case "objectType":
+                    fields.type = readTypeReference(in);
+                    break;
+                case "indexType":
+                    fields.indexType = readTypeReference(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (fields.kind == null) {
+            throw new JsonParseException("Type without a kind at " + in.getPath());
+        }
+        return fields;
+    }
+
+    private RawSignature[] readSignatures(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<RawSignature> signatures = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            signatures.add(readSignature(in));
+        }
+        in.endArray();
+        return signatures.toArray(new RawSignature[signatures.size()]);
+    }
+
+    private RawSignature readSignature(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        RawSignature signature = new RawSignature();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "typeParameters":
+                    signature.typeParameters = readTypeReferences(in);
+                    break;
+                case "parameters":
+                    readParameters(in, signature);
+                    break;
+                case "resolvedReturnType":
+                    signature.resolvedReturnType = readTypeReference(in);
+                    break;
+                case "minArgumentCount":
+                    signature.minArgumentCount = in.nextInt();
+                    break;
+                case "hasRestParameter":
+                    signature.hasRestParameter = in.nextBoolean();
+                    break;
+                case "target":
+                    signature.target = readSignature(in);
+                    break;
+                case "unionSignatures":
+                    signature.unionSignatures = readSignatures(in);
+                    break;
+                case "isolatedSignatureType":
+                    signature.isolatedSignatureType = readTypeReference(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return signature;
+    }
+
+    private void readParameters(JsonReader in, RawSignature signature) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            signature.parameterNames = null;
+            signature.parameterTypes = null;
+            return;
+        }
+        String[] names = new String[4];
+        int[] types = new int[4];
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (count == names.length) {
+                names = Arrays.copyOf(names, count * 2);
+                types = Arrays.copyOf(types, count * 2);
+            }
+            String name = null;
+            int type = -1;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "name":
+                        name = stringPool.intern(in.nextString());
+                        break;
+                    case "type":
+                        type = readTypeReference(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            names[count] = name;
+            types[count] = type;
+            count++;
+        }
+        in.endArray();
+        signature.parameterNames = count == 0 ? NO_NAMES : Arrays.copyOf(names, count);
+        signature.parameterTypes = count == 0 ? NO_IDS : Arrays.copyOf(types, count);
+    }
+
+    /**
+     * @return the id of the referenced type, -1 for null
+     */
+    private static int readTypeReference(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return -1;
+        }
+        return in.nextInt();
+    }
+
+    private static int[] readTypeReferences(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int[] ids = NO_IDS;
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, count * 2));
+            }
+            ids[count++] = readTypeReference(in);
+        }
+        in.endArray();
+        return count == ids.length ? ids : Arrays.copyOf(ids, count);
+    }
+
+    private RawMap readTypeReferenceMap(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String[] names = NO_NAMES;
+        int[] ids = NO_IDS;
+        int count = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (count == names.length) {
+                names = Arrays.copyOf(names, Math.max(4, count * 2));
+                ids = Arrays.copyOf(ids, names.length);
+            }
+            names[count] = stringPool.intern(in.nextName());
+            ids[count] = readTypeReference(in);
+            count++;
+        }
+        in.endObject();
+        return new RawMap(count == names.length ? names : Arrays.copyOf(names, count), count == ids.length ? ids : Arrays.copyOf(ids, count));
+    }
+
+    private List<String> readStrings(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> strings = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            strings.add(stringPool.intern(in.nextString()));
+        }
+        in.endArray();
+        return strings;
+    }
+
+    private static List<Type> resolve(int[] ids, TypeResolver typeResolver) {
+        if (ids == null) {
+            return null;
+        }
+        List<Type> types = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            types.add(typeResolver.resolve(id));
+        }
+        return types;
+    }
+
+    /**
+     * The table takes over the names of the map, a map is resolved only once.
+     */
+    private static Map<String, Type> resolve(RawMap map, TypeResolver typeResolver) {
+        if (map == null) {
+            return null;
+        }
+        Type[] types = new Type[map.ids.length];
+        for (int i = 0; i < map.ids.length; i++) {
+            types[i] = typeResolver.resolve(map.ids[i]);
+        }
+        return new PropertyTable(map.names, types);
+    }
+
+    private static List<Signature> resolve(RawSignature[] signatures, TypeResolver typeResolver) {
+        if (signatures == null) {
+            return null;
+        }
+        List<Signature> result = new ArrayList<>(signatures.length);
+        for (RawSignature signature : signatures) {
+            result.add(signature == null ? null : signature.build(typeResolver));
+        }
+        return result;
+    }
+
+    private static void forEach(int[] ids, IntConsumer action) {
+        if (ids != null) {
+            for (int id : ids) {
+                action.accept(id);
+            }
+        }
+    }
+
+    private static void forEach(RawSignature[] signatures, IntConsumer action) {
+        if (signatures != null) {
+            for (RawSignature signature : signatures) {
+                if (signature != null) {
+                    signature.forEachReference(action);
+                }
+            }
+        }
+    }
+
+    /**
+     * The locations of a file, kept in columns until the file is first looked up.
+     * The location and debug strings of all locations are concatenated in one text, each string is given by its end offset in the text, negated for a null string.
+     * The kinds are pooled strings with few distinct values, they are kept as they are. The debug strings are pooled when the file is decoded.
+     */
+    private static final class LocationColumns {
+        private StringBuilder builder = new StringBuilder();
+        private String text;
+        private int[] ends = new int[2 * 8]; // location and debug of each location
+        private String[] kinds = new String[8];
+        private int[] typeIds = new int[8];
+        private int count = 0;
+
+        private void add(String location, int typeId, String kind, String debug) {
+            if (count == typeIds.length) {
+                typeIds = Arrays.copyOf(typeIds, count * 2);
+                kinds = Arrays.copyOf(kinds, count * 2);
+                ends = Arrays.copyOf(ends, count * 2 * 2);
+            }
+            typeIds[count] = typeId;
+            kinds[count] = kind;
+            append(2 * count, location);
+            append(2 * count + 1, debug);
+            count++;
+        }
+
+        private void append(int index, String string) {
+            if (string == null) {
+                ends[index] = ~builder.length();
+            } else {
+                builder.append(string);
+                ends[index] = builder.length();
+            }
+        }
+
+        /**
+         * Removes the locations whose type is not reachable.
+         */
+        private void retain(BitSet reachable) {
+            String all = builder.toString();
+            int[] oldEnds = ends;
+            String[] oldKinds = kinds;
+            int[] oldTypeIds = typeIds;
+            int oldCount = count;
+            builder = new StringBuilder();
+            count = 0;
+            for (int i = 0; i < oldCount; i++) {
+                if (oldTypeIds[i] >= 0 && reachable.get(oldTypeIds[i])) {
+                    add(string(all, oldEnds, 2 * i), oldTypeIds[i], oldKinds[i], string(all, oldEnds, 2 * i + 1));
+                }
+            }
+        }
+
+        /**
+         * Releases the unused capacity once all locations are added.
+         */
+        private void trim() {
+            text = builder.toString();
+            builder = null;
+            ends = Arrays.copyOf(ends, 2 * count);
+            kinds = Arrays.copyOf(kinds, count);
+            typeIds = Arrays.copyOf(typeIds, count);
+        }
+
+        private Map<String, ElementInfo> decode(TypeResolver typeResolver, StringPool stringPool) {
+            Map<String, ElementInfo> fileLocations = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                String debug = stringPool.intern(string(text, ends, 2 * i + 1));
+                fileLocations.put(string(text, ends, 2 * i), new ElementInfo(typeResolver.resolve(typeIds[i]), kinds[i], debug));
+            }
+            return fileLocations;
+        }
+
+        private static String string(String text, int[] ends, int index) {
+            int end = ends[index];
+            if (end < 0) {
+                return null;
+            }
+            int start = index == 0 ? 0 : ends[index - 1] < 0 ? ~ends[index - 1] : ends[index - 1];
+            return text.substring(start, end);
+        }
+    }
+
+    /**
+     * Decodes the locations of the files from their columns, the columns of a file are released once the file is kept decoded.
+     * The decoder is only called under the lock of the {@link LazyLocations}, so the columns need no further synchronization.
+     */
+    private static final class LocationDecoder implements LazyLocations.Decoder {
+        private final LocationColumns[] columns;
+        private final TypeResolver typeResolver;
+        private final StringPool stringPool;
+
+        private LocationDecoder(LocationColumns[] columns, TypeResolver typeResolver, StringPool stringPool) {
+            this.columns = columns;
+            this.typeResolver = typeResolver;
+            this.stringPool = stringPool;
+        }
+
+        @Override
+        public Map<String, ElementInfo> decode(int file) {
+            return columns[file].decode(typeResolver, stringPool);
+        }
+
+        @Override
+        public void release(int file) {
+            columns[file] = null;
+        }
+    }
+
+    /**
+     * The properties of an object of type references, in the order of the file.
+     */
+    private static final class RawMap {
+        private final String[] names;
+        private final int[] ids;
+
+        private RawMap(String[] names, int[] ids) {
+            this.names = names;
+            this.ids = ids;
+        }
+    }
+
+    /**
+     * A signature that refers to types by id.
+     */
+    private static final class RawSignature {
+        private int[] typeParameters;
+        private String[] parameterNames;
+        private int[] parameterTypes;
+        private int resolvedReturnType = -1;
+        private int minArgumentCount;
+        private boolean hasRestParameter;
+        private RawSignature target;
+        private RawSignature[] unionSignatures;
+        private int isolatedSignatureType = -1;
+
+        private void forEachReference(IntConsumer action) {
+            forEach(typeParameters, action);
+            forEach(parameterTypes, action);
+            action.accept(resolvedReturnType);
+            if (target != null) {
+                target.forEachReference(action);
+            }
+            forEach(unionSignatures, action);
+            action.accept(isolatedSignatureType);
+        }
+
+        private Signature build(TypeResolver typeResolver) {
+            Signature signature = new Signature();
+            signature.setTypeParameters(resolve(typeParameters, typeResolver));
+            if (parameterTypes != null) {
+                List<Signature.Parameter> parameters = new ArrayList<>(parameterTypes.length);
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    Signature.Parameter parameter = new Signature.Parameter();
+                    parameter.setName(parameterNames[i]);
+                    parameter.setType(typeResolver.resolve(parameterTypes[i]));
+                    parameters.add(parameter);
+                }
+                signature.setParameters(parameters);
+            }
+            signature.setResolvedReturnType(typeResolver.resolve(resolvedReturnType));
+            signature.setMinArgumentCount(minArgumentCount);
+            signature.setHasRestParameter(hasRestParameter);
+            signature.setTarget(target == null ? null : target.build(typeResolver));
+            signature.setUnionSignatures(resolve(unionSignatures, typeResolver));
+            signature.setIsolatedSignatureType(typeResolver.resolve(isolatedSignatureType));
+            return signature;
+        }
+    }
+
+    /**
+     * The fields of a single type, collected until the kind of the type is known and kept until all shells exist.
+     * Properties that never occur on the same kind of type share a field.
+     */
+    private static final class RawType {
+        private TypeKind kind;
+        private String text;
+        private boolean booleanValue;
+        private double numberValue;
+        private int minLength;
+        private int[] typeParameters;
+        private int[] baseTypes;
+        private int[] typeArguments;
+        private int[] elements; /* elements, elementTypes */
+        private RawMap properties; /* declaredProperties, instanceProperties */
+        private RawMap staticProperties;
+        private List<String> readonlyProperties; /* readonlyDeclarations, instanceReadOnlyProperties */
+        private List<String> staticReadonlyProperties;
+        private RawSignature[] callSignatures; /* declaredCallSignatures, callSignatures */
+        private RawSignature[] constructSignatures; /* declaredConstructSignatures, constructors */
+        private int stringIndexType = -1;
+        private int numberIndexType = -1;
+        private int target = -1;
+        private int type = -1; /* constraint, classType, type, objectType */
+        private int indexType = -1;
+
+        /**
+         * @param id the id of the type, which it keeps unless it is a shared simple type or literal
+         * @return a type of the right class, complete except for the fields that refer to other types
+         */
+        private Type newShell(int id) {
+            switch (kind) {
+                case Any:
+                case String:
+                case Number:
+                case Boolean:
+                case Void:
+                case Undefined:
+                case Null:
+                case Enum:
+                case Symbol:
+                case Never:
+                case Object:
+                    return SimpleType.get(SimpleTypeKind.valueOf(kind.name()));
+                case StringLiteral:
+                    return StringLiteral.of(text);
+                case BooleanLiteral:
+                    return BooleanLiteral.of(booleanValue);
+                case NumberLiteral:
+                    return NumberLiteral.of(numberValue);
+                case Union:
+                    return new UnionType(id);
+                case Intersection:
+                    return new IntersectionType(id);
+                case Interface:
+                    return new InterfaceType(id);
+                case TypeParameter:
+                    return new TypeParameterType(id);
+                case Class:
+                    return new ClassType(id);
+                case ClassInstance:
+                    return new ClassInstanceType(id);
+                case Reference:
+                    return new ReferenceType(id);
+                case Generic:
+                    return new GenericType(id);
+                case Tuple:
+                    return new TupleType(id);
+                case Anonymous:
+                    return new AnonymousType(id);
+                case ThisType:
+                    return new ThisType(id);
+                case Index:
+                    return new IndexType(id);
+                case IndexedAccess:
+                    return new IndexedAccessType(id);
+                default:
+                    throw new RuntimeException("Unhandled case: " + kind);
+            }
+        }
+
+        private void forEachReference(IntConsumer action) {
+            forEach(typeParameters, action);
+            forEach(baseTypes, action);
+            forEach(typeArguments, action);
+            forEach(elements, action);
+            if (properties != null) {
+                forEach(properties.ids, action);
+            }
+            if (staticProperties != null) {
+                forEach(staticProperties.ids, action);
+            }
+            forEach(callSignatures, action);
+            forEach(constructSignatures, action);
+            action.accept(stringIndexType);
+            action.accept(numberIndexType);
+            action.accept(target);
+            action.accept(type);
+            action.accept(indexType);
+        }
+
+        /**
+         * @return false if the shell is already complete
+         */
+        private boolean hasReferences() {
+            switch (kind) {
+                case Any:
+                case String:
+                case Number:
+                case Boolean:
+                case Void:
+                case Undefined:
+                case Null:
+                case Enum:
+                case Symbol:
+                case Never:
+                case Object:
+                case StringLiteral:
+                case BooleanLiteral:
+                case NumberLiteral:
+                case Anonymous:
+                    return false;
+                default:
+                    return true;
+            }
+        }
+
+        private void fill(Type shell, TypeResolver typeResolver) {
+            switch (kind) {
+                case Union:
+                    ((UnionType) shell).setElements(resolve(elements, typeResolver));
+                    break;
+                case Intersection:
+                    ((IntersectionType) shell).setElements(resolve(elements, typeResolver));
+                    break;
+                case Interface: {
+                    InterfaceType t = (InterfaceType) shell;
+                    t.setTypeParameters(resolve(typeParameters, typeResolver));
+                    t.setBaseTypes(resolve(baseTypes, typeResolver));
+                    t.setDeclaredProperties(resolve(properties, typeResolver));
+                    t.setReadonlyDeclarations(readonlyProperties);
+                    t.setDeclaredCallSignatures(resolve(callSignatures, typeResolver));
+                    t.setDeclaredConstructSignatures(resolve(constructSignatures, typeResolver));
+                    t.setDeclaredStringIndexType(typeResolver.resolve(stringIndexType));
+                    t.setDeclaredNumberIndexType(typeResolver.resolve(numberIndexType));
+                    break;
+                }
+                case TypeParameter:
+                    ((TypeParameterType) shell).setConstraint(typeResolver.resolve(type));
+                    break;
+                case Class: {
+                    ClassType t = (ClassType) shell;
+                    t.setConstructors(resolve(constructSignatures, typeResolver));
+                    t.setCallSignatures(resolve(callSignatures, typeResolver));
+                    t.setBaseTypes(resolve(baseTypes, typeResolver));
+                    t.setStaticProperties(resolve(staticProperties, typeResolver));
+                    t.setInstanceProperties(resolve(properties, typeResolver));
+                    t.setDeclaredStringIndexType(typeResolver.resolve(stringIndexType));
+                    t.setDeclaredNumberIndexType(typeResolver.resolve(numberIndexType));
+                    t.setTarget(typeResolver.resolve(target));
+                    t.setTypeParameters(resolve(typeParameters, typeResolver));
+                    t.setTypeArguments(resolve(typeArguments, typeResolver));
+                    t.setStaticReadonlyProperties(staticReadonlyProperties);
+                    t.setInstanceReadOnlyProperties(readonlyProperties);
+                    break;
+                }
+                case ClassInstance:
+                    ((ClassInstanceType) shell).setClassType(typeResolver.resolve(type));
+                    break;
+                case Reference: {
+                    ReferenceType t = (ReferenceType) shell;
+                    t.setTarget(typeResolver.resolve(target));
+                    t.setTypeArguments(resolve(typeArguments, typeResolver));
+                    break;
+                }
+                case Generic: {
+                    GenericType t = (GenericType) shell;
+                    t.setTypeParameters(resolve(typeParameters, typeResolver));
+                    t.setBaseTypes(resolve(baseTypes, typeResolver));
+                    t.setDeclaredProperties(resolve(properties, typeResolver));
+                    t.setDeclaredCallSignatures(resolve(callSignatures, typeResolver));
+                    t.setDeclaredConstructSignatures(resolve(constructSignatures, typeResolver));
+                    t.setDeclaredStringIndexType(typeResolver.resolve(stringIndexType));
+                    t.setDeclaredNumberIndexType(typeResolver.resolve(numberIndexType));
+                    t.setTarget(typeResolver.resolve(target));
+                    t.setTypeArguments(resolve(typeArguments, typeResolver));
+                    break;
+                }
+                case Tuple: {
+                    TupleType t = (TupleType) shell;
+                    t.setElementTypes(resolve(elements, typeResolver));
+                    t.setMinLength(minLength);
+                    break;
+                }
+                case ThisType:
+                    ((ThisType) shell).setConstraint(typeResolver.resolve(type));
+                    break;
+                case Index:
+                    ((IndexType) shell).setType(typeResolver.resolve(type));
+                    break;
+                case IndexedAccess: {
+                    IndexedAccessType t = (IndexedAccessType) shell;
+                    t.setObjectType(typeResolver.resolve(type));
+                    t.setIndexType(typeResolver.resolve(indexType));
+                    break;
+                }
+                default:
+                    throw new RuntimeException("Unhandled case: " + kind);
+            }
+        }
+    }
+}
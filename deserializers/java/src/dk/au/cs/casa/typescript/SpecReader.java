@@ -1,66 +1,130 @@
 package dk.au.cs.casa.typescript;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import dk.au.cs.casa.typescript.types.*;
 
-import java.io.IOException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class SpecReader {
+    private static final AtomicReferenceFieldUpdater<SpecReader, QualifiedNameIndex> QUALIFIED_NAMES = AtomicReferenceFieldUpdater.newUpdater(SpecReader.class, QualifiedNameIndex.class, "qualifiedNames");
+    private static final AtomicReferenceFieldUpdater<SpecReader, TypeHierarchy> HIERARCHY = AtomicReferenceFieldUpdater.newUpdater(SpecReader.class, TypeHierarchy.class, "hierarchy");
+    private static final AtomicReferenceFieldUpdater<SpecReader, MemberResolver> MEMBERS = AtomicReferenceFieldUpdater.newUpdater(SpecReader.class, MemberResolver.class, "members");
+    private static final AtomicReferenceFieldUpdater<SpecReader, TypeInstantiator> INSTANTIATOR = AtomicReferenceFieldUpdater.newUpdater(SpecReader.class, TypeInstantiator.class, "instantiator");
 
     private final Type global;
+    private final TypeIds typeIds;
+    private final Map<Type, Type> canonicalRemapping;
     private final List<NamedType> namedTypes;
     private final List<NamedType> ambientTypes;
     private final Map<String, Map<String, ElementInfo>> locations;
+    private volatile boolean frozen;
+    private volatile QualifiedNameIndex qualifiedNames;
+    private volatile TypeHierarchy hierarchy;
+    private volatile MemberResolver members;
+    private volatile TypeInstantiator instantiator;
 
     /**
-     * Reads a specification from a file.
+     * Reads a specification from a file, the file may be gzipped.
      */
     public SpecReader(Path specFile) {
-        this(pathToString(specFile));
+        this(SpecReaderFactory.DEFAULT.parse(specFile));
     }
 
-    private static String pathToString(Path specFile) {
-        try {
-            return new String(Files.readAllBytes(specFile), Charset.forName("UTF-8"));
-        } catch (IOException e) {
-            throw new RuntimeException();
+    /**
+     * Reads a specification from a file, the file may be gzipped.
+     */
+    public SpecReader(Path specFile, LoadOptions options) {
+        this(new SpecReaderFactory(options).load(specFile));
+        if (options.isFreeze()) {
+            freeze();
+        }
+    }
+
+    /**
+     * Reads a specification from a UTF-8 stream, the stream may be gzipped.
+     * The stream is consumed incrementally and is not closed.
+     */
+    public SpecReader(InputStream specification) {
+        this(SpecReaderFactory.DEFAULT.parse(specification));
+    }
+
+    /**
+     * Reads a specification from a UTF-8 stream, the stream may be gzipped.
+     * The stream is not closed.
+     */
+    public SpecReader(InputStream specification, LoadOptions options) {
+        this(new SpecReaderFactory(options).parse(specification));
+        if (options.isFreeze()) {
+            freeze();
         }
     }
 
+    /**
+     * Reads a specification from a character stream.
+     * The reader is consumed incrementally and is not closed.
+     */
+    public SpecReader(Reader specification) {
+        this(SpecReaderFactory.DEFAULT.parse(new JsonReader(specification)));
+    }
+
+    /**
+     * Reads a specification from a channel, the content may be gzipped.
+     * The channel is consumed incrementally and is not closed.
+     */
+    public SpecReader(ReadableByteChannel specification) {
+        this(Channels.newInputStream(specification));
+    }
+
+    /**
+     * Same as {@link #SpecReader(ReadableByteChannel)}.
+     */
+    public static SpecReader fromChannel(ReadableByteChannel specification) {
+        return new SpecReader(specification);
+    }
+
     /**
      * Reads a specification from a string.
      */
     public SpecReader(String specification) {
-        GsonBuilder builder = new GsonBuilder();
-        TypeResolver typeResolver = new TypeResolver();
-        builder.registerTypeAdapter(Spec.class, new SpecAdapter(typeResolver));
-        builder.registerTypeAdapter(Type.class, new TypeIDAdapter(typeResolver));
-        Gson gson = builder.create();
-        Spec spec = gson.fromJson(specification, Spec.class);
+        this(SpecReaderFactory.DEFAULT.parse(new JsonReader(new StringReader(specification))));
+    }
+
+    SpecReader(Spec spec) {
+        this.typeIds = spec.getTypeIds();
+        this.canonicalRemapping = spec.getCanonicalRemapping();
         this.namedTypes = spec.getTypes();
-        InterfaceType global = makeEmptySyntheticInterfaceType();
-        global.getDeclaredProperties().putAll(flattenTypeNameTree(spec.getGlobals()));
+        InterfaceType global = spec.getGlobal();
+        if (global == null) {
+            global = makeEmptySyntheticInterfaceType(typeIds.next());
+            global.getDeclaredProperties().putAll(flattenTypeNameTree(spec.getGlobals()));
+        }
         this.global = global;
         this.ambientTypes = spec.getAmbient();
         this.locations = spec.getLocations();
     }
 
     public SpecReader(Type global, List<NamedType> namedTypes, List<NamedType> ambientTypes, Map<String, Map<String, ElementInfo>> locations) {
+        this(global, namedTypes, ambientTypes, locations, TypeIds.UNOWNED);
+    }
+
+    /**
+     * @param typeIds the allocator of the ids of the types created for the specification
+     */
+    SpecReader(Type global, List<NamedType> namedTypes, List<NamedType> ambientTypes, Map<String, Map<String, ElementInfo>> locations, TypeIds typeIds) {
         this.global = global;
+        this.typeIds = typeIds;
+        this.canonicalRemapping = Collections.emptyMap();
         this.namedTypes = namedTypes;
         this.ambientTypes = ambientTypes;
         this.locations = locations;
@@ -69,7 +133,7 @@ public class SpecReader {
     /**
      * Flattens a tree already flat tree. Exceptions will be thrown if the tree is not flat...
      */
-    private static Map<String, Type> flattenTypeNameTree(List<NamedType> tree) {
+    static Map<String, Type> flattenTypeNameTree(List<NamedType> tree) {
         // should be type safe...
         Map<String, Type> map = new HashMap<>();
         for (NamedType namedType : tree) {
@@ -85,7 +149,11 @@ public class SpecReader {
      * Simplifies some implementation-cases.
      */
     public static InterfaceType makeEmptySyntheticInterfaceType() {
-        InterfaceType interfaceType = new InterfaceType();
+        return makeEmptySyntheticInterfaceType(TypeIds.UNOWNED.next());
+    }
+
+    static InterfaceType makeEmptySyntheticInterfaceType(int id) {
+        InterfaceType interfaceType = new InterfaceType(id);
         interfaceType.setBaseTypes(newList());
         interfaceType.setDeclaredCallSignatures(newList());
         interfaceType.setDeclaredConstructSignatures(newList());
@@ -101,7 +169,14 @@ public class SpecReader {
      * Simplifies some implementation-cases.
      */
     public static GenericType makeEmptySyntheticGenericType() {
-        GenericType genericType = new GenericType();
+        return makeEmptySyntheticGenericType(TypeIds.UNOWNED);
+    }
+
+    /**
+     * Like {@link #makeEmptySyntheticGenericType()}, but the type gets its id from the given allocator, e.g. {@link #getTypeIds()} of the specification it is made for.
+     */
+    public static GenericType makeEmptySyntheticGenericType(TypeIds ids) {
+        GenericType genericType = new GenericType(ids.next());
         genericType.setBaseTypes(newList());
         genericType.setDeclaredCallSignatures(newList());
         genericType.setDeclaredConstructSignatures(newList());
@@ -122,143 +197,161 @@ public class SpecReader {
         return new ArrayList<>();
     }
 
-    public List<NamedType> getNamedTypes() {
-        return namedTypes;
+    /**
+     * Freezes all types of the specification, see {@link TypeFreezer}, so the specification can be shared by threads that only read it.
+     * Types and locations that are decoded lazily are all decoded first, afterwards reading the specification writes nothing but immutable or volatile caches.
+     * The lists and maps of named types, ambient types and locations are not made unmodifiable.
+     *
+     * @return this reader
+     */
+    public SpecReader freeze() {
+        List<Type> types = topLevelTypes();
+        for (Map<String, ElementInfo> fileLocations : locations.values()) {
+            for (ElementInfo info : fileLocations.values()) {
+                types.add(info.type);
+            }
+        }
+        TypeFreezer.freeze(types);
+        frozen = true;
+        return this;
     }
 
-    public InterfaceType getGlobal() {
-        return (InterfaceType) global;
+    /**
+     * @return the global type followed by the named types and the ambient types
+     */
+    private List<Type> topLevelTypes() {
+        List<Type> types = new ArrayList<>(1 + namedTypes.size() + ambientTypes.size());
+        types.add(global);
+        for (NamedType namedType : namedTypes) {
+            types.add(namedType.type);
+        }
+        for (NamedType ambientType : ambientTypes) {
+            types.add(ambientType.type);
+        }
+        return types;
     }
 
-    public List<NamedType> getAmbientTypes() {
-        return ambientTypes;
+    public boolean isFrozen() {
+        return frozen;
     }
 
-    public Map<String, Map<String, ElementInfo>> getLocations() {
-        return locations;
+    /**
+     * The types read from the specification have the indices of their elements in the "data" array as ids, see {@link Type#id()},
+     * and the types created for the specification afterwards, such as the global interface and the instantiations, get ids from this allocator.
+     * A reader that was constructed from types that are already there allocates unowned ids.
+     *
+     * @return the allocator of the ids of the types created for the specification
+     */
+    public TypeIds getTypeIds() {
+        return typeIds;
     }
 
-    private class SpecAdapter implements JsonDeserializer<Spec> {
-        private final TypeResolver typeResolver;
+    public List<NamedType> getNamedTypes() {
+        return namedTypes;
+    }
 
-        public SpecAdapter(TypeResolver typeResolver) {
-            this.typeResolver = typeResolver;
-        }
+    /**
+     * The named types, globals and locations of the specification only refer to the types that remain, but a caller that kept a type from before the merge, e.g. from a
+     * {@link TypeResolver} of its own, can map it with this map.
+     *
+     * @return the types that were merged into structurally equal ones when the specification was loaded with {@link LoadOptions#setCanonicalize(boolean)}, mapped to the types that replace them,
+     * empty if the specification was not canonicalized or was read from a binary snapshot
+     */
+    public Map<Type, Type> getCanonicalRemapping() {
+        return canonicalRemapping;
+    }
 
-        @Override
-        public Spec deserialize(JsonElement jsonElement, java.lang.reflect.Type type, JsonDeserializationContext ctx) throws JsonParseException {
-
-            JsonObject jsonObject = jsonElement.getAsJsonObject();
-            JsonArray data = jsonObject.get("data").getAsJsonArray();
-            for (int id = 0; id < data.size(); id++) {
-                JsonElement jsonElement1 = data.get(id);
-                Type deserializedType = deserializeUnresolvedType(jsonElement1, ctx);
-                this.typeResolver.register(id, deserializedType);
-            }
-            this.typeResolver.resolveAll();
+    public InterfaceType getGlobal() {
+        return (InterfaceType) global;
+    }
 
-            List<NamedType> globals = new ArrayList<>();
-            JsonArray globalsArr = jsonObject.getAsJsonArray("globals");
-            for (int i = 0; i < globalsArr.size(); i++) {
-                globals.add(ctx.deserialize(globalsArr.get(i), NamedType.class));
-            }
+    public List<NamedType> getAmbientTypes() {
+        return ambientTypes;
+    }
 
-            List<NamedType> types = new ArrayList<>();
-            JsonArray typesArr = jsonObject.getAsJsonArray("types");
-            for (int i = 0; i < typesArr.size(); i++) {
-                types.add(ctx.deserialize(typesArr.get(i), NamedType.class));
+    /**
+     * The index is built on the first call, from the globals, named types and ambient types as they are then.
+     * Threads that build it concurrently all get the one that was published first.
+     *
+     * @return an index of the qualified names of the globals, named types and ambient types
+     */
+    public QualifiedNameIndex getQualifiedNames() {
+        QualifiedNameIndex index = qualifiedNames;
+        if (index == null) {
+            index = new QualifiedNameIndex(getGlobal().getDeclaredProperties(), namedTypes, ambientTypes);
+            if (!QUALIFIED_NAMES.compareAndSet(this, null, index)) {
+                index = qualifiedNames;
             }
+        }
+        return index;
+    }
 
-            List<NamedType> ambient = new ArrayList<>();
-            JsonArray ambientArr = jsonObject.getAsJsonArray("ambient");
-            for (int i = 0; i < ambientArr.size(); i++) {
-                ambient.add(ctx.deserialize(ambientArr.get(i), NamedType.class));
+    /**
+     * The hierarchy is computed on the first call, from the types reachable from the globals, named types and ambient types as they are then.
+     * Threads that compute it concurrently all get the one that was published first.
+     *
+     * @return the inheritance hierarchy of the interfaces, classes and generic types of the specification
+     */
+    public TypeHierarchy getHierarchy() {
+        TypeHierarchy hierarchy = this.hierarchy;
+        if (hierarchy == null) {
+            hierarchy = TypeHierarchy.of(topLevelTypes());
+            if (!HIERARCHY.compareAndSet(this, null, hierarchy)) {
+                hierarchy = this.hierarchy;
             }
+        }
+        return hierarchy;
+    }
 
-            Map<String, Map<String, ElementInfo>> fileLocations = new HashMap<>();
-            JsonObject object = jsonObject.getAsJsonObject("locations");
-            for (Map.Entry<String, JsonElement> fileEntry : object.entrySet()) {
-                HashMap<String, ElementInfo> locations = new HashMap<>();
-                fileLocations.put(fileEntry.getKey(), locations);
-
-                for (Map.Entry<String, JsonElement> locationEntry : fileEntry.getValue().getAsJsonObject().entrySet()) {
-                    String elementKind = locationEntry.getValue().getAsJsonObject().get("kind").getAsString();
-                    Type typeInfo = ctx.deserialize(locationEntry.getValue().getAsJsonObject().get("type"), Type.class);
-                    String debug = locationEntry.getValue().getAsJsonObject().get("debug").getAsString();
-                    locations.put(locationEntry.getKey(), new ElementInfo(typeInfo, elementKind, debug));
-                }
+    /**
+     * The resolver is created on the first call and shared by all threads, it resolves the members of a type when they are first asked for.
+     *
+     * @return a resolver of the declared and inherited members of the interfaces, classes and generic types of the specification
+     */
+    public MemberResolver getMembers() {
+        MemberResolver members = this.members;
+        if (members == null) {
+            members = new MemberResolver();
+            if (!MEMBERS.compareAndSet(this, null, members)) {
+                members = this.members;
             }
-
-            return new Spec(globals, types, ambient, fileLocations);
         }
+        return members;
+    }
 
-        private Type deserializeUnresolvedType(JsonElement jsonElement, JsonDeserializationContext ctx) {
-            if(jsonElement.isJsonNull()) return null;
-
-            JsonObject object = jsonElement.getAsJsonObject();
-            TypeKind kind = TypeKind.valueOf(object.get("kind").getAsString());
-            switch (kind) {
-                case Any:
-                case String:
-                case Number:
-                case Boolean:
-                case Void:
-                case Undefined:
-                case Null:
-                case Enum:
-                case Symbol:
-                case Never:
-                case Object:
-                    return ctx.deserialize(object, SimpleType.class);
-                case StringLiteral:
-                    return ctx.deserialize(object, StringLiteral.class);
-                case BooleanLiteral:
-                    return ctx.deserialize(object, BooleanLiteral.class);
-                case NumberLiteral:
-                    return ctx.deserialize(object, NumberLiteral.class);
-                case Union:
-                    return ctx.deserialize(object, UnionType.class);
-                case Intersection:
-                    return ctx.deserialize(object, IntersectionType.class);
-                case Interface:
-                    return ctx.deserialize(object, InterfaceType.class);
-                case TypeParameter:
-                    return ctx.deserialize(object, TypeParameterType.class);
-                case Class:
-                    return ctx.deserialize(object, ClassType.class);
-                case ClassInstance:
-                    return ctx.deserialize(object, ClassInstanceType.class);
-                case Reference:
-                    return ctx.deserialize(object, ReferenceType.class);
-                case Generic:
-                    return ctx.deserialize(object, GenericType.class);
-                case Tuple:
-                    return ctx.deserialize(object, TupleType.class);
-                case Anonymous:
-                    return ctx.deserialize(object, AnonymousType.class);
-                case ThisType:
-                    return ctx.deserialize(object, ThisType.class);
-                case Index:
-                    return ctx.deserialize(object, IndexType.class);
-                case IndexedAccess:
-                    return ctx.deserialize(object, IndexedAccessType.class);
-                default:
-                    throw new RuntimeException("Unhandled case: " + kind);
+    /**
+     * The instantiator is created on the first call and shared by all threads, it knows the named types of the specification as they are then.
+     *
+     * @return an instantiator of the generic interfaces and classes of the specification
+     */
+    public TypeInstantiator getInstantiator() {
+        TypeInstantiator instantiator = this.instantiator;
+        if (instantiator == null) {
+            instantiator = new TypeInstantiator(getMembers(), topLevelTypes(), typeIds);
+            if (!INSTANTIATOR.compareAndSet(this, null, instantiator)) {
+                instantiator = this.instantiator;
             }
         }
+        return instantiator;
     }
 
-    private class TypeIDAdapter implements JsonDeserializer<Type> {
-        private final TypeResolver resolver;
-
-        private TypeIDAdapter(TypeResolver resolver) {
-            this.resolver = resolver;
-        }
+    /**
+     * A checker is not thread-safe, each thread should create its own. The checkers share the member resolver, the hierarchy and the instantiator of the specification.
+     *
+     * @return a new checker of the assignability of the types of the specification
+     */
+    public AssignabilityChecker newAssignabilityChecker() {
+        return new AssignabilityChecker(getMembers(), getHierarchy(), getInstantiator());
+    }
 
-        @Override
-        public Type deserialize(JsonElement jsonElement, java.lang.reflect.Type type, JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
-            return this.resolver.resolve(jsonElement.getAsInt());
-        }
+    /**
+     * The locations of a loaded specification are decoded per file when the file is first looked up, the map can be changed as a {@link java.util.HashMap} can,
+     * which decodes the locations of all files first.
+     *
+     * @return the locations of the elements of each file, by file name
+     */
+    public Map<String, Map<String, ElementInfo>> getLocations() {
+        return locations;
     }
 
     public static final class NamedType {
@@ -299,12 +392,31 @@ public class SpecReader {
         private List<NamedType> types;
         private List<NamedType> ambient;
         private Map<String, Map<String, ElementInfo>> locations;
+        private TypeIds typeIds;
+        private Map<Type, Type> canonicalRemapping = Collections.emptyMap();
+        private InterfaceType global;
 
         public Spec(List<NamedType> globals, List<NamedType> types, List<NamedType> ambient, Map<String, Map<String, ElementInfo>> locations) {
+            this(globals, types, ambient, locations, TypeIds.UNOWNED);
+        }
+
+        /**
+         * @param typeIds the allocator of the ids after those of the types read
+         */
+        public Spec(List<NamedType> globals, List<NamedType> types, List<NamedType> ambient, Map<String, Map<String, ElementInfo>> locations, TypeIds typeIds) {
             this.globals = globals;
             this.types = types;
             this.ambient = ambient;
             this.locations = locations;
+            this.typeIds = typeIds;
+        }
+
+        /**
+         * A specification whose global interface is already made, its globals are the properties of the interface.
+         */
+        Spec(InterfaceType global, List<NamedType> types, List<NamedType> ambient, Map<String, Map<String, ElementInfo>> locations, TypeIds typeIds) {
+            this(Collections.emptyList(), types, ambient, locations, typeIds);
+            this.global = global;
         }
 
         @Override
@@ -316,14 +428,30 @@ public class SpecReader {
                     '}';
         }
 
-        public Map<String, Map<String, ElementInfo>> getLocations() {
+        /**
+     * The locations of a loaded specification are decoded per file when the file is first looked up, the map can be changed as a {@link java.util.HashMap} can,
+     * which decodes the locations of all files first.
+     *
+     * @return the locations of the elements of each file, by file name
+     */
+    public Map<String, Map<String, ElementInfo>> getLocations() {
             return locations;
         }
 
+        /**
+         * @return the globals the global interface is made of, empty if the interface is already made
+         */
         public List<NamedType> getGlobals() {
             return globals;
         }
 
+        /**
+         * @return the global interface if it is already made, otherwise null
+         */
+        InterfaceType getGlobal() {
+            return global;
+        }
+
         public List<NamedType> getTypes() {
             return types;
         }
@@ -331,6 +459,18 @@ public class SpecReader {
         public List<NamedType> getAmbient() {
             return ambient;
         }
+
+        public TypeIds getTypeIds() {
+            return typeIds;
+        }
+
+        public Map<Type, Type> getCanonicalRemapping() {
+            return canonicalRemapping;
+        }
+
+        public void setCanonicalRemapping(Map<Type, Type> canonicalRemapping) {
+            this.canonicalRemapping = canonicalRemapping;
+        }
     }
 }
 
@@ -0,0 +1,122 @@
+package dk.au.cs.casa.typescript;
+
+import com.google.gson.stream.JsonReader;
+import dk.au.cs.casa.typescript.SpecReader.Spec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads specifications with a fixed set of options.
+ * <p>
+ * A factory is immutable and can be shared by any number of threads, each load creates its own resolver and parser state.
+ */
+public final class SpecReaderFactory {
+    static final SpecReaderFactory DEFAULT = new SpecReaderFactory();
+
+    private final LoadOptions options;
+
+    public SpecReaderFactory() {
+        this(new LoadOptions());
+    }
+
+    /**
+     * @param options the options of all loads, later changes to the options object do not affect the factory
+     */
+    public SpecReaderFactory(LoadOptions options) {
+        this.options = options.copy();
+    }
+
+    /**
+     * @return a copy of the options of the factory
+     */
+    public LoadOptions getOptions() {
+        return options.copy();
+    }
+
+    /**
+     * Reads a specification from a file, the file may be gzipped.
+     */
+    public SpecReader read(Path specFile) {
+        return loaded(new SpecReader(load(specFile)));
+    }
+
+    /**
+     * Reads a specification from a UTF-8 stream, the stream may be gzipped.
+     * The stream is not closed.
+     */
+    public SpecReader read(InputStream specification) {
+        return loaded(new SpecReader(parse(specification)));
+    }
+
+    /**
+     * Reads a specification from a channel, the content may be gzipped.
+     * The channel is not closed.
+     */
+    public SpecReader read(ReadableByteChannel specification) {
+        return read(Channels.newInputStream(specification));
+    }
+
+    /**
+     * Reads a specification from a character stream.
+     * The reader is consumed incrementally and is not closed.
+     */
+    public SpecReader read(Reader specification) {
+        return loaded(new SpecReader(parse(new JsonReader(specification))));
+    }
+
+    /**
+     * Reads a specification from a string.
+     */
+    public SpecReader read(String specification) {
+        return read(new StringReader(specification));
+    }
+
+    private SpecReader loaded(SpecReader reader) {
+        return options.isFreeze() ? reader.freeze() : reader;
+    }
+
+    /**
+     * Loads a specification from a file through the cache of the options, or parses it if there is no cache.
+     */
+    Spec load(Path specFile) {
+        if (options.getCache() != null) {
+            return options.getCache().read(specFile, this);
+        }
+        return parse(specFile);
+    }
+
+    Spec parse(Path specFile) {
+        try (InputStream in = Files.newInputStream(specFile)) {
+            return parse(in);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    Spec parse(InputStream in) {
+        try {
+            if (options.isParallel()) {
+                return ParallelSpecLoader.load(SpecInput.readFully(in), options);
+            }
+            return parse(new JsonReader(SpecInput.reader(in)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    Spec parse(JsonReader in) {
+        in.setLenient(true);
+        try {
+            return new SpecParser(new TypeResolver(), 1024, options).parse(in);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
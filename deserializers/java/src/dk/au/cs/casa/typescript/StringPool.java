@@ -0,0 +1,75 @@
+package dk.au.cs.casa.typescript;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deduplicates the strings of loaded specifications: property names, qualified names, parameter names, location kinds and the debug texts of locations.
+ * The debug texts are pooled when the locations of their file are decoded.
+ * <p>
+ * Each load uses a pool of its own unless a pool is given with {@link LoadOptions#setStringPool(StringPool)}, a pool given to several loads is shared by the specifications.
+ * A pool is thread-safe.
+ */
+public final class StringPool {
+    /**
+     * The estimated size of a string besides its characters: the string object and the header of its character array, on a 64-bit JVM with compressed references.
+     */
+    private static final int STRING_OVERHEAD = 24 + 16;
+
+    private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * @return the pooled string equal to the given string, the given string itself the first time it is seen
+     */
+    public String intern(String string) {
+        if (string == null) {
+            return null;
+        }
+        lookups.increment();
+        String pooled = strings.putIfAbsent(string, string);
+        if (pooled == null) {
+            return string;
+        }
+        hits.increment();
+        savedBytes.add(STRING_OVERHEAD + ((2L * string.length() + 7) & ~7));
+        return pooled;
+    }
+
+    /**
+     * @return the number of distinct strings in the pool
+     */
+    public int size() {
+        return strings.size();
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return the number of lookups that returned a string already in the pool
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the estimated number of bytes of the duplicate strings that were replaced by pooled strings
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "StringPool{" +
+                "size=" + size() +
+                ", lookups=" + getLookups() +
+                ", hits=" + getHits() +
+                ", savedBytes=" + getSavedBytes() +
+                '}';
+    }
+}
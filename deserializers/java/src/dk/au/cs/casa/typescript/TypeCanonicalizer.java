@@ -0,0 +1,196 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.types.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges structurally equal union, intersection, tuple and reference types.
+ * <p>
+ * Two such types are equal if they are of the same class, their element types, or target and type arguments, are pairwise equal in order, and tuples have the same minimum length.
+ * Element types of other classes are compared by identity. Cycles are handled by computing the coarsest partition of the types that is stable under this rule (a bisimulation),
+ * by refining the partition in rounds until the number of classes no longer grows.
+ */
+final class TypeCanonicalizer {
+    private static final int UNION = 0;
+    private static final int INTERSECTION = 1;
+    private static final int TUPLE = 2;
+    private static final int REFERENCE = 3;
+
+    /**
+     * The element types of a type, the target of a reference first.
+     * Elements that are candidates themselves are given by their index, other elements by a negative code, -1 for null.
+     */
+    private final int[][] children;
+    private final int[] kinds;
+    /**
+     * The scalar field that {@link Structural#equal(Type, Type)} compares, the minimum length of a tuple and 0 for the other kinds.
+     */
+    private final int[] scalars;
+    private final Type[] candidates;
+
+    private TypeCanonicalizer(List<Type> types) {
+        Map<Type, Integer> indices = new IdentityHashMap<>();
+        for (Type type : types) {
+            if (kind(type) >= 0 && !indices.containsKey(type)) {
+                indices.put(type, indices.size());
+            }
+        }
+        candidates = new Type[indices.size()];
+        kinds = new int[candidates.length];
+        scalars = new int[candidates.length];
+        children = new int[candidates.length][];
+        Map<Type, Integer> others = new IdentityHashMap<>();
+        for (Map.Entry<Type, Integer> entry : indices.entrySet()) {
+            Type type = entry.getKey();
+            int index = entry.getValue();
+            candidates[index] = type;
+            kinds[index] = kind(type);
+            List<Type> elements;
+            Type first = null;
+            boolean hasFirst = false;
+            switch (kinds[index]) {
+                case UNION:
+                    elements = ((UnionType) type).getElements();
+                    break;
+                case INTERSECTION:
+                    elements = ((IntersectionType) type).getElements();
+                    break;
+                case TUPLE:
+                    elements = ((TupleType) type).getElementTypes();
+                    scalars[index] = ((TupleType) type).getMinLength();
+                    break;
+                default:
+                    first = ((ReferenceType) type).getTarget();
+                    hasFirst = true;
+                    elements = ((ReferenceType) type).getTypeArguments();
+            }
+            int offset = hasFirst ? 1 : 0;
+            int[] codes = new int[offset + (elements == null ? 1 : elements.size())];
+            if (hasFirst) {
+                codes[0] = code(first, indices, others);
+            }
+            if (elements == null) {
+                codes[offset] = Integer.MIN_VALUE; // distinguishes a null list from an empty one
+            } else {
+                for (int i = 0; i < elements.size(); i++) {
+                    codes[offset + i] = code(elements.get(i), indices, others);
+                }
+            }
+            children[index] = codes;
+        }
+    }
+
+    private static int kind(Type type) {
+        if (type instanceof UnionType) {
+            return UNION;
+        } else if (type instanceof IntersectionType) {
+            return INTERSECTION;
+        } else if (type instanceof TupleType) {
+            return TUPLE;
+        } else if (type instanceof ReferenceType) {
+            return REFERENCE;
+        }
+        return -1;
+    }
+
+    private static int code(Type type, Map<Type, Integer> indices, Map<Type, Integer> others) {
+        if (type == null) {
+            return -1;
+        }
+        Integer index = indices.get(type);
+        if (index != null) {
+            return index;
+        }
+        return -2 - others.computeIfAbsent(type, t -> others.size());
+    }
+
+    /**
+     * Merges the structurally equal types among the given types, and replaces the references to the merged types in the fields of the remaining types.
+     *
+     * @return the merged types mapped to the types that replace them
+     */
+    static Map<Type, Type> canonicalize(List<Type> types) {
+        TypeCanonicalizer canonicalizer = new TypeCanonicalizer(types);
+        int[] classes = canonicalizer.partition();
+        Type[] representatives = new Type[canonicalizer.candidates.length];
+        Map<Type, Type> remapping = new IdentityHashMap<>();
+        for (int i = 0; i < classes.length; i++) {
+            Type candidate = canonicalizer.candidates[i];
+            if (representatives[classes[i]] == null) {
+                representatives[classes[i]] = candidate;
+            } else {
+                remapping.put(candidate, representatives[classes[i]]);
+            }
+        }
+        if (!remapping.isEmpty()) {
+            TypeResolver.ResolverVisitor rewriter = new TypeResolver.ResolverVisitor(type -> remapping.getOrDefault(type, type));
+            Map<Type, Boolean> visited = new IdentityHashMap<>();
+            for (Type type : types) {
+                if (!remapping.containsKey(type) && visited.put(type, Boolean.TRUE) == null) {
+                    type.accept(rewriter);
+                }
+            }
+        }
+        return remapping;
+    }
+
+    /**
+     * @return the class of each candidate in the coarsest stable partition
+     */
+    private int[] partition() {
+        int[] classes = new int[candidates.length];
+        int count = candidates.length == 0 ? 0 : 1;
+        while (true) {
+            Map<PartitionKey, Integer> keys = new HashMap<>();
+            int[] refined = new int[candidates.length];
+            for (int i = 0; i < candidates.length; i++) {
+                int[] codes = children[i];
+                int[] key = new int[codes.length + 3];
+                key[0] = classes[i];
+                key[1] = kinds[i];
+                key[2] = scalars[i];
+                for (int j = 0; j < codes.length; j++) {
+                    key[j + 3] = codes[j] >= 0 ? classes[codes[j]] : codes[j];
+                }
+                PartitionKey partitionKey = new PartitionKey(key);
+                Integer refinedClass = keys.get(partitionKey);
+                if (refinedClass == null) {
+                    refinedClass = keys.size();
+                    keys.put(partitionKey, refinedClass);
+                }
+                refined[i] = refinedClass;
+            }
+            // the classes only split, so an unchanged count means an unchanged partition
+            if (keys.size() == count) {
+                return refined;
+            }
+            classes = refined;
+            count = keys.size();
+        }
+    }
+
+    private static final class PartitionKey {
+        private final int[] key;
+        private final int hash;
+
+        private PartitionKey(int[] key) {
+            this.key = key;
+            this.hash = Arrays.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PartitionKey && Arrays.equals(key, ((PartitionKey) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
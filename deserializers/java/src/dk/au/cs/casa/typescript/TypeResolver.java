@@ -2,67 +2,210 @@ package dk.au.cs.casa.typescript;
 
 import dk.au.cs.casa.typescript.types.*;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.IntFunction;
 
 /**
- * Registers type by unique IDs and replaces the IDs with real types later.
+ * Maps type ids to types in a dense table indexed by id.
+ * <p>
+ * Resolution happens in two phases: first one shell object is registered per id, then the fields of the shells are filled with the results of {@link #resolve(int)}, which are the final shells themselves.
+ * Registration of distinct ids is thread-safe as long as the table does not need to grow, see {@link #TypeResolver(int)}.
+ * A resolver that decodes its types, see {@link #TypeResolver(int, IntFunction)}, publishes them with volatile writes and reads, so it can be read by several threads.
  */
 public class TypeResolver {
+    /**
+     * Marks an id that has been registered with a null type.
+     */
+    private static final Type NULL = new UnresolvedType(-1);
+
+    private volatile Type[] typeTable;
+    /**
+     * The table of a decoding resolver, or null. Its types are registered and read with volatile semantics,
+     * so a thread that resolves a type another thread decoded also sees the fields the decoder read before it registered the type.
+     */
+    private final AtomicReferenceArray<Type> decodedTable;
+    private final IntFunction<Type> decoder;
     private boolean resolved = false;
-    private Map<Integer, Type> typeIdMap = new HashMap<>();
 
+    public TypeResolver() {
+        this(1024);
+    }
+
+    /**
+     * Creates a resolver with room for the ids below the expected size, these ids can be registered concurrently.
+     */
+    public TypeResolver(int expectedSize) {
+        this.typeTable = new Type[Math.max(expectedSize, 1)];
+        this.decodedTable = null;
+        this.decoder = null;
+    }
+
+    /**
+     * Creates a resolver that decodes each type the first time its id is resolved.
+     * The decoder must {@link #register(int, Type)} the type before it resolves the ids the type refers to.
+     *
+     * @param size the number of ids, all ids that are resolved or registered are below it
+     */
+    public TypeResolver(int size, IntFunction<Type> decoder) {
+        this.typeTable = new Type[0];
+        this.decodedTable = new AtomicReferenceArray<>(size);
+        this.decoder = decoder;
+    }
+
+    /**
+     * @return the type registered for the id, or null for a negative id
+     */
     public Type resolve(int id) {
-        if (!resolved) {
-            return new UnresolvedType(id);
+        if (id < 0) {
+            return null;
         }
-        if (!typeIdMap.containsKey(id)) {
+        Type type = get(id);
+        if (type == null && decoder != null) {
+            type = decoder.apply(id);
+        } else if (type == null) {
             throw new RuntimeException("Id " + id + " does not exist!?!");
         }
-        return typeIdMap.get(id);
+        return type == NULL ? null : type;
+    }
+
+    /**
+     * @return the type registered for the id, without decoding it, or null if no type is registered
+     */
+    Type registered(int id) {
+        Type type = get(id);
+        return type == NULL ? null : type;
+    }
+
+    private Type get(int id) {
+        if (decodedTable != null) {
+            return id < decodedTable.length() ? decodedTable.get(id) : null;
+        }
+        Type[] table = typeTable;
+        return id < table.length ? table[id] : null;
     }
 
     public void register(int id, Type type) {
         if (resolved) {
-            throw new RuntimeException("Already fully resolved?!?" /* just a sanity check, technically it is fine to add more as long as a #resolveAll() is done afterwards... */);
+            throw new RuntimeException("Already fully resolved?!?");
+        }
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        if (decodedTable != null) {
+            if (id >= decodedTable.length()) {
+                throw new IllegalArgumentException("Id " + id + " is not below the size " + decodedTable.length());
+            }
+            if (!decodedTable.compareAndSet(id, null, type == null ? NULL : type)) {
+                throw new RuntimeException("Id " + id + " already used!?!");
+            }
+            return;
+        }
+        if (id >= typeTable.length) {
+            grow(id + 1);
         }
-        if (typeIdMap.containsKey(id)) {
+        Type[] table = typeTable;
+        if (table[id] != null) {
             throw new RuntimeException("Id " + id + " already used!?!");
         }
-        typeIdMap.put(id, type);
+        table[id] = type == null ? NULL : type;
     }
 
+    /**
+     * Replaces the placeholders that are left in the fields of the registered types: an {@link UnresolvedType} by the type registered for its id,
+     * a {@link DelayedType} by the type it stands for. No more types can be registered afterwards.
+     *
+     * @deprecated {@link #resolve(int)} returns the registered types themselves, so the types filled in with it have no placeholders to replace.
+     * Only types that were built with placeholders by hand need this.
+     */
+    @Deprecated
     public void resolveAll() {
         if (resolved) {
             throw new RuntimeException("Already fully resolved?!?");
         }
         resolved = true;
-        TypeVisitor<Void> v = new ResolverVisitor(t -> {
-            if (t instanceof UnresolvedType) {
-                return typeIdMap.get(((UnresolvedType) t).getId());
-            } else if (t instanceof DelayedType) {
-                return ((DelayedType) t).getType();
-            } else {
-                return t;
+        ResolverVisitor visitor = new ResolverVisitor(type -> {
+            if (type instanceof UnresolvedType) {
+                return resolve(((UnresolvedType) type).getId());
+            } else if (type instanceof DelayedType) {
+                return ((DelayedType) type).getType();
             }
+            return type;
         });
-        typeIdMap.forEach((key, value) -> {
-            try {
-                value.accept(v);
-            } catch (NullPointerException e) {
-                System.out.println("NullPointerException at id " + key + " / type: " + value);
+        int size = decodedTable != null ? decodedTable.length() : typeTable.length;
+        for (int id = 0; id < size; id++) {
+            Type type = get(id);
+            if (type != null && type != NULL) {
+                type.accept(visitor);
             }
-        });
+        }
+    }
+
+    /**
+     * Merges the structurally equal union, intersection, tuple and reference types of the table, see {@link TypeCanonicalizer}.
+     * The fields of the remaining types and the table itself refer to the merged types' replacements afterwards.
+     * All registered types must be filled in.
+     *
+     * @return the merged types mapped to the types that replace them, for callers that still hold references to merged types
+     */
+    public Map<Type, Type> canonicalize() {
+        if (decoder != null) {
+            throw new IllegalStateException("The types of a decoding resolver are not all known");
+        }
+        Type[] table = typeTable;
+        List<Type> types = new ArrayList<>(table.length);
+        for (Type type : table) {
+            if (type != null && type != NULL) {
+                types.add(type);
+            }
+        }
+        Map<Type, Type> remapping = TypeCanonicalizer.canonicalize(types);
+        for (int id = 0; id < table.length; id++) {
+            Type replacement = table[id] == null ? null : remapping.get(table[id]);
+            if (replacement != null) {
+                table[id] = replacement;
+            }
+        }
+        return remapping;
+    }
+
+    /**
+     * @return an allocator of the ids after the last registered id, for the types that are created for the specification afterwards
+     */
+    public TypeIds newTypeIds() {
+        if (decodedTable != null) {
+            return new TypeIds(decodedTable.length());
+        }
+        Type[] table = typeTable;
+        int end = table.length;
+        while (end > 0 && table[end - 1] == null) {
+            end--;
+        }
+        return new TypeIds(end);
+    }
+
+    private synchronized void grow(int minimumSize) {
+        Type[] table = typeTable;
+        if (minimumSize <= table.length) {
+            return;
+        }
+        typeTable = Arrays.copyOf(table, Math.max(minimumSize, table.length * 2));
     }
 
     /**
-     * Replaces UnresolvedType values in all fields of a type.
+     * Replaces UnresolvedType values in all fields of a type, including the fields of its signatures and of their targets and union signatures.
+     * A signature shared by several types is only visited once.
      */
     public static final class ResolverVisitor implements TypeVisitor<Void> {
         final Function<Type, Type> mapper;
+        private final Set<Signature> visitedSignatures = Collections.newSetFromMap(new IdentityHashMap<>());
 
         public ResolverVisitor(Function<Type, Type> mapper) {
             this.mapper = mapper;
@@ -103,31 +246,68 @@ public class TypeResolver {
             return null;
         }
 
+        /**
+         * @return the map itself if no value changes
+         */
         private Map<String, Type> mapMap(Map<String, Type> map) {
-            Map<String, Type> mapped = new HashMap<>();
-            map.forEach((k, v) -> mapped.put(k, map(v)));
-            return mapped;
+            if (map == null || map.values().stream().allMatch(type -> map(type) == type)) {
+                return map;
+            }
+            String[] names = new String[map.size()];
+            Type[] types = new Type[map.size()];
+            int i = 0;
+            for (Map.Entry<String, Type> entry : map.entrySet()) {
+                names[i] = entry.getKey();
+                types[i] = map(entry.getValue());
+                i++;
+            }
+            return new PropertyTable(names, types);
         }
 
         private void visit(List<Signature> signatures) {
-            signatures.forEach(this::visit);
+            if (signatures != null) {
+                signatures.forEach(this::visit);
+            }
         }
 
         private void visit(Signature signature) {
-            signature.getParameters().forEach(p -> {
-                p.setType(map(p.getType()));
-            });
+            if (signature == null || !visitedSignatures.add(signature)) {
+                return;
+            }
+            if (signature.getParameters() != null) {
+                signature.getParameters().forEach(p -> {
+                    p.setType(map(p.getType()));
+                });
+            }
             signature.setResolvedReturnType(map(signature.getResolvedReturnType()));
 
-            if (signature.getTarget() != null && signature.getTarget() != signature) {
-                visit(signature.getTarget());
-            }
+            visit(signature.getTarget());
+            visit(signature.getUnionSignatures());
+            signature.setIsolatedSignatureType(map(signature.getIsolatedSignatureType()));
 
             signature.setTypeParameters(map(signature.getTypeParameters()));
         }
 
+        /**
+         * @return the list itself if no element changes
+         */
         private List<Type> map(List<Type> types) {
-            return types.stream().map(this::map).collect(Collectors.toList());
+            if (types == null) {
+                return null;
+            }
+            List<Type> mapped = null;
+            for (int i = 0; i < types.size(); i++) {
+                Type type = types.get(i);
+                Type result = map(type);
+                if (result != type && mapped == null) {
+                    mapped = new ArrayList<>(types.size());
+                    mapped.addAll(types.subList(0, i));
+                }
+                if (mapped != null) {
+                    mapped.add(result);
+                }
+            }
+            return mapped == null ? types : mapped;
         }
 
         private Type map(Type t) {
@@ -1,11 +1,29 @@
 package dk.au.cs.casa.typescript.types;
 
 public class AnonymousType implements Type {
+    private final int typeId;
+
+    public AnonymousType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public AnonymousType(int id) {
+        this.typeId = id;
+    }
+
     @Override
     public String toString() {
         return "Anonymous";
     }
 
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
@@ -0,0 +1,616 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks whether values of one type are assignable to another, structurally and following the rules of the TypeScript checker for
+ * primitives, literals, unions, intersections, type parameters, tuples, properties, signatures, index types and references with type arguments.
+ * <p>
+ * Recursive types are related coinductively: a pair that is already being checked further up is assumed to be assignable.
+ * Results are remembered in a table of fixed size indexed by the ids of the two types, an entry replaces the one at its slot.
+ * The ids are only unique within one specification, see {@link TypeIds}, so a checker should only compare the types of one specification.
+ * A result that rests on an assumption is remembered once the pair it assumed turned out to be assignable.
+ * Pairs nested deeper than {@link #MAX_DEPTH} are assumed to be assignable, as the TypeScript checker does.
+ * <p>
+ * The rules are those without strict null checks unless {@link #setStrictNullChecks(boolean)} is set.
+ * Parameters are compared bivariantly, and the type parameters of generic signatures are erased to any while the signatures are compared.
+ * Interfaces and classes are assignable to the declarations they inherit from without comparing their members, if a hierarchy is given.
+ * The type arguments of references to the same declaration are compared pairwise and covariantly. References to different declarations are compared by their members,
+ * instantiated with their type arguments if an instantiator is given, see {@link TypeInstantiator}, and otherwise those of the declarations, see {@link MemberResolver}.
+ * Primitives are not related to their wrapper interfaces, and placeholders for types that could not be read, {@link AnonymousType} and {@link UnresolvedType}, are related to everything.
+ * <p>
+ * A checker is not thread-safe, threads that check the same frozen types should each use their own, they can share the resolver and the hierarchy.
+ */
+public final class AssignabilityChecker {
+    /**
+     * The deepest nesting of pairs that is checked.
+     */
+    public static final int MAX_DEPTH = 100;
+    private static final int DEFAULT_MEMO_CAPACITY = 1 << 16;
+    private static final int TRUE = 1;
+    private static final int FALSE = 0;
+    private static final int UNKNOWN = -1;
+
+    private final MemberResolver members;
+    private final TypeHierarchy hierarchy;
+    private final TypeInstantiator instantiator;
+    /**
+     * The pair of the ids of the source and target types remembered at each slot, see {@link #pair(Type, Type)}, or -1 for a free slot.
+     * -1 is the pair of a type with itself, which is never remembered.
+     */
+    private final long[] memoKeys;
+    private final boolean[] memoResults;
+    private final int memoShift;
+    private boolean strictNullChecks = false;
+
+    /**
+     * The pairs being checked, outermost first.
+     */
+    private long[] active = new long[32];
+    private int depth = 0;
+    /**
+     * The outermost position in {@link #active} of a pair that the current check assumed, or {@link Integer#MAX_VALUE} if it assumed none.
+     */
+    private int assumed = Integer.MAX_VALUE;
+    /**
+     * The pairs that are assignable if the pairs they assumed are.
+     */
+    private long[] provisional = new long[32];
+    private int provisionalCount = 0;
+    /**
+     * The type parameters of the generic signatures being compared, which are related to everything.
+     */
+    private final Set<Type> erased = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean erasedUsed = false;
+
+    /**
+     * @param members   the resolver of the members of the types
+     * @param hierarchy the inheritance hierarchy of the types, or null to compare inheriting declarations by their members
+     */
+    public AssignabilityChecker(MemberResolver members, TypeHierarchy hierarchy) {
+        this(members, hierarchy, null, DEFAULT_MEMO_CAPACITY);
+    }
+
+    /**
+     * @param instantiator the instantiator of references with type arguments, or null to compare them by the members of their declarations
+     */
+    public AssignabilityChecker(MemberResolver members, TypeHierarchy hierarchy, TypeInstantiator instantiator) {
+        this(members, hierarchy, instantiator, DEFAULT_MEMO_CAPACITY);
+    }
+
+    public AssignabilityChecker(MemberResolver members, TypeHierarchy hierarchy, int memoCapacity) {
+        this(members, hierarchy, null, memoCapacity);
+    }
+
+    /**
+     * @param memoCapacity the number of results that are remembered, rounded up to a power of two
+     */
+    public AssignabilityChecker(MemberResolver members, TypeHierarchy hierarchy, TypeInstantiator instantiator, int memoCapacity) {
+        if (memoCapacity < 1) {
+            throw new IllegalArgumentException("The memo capacity must be positive: " + memoCapacity);
+        }
+        int bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(memoCapacity - 1));
+        this.members = members;
+        this.hierarchy = hierarchy;
+        this.instantiator = instantiator;
+        this.memoKeys = new long[1 << bits];
+        Arrays.fill(memoKeys, -1);
+        this.memoResults = new boolean[1 << bits];
+        this.memoShift = 64 - bits;
+    }
+
+    public boolean isStrictNullChecks() {
+        return strictNullChecks;
+    }
+
+    /**
+     * Changing the rules forgets the remembered results.
+     */
+    public void setStrictNullChecks(boolean strictNullChecks) {
+        if (this.strictNullChecks != strictNullChecks) {
+            this.strictNullChecks = strictNullChecks;
+            clear();
+        }
+    }
+
+    /**
+     * Forgets the remembered results, e.g. after the types have changed.
+     */
+    public void clear() {
+        Arrays.fill(memoKeys, -1);
+    }
+
+    /**
+     * @return true if a value of the source type is assignable to the target type, a missing type is related to everything
+     */
+    public boolean isAssignable(Type source, Type target) {
+        return related(normalize(source), target);
+    }
+
+    /**
+     * Checks one source type against many targets. The source is prepared once,
+     * and the results for the parts of the source, e.g. the types of its properties, are remembered and reused for the later targets.
+     *
+     * @return the positions of the targets the source is assignable to
+     */
+    public BitSet getAssignableTargets(Type source, List<? extends Type> targets) {
+        Type normalized = normalize(source);
+        if (normalized != null && !(normalized instanceof SimpleType)) {
+            membersOf(normalized);
+        }
+        BitSet result = new BitSet(targets.size());
+        for (int i = 0; i < targets.size(); i++) {
+            if (related(normalized, targets.get(i))) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the type with placeholders resolved and references without type arguments replaced by their targets
+     */
+    private static Type normalize(Type type) {
+        for (int steps = 0; type != null && steps < TypeHierarchy.MAX_INDIRECTIONS; steps++) {
+            type = DelayedType.resolve(type);
+            if (type instanceof ReferenceType && isEmpty(((ReferenceType) type).getTypeArguments())) {
+                type = ((ReferenceType) type).getTarget();
+            } else {
+                return type;
+            }
+        }
+        return type;
+    }
+
+    private static boolean isEmpty(List<?> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private boolean related(Type source, Type target) {
+        target = normalize(target);
+        if (source == target || source == null || target == null) {
+            return true;
+        }
+        int quick = quickRelation(source, target);
+        if (quick != UNKNOWN) {
+            return quick == TRUE;
+        }
+        long pair = pair(source, target);
+        int slot = slot(pair);
+        if (memoKeys[slot] == pair && (memoResults[slot] || erased.isEmpty())) {
+            return memoResults[slot];
+        }
+        for (int i = 0; i < depth; i++) {
+            if (active[i] == pair) {
+                assumed = Math.min(assumed, i);
+                return true;
+            }
+        }
+        if (depth == MAX_DEPTH) {
+            return true;
+        }
+        if (depth == active.length) {
+            active = Arrays.copyOf(active, active.length * 2);
+        }
+        int position = depth;
+        active[depth++] = pair;
+        int outerAssumed = assumed;
+        boolean outerErasedUsed = erasedUsed;
+        int provisionalStart = provisionalCount;
+        assumed = Integer.MAX_VALUE;
+        erasedUsed = false;
+        boolean result;
+        try {
+            result = structuredRelation(source, target);
+        } finally {
+            depth--;
+        }
+        int innerAssumed = assumed;
+        boolean innerErasedUsed = erasedUsed;
+        if (!result) {
+            provisionalCount = provisionalStart;
+            remember(pair, false);
+            assumed = outerAssumed;
+        } else if (innerAssumed >= position) {
+            if (!innerErasedUsed) {
+                for (int i = provisionalStart; i < provisionalCount; i++) {
+                    remember(provisional[i], true);
+                }
+                remember(pair, true);
+            }
+            provisionalCount = provisionalStart;
+            assumed = outerAssumed;
+        } else {
+            if (!innerErasedUsed) {
+                if (provisionalCount == provisional.length) {
+                    provisional = Arrays.copyOf(provisional, provisional.length * 2);
+                }
+                provisional[provisionalCount++] = pair;
+            }
+            assumed = Math.min(outerAssumed, innerAssumed);
+        }
+        erasedUsed = outerErasedUsed || innerErasedUsed;
+        return result;
+    }
+
+    /**
+     * @return the id of the source in the high half and the id of the target in the low half
+     */
+    private static long pair(Type source, Type target) {
+        return (long) source.id() << 32 | (target.id() & 0xFFFFFFFFL);
+    }
+
+    private int slot(long pair) {
+        return (int) (pair * 0x9E3779B97F4A7C15L >>> memoShift);
+    }
+
+    private void remember(long pair, boolean result) {
+        int slot = slot(pair);
+        memoKeys[slot] = pair;
+        memoResults[slot] = result;
+    }
+
+    /**
+     * Decides the pairs that need no further checks, from their kinds alone.
+     */
+    private int quickRelation(Type source, Type target) {
+        if (isKind(target, SimpleTypeKind.Any) || source instanceof AnonymousType || source instanceof UnresolvedType
+                || target instanceof AnonymousType || target instanceof UnresolvedType) {
+            return TRUE;
+        }
+        if (isKind(source, SimpleTypeKind.Any)) {
+            return isKind(target, SimpleTypeKind.Never) ? FALSE : TRUE;
+        }
+        if (isKind(source, SimpleTypeKind.Never)) {
+            return TRUE;
+        }
+        if (isKind(target, SimpleTypeKind.Never)) {
+            return FALSE;
+        }
+        if (source instanceof TypeParameterType && erased.contains(source) || target instanceof TypeParameterType && erased.contains(target)) {
+            erasedUsed = true;
+            return TRUE;
+        }
+        if (isKind(source, SimpleTypeKind.Undefined) || isKind(source, SimpleTypeKind.Null)) {
+            if (!strictNullChecks || isKind(target, ((SimpleType) source).getKind())
+                    || isKind(source, SimpleTypeKind.Undefined) && isKind(target, SimpleTypeKind.Void)) {
+                return TRUE;
+            }
+            return target instanceof UnionType || target instanceof IntersectionType ? UNKNOWN : FALSE;
+        }
+        if (isPrimitive(source) && isPrimitive(target)) {
+            return primitiveRelation(source, target) ? TRUE : FALSE;
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean isKind(Type type, SimpleTypeKind kind) {
+        return type instanceof SimpleType && ((SimpleType) type).getKind() == kind;
+    }
+
+    /**
+     * @return true for the simple types other than object, and for literals
+     */
+    private static boolean isPrimitive(Type type) {
+        return type instanceof SimpleType && ((SimpleType) type).getKind() != SimpleTypeKind.Object
+                || type instanceof StringLiteral || type instanceof NumberLiteral || type instanceof BooleanLiteral;
+    }
+
+    private static boolean primitiveRelation(Type source, Type target) {
+        if (target instanceof StringLiteral) {
+            return source instanceof StringLiteral && ((StringLiteral) source).getText().equals(((StringLiteral) target).getText());
+        } else if (target instanceof NumberLiteral) {
+            return source instanceof NumberLiteral && Double.compare(((NumberLiteral) source).getValue(), ((NumberLiteral) target).getValue()) == 0;
+        } else if (target instanceof BooleanLiteral) {
+            return source instanceof BooleanLiteral && ((BooleanLiteral) source).getValue() == ((BooleanLiteral) target).getValue();
+        }
+        SimpleTypeKind targetKind = ((SimpleType) target).getKind();
+        if (source instanceof StringLiteral) {
+            return targetKind == SimpleTypeKind.String;
+        } else if (source instanceof NumberLiteral) {
+            return targetKind == SimpleTypeKind.Number || targetKind == SimpleTypeKind.Enum;
+        } else if (source instanceof BooleanLiteral) {
+            return targetKind == SimpleTypeKind.Boolean;
+        }
+        SimpleTypeKind sourceKind = ((SimpleType) source).getKind();
+        return sourceKind == targetKind
+                || sourceKind == SimpleTypeKind.Number && targetKind == SimpleTypeKind.Enum
+                || sourceKind == SimpleTypeKind.Enum && targetKind == SimpleTypeKind.Number;
+    }
+
+    private boolean structuredRelation(Type source, Type target) {
+        if (source instanceof UnionType) {
+            for (Type element : elements(((UnionType) source).getElements())) {
+                if (!related(normalize(element), target)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (target instanceof UnionType) {
+            List<Type> elements = elements(((UnionType) target).getElements());
+            for (Type element : elements) {
+                if (normalize(element) == source) {
+                    return true;
+                }
+            }
+            if (isKind(source, SimpleTypeKind.Boolean) && elements.contains(BooleanLiteral.TRUE) && elements.contains(BooleanLiteral.FALSE)) {
+                return true;
+            }
+            for (Type element : elements) {
+                if (related(source, element)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (target instanceof IntersectionType) {
+            for (Type element : elements(((IntersectionType) target).getElements())) {
+                if (!related(source, element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (source instanceof IntersectionType) {
+            List<Type> elements = elements(((IntersectionType) source).getElements());
+            for (Type element : elements) {
+                if (related(normalize(element), target)) {
+                    return true;
+                }
+            }
+            return isObject(target) && membersRelated(elements, target);
+        }
+        if (source instanceof TypeParameterType || source instanceof ThisType) {
+            Type constraint = source instanceof TypeParameterType ? ((TypeParameterType) source).getConstraint() : ((ThisType) source).getConstraint();
+            return constraint == null ? isEmptyObject(target) : related(normalize(constraint), target);
+        }
+        if (target instanceof ThisType) {
+            Type constraint = ((ThisType) target).getConstraint();
+            return constraint != null && related(source, constraint);
+        }
+        if (target instanceof TypeParameterType) {
+            return false;
+        }
+        if (source instanceof IndexType || source instanceof IndexedAccessType || target instanceof IndexType || target instanceof IndexedAccessType) {
+            return sameOperator(source, target) || isEmptyObject(target);
+        }
+        if (isPrimitive(source)) {
+            return isEmptyObject(target);
+        }
+        if (isPrimitive(target)) {
+            return false;
+        }
+        if (target instanceof TupleType) {
+            return source instanceof TupleType && tupleRelated((TupleType) source, (TupleType) target);
+        }
+        if (isKind(target, SimpleTypeKind.Object)) {
+            return true;
+        }
+        if (source instanceof TupleType || isKind(source, SimpleTypeKind.Object)) {
+            return isEmptyObject(target);
+        }
+        return objectRelated(source, target);
+    }
+
+    private static List<Type> elements(List<Type> elements) {
+        return elements == null ? Collections.emptyList() : elements;
+    }
+
+    private static boolean isObject(Type type) {
+        return type instanceof InterfaceType || type instanceof GenericType || type instanceof ClassType
+                || type instanceof ClassInstanceType || type instanceof ReferenceType;
+    }
+
+    /**
+     * @return true if the type is an object type without members, which all values other than null and undefined are assignable to
+     */
+    private boolean isEmptyObject(Type type) {
+        if (!isObject(type)) {
+            return false;
+        }
+        MemberTable table = membersOf(type);
+        return table != null && table.size() == 0 && table.getCallSignatures().isEmpty() && table.getConstructSignatures().isEmpty()
+                && table.getStringIndexType() == null && table.getNumberIndexType() == null;
+    }
+
+    private static boolean sameOperator(Type source, Type target) {
+        if (source instanceof IndexType && target instanceof IndexType) {
+            return normalize(((IndexType) source).getType()) == normalize(((IndexType) target).getType());
+        } else if (source instanceof IndexedAccessType && target instanceof IndexedAccessType) {
+            IndexedAccessType s = (IndexedAccessType) source;
+            IndexedAccessType t = (IndexedAccessType) target;
+            return normalize(s.getObjectType()) == normalize(t.getObjectType()) && normalize(s.getIndexType()) == normalize(t.getIndexType());
+        }
+        return false;
+    }
+
+    private boolean tupleRelated(TupleType source, TupleType target) {
+        List<Type> sourceElements = elements(source.getElementTypes());
+        List<Type> targetElements = elements(target.getElementTypes());
+        if (sourceElements.size() > targetElements.size() || source.getMinLength() < target.getMinLength()) {
+            return false;
+        }
+        for (int i = 0; i < sourceElements.size(); i++) {
+            if (!related(normalize(sourceElements.get(i)), targetElements.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean objectRelated(Type source, Type target) {
+        Type sourceDeclaration = referencedDeclaration(source);
+        Type targetDeclaration = referencedDeclaration(target);
+        List<Type> sourceArguments = typeArguments(source);
+        List<Type> targetArguments = typeArguments(target);
+        if (sourceDeclaration != null && sourceDeclaration == targetDeclaration && !isEmpty(targetArguments)
+                && sourceArguments != null && sourceArguments.size() == targetArguments.size()) {
+            for (int i = 0; i < sourceArguments.size(); i++) {
+                if (!related(normalize(sourceArguments.get(i)), targetArguments.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (hierarchy != null && sourceDeclaration != null && targetDeclaration != null && isEmpty(targetArguments)
+                && !(source instanceof ClassType) && !(target instanceof ClassType) && hierarchy.inheritsFrom(sourceDeclaration, targetDeclaration)) {
+            return true;
+        }
+        return membersRelated(Collections.singletonList(source), target);
+    }
+
+    /**
+     * @return the declaration the type refers to, or null for a class, whose static side refers to no declaration
+     */
+    private static Type referencedDeclaration(Type type) {
+        return type instanceof ClassType ? null : TypeHierarchy.declarationOf(type);
+    }
+
+    /**
+     * @return the type arguments of a reference, or the type parameters of a generic type as it refers to itself, or null
+     */
+    private static List<Type> typeArguments(Type type) {
+        if (type instanceof ReferenceType) {
+            return ((ReferenceType) type).getTypeArguments();
+        } else if (type instanceof GenericType) {
+            return ((GenericType) type).getTypeArguments();
+        }
+        return null;
+    }
+
+    /**
+     * @param sources the types whose members are combined, the first one that has a property gives its type
+     */
+    private boolean membersRelated(List<Type> sources, Type target) {
+        MemberTable targetMembers = membersOf(target);
+        if (targetMembers == null) {
+            return false;
+        }
+        MemberTable[] sourceMembers = new MemberTable[sources.size()];
+        for (int i = 0; i < sourceMembers.length; i++) {
+            sourceMembers[i] = membersOf(normalize(sources.get(i)));
+        }
+        for (int i = 0; i < targetMembers.size(); i++) {
+            Type property = property(sourceMembers, targetMembers.nameAt(i));
+            if (property == null || !related(normalize(property), targetMembers.typeAt(i))) {
+                return false;
+            }
+        }
+        if (!signaturesRelated(sourceMembers, targetMembers.getCallSignatures(), true)
+                || !signaturesRelated(sourceMembers, targetMembers.getConstructSignatures(), false)) {
+            return false;
+        }
+        Type stringIndexType = null;
+        Type numberIndexType = null;
+        for (MemberTable table : sourceMembers) {
+            if (table != null && stringIndexType == null) {
+                stringIndexType = table.getStringIndexType();
+            }
+            if (table != null && numberIndexType == null) {
+                numberIndexType = table.getNumberIndexType();
+            }
+        }
+        if (targetMembers.getStringIndexType() != null
+                && (stringIndexType == null || !related(normalize(stringIndexType), targetMembers.getStringIndexType()))) {
+            return false;
+        }
+        if (targetMembers.getNumberIndexType() != null) {
+            Type indexType = numberIndexType != null ? numberIndexType : stringIndexType;
+            return indexType != null && related(normalize(indexType), targetMembers.getNumberIndexType());
+        }
+        return true;
+    }
+
+    /**
+     * @return the members of a value of the type, instantiated for a reference with type arguments to an interface or to the instances of a class
+     */
+    private MemberTable membersOf(Type type) {
+        Type normalized = normalize(type);
+        if (instantiator != null && !(normalized instanceof ClassType)
+                && !(normalized instanceof ReferenceType && normalize(((ReferenceType) normalized).getTarget()) instanceof ClassType)) {
+            Instantiation instantiation = instantiator.instantiate(type);
+            if (instantiation != null) {
+                return instantiation.getMembers();
+            }
+        }
+        return members.getMembers(type);
+    }
+
+    private static Type property(MemberTable[] tables, String name) {
+        for (MemberTable table : tables) {
+            Type type = table == null ? null : table.getProperty(name);
+            if (type != null) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true if each target signature has a source signature that is assignable to it
+     */
+    private boolean signaturesRelated(MemberTable[] sources, List<Signature> targets, boolean call) {
+        for (Signature target : targets) {
+            boolean found = false;
+            for (int i = 0; i < sources.length && !found; i++) {
+                if (sources[i] == null) {
+                    continue;
+                }
+                for (Signature source : call ? sources[i].getCallSignatures() : sources[i].getConstructSignatures()) {
+                    if (signatureRelated(source, target)) {
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean signatureRelated(Signature source, Signature target) {
+        List<Signature.Parameter> sourceParameters = source.getParameters() == null ? Collections.emptyList() : source.getParameters();
+        List<Signature.Parameter> targetParameters = target.getParameters() == null ? Collections.emptyList() : target.getParameters();
+        if (!target.isHasRestParameter() && source.getMinArgumentCount() > targetParameters.size()) {
+            return false;
+        }
+        List<Type> sourceTypeParameters = elements(source.getTypeParameters());
+        List<Type> targetTypeParameters = elements(target.getTypeParameters());
+        List<Type> added = null;
+        if (!sourceTypeParameters.isEmpty() || !targetTypeParameters.isEmpty()) {
+            added = new ArrayList<>();
+            for (List<Type> typeParameters : Arrays.asList(sourceTypeParameters, targetTypeParameters)) {
+                for (Type typeParameter : typeParameters) {
+                    if (typeParameter instanceof TypeParameterType && erased.add(typeParameter)) {
+                        added.add(typeParameter);
+                    }
+                }
+            }
+        }
+        try {
+            int count = Math.min(sourceParameters.size(), targetParameters.size());
+            for (int i = 0; i < count; i++) {
+                Type sourceType = normalize(sourceParameters.get(i).getType());
+                Type targetType = normalize(targetParameters.get(i).getType());
+                if (!related(targetType, sourceType) && !related(sourceType, targetType)) {
+                    return false;
+                }
+            }
+            Type targetReturn = normalize(target.getResolvedReturnType());
+            return isKind(targetReturn, SimpleTypeKind.Void) || related(normalize(source.getResolvedReturnType()), targetReturn);
+        } finally {
+            if (added != null) {
+                erased.removeAll(added);
+            }
+        }
+    }
+}
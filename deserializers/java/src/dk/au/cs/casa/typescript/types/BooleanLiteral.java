@@ -4,8 +4,23 @@ package dk.au.cs.casa.typescript.types;
  * Created by erik1 on 03-11-2016.
  */
 public class BooleanLiteral implements Type {
+    public static final BooleanLiteral TRUE = new BooleanLiteral(true);
+    public static final BooleanLiteral FALSE = new BooleanLiteral(false);
+
     private final boolean value;
+    private final int typeId = TypeIds.UNOWNED.next();
+
+    /**
+     * @return the shared instance for the value, so boolean literals can be compared by identity
+     */
+    public static BooleanLiteral of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
 
+    /**
+     * @deprecated use {@link #of(boolean)}, the types read from a specification are always the shared instances
+     */
+    @Deprecated
     public BooleanLiteral(boolean value) {
         this.value = value;
     }
@@ -14,6 +29,11 @@ public class BooleanLiteral implements Type {
         return value;
     }
 
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
@@ -24,6 +44,19 @@ public class BooleanLiteral implements Type {
         return v.visit(this, a);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return value == ((BooleanLiteral) o).value;
+    }
+
+    @Override
+    public int hashCode() {
+        return Boolean.hashCode(value);
+    }
+
     @Override
     public String toString() {
         return "Boolean(" + this.value + ")";
@@ -1,14 +1,39 @@
 package dk.au.cs.casa.typescript.types;
 
 public class ClassInstanceType implements Type {
+    private final int typeId;
     private Type classType;
+    private boolean frozen;
 
-    public ClassInstanceType() {}
+    public ClassInstanceType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public ClassInstanceType(int id) {
+        this.typeId = id;
+    }
 
     public ClassInstanceType(Type classType) {
+        this();
         this.classType = classType;
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
@@ -24,13 +49,14 @@ public class ClassInstanceType implements Type {
     }
 
     public void setClassType(Type classType) {
+        TypeFreezer.checkMutable(frozen);
         this.classType = classType;
     }
 
     @Override
     public String toString() {
-        return "ClassInstance(" +
-                classType +
-                ')';
+        return Structural.toString(this, () -> "ClassInstance(" +
+                        classType +
+                        ')');
     }
 }
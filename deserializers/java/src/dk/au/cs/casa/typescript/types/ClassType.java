@@ -2,13 +2,57 @@ package dk.au.cs.casa.typescript.types;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class ClassType implements Type {
+    private static final AtomicReferenceFieldUpdater<ClassType, ClassInstanceType> INSTANCE = AtomicReferenceFieldUpdater.newUpdater(ClassType.class, ClassInstanceType.class, "instance");
+
+    private final int typeId;
+
+    public ClassType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public ClassType(int id) {
+        this.typeId = id;
+    }
+
     @Override
     public String toString() {
         return "Class(" + instanceProperties.keySet() + ")";
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        constructors = TypeFreezer.unmodifiable(constructors);
+        callSignatures = TypeFreezer.unmodifiable(callSignatures);
+        baseTypes = TypeFreezer.unmodifiable(baseTypes);
+        staticProperties = TypeFreezer.unmodifiable(staticProperties);
+        instanceProperties = TypeFreezer.unmodifiable(instanceProperties);
+        typeParameters = TypeFreezer.unmodifiable(typeParameters);
+        typeArguments = TypeFreezer.unmodifiable(typeArguments);
+        staticReadonlyProperties = TypeFreezer.unmodifiable(staticReadonlyProperties);
+        instanceReadOnlyProperties = TypeFreezer.unmodifiable(instanceReadOnlyProperties);
+        staticReadonly = null;
+        instanceReadonly = null;
+        ClassInstanceType instance = this.instance;
+        if (instance != null) {
+            instance.freeze();
+        }
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
@@ -31,13 +75,18 @@ public class ClassType implements Type {
     private List<Type> typeArguments;
     private List<String> staticReadonlyProperties;
     private List<String> instanceReadOnlyProperties;
+    private ReadonlyProperties staticReadonly;
+    private ReadonlyProperties instanceReadonly;
+    private boolean frozen;
 
     public List<String> getStaticReadonlyProperties() {
         return staticReadonlyProperties;
     }
 
     public void setStaticReadonlyProperties(List<String> staticReadonlyProperties) {
+        TypeFreezer.checkMutable(frozen);
         this.staticReadonlyProperties = staticReadonlyProperties;
+        this.staticReadonly = null;
     }
 
     public List<String> getInstanceReadOnlyProperties() {
@@ -45,7 +94,35 @@ public class ClassType implements Type {
     }
 
     public void setInstanceReadOnlyProperties(List<String> instanceReadOnlyProperties) {
+        TypeFreezer.checkMutable(frozen);
         this.instanceReadOnlyProperties = instanceReadOnlyProperties;
+        this.instanceReadonly = null;
+    }
+
+    /**
+     * Checks in constant time whether a static property is readonly.
+     * The check follows changes to the map of static properties, but not changes to the list of readonly properties itself, which has to be set again.
+     */
+    public boolean isStaticReadonly(String name) {
+        ReadonlyProperties readonly = this.staticReadonly;
+        if (readonly == null || !readonly.isCurrent()) {
+            readonly = ReadonlyProperties.of(staticProperties, staticReadonlyProperties);
+            this.staticReadonly = readonly;
+        }
+        return readonly.contains(name);
+    }
+
+    /**
+     * Checks in constant time whether an instance property is readonly.
+     * The check follows changes to the map of instance properties, but not changes to the list of readonly properties itself, which has to be set again.
+     */
+    public boolean isInstanceReadonly(String name) {
+        ReadonlyProperties readonly = this.instanceReadonly;
+        if (readonly == null || !readonly.isCurrent()) {
+            readonly = ReadonlyProperties.of(instanceProperties, instanceReadOnlyProperties);
+            this.instanceReadonly = readonly;
+        }
+        return readonly.contains(name);
     }
 
     public List<Signature> getConstructors() {
@@ -53,6 +130,7 @@ public class ClassType implements Type {
     }
 
     public void setConstructors(List<Signature> constructors) {
+        TypeFreezer.checkMutable(frozen);
         this.constructors = constructors;
     }
 
@@ -61,6 +139,7 @@ public class ClassType implements Type {
     }
 
     public void setCallSignatures(List<Signature> callSignatures) {
+        TypeFreezer.checkMutable(frozen);
         this.callSignatures = callSignatures;
     }
 
@@ -69,6 +148,7 @@ public class ClassType implements Type {
     }
 
     public void setBaseTypes(List<Type> baseTypes) {
+        TypeFreezer.checkMutable(frozen);
         this.baseTypes = baseTypes;
     }
 
@@ -77,7 +157,9 @@ public class ClassType implements Type {
     }
 
     public void setStaticProperties(Map<String, Type> staticProperties) {
+        TypeFreezer.checkMutable(frozen);
         this.staticProperties = staticProperties;
+        this.staticReadonly = null;
     }
 
     public Map<String, Type> getInstanceProperties() {
@@ -85,7 +167,9 @@ public class ClassType implements Type {
     }
 
     public void setInstanceProperties(Map<String, Type> instanceProperties) {
+        TypeFreezer.checkMutable(frozen);
         this.instanceProperties = instanceProperties;
+        this.instanceReadonly = null;
     }
 
     public Type getDeclaredStringIndexType() {
@@ -93,6 +177,7 @@ public class ClassType implements Type {
     }
 
     public void setDeclaredStringIndexType(Type declaredStringIndexType) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredStringIndexType = declaredStringIndexType;
     }
 
@@ -101,6 +186,7 @@ public class ClassType implements Type {
     }
 
     public void setDeclaredNumberIndexType(Type declaredNumberIndexType) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredNumberIndexType = declaredNumberIndexType;
     }
 
@@ -109,6 +195,7 @@ public class ClassType implements Type {
     }
 
     public void setTarget(Type target) {
+        TypeFreezer.checkMutable(frozen);
         this.target = target;
     }
 
@@ -117,6 +204,7 @@ public class ClassType implements Type {
     }
 
     public void setTypeParameters(List<Type> typeParameters) {
+        TypeFreezer.checkMutable(frozen);
         this.typeParameters = typeParameters;
     }
 
@@ -125,17 +213,35 @@ public class ClassType implements Type {
     }
 
     public void setTypeArguments(List<Type> typeArguments) {
+        TypeFreezer.checkMutable(frozen);
         this.typeArguments = typeArguments;
     }
 
-    public ClassInstanceType instance = null;
+    public volatile ClassInstanceType instance = null;
+
+    /**
+     * The instance type is created once and is frozen if this type is; threads that create it concurrently all get the one that was published first.
+     * An instance type created by this method belongs to no specification, see {@link #getInstance(TypeIds)}.
+     */
     public ClassInstanceType getInstance() {
+        return getInstance(TypeIds.UNOWNED);
+    }
+
+    /**
+     * Like {@link #getInstance()}, but the instance type gets its id from the given allocator if it is created by this call.
+     *
+     * @param ids the allocator of the specification of this type, see {@link dk.au.cs.casa.typescript.SpecReader#getTypeIds()}
+     */
+    public ClassInstanceType getInstance(TypeIds ids) {
+        ClassInstanceType instance = this.instance;
         if (instance != null) {
             return instance;
         }
-        ClassInstanceType result = new ClassInstanceType();
+        ClassInstanceType result = new ClassInstanceType(ids.next());
         result.setClassType(this);
-        instance = result;
-        return result;
+        if (frozen) {
+            result.freeze();
+        }
+        return INSTANCE.compareAndSet(this, null, result) ? result : this.instance;
     }
 }
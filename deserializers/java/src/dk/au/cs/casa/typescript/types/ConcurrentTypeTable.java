@@ -0,0 +1,94 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A map from types to values that can be shared by threads, as arrays indexed by {@link Type#id()} like {@link TypeTable}.
+ * Lookups do not lock. Values are only added, under the lock of the table, which is also held while the arrays grow.
+ * A lookup that races with the growth of an array may miss a value that has just been added.
+ */
+final class ConcurrentTypeTable<T> {
+    private static final Segment EMPTY = new Segment(0, 0);
+
+    /**
+     * The values of the types of the specification, and of the unowned types by -1 - id.
+     */
+    private volatile Segment owned = EMPTY;
+    private volatile Segment unowned = EMPTY;
+
+    /**
+     * @return the value of the type, or null if the type is not in the table
+     */
+    @SuppressWarnings("unchecked")
+    T get(Type type) {
+        int id = type.id();
+        return id >= 0 ? (T) owned.get(id) : (T) unowned.get(~id);
+    }
+
+    boolean containsKey(Type type) {
+        return get(type) != null;
+    }
+
+    /**
+     * @return the value the type already had, or null if the value was added
+     */
+    @SuppressWarnings("unchecked")
+    synchronized T putIfAbsent(Type type, T value) {
+        int id = type.id();
+        int position = id >= 0 ? id : ~id;
+        Segment segment = id >= 0 ? owned : unowned;
+        Object existing = segment.get(position);
+        if (existing != null) {
+            return (T) existing;
+        }
+        if (!segment.covers(position)) {
+            segment = segment.grow(position);
+            if (id >= 0) {
+                owned = segment;
+            } else {
+                unowned = segment;
+            }
+        }
+        segment.slots.set(position - segment.start, value);
+        return null;
+    }
+
+    /**
+     * The values of a range of positions.
+     */
+    private static final class Segment {
+        private final int start;
+        private final AtomicReferenceArray<Object> slots;
+
+        private Segment(int start, int length) {
+            this.start = start;
+            this.slots = new AtomicReferenceArray<>(length);
+        }
+
+        private boolean covers(int position) {
+            return position >= start && position - start < slots.length();
+        }
+
+        private Object get(int position) {
+            return covers(position) ? slots.get(position - start) : null;
+        }
+
+        /**
+         * @return a copy of the segment that covers the position, with room to grow in the direction of the position
+         */
+        private Segment grow(int position) {
+            int length = slots.length();
+            if (length == 0) {
+                return new Segment(position, 16);
+            }
+            int low = Math.min(start, position);
+            int high = Math.max(start + length, position + 1);
+            int grownLength = Math.max(high - low, length * 2);
+            Segment grown = new Segment(position < start ? Math.max(0, high - grownLength) : low, grownLength);
+            for (int i = 0; i < length; i++) {
+                grown.slots.set(start + i - grown.start, slots.get(i));
+            }
+            return grown;
+        }
+    }
+}
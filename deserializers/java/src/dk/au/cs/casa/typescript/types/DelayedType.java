@@ -1,5 +1,6 @@
 package dk.au.cs.casa.typescript.types;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Supplier;
 
 /**
@@ -7,29 +8,48 @@ import java.util.function.Supplier;
  * (deserialization does not see all types at once)
  */
 public class DelayedType implements Type {
+    private static final AtomicReferenceFieldUpdater<DelayedType, Type> TYPE = AtomicReferenceFieldUpdater.newUpdater(DelayedType.class, Type.class, "type");
+
+    private final int typeId = TypeIds.UNOWNED.next();
     private final Supplier<Type> generator;
-    private Type type = null;
+    private volatile Type type = null;
 
     public DelayedType(Supplier<Type> generator) {
         this.generator = generator;
     }
 
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
     }
 
+    /**
+     * Threads that replace the placeholder concurrently may all run the generator, but they all get the type that was published first.
+     */
     public Type getType() {
+        Type type = this.type;
         if (type == null) {
             Type newType = generator.get();
             while (newType instanceof DelayedType) {
                 newType = ((DelayedType) newType).getType();
             }
-            type = newType;
+            type = TYPE.compareAndSet(this, null, newType) ? newType : this.type;
         }
         return type;
     }
 
+    /**
+     * @return the type that the placeholder stands for, or the type itself if it is not a placeholder, never a placeholder unless the type is null
+     */
+    static Type resolve(Type type) {
+        return type instanceof DelayedType ? ((DelayedType) type).getType() : type;
+    }
+
     @Override
     public <T, A> T accept(TypeVisitorWithArgument<T, A> v, A a) {
         return v.visit(this, a);
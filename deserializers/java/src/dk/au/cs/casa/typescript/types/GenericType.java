@@ -2,8 +2,13 @@ package dk.au.cs.casa.typescript.types;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 public class GenericType implements Type {
+    private static final AtomicReferenceFieldUpdater<GenericType, InterfaceType> INTERFACE_TYPE = AtomicReferenceFieldUpdater.newUpdater(GenericType.class, InterfaceType.class, "interfaceType");
+
+    private final int typeId;
+
     /**
      * A mix of InterfaceType and ReferenceType.
      * TODO consider custom deserializer and delegation...
@@ -19,17 +24,42 @@ public class GenericType implements Type {
     private Type target;
     private List<Type> typeArguments;
 
-    private InterfaceType interfaceType;
+    private volatile InterfaceType interfaceType;
+    private boolean frozen;
+
+    public GenericType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public GenericType(int id) {
+        this.typeId = id;
+    }
+
     /**
      * Creates an interface-type, with all the information from the this generic type, just without the target and typeArguments.
+     * The interface is created once and is frozen if this type is; threads that create it concurrently all get the one that was published first.
+     * An interface created by this method belongs to no specification, see {@link #toInterface(TypeIds)}.
      *
      * @return An interface, where the generic information is erased.
      */
     public InterfaceType toInterface() {
+        return toInterface(TypeIds.UNOWNED);
+    }
+
+    /**
+     * Like {@link #toInterface()}, but the interface gets its id from the given allocator if it is created by this call.
+     *
+     * @param ids the allocator of the specification of this type, see {@link dk.au.cs.casa.typescript.SpecReader#getTypeIds()}
+     */
+    public InterfaceType toInterface(TypeIds ids) {
+        InterfaceType interfaceType = this.interfaceType;
         if (interfaceType != null) {
             return interfaceType;
         }
-        interfaceType = new InterfaceType();
+        interfaceType = new InterfaceType(ids.next());
         interfaceType.setTypeParameters(this.getTypeParameters());
         interfaceType.setBaseTypes(this.getBaseTypes());
         interfaceType.setDeclaredProperties(this.getDeclaredProperties());
@@ -37,7 +67,10 @@ public class GenericType implements Type {
         interfaceType.setDeclaredConstructSignatures(this.getDeclaredConstructSignatures());
         interfaceType.setDeclaredStringIndexType(this.getDeclaredStringIndexType());
         interfaceType.setDeclaredNumberIndexType(this.getDeclaredNumberIndexType());
-        return interfaceType;
+        if (frozen) {
+            interfaceType.freeze();
+        }
+        return INTERFACE_TYPE.compareAndSet(this, null, interfaceType) ? interfaceType : this.interfaceType;
     }
 
     public List<Type> getTypeParameters() {
@@ -45,6 +78,7 @@ public class GenericType implements Type {
     }
 
     public void setTypeParameters(List<Type> typeParameters) {
+        TypeFreezer.checkMutable(frozen);
         this.typeParameters = typeParameters;
     }
 
@@ -53,6 +87,7 @@ public class GenericType implements Type {
     }
 
     public void setBaseTypes(List<Type> baseTypes) {
+        TypeFreezer.checkMutable(frozen);
         this.baseTypes = baseTypes;
     }
 
@@ -61,6 +96,7 @@ public class GenericType implements Type {
     }
 
     public void setDeclaredProperties(Map<String, Type> declaredProperties) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredProperties = declaredProperties;
     }
 
@@ -69,6 +105,7 @@ public class GenericType implements Type {
     }
 
     public void setDeclaredCallSignatures(List<Signature> declaredCallSignatures) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredCallSignatures = declaredCallSignatures;
     }
 
@@ -77,6 +114,7 @@ public class GenericType implements Type {
     }
 
     public void setDeclaredConstructSignatures(List<Signature> declaredConstructSignatures) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredConstructSignatures = declaredConstructSignatures;
     }
 
@@ -85,6 +123,7 @@ public class GenericType implements Type {
     }
 
     public void setDeclaredStringIndexType(Type declaredStringIndexType) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredStringIndexType = declaredStringIndexType;
     }
 
@@ -93,6 +132,7 @@ public class GenericType implements Type {
     }
 
     public void setDeclaredNumberIndexType(Type declaredNumberIndexType) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredNumberIndexType = declaredNumberIndexType;
     }
 
@@ -101,6 +141,7 @@ public class GenericType implements Type {
     }
 
     public void setTarget(Type target) {
+        TypeFreezer.checkMutable(frozen);
         this.target = target;
     }
 
@@ -109,9 +150,33 @@ public class GenericType implements Type {
     }
 
     public void setTypeArguments(List<Type> typeArguments) {
+        TypeFreezer.checkMutable(frozen);
         this.typeArguments = typeArguments;
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        typeParameters = TypeFreezer.unmodifiable(typeParameters);
+        baseTypes = TypeFreezer.unmodifiable(baseTypes);
+        declaredProperties = TypeFreezer.unmodifiable(declaredProperties);
+        declaredCallSignatures = TypeFreezer.unmodifiable(declaredCallSignatures);
+        declaredConstructSignatures = TypeFreezer.unmodifiable(declaredConstructSignatures);
+        typeArguments = TypeFreezer.unmodifiable(typeArguments);
+        InterfaceType interfaceType = this.interfaceType;
+        if (interfaceType != null) {
+            interfaceType.freeze();
+        }
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
@@ -1,19 +1,46 @@
 package dk.au.cs.casa.typescript.types;
 
 public class IndexType implements Type {
+    private final int typeId;
     private Type type;
+    private boolean frozen;
+
+    public IndexType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public IndexType(int id) {
+        this.typeId = id;
+    }
 
     public Type getType() {
         return type;
     }
 
     public void setType(Type type) {
+        TypeFreezer.checkMutable(frozen);
         this.type = type;
     }
 
     @Override
     public String toString() {
-        return "IndexType{" + type + "}";
+        return Structural.toString(this, () -> "IndexType{" + type + "}");
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
     }
 
     @Override
@@ -1,14 +1,28 @@
 package dk.au.cs.casa.typescript.types;
 
 public class IndexedAccessType implements Type {
+    private final int typeId;
     private Type objectType;
     private Type indexType;
+    private boolean frozen;
+
+    public IndexedAccessType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public IndexedAccessType(int id) {
+        this.typeId = id;
+    }
 
     public Type getObjectType() {
         return objectType;
     }
 
     public void setObjectType(Type objectType) {
+        TypeFreezer.checkMutable(frozen);
         this.objectType = objectType;
     }
 
@@ -17,15 +31,29 @@ public class IndexedAccessType implements Type {
     }
 
     public void setIndexType(Type indexType) {
+        TypeFreezer.checkMutable(frozen);
         this.indexType = indexType;
     }
 
     @Override
     public String toString() {
-        return "IndexedAccessType{" +
-                "objectType=" + objectType +
-                ", indexType=" + indexType +
-                '}';
+        return Structural.toString(this, () -> "IndexedAccessType{" +
+                        "objectType=" + objectType +
+                        ", indexType=" + indexType +
+                        '}');
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
     }
 
     @Override
@@ -0,0 +1,268 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * An interface, generic type or class with type arguments in place of its type parameters, e.g. Array&lt;string&gt;, created by a {@link TypeInstantiator}.
+ * <p>
+ * The base types and members are instantiated when they are first asked for, and each only once; threads that instantiate them concurrently all get the ones that were published first.
+ * The members of a class are those of its instances.
+ */
+public final class Instantiation {
+    private static final AtomicReferenceFieldUpdater<Instantiation, Object> BASE_TYPES = AtomicReferenceFieldUpdater.newUpdater(Instantiation.class, Object.class, "baseTypes");
+    private static final AtomicReferenceFieldUpdater<Instantiation, MemberTable> MEMBERS = AtomicReferenceFieldUpdater.newUpdater(Instantiation.class, MemberTable.class, "members");
+
+    private final TypeInstantiator instantiator;
+    private final Type declaration;
+    private final List<Type> typeParameters;
+    private final List<Type> typeArguments;
+    private final boolean identity;
+    /**
+     * The instantiated base types, a {@code List<Type>}, typed as an object so that it can be published with a field updater.
+     */
+    private volatile Object baseTypes;
+    private volatile MemberTable members;
+    /**
+     * Whether the members are those of the declaration, written before the members are published.
+     */
+    private boolean unchanged;
+    /**
+     * Whether the instantiation is on an inheritance cycle, written before the members are published.
+     */
+    private boolean cyclic;
+
+    Instantiation(TypeInstantiator instantiator, Type declaration, List<Type> typeParameters, List<Type> typeArguments) {
+        this.instantiator = instantiator;
+        this.declaration = declaration;
+        this.typeParameters = typeParameters;
+        this.typeArguments = typeArguments == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(typeArguments));
+        this.identity = TypeInstantiator.mapping(typeParameters, this.typeArguments).isEmpty();
+    }
+
+    /**
+     * @return the interface, generic type or class that is instantiated
+     */
+    public Type getDeclaration() {
+        return declaration;
+    }
+
+    public List<Type> getTypeArguments() {
+        return typeArguments;
+    }
+
+    /**
+     * @return the shared reference to this instantiation, to the instances if the declaration is a class
+     */
+    public ReferenceType getReference() {
+        Type target = declaration instanceof ClassType ? ((ClassType) declaration).getInstance(instantiator.getTypeIds()) : declaration;
+        return instantiator.reference(target, typeArguments);
+    }
+
+    /**
+     * @return the type with the type arguments of this instantiation in place of the type parameters of the declaration
+     */
+    public Type substitute(Type type) {
+        return identity ? type : instantiator.substitute(type, typeParameters, typeArguments);
+    }
+
+    public Signature substitute(Signature signature) {
+        return identity ? signature : instantiator.substitute(signature, typeParameters, typeArguments);
+    }
+
+    /**
+     * @return the instantiated base types of the declaration
+     */
+    @SuppressWarnings("unchecked")
+    public List<Type> getBaseTypes() {
+        List<Type> baseTypes = (List<Type>) this.baseTypes;
+        if (baseTypes == null) {
+            List<Type> declared = declaration instanceof InterfaceType ? ((InterfaceType) declaration).getBaseTypes()
+                    : declaration instanceof ClassType ? ((ClassType) declaration).getBaseTypes() : ((GenericType) declaration).getBaseTypes();
+            if (declared == null || declared.isEmpty()) {
+                baseTypes = Collections.emptyList();
+            } else {
+                List<Type> substituted = new ArrayList<>(declared.size());
+                for (Type baseType : declared) {
+                    substituted.add(substitute(baseType));
+                }
+                baseTypes = Collections.unmodifiableList(substituted);
+            }
+            if (!BASE_TYPES.compareAndSet(this, null, baseTypes)) {
+                baseTypes = (List<Type>) this.baseTypes;
+            }
+        }
+        return baseTypes;
+    }
+
+    /**
+     * The declared members are instantiated with the type arguments, and the inherited members are taken from the instantiations of the base types,
+     * merged as {@link MemberResolver} merges them. The instantiations of the bases are computed first, with an explicit stack as the resolver does,
+     * and the instantiations on an inheritance cycle are computed together and contribute no members to each other, as the resolver treats declarations on a cycle.
+     *
+     * @return the instantiated members, of the instances if the declaration is a class
+     */
+    public MemberTable getMembers() {
+        MemberTable members = this.members;
+        if (members != null) {
+            return members;
+        }
+        Map<Instantiation, Pending> visited = new IdentityHashMap<>();
+        Deque<Pending> work = new ArrayDeque<>();
+        List<Pending> component = new ArrayList<>();
+        work.push(visit(this, visited, component));
+        while (!work.isEmpty()) {
+            Pending pending = work.peek();
+            if (pending.next < pending.bases.size()) {
+                Instantiation base = pending.bases.get(pending.next++);
+                Pending next = visited.get(base);
+                if (next == null) {
+                    if (base.members == null || base.cyclic) {
+                        work.push(visit(base, visited, component));
+                    }
+                } else if (next.onStack) {
+                    pending.low = Math.min(pending.low, next.index);
+                }
+                continue;
+            }
+            work.pop();
+            if (!work.isEmpty()) {
+                work.peek().low = Math.min(work.peek().low, pending.low);
+            }
+            if (pending.low == pending.index) {
+                publish(component.subList(pending.position, component.size()), visited);
+            }
+        }
+        return this.members;
+    }
+
+    private static Pending visit(Instantiation instantiation, Map<Instantiation, Pending> visited, List<Pending> component) {
+        Pending pending = new Pending(instantiation, instantiation.bases(), visited.size(), component.size());
+        visited.put(instantiation, pending);
+        component.add(pending);
+        return pending;
+    }
+
+    /**
+     * Computes and publishes the members of a strongly connected component of instantiations, which is removed from the given list.
+     * The bases in the component are those still marked as being on the stack. A member of a component with several members is marked as cyclic before its members are published,
+     * so that a later computation that reaches it computes its whole component again instead of taking its members as they are.
+     */
+    private static void publish(List<Pending> component, Map<Instantiation, Pending> visited) {
+        boolean cyclic = component.size() > 1;
+        for (Pending pending : component) {
+            pending.instantiation.compute(pending.bases, visited, cyclic);
+        }
+        for (Pending pending : component) {
+            pending.onStack = false;
+        }
+        component.clear();
+    }
+
+    /**
+     * Merges the members of the bases outside the component of this instantiation.
+     * If neither this instantiation nor those it inherits from substitute anything, the table of the resolver is shared.
+     */
+    private void compute(List<Instantiation> bases, Map<Instantiation, Pending> visited, boolean cyclic) {
+        MemberResolver resolver = instantiator.getMemberResolver();
+        List<MemberTable> inherited = new ArrayList<>(bases.size());
+        boolean unchanged = identity;
+        for (Instantiation base : bases) {
+            Pending other = visited.get(base);
+            if (other == null || !other.onStack) {
+                inherited.add(base.members);
+                unchanged &= base.unchanged;
+            }
+        }
+        MemberTable table = unchanged ? resolver.getInstanceSide(declaration) : MemberResolver.merge(declaration, false, declared(), inherited);
+        this.unchanged = unchanged;
+        this.cyclic = cyclic;
+        MEMBERS.compareAndSet(this, null, table);
+    }
+
+    /**
+     * @return the instantiations of the distinct base declarations
+     */
+    private List<Instantiation> bases() {
+        List<Type> declarations = new ArrayList<>();
+        List<Instantiation> result = new ArrayList<>();
+        for (Type baseType : getBaseTypes()) {
+            Type base = TypeHierarchy.declarationOf(baseType);
+            if (base == null || base == declaration || MemberResolver.containsIdentical(declarations, base)) {
+                continue;
+            }
+            declarations.add(base);
+            Instantiation instantiation = instantiator.instantiate(baseType);
+            if (instantiation != null) {
+                result.add(instantiation);
+            }
+        }
+        return result;
+    }
+
+    private MemberResolver.Declared declared() {
+        MemberResolver.Declared declared = MemberResolver.Declared.of(declaration, false);
+        Map<String, Type> properties = null;
+        if (declared.properties != null) {
+            PropertyTable table = PropertyTable.copyOf(declared.properties);
+            String[] names = new String[table.size()];
+            Type[] types = new Type[table.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = table.nameAt(i);
+                types[i] = substitute(table.typeAt(i));
+            }
+            properties = new PropertyTable(names, types);
+        }
+        return new MemberResolver.Declared(properties, substitute(declared.callSignatures), substitute(declared.constructSignatures),
+                substitute(declared.stringIndexType), substitute(declared.numberIndexType));
+    }
+
+    private List<Signature> substitute(List<Signature> signatures) {
+        if (signatures == null) {
+            return null;
+        }
+        List<Signature> result = new ArrayList<>(signatures.size());
+        for (Signature signature : signatures) {
+            result.add(substitute(signature));
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Instantiation(" + declaration + ", " + typeArguments + ")";
+    }
+
+    /**
+     * An instantiation whose members are computed after those of its bases.
+     */
+    private static final class Pending {
+        private final Instantiation instantiation;
+        private final List<Instantiation> bases;
+        private int next = 0;
+        /**
+         * The order in which the instantiation was reached, and the least order of an instantiation on the stack that it reaches.
+         */
+        private final int index;
+        private int low;
+        private boolean onStack = true;
+        /**
+         * The position of the instantiation in the stack of instantiations whose component is not computed yet.
+         */
+        private final int position;
+
+        private Pending(Instantiation instantiation, List<Instantiation> bases, int index, int position) {
+            this.instantiation = instantiation;
+            this.bases = bases;
+            this.index = index;
+            this.low = index;
+            this.position = position;
+        }
+    }
+}
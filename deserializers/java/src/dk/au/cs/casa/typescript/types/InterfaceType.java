@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Map;
 
 public class InterfaceType implements Type {
+    private final int typeId;
     private List<Type> typeParameters;
     private List<Type> baseTypes;
     private Map<String, Type> declaredProperties;
@@ -12,12 +13,26 @@ public class InterfaceType implements Type {
     private List<Signature> declaredConstructSignatures;
     private Type declaredStringIndexType;
     private Type declaredNumberIndexType;
+    private ReadonlyProperties readonly;
+    private boolean frozen;
+
+    public InterfaceType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public InterfaceType(int id) {
+        this.typeId = id;
+    }
 
     public Type getDeclaredNumberIndexType() {
         return declaredNumberIndexType;
     }
 
     public void setDeclaredNumberIndexType(Type declaredNumberIndexType) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredNumberIndexType = declaredNumberIndexType;
     }
 
@@ -27,6 +42,7 @@ public class InterfaceType implements Type {
     }
 
     public void setDeclaredStringIndexType(Type declaredStringIndexType) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredStringIndexType = declaredStringIndexType;
     }
 
@@ -35,6 +51,7 @@ public class InterfaceType implements Type {
     }
 
     public void setDeclaredConstructSignatures(List<Signature> declaredConstructSignatures) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredConstructSignatures = declaredConstructSignatures;
     }
 
@@ -43,7 +60,22 @@ public class InterfaceType implements Type {
     }
 
     public void setReadonlyDeclarations(List<String> readonlyDeclarations) {
+        TypeFreezer.checkMutable(frozen);
         this.readonlyDeclarations = readonlyDeclarations;
+        this.readonly = null;
+    }
+
+    /**
+     * Checks in constant time whether a declared property is readonly.
+     * The check follows changes to the map of declared properties, but not changes to the list of readonly declarations itself, which has to be set again.
+     */
+    public boolean isReadonly(String name) {
+        ReadonlyProperties readonly = this.readonly;
+        if (readonly == null || !readonly.isCurrent()) {
+            readonly = ReadonlyProperties.of(declaredProperties, readonlyDeclarations);
+            this.readonly = readonly;
+        }
+        return readonly.contains(name);
     }
 
     public List<Signature> getDeclaredCallSignatures() {
@@ -51,6 +83,7 @@ public class InterfaceType implements Type {
     }
 
     public void setDeclaredCallSignatures(List<Signature> declaredCallSignatures) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredCallSignatures = declaredCallSignatures;
     }
 
@@ -59,7 +92,9 @@ public class InterfaceType implements Type {
     }
 
     public void setDeclaredProperties(Map<String, Type> declaredProperties) {
+        TypeFreezer.checkMutable(frozen);
         this.declaredProperties = declaredProperties;
+        this.readonly = null;
     }
 
     public List<Type> getBaseTypes() {
@@ -67,6 +102,7 @@ public class InterfaceType implements Type {
     }
 
     public void setBaseTypes(List<Type> baseTypes) {
+        TypeFreezer.checkMutable(frozen);
         this.baseTypes = baseTypes;
     }
 
@@ -75,6 +111,7 @@ public class InterfaceType implements Type {
     }
 
     public void setTypeParameters(List<Type> typeParameters) {
+        TypeFreezer.checkMutable(frozen);
         this.typeParameters = typeParameters;
     }
 
@@ -83,6 +120,26 @@ public class InterfaceType implements Type {
         return "Interface(" + declaredProperties.keySet() + ")";
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        typeParameters = TypeFreezer.unmodifiable(typeParameters);
+        baseTypes = TypeFreezer.unmodifiable(baseTypes);
+        declaredProperties = TypeFreezer.unmodifiable(declaredProperties);
+        readonlyDeclarations = TypeFreezer.unmodifiable(readonlyDeclarations);
+        declaredCallSignatures = TypeFreezer.unmodifiable(declaredCallSignatures);
+        declaredConstructSignatures = TypeFreezer.unmodifiable(declaredConstructSignatures);
+        readonly = null;
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
@@ -0,0 +1,60 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A thread-safe canonicalizing map that only holds its values weakly, a value is dropped once no loaded specification refers to it anymore.
+ */
+final class Interner<K, V> {
+    private final ConcurrentHashMap<K, Ref<K, V>> map = new ConcurrentHashMap<>();
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+    private final Function<K, V> factory;
+
+    Interner(Function<K, V> factory) {
+        this.factory = factory;
+    }
+
+    V intern(K key) {
+        expunge();
+        Ref<K, V> ref = map.get(key);
+        V value = ref == null ? null : ref.get();
+        if (value != null) {
+            return value;
+        }
+        V created = factory.apply(key);
+        Ref<K, V> createdRef = new Ref<>(key, created, queue);
+        while (true) {
+            Ref<K, V> existing = map.putIfAbsent(key, createdRef);
+            if (existing == null) {
+                return created;
+            }
+            V other = existing.get();
+            if (other != null) {
+                return other;
+            }
+            if (map.replace(key, existing, createdRef)) {
+                return created;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expunge() {
+        Ref<K, V> ref;
+        while ((ref = (Ref<K, V>) queue.poll()) != null) {
+            map.remove(ref.key, ref);
+        }
+    }
+
+    private static final class Ref<K, V> extends WeakReference<V> {
+        private final K key;
+
+        private Ref(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+}
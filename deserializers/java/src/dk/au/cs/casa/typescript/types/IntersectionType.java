@@ -3,21 +3,35 @@ package dk.au.cs.casa.typescript.types;
 import java.util.List;
 
 public class IntersectionType implements Type {
+    private final int typeId;
     private List<Type> elements;
+    private boolean frozen;
+
+    public IntersectionType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public IntersectionType(int id) {
+        this.typeId = id;
+    }
 
     public List<Type> getElements() {
         return elements;
     }
 
     public void setElements(List<Type> types) {
+        TypeFreezer.checkMutable(frozen);
         this.elements = types;
     }
 
     @Override
     public String toString() {
-        return "Intersection(" +
-                elements +
-                ')';
+        return Structural.toString(this, () -> "Intersection(" +
+                        elements +
+                        ')');
     }
 
     @Override
@@ -25,6 +39,20 @@ public class IntersectionType implements Type {
         return v.visit(this, a);
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        elements = TypeFreezer.unmodifiable(elements);
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
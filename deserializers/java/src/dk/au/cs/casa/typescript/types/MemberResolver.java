@@ -0,0 +1,390 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the members of interfaces, generic types and classes, including the members they inherit through their base types, and remembers the result for each type.
+ * <p>
+ * The members are merged as the TypeScript checker merges them: a declared property shadows inherited properties with the same name, and of the properties inherited under one name the one from the first base type wins.
+ * Call and construct signatures are concatenated, declared ones first, except that a class inherits the constructors of its base class only if it declares none.
+ * A declared index type hides the inherited ones, otherwise the first inherited one is taken.
+ * <p>
+ * A class has two sides. The instance side has the instance properties and index types of the class and inherits from all its base types,
+ * the static side has the static properties, call signatures and constructors and inherits only from base classes.
+ * Type arguments of generic base types are not substituted, the inherited members refer to the type parameters of the declaration they are taken from.
+ * The declarations on an inheritance cycle contribute no members to each other, but each of them inherits the members of its other base types,
+ * so the tables do not depend on which declaration of the cycle is resolved first.
+ * <p>
+ * Tables are computed once per type and side and shared by all threads, threads that compute one concurrently all get the one that was cached first.
+ * A table reflects the types as they were when it was computed, so the types should not change afterwards, e.g. because they are frozen, see {@link TypeFreezer}.
+ * The tables are kept by type id, so a resolver should only be used for the types of one specification, see {@link TypeIds}.
+ */
+public final class MemberResolver {
+    private static final Signature[] NO_SIGNATURES = new Signature[0];
+
+    private final ConcurrentTypeTable<MemberTable> instanceMembers = new ConcurrentTypeTable<>();
+    private final ConcurrentTypeTable<MemberTable> staticMembers = new ConcurrentTypeTable<>();
+    /**
+     * The declarations on a cycle, on each side, mapped to true. A declaration is added before its table is cached.
+     */
+    private final ConcurrentTypeTable<Boolean> instanceCycles = new ConcurrentTypeTable<>();
+    private final ConcurrentTypeTable<Boolean> staticCycles = new ConcurrentTypeTable<>();
+
+    /**
+     * @return the members of a value of the type: those of the interface or generic type it refers to, the instance side of a class for a class instance,
+     * and the static side of a class for the class itself, or null if the type refers to none of these
+     */
+    public MemberTable getMembers(Type type) {
+        for (int steps = 0; type != null && steps < TypeHierarchy.MAX_INDIRECTIONS; steps++) {
+            type = DelayedType.resolve(type);
+            if (type instanceof ClassType) {
+                return resolve(type, true);
+            } else if (type instanceof InterfaceType) {
+                return resolve(type, false);
+            } else if (type instanceof GenericType) {
+                Type target = ((GenericType) type).getTarget();
+                if (target == null || target == type) {
+                    return resolve(type, false);
+                }
+                type = target;
+            } else if (type instanceof ReferenceType) {
+                type = ((ReferenceType) type).getTarget();
+            } else if (type instanceof ClassInstanceType) {
+                Type declaration = TypeHierarchy.declarationOf(((ClassInstanceType) type).getClassType());
+                return declaration == null ? null : resolve(declaration, false);
+            } else {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the members of the instances of the class
+     */
+    public MemberTable getInstanceMembers(ClassType type) {
+        return resolve(type, false);
+    }
+
+    /**
+     * @return the members of the class itself
+     */
+    public MemberTable getStaticMembers(ClassType type) {
+        return resolve(type, true);
+    }
+
+    /**
+     * @return the members of the interface or generic type, or of the instances of the class
+     */
+    MemberTable getInstanceSide(Type declaration) {
+        return resolve(declaration, false);
+    }
+
+    /**
+     * Computes the tables of the bases of the declaration before its own, with an explicit stack so that long inheritance chains do not exhaust the call stack.
+     * <p>
+     * The declarations are grouped into the strongly connected components of the base type relation, and the tables of a component are computed together once all its bases outside it have tables,
+     * each inheriting only from those bases. The tables are therefore the same whichever declaration of a cycle is resolved first.
+     * A table of a declaration on a cycle does not settle the cycle for a later resolution, see {@link #isSettled(Type, boolean)}, so a cycle whose tables are being cached by another thread is computed again as a whole.
+     */
+    private MemberTable resolve(Type declaration, boolean staticSide) {
+        ConcurrentTypeTable<MemberTable> cache = staticSide ? staticMembers : instanceMembers;
+        MemberTable table = cache.get(declaration);
+        if (table != null) {
+            return table;
+        }
+        Map<Type, Pending> visited = new IdentityHashMap<>();
+        Deque<Pending> work = new ArrayDeque<>();
+        List<Pending> component = new ArrayList<>();
+        work.push(visit(declaration, staticSide, visited, component));
+        while (!work.isEmpty()) {
+            Pending pending = work.peek();
+            if (pending.next < pending.bases.size()) {
+                Type base = pending.bases.get(pending.next++);
+                Pending next = visited.get(base);
+                if (next == null) {
+                    if (!isSettled(base, staticSide)) {
+                        work.push(visit(base, staticSide, visited, component));
+                    }
+                } else if (next.onStack) {
+                    pending.low = Math.min(pending.low, next.index);
+                }
+                continue;
+            }
+            work.pop();
+            if (!work.isEmpty()) {
+                work.peek().low = Math.min(work.peek().low, pending.low);
+            }
+            if (pending.low == pending.index) {
+                publish(component.subList(pending.position, component.size()), staticSide, visited);
+            }
+        }
+        return cache.get(declaration);
+    }
+
+    private static Pending visit(Type declaration, boolean staticSide, Map<Type, Pending> visited, List<Pending> component) {
+        Pending pending = new Pending(declaration, bases(declaration, staticSide), visited.size(), component.size());
+        visited.put(declaration, pending);
+        component.add(pending);
+        return pending;
+    }
+
+    /**
+     * @return true if the declaration has a table and is on no cycle, so the tables of other declarations can inherit from it without looking at its bases
+     */
+    private boolean isSettled(Type declaration, boolean staticSide) {
+        return (staticSide ? staticMembers : instanceMembers).containsKey(declaration) && !(staticSide ? staticCycles : instanceCycles).containsKey(declaration);
+    }
+
+    /**
+     * Computes and caches the tables of a strongly connected component, which is removed from the given list.
+     * The declarations of the component are still marked as being on the stack, which tells the bases in the component from those outside.
+     */
+    private void publish(List<Pending> members, boolean staticSide, Map<Type, Pending> visited) {
+        ConcurrentTypeTable<MemberTable> cache = staticSide ? staticMembers : instanceMembers;
+        MemberTable[] tables = new MemberTable[members.size()];
+        for (int i = 0; i < tables.length; i++) {
+            Pending pending = members.get(i);
+            List<MemberTable> inherited = new ArrayList<>(pending.bases.size());
+            for (Type base : pending.bases) {
+                Pending other = visited.get(base);
+                if (other == null || !other.onStack) {
+                    inherited.add(cache.get(base));
+                }
+            }
+            tables[i] = merge(pending.declaration, staticSide, inherited);
+        }
+        if (tables.length > 1) {
+            for (Pending pending : members) {
+                (staticSide ? staticCycles : instanceCycles).putIfAbsent(pending.declaration, Boolean.TRUE);
+            }
+        }
+        for (int i = 0; i < tables.length; i++) {
+            Pending pending = members.get(i);
+            pending.onStack = false;
+            cache.putIfAbsent(pending.declaration, tables[i]);
+        }
+        members.clear();
+    }
+
+    /**
+     * @return the distinct declarations of the base types, only the classes for the static side
+     */
+    private static List<Type> bases(Type declaration, boolean staticSide) {
+        List<Type> baseTypes;
+        if (declaration instanceof InterfaceType) {
+            baseTypes = ((InterfaceType) declaration).getBaseTypes();
+        } else if (declaration instanceof ClassType) {
+            baseTypes = ((ClassType) declaration).getBaseTypes();
+        } else {
+            baseTypes = ((GenericType) declaration).getBaseTypes();
+        }
+        if (baseTypes == null || baseTypes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Type> result = new ArrayList<>(baseTypes.size());
+        for (Type baseType : baseTypes) {
+            Type base = TypeHierarchy.declarationOf(baseType);
+            if (base != null && base != declaration && (!staticSide || base instanceof ClassType) && !containsIdentical(result, base)) {
+                result.add(base);
+            }
+        }
+        return result;
+    }
+
+    static boolean containsIdentical(List<?> list, Object element) {
+        for (Object existing : list) {
+            if (existing == element) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MemberTable merge(Type declaration, boolean staticSide, List<MemberTable> inherited) {
+        return merge(declaration, staticSide, Declared.of(declaration, staticSide), inherited);
+    }
+
+    /**
+     * @param declared  the members the declaration declares itself
+     * @param inherited the tables of the bases of the declaration, in the order of its base types
+     */
+    static MemberTable merge(Type declaration, boolean staticSide, Declared declared, List<MemberTable> inherited) {
+        PropertyTable own = declared.properties == null ? PropertyTable.EMPTY : PropertyTable.copyOf(declared.properties);
+        List<Signature> constructSignatures = declared.constructSignatures;
+        Type stringIndexType = declared.stringIndexType;
+        Type numberIndexType = declared.numberIndexType;
+
+        int inheritedCount = 0;
+        for (MemberTable base : inherited) {
+            inheritedCount += base.size();
+        }
+        PropertyTable properties;
+        Type[] owners = null;
+        long[] readonly;
+        if (inheritedCount == 0) {
+            // the table of the declaration may still change, the member table keeps a frozen copy
+            properties = own == declared.properties ? own.frozenCopy() : own.freeze();
+            readonly = new long[(own.size() + 63) >>> 6];
+            for (int i = 0; i < own.size(); i++) {
+                if (isReadonly(declaration, staticSide, own.nameAt(i))) {
+                    readonly[i >>> 6] |= 1L << i;
+                }
+            }
+        } else {
+            int capacity = own.size() + inheritedCount;
+            String[] names = new String[capacity];
+            Type[] types = new Type[capacity];
+            owners = new Type[capacity];
+            readonly = new long[(capacity + 63) >>> 6];
+            Set<String> seen = new HashSet<>();
+            int size = 0;
+            for (int i = 0; i < own.size(); i++) {
+                names[size] = own.nameAt(i);
+                types[size] = own.typeAt(i);
+                owners[size] = declaration;
+                if (isReadonly(declaration, staticSide, names[size])) {
+                    readonly[size >>> 6] |= 1L << size;
+                }
+                seen.add(names[size]);
+                size++;
+            }
+            for (MemberTable base : inherited) {
+                for (int i = 0; i < base.size(); i++) {
+                    String name = base.nameAt(i);
+                    if (seen.add(name)) {
+                        names[size] = name;
+                        types[size] = base.typeAt(i);
+                        owners[size] = base.ownerAt(i);
+                        if (base.isReadonlyAt(i)) {
+                            readonly[size >>> 6] |= 1L << size;
+                        }
+                        size++;
+                    }
+                }
+            }
+            properties = new PropertyTable(Arrays.copyOf(names, size), Arrays.copyOf(types, size)).freeze();
+            owners = Arrays.copyOf(owners, size);
+            readonly = Arrays.copyOf(readonly, (size + 63) >>> 6);
+        }
+
+        for (MemberTable base : inherited) {
+            if (stringIndexType == null) {
+                stringIndexType = base.getStringIndexType();
+            }
+            if (numberIndexType == null) {
+                numberIndexType = base.getNumberIndexType();
+            }
+        }
+        boolean inheritConstructors = !staticSide || constructSignatures == null || constructSignatures.isEmpty();
+        return new MemberTable(declaration, properties, owners, readonly,
+                signatures(declared.callSignatures, inherited, true, true),
+                signatures(constructSignatures, inherited, false, inheritConstructors),
+                stringIndexType, numberIndexType);
+    }
+
+    private static boolean isReadonly(Type declaration, boolean staticSide, String name) {
+        if (declaration instanceof InterfaceType) {
+            return ((InterfaceType) declaration).isReadonly(name);
+        } else if (declaration instanceof ClassType) {
+            return staticSide ? ((ClassType) declaration).isStaticReadonly(name) : ((ClassType) declaration).isInstanceReadonly(name);
+        }
+        return false;
+    }
+
+    private static Signature[] signatures(List<Signature> declared, List<MemberTable> inherited, boolean call, boolean inherit) {
+        int declaredCount = declared == null ? 0 : declared.size();
+        if (!inherit || inherited.isEmpty()) {
+            return declaredCount == 0 ? NO_SIGNATURES : declared.toArray(new Signature[0]);
+        }
+        Set<Signature> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Signature> result = new ArrayList<>();
+        if (declared != null) {
+            for (Signature signature : declared) {
+                if (seen.add(signature)) {
+                    result.add(signature);
+                }
+            }
+        }
+        for (MemberTable base : inherited) {
+            for (Signature signature : call ? base.getCallSignatures() : base.getConstructSignatures()) {
+                if (seen.add(signature)) {
+                    result.add(signature);
+                }
+            }
+        }
+        return result.toArray(new Signature[0]);
+    }
+
+    /**
+     * The members that a declaration declares itself, on one side if it is a class.
+     */
+    static final class Declared {
+        final Map<String, Type> properties;
+        final List<Signature> callSignatures;
+        final List<Signature> constructSignatures;
+        final Type stringIndexType;
+        final Type numberIndexType;
+
+        Declared(Map<String, Type> properties, List<Signature> callSignatures, List<Signature> constructSignatures, Type stringIndexType, Type numberIndexType) {
+            this.properties = properties;
+            this.callSignatures = callSignatures;
+            this.constructSignatures = constructSignatures;
+            this.stringIndexType = stringIndexType;
+            this.numberIndexType = numberIndexType;
+        }
+
+        static Declared of(Type declaration, boolean staticSide) {
+            if (declaration instanceof InterfaceType) {
+                InterfaceType type = (InterfaceType) declaration;
+                return new Declared(type.getDeclaredProperties(), type.getDeclaredCallSignatures(), type.getDeclaredConstructSignatures(),
+                        type.getDeclaredStringIndexType(), type.getDeclaredNumberIndexType());
+            } else if (declaration instanceof GenericType) {
+                GenericType type = (GenericType) declaration;
+                return new Declared(type.getDeclaredProperties(), type.getDeclaredCallSignatures(), type.getDeclaredConstructSignatures(),
+                        type.getDeclaredStringIndexType(), type.getDeclaredNumberIndexType());
+            }
+            ClassType type = (ClassType) declaration;
+            if (staticSide) {
+                return new Declared(type.getStaticProperties(), type.getCallSignatures(), type.getConstructors(), null, null);
+            }
+            return new Declared(type.getInstanceProperties(), null, null, type.getDeclaredStringIndexType(), type.getDeclaredNumberIndexType());
+        }
+    }
+
+    /**
+     * A declaration whose table is computed after those of its bases.
+     */
+    private static final class Pending {
+        private final Type declaration;
+        private final List<Type> bases;
+        private int next = 0;
+        /**
+         * The order in which the declaration was reached, and the least order of a declaration on the stack that it reaches.
+         */
+        private final int index;
+        private int low;
+        private boolean onStack = true;
+        /**
+         * The position of the declaration in the stack of declarations whose component is not computed yet.
+         */
+        private final int position;
+
+        private Pending(Type declaration, List<Type> bases, int index, int position) {
+            this.declaration = declaration;
+            this.bases = bases;
+            this.index = index;
+            this.position = position;
+            this.low = index;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The members of an interface, generic type or one side of a class, including the members it inherits, see {@link MemberResolver}.
+ * <p>
+ * The properties are kept in a {@link PropertyTable}, the declared properties first and then the inherited ones, with the declaration each was taken from and whether it is readonly at the same position.
+ * The signatures are kept in arrays. A table is immutable.
+ */
+public final class MemberTable {
+    private static final Signature[] NO_SIGNATURES = new Signature[0];
+
+    private final Type declaration;
+    private final PropertyTable properties;
+    /**
+     * The declaration of the property at each position, or null if the declaration of the table declares them all.
+     */
+    private final Type[] owners;
+    private final long[] readonly;
+    private final Signature[] callSignatures;
+    private final Signature[] constructSignatures;
+    private final Type stringIndexType;
+    private final Type numberIndexType;
+
+    MemberTable(Type declaration, PropertyTable properties, Type[] owners, long[] readonly, Signature[] callSignatures, Signature[] constructSignatures, Type stringIndexType, Type numberIndexType) {
+        this.declaration = declaration;
+        this.properties = properties;
+        this.owners = owners;
+        this.readonly = readonly;
+        this.callSignatures = callSignatures.length == 0 ? NO_SIGNATURES : callSignatures;
+        this.constructSignatures = constructSignatures.length == 0 ? NO_SIGNATURES : constructSignatures;
+        this.stringIndexType = stringIndexType;
+        this.numberIndexType = numberIndexType;
+    }
+
+    /**
+     * @return the interface, generic type or class whose members these are
+     */
+    public Type getDeclaration() {
+        return declaration;
+    }
+
+    /**
+     * @return the declared and inherited properties, an inherited property is left out if a property with the same name is declared or inherited first
+     */
+    public PropertyTable getProperties() {
+        return properties;
+    }
+
+    public int size() {
+        return properties.size();
+    }
+
+    /**
+     * @return the position of the property, or -1 if there is none with the name
+     */
+    public int indexOf(String name) {
+        return properties.indexOf(name);
+    }
+
+    public String nameAt(int index) {
+        return properties.nameAt(index);
+    }
+
+    public Type typeAt(int index) {
+        return properties.typeAt(index);
+    }
+
+    /**
+     * @return the declaration the property at the position was taken from
+     */
+    public Type ownerAt(int index) {
+        if (index < 0 || index >= properties.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + properties.size());
+        }
+        return owners == null ? declaration : owners[index];
+    }
+
+    public boolean isReadonlyAt(int index) {
+        if (index < 0 || index >= properties.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + properties.size());
+        }
+        return readonly != null && (readonly[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return the type of the property, or null if there is none with the name
+     */
+    public Type getProperty(String name) {
+        return properties.get(name);
+    }
+
+    /**
+     * @return the declaration the property was taken from, or null if there is none with the name
+     */
+    public Type getOwner(String name) {
+        int index = properties.indexOf(name);
+        return index < 0 ? null : ownerAt(index);
+    }
+
+    /**
+     * @return true if there is a property with the name and it is declared readonly where it was taken from
+     */
+    public boolean isReadonly(String name) {
+        int index = properties.indexOf(name);
+        return index >= 0 && isReadonlyAt(index);
+    }
+
+    /**
+     * @return the declared call signatures followed by the inherited ones, each signature once
+     */
+    public List<Signature> getCallSignatures() {
+        return Collections.unmodifiableList(Arrays.asList(callSignatures));
+    }
+
+    /**
+     * On the static side of a class the constructors are inherited only if the class declares none.
+     *
+     * @return the declared construct signatures followed by the inherited ones, each signature once
+     */
+    public List<Signature> getConstructSignatures() {
+        return Collections.unmodifiableList(Arrays.asList(constructSignatures));
+    }
+
+    /**
+     * @return the declared string index type, or else the first one inherited, or null if there is none
+     */
+    public Type getStringIndexType() {
+        return stringIndexType;
+    }
+
+    /**
+     * @return the declared number index type, or else the first one inherited, or null if there is none
+     */
+    public Type getNumberIndexType() {
+        return numberIndexType;
+    }
+
+    @Override
+    public String toString() {
+        return "Members(" + properties.keySet() + ")";
+    }
+}
@@ -4,8 +4,22 @@ package dk.au.cs.casa.typescript.types;
  * Created by erik1 on 03-11-2016.
  */
 public class NumberLiteral implements Type {
+    private static final Interner<Double, NumberLiteral> INTERNER = new Interner<>(NumberLiteral::new);
+
     private final double value;
+    private final int typeId = TypeIds.UNOWNED.next();
+
+    /**
+     * @return the shared instance for the value, so number literals can be compared by identity
+     */
+    public static NumberLiteral of(double value) {
+        return INTERNER.intern(value);
+    }
 
+    /**
+     * @deprecated use {@link #of(double)}, the types read from a specification are always the shared instances
+     */
+    @Deprecated
     public NumberLiteral(double value) {
         this.value = value;
     }
@@ -14,6 +28,11 @@ public class NumberLiteral implements Type {
         return value;
     }
 
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
@@ -24,6 +43,19 @@ public class NumberLiteral implements Type {
         return v.visit(this, a);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return Double.compare(value, ((NumberLiteral) o).value) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Double.hashCode(value);
+    }
+
     @Override
     public String toString() {
         return "Number(" + this.getValue() + ")";
@@ -0,0 +1,413 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * A map from property names to types, in the order the properties were added.
+ * <p>
+ * The names, their hashes and the types are kept in parallel arrays. Small tables are searched linearly by hash, larger tables through an open-addressing table of indices.
+ * Lookups do not allocate. Adding a property appends it, removing one moves the later properties one position down.
+ * A table is not thread-safe while it is changed; a frozen table, see {@link #freeze()}, cannot be changed and can be read by several threads.
+ */
+public final class PropertyTable extends AbstractMap<String, Type> {
+    /**
+     * The largest table that is searched linearly.
+     */
+    private static final int LINEAR_LIMIT = 8;
+    private static final String[] NO_NAMES = new String[0];
+    private static final Type[] NO_TYPES = new Type[0];
+
+    public static final PropertyTable EMPTY = new PropertyTable(NO_NAMES, NO_TYPES).freeze();
+
+    private String[] names;
+    private Type[] types;
+    private int[] hashes;
+    /**
+     * The index of each property plus one at the slot of its hash, 0 for a free slot, or null for a small table.
+     */
+    private int[] slots;
+    private int size;
+    /**
+     * The number of changes that moved or added properties, see {@link #modCount()}.
+     */
+    private int modCount;
+    private boolean frozen;
+
+    /**
+     * Takes ownership of the arrays. For a name that occurs more than once the last type is kept, at the position of the first occurrence.
+     *
+     * @param names the property names, not null
+     * @param types the types of the properties
+     */
+    public PropertyTable(String[] names, Type[] types) {
+        if (names.length != types.length) {
+            throw new IllegalArgumentException("Expected " + names.length + " types, got " + types.length);
+        }
+        int count = names.length;
+        int[] hashes = new int[count];
+        int[] slots = count > LINEAR_LIMIT ? new int[slotCount(count)] : null;
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            String name = names[i];
+            int hash = hash(name);
+            int index = slots == null ? linearIndexOf(name, hash, names, hashes, size) : insert(slots, name, hash, names, hashes, size);
+            if (index >= 0) {
+                types[index] = types[i];
+            } else {
+                names[size] = name;
+                types[size] = types[i];
+                hashes[size] = hash;
+                size++;
+            }
+        }
+        this.names = size == count ? names : Arrays.copyOf(names, size);
+        this.types = size == count ? types : Arrays.copyOf(types, size);
+        this.hashes = size == count ? hashes : Arrays.copyOf(hashes, size);
+        this.slots = slots;
+        this.size = size;
+    }
+
+    /**
+     * @return the map itself if it is a table, otherwise a new table of the entries of the map, in its iteration order
+     */
+    public static PropertyTable copyOf(Map<String, Type> map) {
+        if (map instanceof PropertyTable) {
+            return (PropertyTable) map;
+        }
+        if (map.isEmpty()) {
+            return EMPTY;
+        }
+        String[] names = new String[map.size()];
+        Type[] types = new Type[map.size()];
+        int i = 0;
+        for (Entry<String, Type> entry : map.entrySet()) {
+            names[i] = entry.getKey();
+            types[i] = entry.getValue();
+            i++;
+        }
+        return new PropertyTable(names, types);
+    }
+
+    /**
+     * Makes the table unmodifiable, later changes throw {@link UnsupportedOperationException}.
+     *
+     * @return the table itself
+     */
+    public PropertyTable freeze() {
+        if (!frozen) {
+            names = Arrays.copyOf(names, size);
+            types = Arrays.copyOf(types, size);
+            hashes = Arrays.copyOf(hashes, size);
+            frozen = true;
+        }
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * @return the table itself if it is frozen, otherwise a frozen copy
+     */
+    public PropertyTable frozenCopy() {
+        if (frozen) {
+            return this;
+        }
+        return new PropertyTable(Arrays.copyOf(names, size), Arrays.copyOf(types, size)).freeze();
+    }
+
+    /**
+     * @return a number that changes whenever a property is added or removed, so positions taken from the table before are no longer valid
+     */
+    int modCount() {
+        return modCount;
+    }
+
+    private static int hash(String name) {
+        int hash = name.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @return the number of slots for the given number of properties, at most half of the slots are used
+     */
+    private static int slotCount(int count) {
+        return Integer.highestOneBit(count * 2 - 1) << 1;
+    }
+
+    private static int linearIndexOf(Object name, int hash, String[] names, int[] hashes, int size) {
+        for (int i = 0; i < size; i++) {
+            if (hashes[i] == hash && names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the property at the given index to the slots unless the name is already there.
+     *
+     * @return the index of the name if it is already there, otherwise -1
+     */
+    private static int insert(int[] slots, String name, int hash, String[] names, int[] hashes, int index) {
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int existing = slots[slot] - 1;
+            if (existing < 0) {
+                slots[slot] = index + 1;
+                return -1;
+            }
+            if (hashes[existing] == hash && names[existing].equals(name)) {
+                return existing;
+            }
+        }
+    }
+
+    /**
+     * Recreates the slots of the properties, or drops them if the table is small enough to be searched linearly.
+     */
+    private void rehash(int capacity) {
+        if (capacity <= LINEAR_LIMIT) {
+            slots = null;
+            return;
+        }
+        slots = new int[slotCount(capacity)];
+        for (int i = 0; i < size; i++) {
+            insert(slots, names[i], hashes[i], names, hashes, i);
+        }
+    }
+
+    /**
+     * @return the position of the property in the table, or -1 if there is none with the name
+     */
+    public int indexOf(Object name) {
+        if (!(name instanceof String)) {
+            return -1;
+        }
+        int hash = hash((String) name);
+        if (slots == null) {
+            return linearIndexOf(name, hash, names, hashes, size);
+        }
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int index = slots[slot] - 1;
+            if (index < 0) {
+                return -1;
+            }
+            if (hashes[index] == hash && names[index].equals(name)) {
+                return index;
+            }
+        }
+    }
+
+    public String nameAt(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return names[index];
+    }
+
+    public Type typeAt(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return types[index];
+    }
+
+    @Override
+    public Type get(Object name) {
+        int index = indexOf(name);
+        return index < 0 ? null : types[index];
+    }
+
+    @Override
+    public boolean containsKey(Object name) {
+        return indexOf(name) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Frozen property tables cannot be modified");
+        }
+    }
+
+    /**
+     * Replaces the type of an existing property in place, or appends a new property.
+     */
+    @Override
+    public Type put(String name, Type type) {
+        checkMutable();
+        int index = indexOf(name);
+        if (index >= 0) {
+            Type previous = types[index];
+            types[index] = type;
+            return previous;
+        }
+        int hash = hash(name);
+        if (size == names.length) {
+            int capacity = Math.max(4, size * 2);
+            names = Arrays.copyOf(names, capacity);
+            types = Arrays.copyOf(types, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        names[size] = name;
+        types[size] = type;
+        hashes[size] = hash;
+        size++;
+        modCount++;
+        if (slots == null ? size > LINEAR_LIMIT : size * 2 > slots.length) {
+            rehash(size);
+        } else if (slots != null) {
+            insert(slots, name, hash, names, hashes, size - 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Type remove(Object name) {
+        checkMutable();
+        int index = indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        Type previous = types[index];
+        removeAt(index);
+        return previous;
+    }
+
+    private void removeAt(int index) {
+        int moved = size - index - 1;
+        System.arraycopy(names, index + 1, names, index, moved);
+        System.arraycopy(types, index + 1, types, index, moved);
+        System.arraycopy(hashes, index + 1, hashes, index, moved);
+        size--;
+        names[size] = null;
+        types[size] = null;
+        modCount++;
+        if (slots != null) {
+            rehash(size);
+        }
+    }
+
+    @Override
+    public void clear() {
+        checkMutable();
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(types, 0, size, null);
+        size = 0;
+        slots = null;
+        modCount++;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Type> action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(names[i], types[i]);
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Type, ? extends Type> function) {
+        checkMutable();
+        for (int i = 0; i < size; i++) {
+            types[i] = function.apply(names[i], types[i]);
+        }
+    }
+
+    /**
+     * An entry of the entry set, setting its value replaces the type of the property in the table.
+     */
+    private final class TableEntry extends SimpleEntry<String, Type> {
+        private static final long serialVersionUID = 1L;
+
+        private int index;
+        private int expectedModCount;
+
+        TableEntry(int index) {
+            super(names[index], types[index]);
+            this.index = index;
+            this.expectedModCount = modCount;
+        }
+
+        @Override
+        public Type setValue(Type type) {
+            checkMutable();
+            if (expectedModCount != modCount) {
+                index = indexOf(getKey());
+                expectedModCount = modCount;
+                if (index < 0) {
+                    throw new IllegalStateException("Property " + getKey() + " was removed");
+                }
+            }
+            types[index] = type;
+            return super.setValue(type);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Type>> entrySet() {
+        return new AbstractSet<Entry<String, Type>>() {
+            @Override
+            public Iterator<Entry<String, Type>> iterator() {
+                return new Iterator<Entry<String, Type>>() {
+                    private int next = 0;
+                    private boolean removable = false;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<String, Type> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        removable = true;
+                        return new TableEntry(index);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (!removable) {
+                            throw new IllegalStateException();
+                        }
+                        checkMutable();
+                        removeAt(--next);
+                        removable = false;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public void clear() {
+                PropertyTable.this.clear();
+            }
+        };
+    }
+}
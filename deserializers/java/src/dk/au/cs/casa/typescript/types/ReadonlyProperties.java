@@ -0,0 +1,66 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The readonly properties of a type, as a bitset aligned with the positions of its property table.
+ * Readonly names that are not in the table, or all of them if the properties are not a {@link PropertyTable}, are kept in a hash set.
+ * Instances are immutable, so a type can cache one in a plain field that several threads read, and replace it once it is no longer current.
+ */
+final class ReadonlyProperties {
+    private static final ReadonlyProperties NONE = new ReadonlyProperties(null, null, Collections.emptySet());
+
+    private final PropertyTable table;
+    private final int modCount;
+    private final long[] bits;
+    private final Set<String> others;
+
+    private ReadonlyProperties(PropertyTable table, long[] bits, Set<String> others) {
+        this.table = table;
+        this.modCount = table == null ? 0 : table.modCount();
+        this.bits = bits;
+        this.others = others;
+    }
+
+    static ReadonlyProperties of(Map<String, Type> properties, List<String> readonlyNames) {
+        if (readonlyNames == null || readonlyNames.isEmpty()) {
+            return NONE;
+        }
+        PropertyTable table = properties instanceof PropertyTable ? (PropertyTable) properties : null;
+        long[] bits = table == null ? null : new long[(table.size() + 63) >>> 6];
+        Set<String> others = Collections.emptySet();
+        for (String name : readonlyNames) {
+            int index = table == null ? -1 : table.indexOf(name);
+            if (index >= 0) {
+                bits[index >>> 6] |= 1L << index;
+            } else {
+                if (others.isEmpty()) {
+                    others = new HashSet<>();
+                }
+                others.add(name);
+            }
+        }
+        return new ReadonlyProperties(table, bits, others);
+    }
+
+    /**
+     * @return false if properties were added to or removed from the table since, the bits are then no longer aligned with the positions of the table
+     */
+    boolean isCurrent() {
+        return table == null || table.modCount() == modCount;
+    }
+
+    boolean contains(String name) {
+        if (table != null) {
+            int index = table.indexOf(name);
+            if (index >= 0) {
+                return (bits[index >>> 6] & (1L << index)) != 0;
+            }
+        }
+        return others.contains(name);
+    }
+}
@@ -4,14 +4,28 @@ import java.util.List;
 
 public class ReferenceType implements Type {
 
+    private final int typeId;
     private Type target;
     private List<Type> typeArguments;
+    private boolean frozen;
+
+    public ReferenceType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public ReferenceType(int id) {
+        this.typeId = id;
+    }
 
     public Type getTarget() {
         return target;
     }
 
     public void setTarget(Type target) {
+        TypeFreezer.checkMutable(frozen);
         this.target = target;
     }
 
@@ -21,12 +35,27 @@ public class ReferenceType implements Type {
     }
 
     public void setTypeArguments(List<Type> typeArguments) {
+        TypeFreezer.checkMutable(frozen);
         this.typeArguments = typeArguments;
     }
 
     @Override
     public String toString() {
-        return "Reference("+ target +")";
+        return Structural.toString(this, () -> "Reference("+ target +")");
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        typeArguments = TypeFreezer.unmodifiable(typeArguments);
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
     }
 
     @Override
@@ -13,12 +13,14 @@ public class Signature {
     private List<Signature> unionSignatures;
     /* erasedSignatureCache */
     private Type isolatedSignatureType;
+    private boolean frozen;
 
     public Type getIsolatedSignatureType() {
         return isolatedSignatureType;
     }
 
     public void setIsolatedSignatureType(Type isolatedSignatureType) {
+        TypeFreezer.checkMutable(frozen);
         this.isolatedSignatureType = isolatedSignatureType;
     }
 
@@ -27,6 +29,7 @@ public class Signature {
     }
 
     public void setTypeParameters(List<Type> typeParameters) {
+        TypeFreezer.checkMutable(frozen);
         this.typeParameters = typeParameters;
     }
 
@@ -35,6 +38,7 @@ public class Signature {
     }
 
     public void setParameters(List<Parameter> parameters) {
+        TypeFreezer.checkMutable(frozen);
         this.parameters = parameters;
     }
 
@@ -43,6 +47,7 @@ public class Signature {
     }
 
     public void setResolvedReturnType(Type resolvedReturnType) {
+        TypeFreezer.checkMutable(frozen);
         this.resolvedReturnType = resolvedReturnType;
     }
 
@@ -51,6 +56,7 @@ public class Signature {
     }
 
     public void setMinArgumentCount(int minArgumentCount) {
+        TypeFreezer.checkMutable(frozen);
         this.minArgumentCount = minArgumentCount;
     }
 
@@ -59,6 +65,7 @@ public class Signature {
     }
 
     public void setHasRestParameter(boolean hasRestParameter) {
+        TypeFreezer.checkMutable(frozen);
         this.hasRestParameter = hasRestParameter;
     }
 
@@ -67,6 +74,7 @@ public class Signature {
     }
 
     public void setTarget(Signature target) {
+        TypeFreezer.checkMutable(frozen);
         this.target = target;
     }
 
@@ -75,12 +83,25 @@ public class Signature {
     }
 
     public void setUnionSignatures(List<Signature> unionSignatures) {
+        TypeFreezer.checkMutable(frozen);
         this.unionSignatures = unionSignatures;
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        typeParameters = TypeFreezer.unmodifiable(typeParameters);
+        parameters = TypeFreezer.unmodifiable(parameters);
+        unionSignatures = TypeFreezer.unmodifiable(unionSignatures);
+        frozen = true;
+    }
+
     public static class Parameter/* NB: not actually a TypeScript compiler type! */ {
         private String name;
         private Type type;
+        private boolean frozen;
 
         public Parameter() {}
 
@@ -94,6 +115,7 @@ public class Signature {
         }
 
         public void setName (String name) {
+            TypeFreezer.checkMutable(frozen);
             this.name = name;
         }
 
@@ -102,9 +124,18 @@ public class Signature {
         }
 
         public void setType (Type type) {
+            TypeFreezer.checkMutable(frozen);
             this.type = type;
         }
 
+        public boolean isFrozen() {
+            return frozen;
+        }
+
+        void freeze() {
+            frozen = true;
+        }
+
         public String toString(){
             return name + ": " + type;
         }
@@ -1,10 +1,37 @@
 package dk.au.cs.casa.typescript.types;
 
 public class SimpleType implements Type {
+    private static final SimpleType[] CANONICAL = new SimpleType[SimpleTypeKind.values().length];
+
+    static {
+        for (SimpleTypeKind kind : SimpleTypeKind.values()) {
+            CANONICAL[kind.ordinal()] = new SimpleType(kind, true);
+        }
+    }
+
     private SimpleTypeKind kind;
+    private final boolean canonical;
+    private final int typeId = TypeIds.UNOWNED.next();
+    private boolean frozen;
 
+    /**
+     * @deprecated use {@link #get(SimpleTypeKind)}, the types read from a specification are always the canonical instances
+     */
+    @Deprecated
     public SimpleType(SimpleTypeKind kind) {
+        this(kind, false);
+    }
+
+    private SimpleType(SimpleTypeKind kind, boolean canonical) {
         this.kind = kind;
+        this.canonical = canonical;
+    }
+
+    /**
+     * @return the shared instance for the kind, so simple types can be compared by identity
+     */
+    public static SimpleType get(SimpleTypeKind kind) {
+        return CANONICAL[kind.ordinal()];
     }
 
     @Override
@@ -21,7 +48,15 @@ public class SimpleType implements Type {
         return kind;
     }
 
+    /**
+     * @deprecated the canonical instances are shared and cannot be changed
+     */
+    @Deprecated
     public void setKind(SimpleTypeKind kind) {
+        if (canonical) {
+            throw new UnsupportedOperationException("Canonical simple types are immutable");
+        }
+        TypeFreezer.checkMutable(frozen);
         this.kind = kind;
     }
 
@@ -40,6 +75,19 @@ public class SimpleType implements Type {
         return kind.toString();
     }
 
+    public boolean isFrozen() {
+        return frozen || canonical;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
@@ -4,8 +4,25 @@ package dk.au.cs.casa.typescript.types;
  * Created by erik1 on 03-11-2016.
  */
 public class StringLiteral implements Type {
+    private static final Interner<String, StringLiteral> INTERNER = new Interner<>(StringLiteral::new);
+
     private final String text;
+    private final int typeId = TypeIds.UNOWNED.next();
+
+    /**
+     * @return the shared instance for the text, so string literals can be compared by identity
+     */
+    public static StringLiteral of(String text) {
+        if (text == null) {
+            throw new RuntimeException();
+        }
+        return INTERNER.intern(text);
+    }
 
+    /**
+     * @deprecated use {@link #of(String)}, the types read from a specification are always the shared instances
+     */
+    @Deprecated
     public StringLiteral(String text) {
         if (text == null) {
             throw new RuntimeException();
@@ -17,6 +34,11 @@ public class StringLiteral implements Type {
         return text;
     }
 
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
@@ -27,6 +49,19 @@ public class StringLiteral implements Type {
         return v.visit(this, a);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return text.equals(((StringLiteral) o).text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
     @Override
     public String toString() {
         return "String(" + this.text + ")";
@@ -0,0 +1,397 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Structural equality and hashing of types, and cycle-safe printing.
+ * <p>
+ * Two types are structurally equal if they are of the same class, their scalar fields are equal, and the types and signatures in their fields are pairwise structurally equal,
+ * properties matched by name. The type graph may be cyclic, so equality is bisimilarity: a pair that is already being compared is assumed to be equal.
+ * Simple types and literals are compared by value, unresolved types by the id they were read with, and delayed types by identity.
+ * <p>
+ * The types themselves keep the equality of {@link Object}, except for simple types and literals, so maps and sets of types are by identity.
+ * Use {@link StructuralKey} to key a map or set by structure.
+ * <p>
+ * The structural hash of a type only depends on the type and the types in its fields, not on the graph further away, so bisimilar types have the same hash.
+ * It is computed each time it is asked for, so it always reflects the current fields of the type.
+ * <p>
+ * The same fields define which types, signatures and parameters are reachable from a type, see {@link #forEachReachable(Iterable, Consumer)}.
+ */
+public final class Structural {
+    private static final ThreadLocal<Set<Type>> PRINTING = ThreadLocal.withInitial(() -> Collections.newSetFromMap(new IdentityHashMap<>()));
+
+    private Structural() {}
+
+    /**
+     * @return a hash code of the type that is the same for structurally equal types
+     */
+    public static int hash(Type type) {
+        if (isValue(type)) {
+            return valueHash(type);
+        }
+        int hash = type.getClass().getName().hashCode();
+        for (Object field : fields(type)) {
+            hash = 31 * hash + fieldHash(field, true);
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int fieldHash(Object field, boolean deep) {
+        if (field == null) {
+            return 0;
+        }
+        if (field instanceof Map) {
+            int hash = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) field).entrySet()) {
+                hash += entry.getKey().hashCode() ^ fieldHash(entry.getValue(), false);
+            }
+            return hash;
+        }
+        if (field instanceof List) {
+            int hash = 1;
+            for (Object element : (List<?>) field) {
+                hash = 31 * hash + fieldHash(element, false);
+            }
+            return hash;
+        }
+        if (isNode(field)) {
+            return deep ? shallowHash(field) : nodeHash(field);
+        }
+        return field.hashCode();
+    }
+
+    /**
+     * @return a hash of the node that only depends on its class, its scalar fields and the shape of its other fields
+     */
+    private static int shallowHash(Object node) {
+        if (isValue(node)) {
+            return valueHash(node);
+        }
+        int hash = node.getClass().getName().hashCode();
+        for (Object field : fields(node)) {
+            hash = 31 * hash + fieldHash(field, false);
+        }
+        return hash;
+    }
+
+    /**
+     * @return a hash of the node that only depends on its class, or its value for a type compared by value
+     */
+    private static int nodeHash(Object node) {
+        return isValue(node) ? valueHash(node) : node.getClass().getName().hashCode();
+    }
+
+    private static int valueHash(Object node) {
+        return node instanceof UnresolvedType ? Integer.hashCode(((UnresolvedType) node).getId()) : node.hashCode();
+    }
+
+    private static boolean valueEqual(Object x, Object y) {
+        return x instanceof UnresolvedType ? ((UnresolvedType) x).getId() == ((UnresolvedType) y).getId() : x.equals(y);
+    }
+
+    /**
+     * The hashes of the types in the pairs are compared first, which rejects most unequal pairs without looking further.
+     *
+     * @return true if the types are structurally equal
+     */
+    public static boolean equal(Type a, Type b) {
+        Set<Pair> assumed = new HashSet<>();
+        Map<Object, Integer> hashes = new IdentityHashMap<>();
+        Deque<Object> work = new ArrayDeque<>();
+        work.push(b);
+        work.push(a);
+        while (!work.isEmpty()) {
+            Object x = work.pop();
+            Object y = work.pop();
+            if (x == y) {
+                continue;
+            }
+            if (x == null || y == null || x.getClass() != y.getClass()) {
+                return false;
+            }
+            if (isValue(x) || x instanceof DelayedType) {
+                if (x instanceof DelayedType || !valueEqual(x, y)) {
+                    return false;
+                }
+                continue;
+            }
+            if (x instanceof Type && hash(x, hashes) != hash(y, hashes)) {
+                return false;
+            }
+            if (!assumed.add(new Pair(x, y))) {
+                continue;
+            }
+            Object[] xFields = fields(x);
+            Object[] yFields = fields(y);
+            for (int i = 0; i < xFields.length; i++) {
+                if (!pushFields(xFields[i], yFields[i], work)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static int hash(Object type, Map<Object, Integer> hashes) {
+        Integer hash = hashes.get(type);
+        if (hash == null) {
+            hash = hash((Type) type);
+            hashes.put(type, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Compares the scalar parts of two fields and pushes the pairs of nodes in them.
+     *
+     * @return false if the fields differ in their scalar parts
+     */
+    private static boolean pushFields(Object x, Object y, Deque<Object> work) {
+        if (x == null || y == null) {
+            return x == y;
+        }
+        if (isNode(x)) {
+            work.push(y);
+            work.push(x);
+            return true;
+        }
+        if (x instanceof Map) {
+            Map<?, ?> xMap = (Map<?, ?>) x;
+            Map<?, ?> yMap = (Map<?, ?>) y;
+            if (xMap.size() != yMap.size()) {
+                return false;
+            }
+            for (Map.Entry<?, ?> entry : xMap.entrySet()) {
+                Object yValue = yMap.get(entry.getKey());
+                if (yValue == null && !yMap.containsKey(entry.getKey())) {
+                    return false;
+                }
+                work.push(yValue);
+                work.push(entry.getValue());
+            }
+            return true;
+        }
+        if (x instanceof List) {
+            List<?> xList = (List<?>) x;
+            List<?> yList = (List<?>) y;
+            if (xList.size() != yList.size()) {
+                return false;
+            }
+            for (int i = 0; i < xList.size(); i++) {
+                Object xElement = xList.get(i);
+                Object yElement = yList.get(i);
+                if (isNode(xElement) || isNode(yElement)) {
+                    work.push(yElement);
+                    work.push(xElement);
+                } else if (!Objects.equals(xElement, yElement)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return x.equals(y);
+    }
+
+    private static boolean isNode(Object object) {
+        return object instanceof Type || object instanceof Signature || object instanceof Signature.Parameter;
+    }
+
+    /**
+     * Passes each type, signature and parameter reachable through the fields compared by equality to the action once, after the nodes in its fields are found.
+     * Delayed types are followed to the types they stand for and are not passed to the action themselves.
+     */
+    static void forEachReachable(Iterable<? extends Type> types, Consumer<Object> action) {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Object> work = new ArrayDeque<>();
+        for (Type type : types) {
+            pushReachable(type, seen, work);
+        }
+        while (!work.isEmpty()) {
+            Object node = work.pop();
+            if (node instanceof DelayedType) {
+                pushReachable(((DelayedType) node).getType(), seen, work);
+                continue;
+            }
+            for (Object field : fields(node)) {
+                if (field instanceof List) {
+                    for (Object element : (List<?>) field) {
+                        pushReachable(element, seen, work);
+                    }
+                } else if (field instanceof Map) {
+                    for (Object value : ((Map<?, ?>) field).values()) {
+                        pushReachable(value, seen, work);
+                    }
+                } else {
+                    pushReachable(field, seen, work);
+                }
+            }
+            action.accept(node);
+        }
+    }
+
+    private static void pushReachable(Object node, Set<Object> seen, Deque<Object> work) {
+        if (isNode(node) && seen.add(node)) {
+            work.push(node);
+        }
+    }
+
+    /**
+     * @return true for the types that are compared by value
+     */
+    private static boolean isValue(Object node) {
+        return node instanceof SimpleType || node instanceof StringLiteral || node instanceof NumberLiteral || node instanceof BooleanLiteral || node instanceof UnresolvedType;
+    }
+
+    /**
+     * @return the fields of a type, signature or parameter that take part in the comparison, in a fixed order per class
+     */
+    static Object[] fields(Object node) {
+        if (node instanceof Signature) {
+            Signature s = (Signature) node;
+            return new Object[]{s.getTypeParameters(), s.getParameters(), s.getResolvedReturnType(), s.getMinArgumentCount(), s.isHasRestParameter(), s.getTarget(), s.getUnionSignatures(), s.getIsolatedSignatureType()};
+        }
+        if (node instanceof Signature.Parameter) {
+            Signature.Parameter p = (Signature.Parameter) node;
+            return new Object[]{p.getName(), p.getType()};
+        }
+        if (isValue(node) || node instanceof DelayedType) {
+            return new Object[0];
+        }
+        return ((Type) node).accept(FIELDS);
+    }
+
+    private static final TypeVisitor<Object[]> FIELDS = new TypeVisitor<Object[]>() {
+        @Override
+        public Object[] visit(AnonymousType t) {
+            return new Object[0];
+        }
+
+        @Override
+        public Object[] visit(ClassType t) {
+            return new Object[]{t.getConstructors(), t.getCallSignatures(), t.getBaseTypes(), t.getStaticProperties(), t.getInstanceProperties(), t.getDeclaredStringIndexType(), t.getDeclaredNumberIndexType(), t.getTarget(), t.getTypeParameters(), t.getTypeArguments(), t.getStaticReadonlyProperties(), t.getInstanceReadOnlyProperties()};
+        }
+
+        @Override
+        public Object[] visit(GenericType t) {
+            return new Object[]{t.getTypeParameters(), t.getBaseTypes(), t.getDeclaredProperties(), t.getDeclaredCallSignatures(), t.getDeclaredConstructSignatures(), t.getDeclaredStringIndexType(), t.getDeclaredNumberIndexType(), t.getTarget(), t.getTypeArguments()};
+        }
+
+        @Override
+        public Object[] visit(InterfaceType t) {
+            return new Object[]{t.getTypeParameters(), t.getBaseTypes(), t.getDeclaredProperties(), t.getReadonlyDeclarations(), t.getDeclaredCallSignatures(), t.getDeclaredConstructSignatures(), t.getDeclaredStringIndexType(), t.getDeclaredNumberIndexType()};
+        }
+
+        @Override
+        public Object[] visit(ReferenceType t) {
+            return new Object[]{t.getTarget(), t.getTypeArguments()};
+        }
+
+        @Override
+        public Object[] visit(SimpleType t) {
+            return new Object[0];
+        }
+
+        @Override
+        public Object[] visit(TupleType t) {
+            return new Object[]{t.getElementTypes(), t.getMinLength()};
+        }
+
+        @Override
+        public Object[] visit(UnionType t) {
+            return new Object[]{t.getElements()};
+        }
+
+        @Override
+        public Object[] visit(TypeParameterType t) {
+            return new Object[]{t.getConstraint()};
+        }
+
+        @Override
+        public Object[] visit(StringLiteral t) {
+            return new Object[0];
+        }
+
+        @Override
+        public Object[] visit(BooleanLiteral t) {
+            return new Object[0];
+        }
+
+        @Override
+        public Object[] visit(NumberLiteral t) {
+            return new Object[0];
+        }
+
+        @Override
+        public Object[] visit(IntersectionType t) {
+            return new Object[]{t.getElements()};
+        }
+
+        @Override
+        public Object[] visit(ClassInstanceType t) {
+            return new Object[]{t.getClassType()};
+        }
+
+        @Override
+        public Object[] visit(ThisType t) {
+            return new Object[]{t.getConstraint()};
+        }
+
+        @Override
+        public Object[] visit(IndexType t) {
+            return new Object[]{t.getType()};
+        }
+
+        @Override
+        public Object[] visit(IndexedAccessType t) {
+            return new Object[]{t.getObjectType(), t.getIndexType()};
+        }
+    };
+
+    /**
+     * Prints a type whose string contains the strings of other types, a type reached again while it is printed is printed as "...".
+     */
+    static String toString(Type type, Supplier<String> printer) {
+        Set<Type> printing = PRINTING.get();
+        if (!printing.add(type)) {
+            return "...";
+        }
+        try {
+            return printer.get();
+        } finally {
+            printing.remove(type);
+        }
+    }
+
+    /**
+     * A pair of nodes, by identity.
+     */
+    private static final class Pair {
+        private final Object first;
+        private final Object second;
+
+        private Pair(Object first, Object second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Pair && ((Pair) o).first == first && ((Pair) o).second == second;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(first) + System.identityHashCode(second);
+        }
+    }
+}
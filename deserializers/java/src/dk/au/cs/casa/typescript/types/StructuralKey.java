@@ -0,0 +1,41 @@
+package dk.au.cs.casa.typescript.types;
+
+/**
+ * A type as a key of a map or set that compares types structurally, see {@link Structural}.
+ * <p>
+ * The hash is computed when the key is made, so the type must not be changed while the key is in use, e.g. freeze it first, see {@link TypeFreezer}.
+ */
+public final class StructuralKey {
+    private final Type type;
+    private final int hash;
+
+    public StructuralKey(Type type) {
+        if (type == null) {
+            throw new NullPointerException("type");
+        }
+        this.type = type;
+        this.hash = Structural.hash(type);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StructuralKey that = (StructuralKey) o;
+        return hash == that.hash && Structural.equal(type, that.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return type.toString();
+    }
+}
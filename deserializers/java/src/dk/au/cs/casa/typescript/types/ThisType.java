@@ -4,13 +4,26 @@ import java.util.List;
 
 public class ThisType implements Type {
 
+    private final int typeId;
     private Type constraint;
+    private boolean frozen;
+
+    public ThisType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public ThisType(int id) {
+        this.typeId = id;
+    }
 
     @Override
     public String toString() {
-        return "ThisType{" +
-                "constraint=" + constraint +
-                '}';
+        return Structural.toString(this, () -> "ThisType{" +
+                        "constraint=" + constraint +
+                        '}');
     }
 
     public Type getConstraint() {
@@ -18,9 +31,23 @@ public class ThisType implements Type {
     }
 
     public void setConstraint(Type constraint) {
+        TypeFreezer.checkMutable(frozen);
         this.constraint = constraint;
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
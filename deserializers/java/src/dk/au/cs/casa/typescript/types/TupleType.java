@@ -3,8 +3,35 @@ package dk.au.cs.casa.typescript.types;
 import java.util.List;
 
 public class TupleType implements Type {
+    private final int typeId;
     private List<Type> elementTypes;
     private int minLength;
+    private boolean frozen;
+
+    public TupleType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public TupleType(int id) {
+        this.typeId = id;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        elementTypes = TypeFreezer.unmodifiable(elementTypes);
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
+    }
 
     @Override
     public <T> T accept(TypeVisitor<T> v) {
@@ -13,9 +40,9 @@ public class TupleType implements Type {
 
     @Override
     public String toString() {
-        return "Tuple(" +
-                elementTypes +
-                ')';
+        return Structural.toString(this, () -> "Tuple(" +
+                        elementTypes +
+                        ')');
     }
 
     @Override
@@ -28,6 +55,7 @@ public class TupleType implements Type {
     }
 
     public void setElementTypes(List<Type> elementTypes) {
+        TypeFreezer.checkMutable(frozen);
         this.elementTypes = elementTypes;
     }
 
@@ -36,6 +64,7 @@ public class TupleType implements Type {
     }
 
     public void setMinLength(int minLength) {
+        TypeFreezer.checkMutable(frozen);
         this.minLength = minLength;
     }
 }
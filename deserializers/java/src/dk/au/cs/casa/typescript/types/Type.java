@@ -1,6 +1,14 @@
 package dk.au.cs.casa.typescript.types;
 
 public interface Type {
+    /**
+     * The id of the type, see {@link TypeIds}: the index of the type in the data of its specification, an id after the last index for a type created for the specification later,
+     * or a negative id for a type that belongs to no specification.
+     * The ids of the types of one specification are dense, so they index the side tables {@link TypeIntMap}, {@link TypeBitSet} and {@link TypeTable}.
+     * The id is not part of the structure of the type, two types can be equal and have different ids.
+     */
+    int id();
+
     <T> T accept(TypeVisitor<T> v);
 
     <T, A> T accept(TypeVisitorWithArgument<T, A> v, A a);
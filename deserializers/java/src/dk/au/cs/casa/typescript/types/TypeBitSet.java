@@ -0,0 +1,108 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.Arrays;
+
+/**
+ * A set of types, as a bitset indexed by {@link Type#id()}.
+ * The bits of the types of a specification are kept in an array indexed by id, those of the types that belong to no specification in pages of ids,
+ * and only the pages of the unowned types that have been added are allocated, see {@link TypeIds}. The set should only hold the types of one specification.
+ * <p>
+ * A set is not thread-safe, but a set that is no longer changed can be read by several threads.
+ */
+public final class TypeBitSet {
+    private static final long[] NO_WORDS = new long[0];
+
+    private long[] words = NO_WORDS;
+    private final TypeIds.Directory directory = new TypeIds.Directory();
+    /**
+     * The pages of the bits of the unowned types, the id -1 - i at bit i &amp; {@link TypeIds#PAGE_MASK} of its page.
+     */
+    private long[][] unowned = new long[0][];
+    private int size = 0;
+
+    /**
+     * @return true if the type was not in the set
+     */
+    public boolean add(Type type) {
+        int id = type.id();
+        long[] words;
+        int word;
+        int bit;
+        if (id >= 0) {
+            word = id >>> 6;
+            if (word >= this.words.length) {
+                this.words = Arrays.copyOf(this.words, Math.max(word + 1, Math.max(4, this.words.length * 2)));
+            }
+            words = this.words;
+            bit = id;
+        } else {
+            int position = directory.find(id);
+            if (position < 0) {
+                position = directory.add(id);
+                unowned = TypeIds.grow(unowned, directory.size());
+                unowned[position] = new long[TypeIds.PAGE_SIZE >>> 6];
+            }
+            words = unowned[position];
+            bit = ~id & TypeIds.PAGE_MASK;
+            word = bit >>> 6;
+        }
+        long mask = 1L << bit;
+        if ((words[word] & mask) != 0) {
+            return false;
+        }
+        words[word] |= mask;
+        size++;
+        return true;
+    }
+
+    public boolean contains(Type type) {
+        int id = type.id();
+        if (id >= 0) {
+            int word = id >>> 6;
+            return word < words.length && (words[word] & (1L << id)) != 0;
+        }
+        int position = directory.find(id);
+        int bit = ~id & TypeIds.PAGE_MASK;
+        return position >= 0 && (unowned[position][bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    /**
+     * @return true if the type was in the set
+     */
+    public boolean remove(Type type) {
+        if (!contains(type)) {
+            return false;
+        }
+        int id = type.id();
+        if (id >= 0) {
+            words[id >>> 6] &= ~(1L << id);
+        } else {
+            int bit = ~id & TypeIds.PAGE_MASK;
+            unowned[directory.find(id)][bit >>> 6] &= ~(1L << bit);
+        }
+        size--;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        words = NO_WORDS;
+        directory.clear();
+        unowned = new long[0][];
+        size = 0;
+    }
+
+    /**
+     * @return the number of words the set has allocated
+     */
+    int capacity() {
+        return words.length + directory.size() * (TypeIds.PAGE_SIZE >>> 6);
+    }
+}
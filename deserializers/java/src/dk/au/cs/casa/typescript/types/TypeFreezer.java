@@ -0,0 +1,266 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Freezes type graphs: the types, signatures and parameters reachable from the given types reject any later change, and their lists and maps become unmodifiable.
+ * <p>
+ * A frozen graph is never written again, apart from caches of values derived from it, which are immutable or published through volatile fields.
+ * It can therefore be read by any number of threads without synchronization, once it has been handed to them in a way that orders the freezing before their reads,
+ * e.g. through a final or volatile field, a concurrent collection or an executor.
+ */
+public final class TypeFreezer {
+    private static final Class<?> UNMODIFIABLE_LIST = Collections.unmodifiableList(new LinkedList<>()).getClass();
+    private static final Class<?> UNMODIFIABLE_RANDOM_ACCESS_LIST = Collections.unmodifiableList(new ArrayList<>()).getClass();
+    private static final Class<?> EMPTY_LIST = Collections.emptyList().getClass();
+
+    private TypeFreezer() {}
+
+    /**
+     * Freezes the types and everything reachable from them, freezing a frozen type again has no effect.
+     * Placeholders are followed to the types they stand for, lazily resolved lists and maps are resolved completely.
+     */
+    public static void freeze(Iterable<? extends Type> types) {
+        Structural.forEachReachable(types, TypeFreezer::freezeNode);
+    }
+
+    static void freezeNode(Object node) {
+        if (node instanceof Signature) {
+            ((Signature) node).freeze();
+        } else if (node instanceof Signature.Parameter) {
+            ((Signature.Parameter) node).freeze();
+        } else {
+            ((Type) node).accept(FREEZE);
+        }
+    }
+
+    /**
+     * @return true if the type rejects changes, types without setters are always frozen
+     */
+    public static boolean isFrozen(Type type) {
+        return type.accept(IS_FROZEN);
+    }
+
+    static void checkMutable(boolean frozen) {
+        if (frozen) {
+            throw new IllegalStateException("Frozen types, signatures and parameters cannot be modified");
+        }
+    }
+
+    static <T> List<T> unmodifiable(List<T> list) {
+        if (list == null || list.getClass() == UNMODIFIABLE_LIST || list.getClass() == UNMODIFIABLE_RANDOM_ACCESS_LIST || list.getClass() == EMPTY_LIST) {
+            return list;
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    static Map<String, Type> unmodifiable(Map<String, Type> map) {
+        return map == null ? null : PropertyTable.copyOf(map).freeze();
+    }
+
+    private static final TypeVisitor<Void> FREEZE = new TypeVisitor<Void>() {
+        @Override
+        public Void visit(AnonymousType t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(ClassType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(GenericType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(InterfaceType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(ReferenceType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(SimpleType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(TupleType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(UnionType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(UnresolvedType t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(TypeParameterType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(StringLiteral t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(BooleanLiteral t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(NumberLiteral t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(IntersectionType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(ClassInstanceType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(ThisType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(IndexType t) {
+            t.freeze();
+            return null;
+        }
+
+        @Override
+        public Void visit(IndexedAccessType t) {
+            t.freeze();
+            return null;
+        }
+    };
+
+    private static final TypeVisitor<Boolean> IS_FROZEN = new TypeVisitor<Boolean>() {
+        @Override
+        public Boolean visit(AnonymousType t) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(ClassType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(GenericType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(InterfaceType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(ReferenceType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(SimpleType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(TupleType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(UnionType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(UnresolvedType t) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(TypeParameterType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(StringLiteral t) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(BooleanLiteral t) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(NumberLiteral t) {
+            return true;
+        }
+
+        @Override
+        public Boolean visit(IntersectionType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(ClassInstanceType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(ThisType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(IndexType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(IndexedAccessType t) {
+            return t.isFrozen();
+        }
+
+        @Override
+        public Boolean visit(DelayedType t) {
+            return true;
+        }
+    };
+}
@@ -0,0 +1,499 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The inheritance hierarchy of the interfaces, classes and generic types reachable from some types, computed once.
+ * <p>
+ * The declarations are numbered densely. Each has its direct supertypes and subtypes, and its transitive ancestors and descendants as bitsets over the numbers,
+ * compressed to the 64-bit words that have a bit set. Inheritance queries test a bit in a handful of words, and the descendants of a type are enumerated from its bitset without traversing the hierarchy.
+ * <p>
+ * Base types are mapped to the declarations they refer to: references to their targets, class instances to their classes, and placeholders to the types they stand for.
+ * Base types that do not refer to a declaration, e.g. type parameters or unions, are left out. A declaration on an inheritance cycle is not its own ancestor.
+ * <p>
+ * The hierarchy reflects the types as they were when it was built, and it is immutable.
+ */
+public final class TypeHierarchy {
+    /**
+     * The longest chain of references that is followed to a declaration, longer chains are taken to be cyclic.
+     */
+    static final int MAX_INDIRECTIONS = 64;
+    private static final int[] NONE = new int[0];
+
+    private final Type[] declarations;
+    private final TypeIntMap indices;
+    private final int[][] supertypes;
+    private final int[][] subtypes;
+    private final Bits[] ancestors;
+    private final Bits[] descendants;
+
+    private TypeHierarchy(Type[] declarations, TypeIntMap indices) {
+        int count = declarations.length;
+        this.declarations = declarations;
+        this.indices = indices;
+        this.supertypes = new int[count][];
+        for (int i = 0; i < count; i++) {
+            supertypes[i] = directSupertypes(i);
+        }
+        this.subtypes = transpose(supertypes);
+        this.ancestors = closeAncestors();
+        this.descendants = transpose(ancestors);
+    }
+
+    /**
+     * Computes the hierarchy of the declarations reachable from the types.
+     */
+    public static TypeHierarchy of(Iterable<? extends Type> types) {
+        List<Type> declarations = new ArrayList<>();
+        TypeIntMap indices = new TypeIntMap();
+        Structural.forEachReachable(types, node -> {
+            if (node instanceof InterfaceType || node instanceof ClassType || node instanceof GenericType) {
+                indices.put((Type) node, declarations.size());
+                declarations.add((Type) node);
+            }
+        });
+        return new TypeHierarchy(declarations.toArray(new Type[0]), indices);
+    }
+
+    /**
+     * @return the interface, class or generic type that the type declares or refers to, or null if there is none
+     */
+    public static Type declarationOf(Type type) {
+        for (int steps = 0; type != null && steps < MAX_INDIRECTIONS; steps++) {
+            type = DelayedType.resolve(type);
+            if (type instanceof InterfaceType || type instanceof ClassType) {
+                return type;
+            } else if (type instanceof GenericType) {
+                Type target = ((GenericType) type).getTarget();
+                if (target == null || target == type) {
+                    return type;
+                }
+                type = target;
+            } else if (type instanceof ReferenceType) {
+                type = ((ReferenceType) type).getTarget();
+            } else if (type instanceof ClassInstanceType) {
+                type = ((ClassInstanceType) type).getClassType();
+            } else {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static List<Type> baseTypes(Type declaration) {
+        if (declaration instanceof InterfaceType) {
+            return ((InterfaceType) declaration).getBaseTypes();
+        } else if (declaration instanceof ClassType) {
+            return ((ClassType) declaration).getBaseTypes();
+        }
+        return ((GenericType) declaration).getBaseTypes();
+    }
+
+    private int indexOf(Type type) {
+        Type declaration = type == null ? null : declarationOf(type);
+        return declaration == null ? -1 : indices.get(declaration);
+    }
+
+    private int[] directSupertypes(int declaration) {
+        List<Type> baseTypes = baseTypes(declarations[declaration]);
+        if (baseTypes == null || baseTypes.isEmpty()) {
+            return NONE;
+        }
+        int[] result = new int[baseTypes.size()];
+        int size = 0;
+        for (Type baseType : baseTypes) {
+            int index = indexOf(baseType);
+            if (index >= 0 && index != declaration && !contains(result, size, index)) {
+                result[size++] = index;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private static boolean contains(int[] array, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[][] transpose(int[][] edges) {
+        int[] counts = new int[edges.length];
+        for (int[] targets : edges) {
+            for (int target : targets) {
+                counts[target]++;
+            }
+        }
+        int[][] transposed = new int[edges.length][];
+        for (int i = 0; i < edges.length; i++) {
+            transposed[i] = counts[i] == 0 ? NONE : new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int source = 0; source < edges.length; source++) {
+            for (int target : edges[source]) {
+                transposed[target][counts[target]++] = source;
+            }
+        }
+        return transposed;
+    }
+
+    /**
+     * Computes the ancestors of the declarations after those of their supertypes, the declarations on or below a cycle are searched separately.
+     */
+    private Bits[] closeAncestors() {
+        int count = declarations.length;
+        Bits[] result = new Bits[count];
+        Bits.Builder builder = new Bits.Builder(count);
+        int[] pending = new int[count];
+        int[] queue = new int[count];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < count; i++) {
+            pending[i] = supertypes[i].length;
+            if (pending[i] == 0) {
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int declaration = queue[head++];
+            for (int supertype : supertypes[declaration]) {
+                builder.add(supertype);
+                builder.addAll(result[supertype]);
+            }
+            result[declaration] = builder.build();
+            for (int subtype : subtypes[declaration]) {
+                if (--pending[subtype] == 0) {
+                    queue[tail++] = subtype;
+                }
+            }
+        }
+        if (tail < count) {
+            boolean[] visited = new boolean[count];
+            Deque<Integer> work = new ArrayDeque<>();
+            for (int declaration = 0; declaration < count; declaration++) {
+                if (result[declaration] != null) {
+                    continue;
+                }
+                List<Integer> reached = new ArrayList<>();
+                work.push(declaration);
+                visited[declaration] = true;
+                while (!work.isEmpty()) {
+                    int current = work.pop();
+                    reached.add(current);
+                    for (int supertype : supertypes[current]) {
+                        if (supertype != declaration) {
+                            builder.add(supertype);
+                        }
+                        if (result[supertype] != null) {
+                            builder.addAll(result[supertype]);
+                        } else if (!visited[supertype]) {
+                            visited[supertype] = true;
+                            work.push(supertype);
+                        }
+                    }
+                }
+                for (int index : reached) {
+                    visited[index] = false;
+                }
+                builder.remove(declaration);
+                result[declaration] = builder.build();
+            }
+        }
+        return result;
+    }
+
+    private static Bits[] transpose(Bits[] sets) {
+        Bits.Builder[] builders = new Bits.Builder[sets.length];
+        for (int member = 0; member < sets.length; member++) {
+            Bits set = sets[member];
+            for (int i = 0; i < set.size(); i++) {
+                long word = set.wordAt(i);
+                while (word != 0) {
+                    int index = (set.keyAt(i) << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (builders[index] == null) {
+                        builders[index] = new Bits.Builder(0);
+                    }
+                    builders[index].append(member);
+                }
+            }
+        }
+        Bits[] result = new Bits[sets.length];
+        for (int i = 0; i < sets.length; i++) {
+            result[i] = builders[i] == null ? Bits.EMPTY : builders[i].build();
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of interfaces, classes and generic types in the hierarchy
+     */
+    public int size() {
+        return declarations.length;
+    }
+
+    /**
+     * @return true if the declaration the type refers to is in the hierarchy
+     */
+    public boolean contains(Type type) {
+        return indexOf(type) >= 0;
+    }
+
+    /**
+     * @return true if the declaration the ancestor refers to is a direct or indirect supertype of the declaration the type refers to, a type does not inherit from itself
+     */
+    public boolean inheritsFrom(Type type, Type ancestor) {
+        int index = indexOf(type);
+        int ancestorIndex = indexOf(ancestor);
+        return index >= 0 && ancestorIndex >= 0 && ancestors[index].contains(ancestorIndex);
+    }
+
+    /**
+     * @return the declarations of the base types of the declaration the type refers to, or an empty list if it is not in the hierarchy
+     */
+    public List<Type> getSupertypes(Type type) {
+        int index = indexOf(type);
+        return index < 0 ? Collections.emptyList() : new Declarations(supertypes[index]);
+    }
+
+    /**
+     * @return the declarations that have the declaration the type refers to as a base type, or an empty list if it is not in the hierarchy
+     */
+    public List<Type> getSubtypes(Type type) {
+        int index = indexOf(type);
+        return index < 0 ? Collections.emptyList() : new Declarations(subtypes[index]);
+    }
+
+    /**
+     * @return the direct and indirect supertypes of the declaration the type refers to, in the order the declarations were found
+     */
+    public List<Type> getAncestors(Type type) {
+        int index = indexOf(type);
+        return index < 0 ? Collections.emptyList() : new Declarations(ancestors[index].toArray());
+    }
+
+    /**
+     * @return the direct and indirect subtypes of the declaration the type refers to, in the order the declarations were found
+     */
+    public List<Type> getDescendants(Type type) {
+        int index = indexOf(type);
+        return index < 0 ? Collections.emptyList() : new Declarations(descendants[index].toArray());
+    }
+
+    /**
+     * The declarations with the given numbers.
+     */
+    private final class Declarations extends AbstractList<Type> implements RandomAccess {
+        private final int[] indices;
+
+        private Declarations(int[] indices) {
+            this.indices = indices;
+        }
+
+        @Override
+        public Type get(int index) {
+            return declarations[indices[index]];
+        }
+
+        @Override
+        public int size() {
+            return indices.length;
+        }
+    }
+
+    /**
+     * An immutable set of numbers, as the 64-bit words of a bitset that have a bit set together with their positions in the bitset, or as a range of consecutive words if that is not much larger.
+     */
+    private static final class Bits {
+        private static final Bits EMPTY = new Bits(0, null, new long[0]);
+        /**
+         * The largest number of words that is searched linearly.
+         */
+        private static final int LINEAR_LIMIT = 8;
+
+        /**
+         * The position of the first word if the words are consecutive, otherwise 0.
+         */
+        private final int base;
+        /**
+         * The position of each word, or null if the words are consecutive.
+         */
+        private final int[] keys;
+        private final long[] words;
+
+        private Bits(int base, int[] keys, long[] words) {
+            this.base = base;
+            this.keys = keys;
+            this.words = words;
+        }
+
+        /**
+         * Keeps the words as a consecutive range, with the words in between, if that at most doubles them.
+         *
+         * @param keys  the increasing positions of the words
+         * @param words the words that have a bit set, the arrays may be longer than the size
+         */
+        static Bits of(int[] keys, long[] words, int size) {
+            if (size == 0) {
+                return EMPTY;
+            }
+            int span = keys[size - 1] - keys[0] + 1;
+            if (span <= 2 * size) {
+                long[] range = new long[span];
+                for (int i = 0; i < size; i++) {
+                    range[keys[i] - keys[0]] = words[i];
+                }
+                return new Bits(keys[0], null, range);
+            }
+            return new Bits(0, Arrays.copyOf(keys, size), Arrays.copyOf(words, size));
+        }
+
+        int size() {
+            return words.length;
+        }
+
+        int keyAt(int position) {
+            return keys == null ? base + position : keys[position];
+        }
+
+        long wordAt(int position) {
+            return words[position];
+        }
+
+        boolean contains(int index) {
+            int key = index >>> 6;
+            int position;
+            if (keys == null) {
+                position = key - base;
+                if (position >= words.length) {
+                    position = -1;
+                }
+            } else if (keys.length <= LINEAR_LIMIT) {
+                position = -1;
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] == key) {
+                        position = i;
+                        break;
+                    }
+                }
+            } else {
+                position = Arrays.binarySearch(keys, key);
+            }
+            return position >= 0 && (words[position] & (1L << index)) != 0;
+        }
+
+        int[] toArray() {
+            int size = 0;
+            for (long word : words) {
+                size += Long.bitCount(word);
+            }
+            int[] result = new int[size];
+            int next = 0;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    result[next++] = (keyAt(i) << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Collects numbers in a dense bitset that is cleared when the set is built, or appends them in increasing order.
+         */
+        private static final class Builder {
+            private final long[] dense;
+            private int[] touched = NONE;
+            private int touchedCount = 0;
+            private int[] appendedKeys = NONE;
+            private long[] appendedWords;
+            private int appendedCount = 0;
+
+            private Builder(int capacity) {
+                this.dense = new long[(capacity + 63) >>> 6];
+            }
+
+            void add(int index) {
+                int key = index >>> 6;
+                if (dense[key] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, Math.max(8, touchedCount * 2));
+                    }
+                    touched[touchedCount++] = key;
+                }
+                dense[key] |= 1L << index;
+            }
+
+            void remove(int index) {
+                dense[index >>> 6] &= ~(1L << index);
+            }
+
+            void addAll(Bits set) {
+                for (int i = 0; i < set.size(); i++) {
+                    long word = set.wordAt(i);
+                    if (word == 0) {
+                        continue;
+                    }
+                    int key = set.keyAt(i);
+                    if (dense[key] == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, Math.max(8, touchedCount * 2));
+                        }
+                        touched[touchedCount++] = key;
+                    }
+                    dense[key] |= word;
+                }
+            }
+
+            /**
+             * Adds a number that is larger than all numbers added so far, without the dense bitset.
+             */
+            void append(int index) {
+                int key = index >>> 6;
+                if (appendedCount == 0 || appendedKeys[appendedCount - 1] != key) {
+                    if (appendedCount == appendedKeys.length) {
+                        int length = Math.max(4, appendedCount * 2);
+                        appendedKeys = Arrays.copyOf(appendedKeys, length);
+                        appendedWords = appendedWords == null ? new long[length] : Arrays.copyOf(appendedWords, length);
+                    }
+                    appendedKeys[appendedCount++] = key;
+                }
+                appendedWords[appendedCount - 1] |= 1L << index;
+            }
+
+            Bits build() {
+                if (appendedCount > 0) {
+                    return Bits.of(appendedKeys, appendedWords, appendedCount);
+                }
+                if (touchedCount == 0) {
+                    return EMPTY;
+                }
+                Arrays.sort(touched, 0, touchedCount);
+                int[] keys = new int[touchedCount];
+                long[] words = new long[touchedCount];
+                int size = 0;
+                for (int i = 0; i < touchedCount; i++) {
+                    int key = touched[i];
+                    if (dense[key] != 0) {
+                        keys[size] = key;
+                        words[size] = dense[key];
+                        size++;
+                        dense[key] = 0;
+                    }
+                }
+                touchedCount = 0;
+                return Bits.of(keys, words, size);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocates the ids of types, see {@link Type#id()}.
+ * <p>
+ * The types of a specification have the index of their element in the "data" array as id, and the types created for it afterwards, such as the global interface and the instantiations
+ * of {@link TypeInstantiator}, get the ids after the last index from the allocator of the specification, see {@link dk.au.cs.casa.typescript.SpecReader#getTypeIds()}.
+ * The ids of a specification are therefore dense and the same in every load of it.
+ * Types that belong to no specification, the shared simple types and literals, the placeholders and the types created with the constructors without an id, get negative ids from {@link #UNOWNED}.
+ * <p>
+ * Ids are only unique among the types of one specification and the unowned types, so a side table should only hold types of one specification.
+ * <p>
+ * The side tables {@link TypeIntMap}, {@link TypeBitSet} and {@link TypeTable} keep the entries of the types of a specification in an array indexed by id.
+ * The unowned ids are taken from one counter for the whole JVM, so the shared simple types and literals and the unowned types created late are far apart,
+ * and the tables keep the entries of unowned types in pages of {@link #PAGE_SIZE} ids, only allocating the pages that have entries.
+ */
+public final class TypeIds {
+    /**
+     * Allocates the negative ids of the types that belong to no specification, counting down from -1.
+     */
+    public static final TypeIds UNOWNED = new TypeIds(-1, -1);
+    /**
+     * An int that is not an id, e.g. for a missing type.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    static final int PAGE_BITS = 10;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final int first;
+    private final AtomicInteger next;
+    private final int step;
+
+    /**
+     * @param first the first id to allocate, the following ids count up from it
+     */
+    public TypeIds(int first) {
+        this(first, 1);
+        if (first < 0) {
+            throw new IllegalArgumentException("Negative id: " + first);
+        }
+    }
+
+    private TypeIds(int first, int step) {
+        this.first = first;
+        this.next = new AtomicInteger(first);
+        this.step = step;
+    }
+
+    /**
+     * Allocating is thread-safe.
+     *
+     * @return a new id
+     */
+    public int next() {
+        int id = next.getAndAdd(step);
+        if ((id < 0) != (step < 0) || id == NONE) {
+            throw new IllegalStateException("Out of type ids");
+        }
+        return id;
+    }
+
+    /**
+     * @return the first id of the allocator
+     */
+    public int getFirst() {
+        return first;
+    }
+
+    /**
+     * @return the number of ids allocated so far
+     */
+    public int count() {
+        return (next.get() - first) * step;
+    }
+
+    /**
+     * The pages of the unowned entries of a side table: an open-addressing hash table from the page numbers of the positions -1 - id to the positions of the pages in the table.
+     * Looking up a page does not change the directory, so a table that is no longer changed can be read by several threads.
+     */
+    static final class Directory {
+        private static final int[] NO_SLOTS = new int[0];
+
+        /**
+         * The page number plus one at each slot, 0 for a free slot.
+         */
+        private int[] keys = NO_SLOTS;
+        private int[] positions = NO_SLOTS;
+        private int count = 0;
+
+        /**
+         * @param id an unowned id
+         * @return the position of the page of the id, or -1 if the page is not allocated
+         */
+        int find(int id) {
+            int[] keys = this.keys;
+            if (keys.length == 0) {
+                return -1;
+            }
+            int key = (~id >>> PAGE_BITS) + 1;
+            int mask = keys.length - 1;
+            for (int slot = key & mask; ; slot = (slot + 1) & mask) {
+                int existing = keys[slot];
+                if (existing == key) {
+                    return positions[slot];
+                } else if (existing == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        /**
+         * Allocates the page of the unowned id at the next position, the page must not be allocated yet.
+         *
+         * @return the position of the page, which is the number of pages allocated before it
+         */
+        int add(int id) {
+            if ((count + 1) * 2 > keys.length) {
+                rehash(Math.max(8, keys.length * 2));
+            }
+            int position = count++;
+            insert((~id >>> PAGE_BITS) + 1, position);
+            return position;
+        }
+
+        int size() {
+            return count;
+        }
+
+        void clear() {
+            keys = NO_SLOTS;
+            positions = NO_SLOTS;
+            count = 0;
+        }
+
+        private void rehash(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldPositions = positions;
+            keys = new int[capacity];
+            positions = new int[capacity];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    insert(oldKeys[i], oldPositions[i]);
+                }
+            }
+        }
+
+        /**
+         * The pages of one batch of unowned types are consecutive, so they take consecutive slots without collisions.
+         */
+        private void insert(int key, int position) {
+            int mask = keys.length - 1;
+            int slot = key & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            positions[slot] = position;
+        }
+    }
+
+    /**
+     * @return the pages, grown if they cannot hold the given number of pages
+     */
+    static <T> T[] grow(T[] pages, int count) {
+        return count <= pages.length ? pages : Arrays.copyOf(pages, Math.max(4, pages.length * 2));
+    }
+}
@@ -0,0 +1,467 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instantiates generic interfaces and classes with type arguments, e.g. gives the members of Array&lt;string&gt; with string in place of the type parameter of Array.
+ * <p>
+ * The instantiation of a declaration with some type arguments is created once and shared, see {@link Instantiation}, and so is the reference to it that substituted types use.
+ * Substitution copies the types that mention the type parameters, but it does not expand the references in them:
+ * the return type of Array&lt;string&gt;.concat is the shared reference to Array&lt;string&gt;, whose members are only instantiated when they are asked for.
+ * Recursive generic types therefore instantiate in a bounded number of steps.
+ * <p>
+ * Type arguments are identified by the types they are, references by their targets and type arguments.
+ * The types the instantiator creates are frozen and get their ids from the allocator of the specification, see {@link TypeIds}, and it can be used by several threads at once.
+ * The type parameters of generic signatures are not substituted in their constraints, and a missing type argument leaves its type parameter in place.
+ */
+public final class TypeInstantiator {
+    private final MemberResolver members;
+    private final TypeIds ids;
+    /**
+     * The named declarations, whose bodies are not searched for type parameters since they cannot mention the type parameters of other declarations.
+     */
+    private final TypeBitSet declarations = new TypeBitSet();
+    private final ConcurrentHashMap<Key, ReferenceType> references = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Key, Instantiation> instantiations = new ConcurrentHashMap<>();
+
+    /**
+     * @param ids the allocator of the ids of the types the instantiator creates, the one of the specification of the types, see {@link dk.au.cs.casa.typescript.SpecReader#getTypeIds()}
+     */
+    public TypeInstantiator(MemberResolver members, TypeIds ids) {
+        this(members, Collections.emptyList(), ids);
+    }
+
+    /**
+     * @param declarations the named interfaces of the types, e.g. the named types of a specification. Anonymous interfaces are searched for type parameters, named ones need not be
+     * @param ids          the allocator of the ids of the types the instantiator creates, the one of the specification of the types, see {@link dk.au.cs.casa.typescript.SpecReader#getTypeIds()}
+     */
+    public TypeInstantiator(MemberResolver members, Iterable<? extends Type> declarations, TypeIds ids) {
+        this.members = members;
+        this.ids = ids;
+        for (Type declaration : declarations) {
+            if (declaration instanceof InterfaceType) {
+                this.declarations.add(declaration);
+            }
+        }
+    }
+
+    TypeIds getTypeIds() {
+        return ids;
+    }
+
+    MemberResolver getMemberResolver() {
+        return members;
+    }
+
+    /**
+     * @param type a reference with type arguments, a generic type, or another type that refers to an interface or class
+     * @return the instantiation of the declaration the type refers to with the type arguments of the type, or null if it refers to no declaration
+     */
+    public Instantiation instantiate(Type type) {
+        type = DelayedType.resolve(type);
+        Type declaration = TypeHierarchy.declarationOf(type);
+        if (declaration == null) {
+            return null;
+        }
+        List<Type> arguments = Collections.emptyList();
+        if (type instanceof ReferenceType && ((ReferenceType) type).getTypeArguments() != null) {
+            arguments = ((ReferenceType) type).getTypeArguments();
+        } else if (type instanceof GenericType && ((GenericType) type).getTypeArguments() != null) {
+            arguments = ((GenericType) type).getTypeArguments();
+        }
+        return instantiate(declaration, arguments);
+    }
+
+    /**
+     * @return the instantiation of the declaration the type refers to with the type arguments
+     */
+    public Instantiation instantiate(Type declaration, List<Type> arguments) {
+        Type target = TypeHierarchy.declarationOf(declaration);
+        if (target == null) {
+            throw new IllegalArgumentException("Not an interface, class or generic type: " + declaration);
+        }
+        Key key = key(target, arguments);
+        Instantiation instantiation = instantiations.get(key);
+        if (instantiation == null) {
+            instantiation = instantiations.computeIfAbsent(key, k -> new Instantiation(this, target, typeParameters(target), arguments));
+        }
+        return instantiation;
+    }
+
+    /**
+     * @return the shared reference to the target with the type arguments, the reference and its list of type arguments are frozen
+     */
+    public ReferenceType reference(Type target, List<Type> arguments) {
+        Key key = key(target, arguments);
+        ReferenceType reference = references.get(key);
+        if (reference == null) {
+            reference = references.computeIfAbsent(key, k -> {
+                ReferenceType result = new ReferenceType(ids.next());
+                result.setTarget(target);
+                result.setTypeArguments(arguments == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(arguments)));
+                result.freeze();
+                return result;
+            });
+        }
+        return reference;
+    }
+
+    /**
+     * @return the type with the type parameters replaced by the type arguments at the same positions, or the type itself if it does not mention them
+     */
+    public Type substitute(Type type, List<Type> parameters, List<Type> arguments) {
+        Map<Type, Type> mapping = mapping(parameters, arguments);
+        return mapping.isEmpty() || type == null ? type : (Type) new Substitution(mapping).apply(type);
+    }
+
+    /**
+     * @return the signature with the type parameters replaced by the type arguments at the same positions, or the signature itself if it does not mention them
+     */
+    public Signature substitute(Signature signature, List<Type> parameters, List<Type> arguments) {
+        Map<Type, Type> mapping = mapping(parameters, arguments);
+        return mapping.isEmpty() || signature == null ? signature : (Signature) new Substitution(mapping).apply(signature);
+    }
+
+    static List<Type> typeParameters(Type declaration) {
+        List<Type> parameters = null;
+        if (declaration instanceof InterfaceType) {
+            parameters = ((InterfaceType) declaration).getTypeParameters();
+        } else if (declaration instanceof GenericType) {
+            parameters = ((GenericType) declaration).getTypeParameters();
+        } else if (declaration instanceof ClassType) {
+            parameters = ((ClassType) declaration).getTypeParameters();
+        }
+        return parameters == null ? Collections.emptyList() : parameters;
+    }
+
+    /**
+     * @return the type arguments by the type parameters they replace, without the type parameters that are replaced by themselves
+     */
+    static Map<Type, Type> mapping(List<Type> parameters, List<Type> arguments) {
+        if (parameters == null || arguments == null) {
+            return Collections.emptyMap();
+        }
+        Map<Type, Type> mapping = new IdentityHashMap<>();
+        for (int i = 0; i < parameters.size() && i < arguments.size(); i++) {
+            Type argument = arguments.get(i);
+            if (argument != null && argument != parameters.get(i)) {
+                mapping.put(parameters.get(i), argument);
+            }
+        }
+        return mapping;
+    }
+
+    private Key key(Type target, List<Type> arguments) {
+        int[] argumentIds = new int[arguments == null ? 0 : arguments.size()];
+        for (int i = 0; i < argumentIds.length; i++) {
+            Type argument = canonical(arguments.get(i), 0);
+            argumentIds[i] = argument == null ? TypeIds.NONE : argument.id();
+        }
+        return new Key(DelayedType.resolve(target).id(), argumentIds);
+    }
+
+    /**
+     * @return the type an argument is identified by: the type a placeholder stands for, the target of a reference without type arguments, or the shared reference for a reference with them
+     */
+    private Type canonical(Type type, int depth) {
+        type = DelayedType.resolve(type);
+        if (type instanceof ReferenceType && depth < TypeHierarchy.MAX_INDIRECTIONS) {
+            ReferenceType reference = (ReferenceType) type;
+            List<Type> arguments = reference.getTypeArguments();
+            if (arguments == null || arguments.isEmpty()) {
+                return canonical(reference.getTarget(), depth + 1);
+            }
+            return reference(reference.getTarget(), arguments);
+        }
+        return type;
+    }
+
+    /**
+     * The identity of a target and its type arguments.
+     */
+    private static final class Key {
+        private final int target;
+        private final int[] arguments;
+        private final int hash;
+
+        private Key(int target, int[] arguments) {
+            this.target = target;
+            this.arguments = arguments;
+            this.hash = 31 * target + Arrays.hashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).target == target && Arrays.equals(((Key) o).arguments, arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * One substitution of type arguments for type parameters. The types and signatures that can mention the type parameters are found first,
+     * those that do are copied with the type arguments in place of the type parameters, and the others are kept.
+     */
+    private final class Substitution {
+        private final Map<Type, Type> mapping;
+        private final Map<Object, Boolean> mentions = new IdentityHashMap<>();
+        private final Map<Object, Object> copies = new IdentityHashMap<>();
+        private final List<Object> created = new ArrayList<>();
+
+        private Substitution(Map<Type, Type> mapping) {
+            this.mapping = mapping;
+        }
+
+        Object apply(Object root) {
+            List<Object> found = new ArrayList<>();
+            Deque<Object> work = new ArrayDeque<>();
+            Map<Object, List<Object>> children = new IdentityHashMap<>();
+            work.push(resolveNode(root));
+            while (!work.isEmpty()) {
+                Object node = work.pop();
+                if (children.containsKey(node)) {
+                    continue;
+                }
+                List<Object> nodeChildren = children(node);
+                children.put(node, nodeChildren);
+                found.add(node);
+                for (Object child : nodeChildren) {
+                    if (!children.containsKey(child)) {
+                        work.push(child);
+                    }
+                }
+            }
+            for (Object node : found) {
+                mentions.put(node, node instanceof Type && mapping.containsKey(node));
+            }
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int i = found.size() - 1; i >= 0; i--) {
+                    Object node = found.get(i);
+                    if (mentions.get(node)) {
+                        continue;
+                    }
+                    for (Object child : children.get(node)) {
+                        if (mentions.get(child)) {
+                            mentions.put(node, true);
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            Object result = copy(resolveNode(root));
+            for (Object node : created) {
+                TypeFreezer.freezeNode(node);
+            }
+            return result;
+        }
+
+        private Object resolveNode(Object node) {
+            return node instanceof Type ? DelayedType.resolve((Type) node) : node;
+        }
+
+        /**
+         * @return the types and signatures in the node that can mention the type parameters
+         */
+        private List<Object> children(Object node) {
+            List<Object> result = new ArrayList<>();
+            if (node instanceof Signature) {
+                Signature signature = (Signature) node;
+                if (signature.getParameters() != null) {
+                    for (Signature.Parameter parameter : signature.getParameters()) {
+                        add(result, parameter.getType());
+                    }
+                }
+                add(result, signature.getResolvedReturnType());
+            } else if (node instanceof ReferenceType) {
+                addAll(result, ((ReferenceType) node).getTypeArguments());
+            } else if (node instanceof GenericType) {
+                addAll(result, ((GenericType) node).getTypeArguments());
+            } else if (node instanceof InterfaceType && !declarations.contains((Type) node)) {
+                InterfaceType type = (InterfaceType) node;
+                addAll(result, type.getBaseTypes());
+                if (type.getDeclaredProperties() != null) {
+                    addAll(result, type.getDeclaredProperties().values());
+                }
+                if (type.getDeclaredCallSignatures() != null) {
+                    result.addAll(type.getDeclaredCallSignatures());
+                }
+                if (type.getDeclaredConstructSignatures() != null) {
+                    result.addAll(type.getDeclaredConstructSignatures());
+                }
+                add(result, type.getDeclaredStringIndexType());
+                add(result, type.getDeclaredNumberIndexType());
+            } else if (node instanceof UnionType) {
+                addAll(result, ((UnionType) node).getElements());
+            } else if (node instanceof IntersectionType) {
+                addAll(result, ((IntersectionType) node).getElements());
+            } else if (node instanceof TupleType) {
+                addAll(result, ((TupleType) node).getElementTypes());
+            } else if (node instanceof IndexType) {
+                add(result, ((IndexType) node).getType());
+            } else if (node instanceof IndexedAccessType) {
+                add(result, ((IndexedAccessType) node).getObjectType());
+                add(result, ((IndexedAccessType) node).getIndexType());
+            }
+            return result;
+        }
+
+        private void add(List<Object> nodes, Type type) {
+            if (type != null) {
+                nodes.add(DelayedType.resolve(type));
+            }
+        }
+
+        private void addAll(List<Object> nodes, Iterable<Type> types) {
+            if (types != null) {
+                for (Type type : types) {
+                    add(nodes, type);
+                }
+            }
+        }
+
+        private Type copyType(Type type) {
+            return type == null ? null : (Type) copy(DelayedType.resolve(type));
+        }
+
+        private List<Type> copyTypes(List<Type> types) {
+            if (types == null) {
+                return null;
+            }
+            List<Type> result = new ArrayList<>(types.size());
+            for (Type type : types) {
+                result.add(copyType(type));
+            }
+            return result;
+        }
+
+        private List<Signature> copySignatures(List<Signature> signatures) {
+            if (signatures == null) {
+                return null;
+            }
+            List<Signature> result = new ArrayList<>(signatures.size());
+            for (Signature signature : signatures) {
+                result.add((Signature) copy(signature));
+            }
+            return result;
+        }
+
+        /**
+         * Creates the copy of a node before copying the nodes in it, so that the copies of cyclic nodes refer to each other.
+         */
+        private Object copy(Object node) {
+            Boolean mentioned = mentions.get(node);
+            if (mentioned == null || !mentioned) {
+                return node;
+            }
+            Object existing = copies.get(node);
+            if (existing != null) {
+                return existing;
+            }
+            if (node instanceof TypeParameterType) {
+                return mapping.get(node);
+            } else if (node instanceof ReferenceType) {
+                ReferenceType reference = (ReferenceType) node;
+                ReferenceType result = reference(reference.getTarget(), copyTypes(reference.getTypeArguments()));
+                copies.put(node, result);
+                return result;
+            } else if (node instanceof GenericType) {
+                GenericType generic = (GenericType) node;
+                ReferenceType result = reference(generic, copyTypes(generic.getTypeArguments()));
+                copies.put(node, result);
+                return result;
+            } else if (node instanceof Signature) {
+                Signature signature = (Signature) node;
+                Signature result = new Signature();
+                copies.put(node, result);
+                created.add(result);
+                result.setTypeParameters(signature.getTypeParameters());
+                if (signature.getParameters() != null) {
+                    List<Signature.Parameter> parameters = new ArrayList<>(signature.getParameters().size());
+                    for (Signature.Parameter parameter : signature.getParameters()) {
+                        Signature.Parameter copy = new Signature.Parameter(parameter.getName(), copyType(parameter.getType()));
+                        created.add(copy);
+                        parameters.add(copy);
+                    }
+                    result.setParameters(parameters);
+                }
+                result.setResolvedReturnType(copyType(signature.getResolvedReturnType()));
+                result.setMinArgumentCount(signature.getMinArgumentCount());
+                result.setHasRestParameter(signature.isHasRestParameter());
+                result.setTarget(signature.getTarget());
+                result.setUnionSignatures(signature.getUnionSignatures());
+                result.setIsolatedSignatureType(signature.getIsolatedSignatureType());
+                return result;
+            } else if (node instanceof InterfaceType) {
+                InterfaceType type = (InterfaceType) node;
+                InterfaceType result = new InterfaceType(ids.next());
+                copies.put(node, result);
+                created.add(result);
+                result.setTypeParameters(type.getTypeParameters());
+                result.setBaseTypes(copyTypes(type.getBaseTypes()));
+                if (type.getDeclaredProperties() != null) {
+                    PropertyTable properties = PropertyTable.copyOf(type.getDeclaredProperties());
+                    String[] names = new String[properties.size()];
+                    Type[] types = new Type[properties.size()];
+                    for (int i = 0; i < names.length; i++) {
+                        names[i] = properties.nameAt(i);
+                        types[i] = copyType(properties.typeAt(i));
+                    }
+                    result.setDeclaredProperties(new PropertyTable(names, types));
+                }
+                result.setReadonlyDeclarations(type.getReadonlyDeclarations());
+                result.setDeclaredCallSignatures(copySignatures(type.getDeclaredCallSignatures()));
+                result.setDeclaredConstructSignatures(copySignatures(type.getDeclaredConstructSignatures()));
+                result.setDeclaredStringIndexType(copyType(type.getDeclaredStringIndexType()));
+                result.setDeclaredNumberIndexType(copyType(type.getDeclaredNumberIndexType()));
+                return result;
+            } else if (node instanceof UnionType) {
+                UnionType result = new UnionType(ids.next());
+                copies.put(node, result);
+                created.add(result);
+                result.setElements(copyTypes(((UnionType) node).getElements()));
+                return result;
+            } else if (node instanceof IntersectionType) {
+                IntersectionType result = new IntersectionType(ids.next());
+                copies.put(node, result);
+                created.add(result);
+                result.setElements(copyTypes(((IntersectionType) node).getElements()));
+                return result;
+            } else if (node instanceof TupleType) {
+                TupleType result = new TupleType(ids.next());
+                copies.put(node, result);
+                created.add(result);
+                result.setElementTypes(copyTypes(((TupleType) node).getElementTypes()));
+                result.setMinLength(((TupleType) node).getMinLength());
+                return result;
+            } else if (node instanceof IndexType) {
+                IndexType result = new IndexType(ids.next());
+                copies.put(node, result);
+                created.add(result);
+                result.setType(copyType(((IndexType) node).getType()));
+                return result;
+            } else if (node instanceof IndexedAccessType) {
+                IndexedAccessType result = new IndexedAccessType(ids.next());
+                copies.put(node, result);
+                created.add(result);
+                result.setObjectType(copyType(((IndexedAccessType) node).getObjectType()));
+                result.setIndexType(copyType(((IndexedAccessType) node).getIndexType()));
+                return result;
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.Arrays;
+
+/**
+ * A map from types to ints, as an array indexed by {@link Type#id()}.
+ * The values of the types of a specification are kept in an array indexed by id, those of the types that belong to no specification in pages of ids,
+ * and only the pages of the unowned types that have been put are allocated, see {@link TypeIds}. The map should only hold the types of one specification.
+ * A type that is not in the map has the missing value given at construction, which therefore cannot be stored.
+ * <p>
+ * A map is not thread-safe, but a map that is no longer changed can be read by several threads.
+ */
+public final class TypeIntMap {
+    private static final int[] NO_VALUES = new int[0];
+
+    private final int missingValue;
+    private int[] values = NO_VALUES;
+    private final TypeIds.Directory directory = new TypeIds.Directory();
+    /**
+     * The pages of the values of the unowned types, the id -1 - i at index i &amp; {@link TypeIds#PAGE_MASK} of its page.
+     */
+    private int[][] unowned = new int[0][];
+    private int size = 0;
+
+    /**
+     * @param missingValue the value of the types that are not in the map
+     */
+    public TypeIntMap(int missingValue) {
+        this.missingValue = missingValue;
+    }
+
+    public TypeIntMap() {
+        this(-1);
+    }
+
+    public int getMissingValue() {
+        return missingValue;
+    }
+
+    /**
+     * @return the value of the type, or the missing value if the type is not in the map
+     */
+    public int get(Type type) {
+        int id = type.id();
+        if (id >= 0) {
+            return id < values.length ? values[id] : missingValue;
+        }
+        int position = directory.find(id);
+        return position < 0 ? missingValue : unowned[position][~id & TypeIds.PAGE_MASK];
+    }
+
+    public boolean containsKey(Type type) {
+        return get(type) != missingValue;
+    }
+
+    /**
+     * @return the previous value of the type, or the missing value if the type was not in the map
+     */
+    public int put(Type type, int value) {
+        if (value == missingValue) {
+            throw new IllegalArgumentException("The missing value cannot be stored: " + value);
+        }
+        int id = type.id();
+        int previous;
+        if (id >= 0) {
+            if (id >= values.length) {
+                values = grow(values, Math.max(id + 1, Math.max(16, values.length * 2)));
+            }
+            previous = values[id];
+            values[id] = value;
+        } else {
+            int position = directory.find(id);
+            if (position < 0) {
+                position = directory.add(id);
+                unowned = TypeIds.grow(unowned, directory.size());
+                unowned[position] = grow(NO_VALUES, TypeIds.PAGE_SIZE);
+            }
+            int[] page = unowned[position];
+            previous = page[~id & TypeIds.PAGE_MASK];
+            page[~id & TypeIds.PAGE_MASK] = value;
+        }
+        if (previous == missingValue) {
+            size++;
+        }
+        return previous;
+    }
+
+    /**
+     * @return a copy of the values in an array of the length, the other elements are missing
+     */
+    private int[] grow(int[] old, int length) {
+        int[] grown = new int[length];
+        if (missingValue != 0) {
+            Arrays.fill(grown, missingValue);
+        }
+        System.arraycopy(old, 0, grown, 0, old.length);
+        return grown;
+    }
+
+    /**
+     * @return the value the type had, or the missing value if the type was not in the map
+     */
+    public int remove(Type type) {
+        int id = type.id();
+        int previous;
+        if (id >= 0) {
+            if (id >= values.length) {
+                return missingValue;
+            }
+            previous = values[id];
+            values[id] = missingValue;
+        } else {
+            int position = directory.find(id);
+            if (position < 0) {
+                return missingValue;
+            }
+            previous = unowned[position][~id & TypeIds.PAGE_MASK];
+            unowned[position][~id & TypeIds.PAGE_MASK] = missingValue;
+        }
+        if (previous != missingValue) {
+            size--;
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        values = NO_VALUES;
+        directory.clear();
+        unowned = new int[0][];
+        size = 0;
+    }
+
+    /**
+     * @return the number of slots the map has allocated
+     */
+    int capacity() {
+        return values.length + directory.size() * TypeIds.PAGE_SIZE;
+    }
+}
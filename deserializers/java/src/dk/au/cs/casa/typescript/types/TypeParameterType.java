@@ -1,13 +1,27 @@
 package dk.au.cs.casa.typescript.types;
 
 public class TypeParameterType implements Type {
+    private final int typeId;
     private Type constraint;
+    private boolean frozen;
+
+    public TypeParameterType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public TypeParameterType(int id) {
+        this.typeId = id;
+    }
 
     public Type getConstraint() {
         return constraint;
     }
 
     public void setConstraint(Type constraint) {
+        TypeFreezer.checkMutable(frozen);
         this.constraint = constraint;
     }
 
@@ -21,6 +35,19 @@ public class TypeParameterType implements Type {
         return "TypeParameter";
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
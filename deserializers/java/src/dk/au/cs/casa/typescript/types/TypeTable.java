@@ -0,0 +1,135 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * A map from types to values, as an array indexed by {@link Type#id()}.
+ * The values of the types of a specification are kept in an array indexed by id, those of the types that belong to no specification in pages of ids,
+ * and only the pages of the unowned types that have been put are allocated, see {@link TypeIds}. The table should only hold the types of one specification.
+ * Null values cannot be stored, a type that is not in the table has the value null.
+ * <p>
+ * A table is not thread-safe, but a table that is no longer changed can be read by several threads.
+ */
+public final class TypeTable<T> {
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private Object[] values = NO_VALUES;
+    private final TypeIds.Directory directory = new TypeIds.Directory();
+    /**
+     * The pages of the values of the unowned types, the id -1 - i at index i &amp; {@link TypeIds#PAGE_MASK} of its page.
+     */
+    private Object[][] unowned = new Object[0][];
+    private int size = 0;
+
+    /**
+     * @return the value of the type, or null if the type is not in the table
+     */
+    @SuppressWarnings("unchecked")
+    public T get(Type type) {
+        int id = type.id();
+        if (id >= 0) {
+            return id < values.length ? (T) values[id] : null;
+        }
+        int position = directory.find(id);
+        return position < 0 ? null : (T) unowned[position][~id & TypeIds.PAGE_MASK];
+    }
+
+    public boolean containsKey(Type type) {
+        return get(type) != null;
+    }
+
+    /**
+     * @return the previous value of the type, or null if the type was not in the table
+     */
+    @SuppressWarnings("unchecked")
+    public T put(Type type, T value) {
+        if (value == null) {
+            throw new NullPointerException("Null values cannot be stored");
+        }
+        int id = type.id();
+        T previous;
+        if (id >= 0) {
+            if (id >= values.length) {
+                values = Arrays.copyOf(values, Math.max(id + 1, Math.max(16, values.length * 2)));
+            }
+            previous = (T) values[id];
+            values[id] = value;
+        } else {
+            int position = directory.find(id);
+            if (position < 0) {
+                position = directory.add(id);
+                unowned = TypeIds.grow(unowned, directory.size());
+                unowned[position] = new Object[TypeIds.PAGE_SIZE];
+            }
+            Object[] page = unowned[position];
+            previous = (T) page[~id & TypeIds.PAGE_MASK];
+            page[~id & TypeIds.PAGE_MASK] = value;
+        }
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    /**
+     * @return the value of the type, computed and put if the type is not in the table
+     */
+    public T computeIfAbsent(Type type, Function<? super Type, ? extends T> function) {
+        T value = get(type);
+        if (value == null) {
+            value = function.apply(type);
+            put(type, value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the value the type had, or null if the type was not in the table
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(Type type) {
+        int id = type.id();
+        T previous;
+        if (id >= 0) {
+            if (id >= values.length) {
+                return null;
+            }
+            previous = (T) values[id];
+            values[id] = null;
+        } else {
+            int position = directory.find(id);
+            if (position < 0) {
+                return null;
+            }
+            previous = (T) unowned[position][~id & TypeIds.PAGE_MASK];
+            unowned[position][~id & TypeIds.PAGE_MASK] = null;
+        }
+        if (previous != null) {
+            size--;
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        values = NO_VALUES;
+        directory.clear();
+        unowned = new Object[0][];
+        size = 0;
+    }
+
+    /**
+     * @return the number of slots the table has allocated
+     */
+    int capacity() {
+        return values.length + directory.size() * TypeIds.PAGE_SIZE;
+    }
+}
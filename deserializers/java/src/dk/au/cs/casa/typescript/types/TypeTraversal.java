@@ -0,0 +1,399 @@
+package dk.au.cs.casa.typescript.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Walks the types reachable from some root types and passes each of them to a visitor once, without recursion, so arbitrarily deep type graphs can be walked.
+ * <p>
+ * The walk is a depth-first search with an explicit stack. The types are passed to the visitor in pre-order, before the types they lead to, or in post-order, after them.
+ * A type on a cycle is passed once, when it is first reached, so in post-order it comes before the types of the cycle that lead back to it.
+ * The types that have been passed are kept in a {@link TypeBitSet}, which can be shared by several walks so that no type is passed twice.
+ * <p>
+ * Only the kinds of edges that are enabled are followed, see {@link Edge}, all of them by default. Signatures and their parameters are followed but not passed to the visitor,
+ * and placeholders are followed to the types they stand for, see {@link DelayedType}. The visitor is called with {@link Type#accept(TypeVisitor)}, so it only visits the type it is given and should not recurse itself.
+ * <p>
+ * A traversal can be used for several walks, but not by several threads at once.
+ */
+public final class TypeTraversal {
+    /**
+     * The order in which the types are passed to the visitor.
+     */
+    public enum Order {
+        /**
+         * A type before the types it leads to.
+         */
+        PRE,
+        /**
+         * A type after the types it leads to.
+         */
+        POST
+    }
+
+    /**
+     * The kinds of edges between types.
+     */
+    public enum Edge {
+        /**
+         * From an interface, generic type or class to its base types.
+         */
+        BASE_TYPES,
+        /**
+         * From an interface or generic type to the types of its declared properties, and from a class to the types of its static and instance properties.
+         */
+        PROPERTIES,
+        /**
+         * From an interface or generic type to its call and construct signatures, and from a class to its call signatures and constructors,
+         * and on from the signatures to the types of their parameters and their return types.
+         */
+        SIGNATURES,
+        /**
+         * From an interface, generic type or class to its declared string and number index types.
+         */
+        INDEX_TYPES,
+        /**
+         * From a reference, generic type or class to its type arguments.
+         */
+        TYPE_ARGUMENTS,
+        /**
+         * From a declaration or signature to its type parameters, and from a type parameter or this type to its constraint.
+         */
+        TYPE_PARAMETERS,
+        /**
+         * From a reference, generic type or class to its target, and from a class instance to its class.
+         */
+        TARGETS,
+        /**
+         * From a union, intersection or tuple to its elements, and from an index or indexed access type to the types in it.
+         */
+        ELEMENTS
+    }
+
+    private Order order = Order.PRE;
+    private Set<Edge> edges = EnumSet.allOf(Edge.class);
+
+    /**
+     * The types that are found in a type, in the order they are passed in pre-order.
+     */
+    private final List<Type> successors = new ArrayList<>();
+    private final Set<Signature> signatures = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<Signature> pendingSignatures = new ArrayList<>();
+    private final Successors collector = new Successors();
+    private Type[] stack = new Type[64];
+    private boolean[] exits = new boolean[64];
+    private int top = 0;
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public void setOrder(Order order) {
+        if (order == null) {
+            throw new NullPointerException("order");
+        }
+        this.order = order;
+    }
+
+    /**
+     * @return the kinds of edges that are followed
+     */
+    public Set<Edge> getEdges() {
+        return Collections.unmodifiableSet(edges);
+    }
+
+    /**
+     * Follows only the given kinds of edges.
+     */
+    public void setEdges(Collection<Edge> edges) {
+        this.edges = edges.isEmpty() ? EnumSet.noneOf(Edge.class) : EnumSet.copyOf(edges);
+    }
+
+    /**
+     * Passes each type reachable from the root to the visitor once.
+     */
+    public <T> void traverse(Type root, TypeVisitor<T> visitor) {
+        traverse(Collections.singletonList(root), new TypeBitSet(), type -> type.accept(visitor));
+    }
+
+    /**
+     * Passes each type reachable from the roots to the visitor once.
+     */
+    public <T> void traverse(Iterable<? extends Type> roots, TypeVisitor<T> visitor) {
+        traverse(roots, new TypeBitSet(), type -> type.accept(visitor));
+    }
+
+    /**
+     * Passes each type reachable from the roots to the visitor once, with the argument.
+     */
+    public <T, A> void traverse(Iterable<? extends Type> roots, TypeVisitorWithArgument<T, A> visitor, A argument) {
+        traverse(roots, new TypeBitSet(), type -> type.accept(visitor, argument));
+    }
+
+    /**
+     * Passes each type reachable from the roots that is not in the visited set to the action once, and adds it to the set.
+     * The walk does not go on from the types that are already in the set.
+     *
+     * @param visited the types that have been passed, e.g. by an earlier walk
+     */
+    public void traverse(Iterable<? extends Type> roots, TypeBitSet visited, Consumer<? super Type> action) {
+        boolean post = order == Order.POST;
+        top = 0;
+        signatures.clear();
+        try {
+            List<Type> rootList = new ArrayList<>();
+            for (Type root : roots) {
+                rootList.add(root);
+            }
+            for (int i = rootList.size() - 1; i >= 0; i--) {
+                push(DelayedType.resolve(rootList.get(i)), false);
+            }
+            while (top > 0) {
+                top--;
+                Type type = stack[top];
+                stack[top] = null;
+                if (exits[top]) {
+                    action.accept(type);
+                    continue;
+                }
+                if (type == null || !visited.add(type)) {
+                    continue;
+                }
+                if (post) {
+                    push(type, true);
+                } else {
+                    action.accept(type);
+                }
+                successors.clear();
+                type.accept(collector);
+                for (int i = successors.size() - 1; i >= 0; i--) {
+                    Type successor = successors.get(i);
+                    if (!visited.contains(successor)) {
+                        push(successor, false);
+                    }
+                }
+            }
+        } finally {
+            Arrays.fill(stack, 0, top, null);
+            top = 0;
+            successors.clear();
+            signatures.clear();
+            pendingSignatures.clear();
+        }
+    }
+
+    /**
+     * @return the types reachable from the roots
+     */
+    public TypeBitSet reachable(Iterable<? extends Type> roots) {
+        TypeBitSet visited = new TypeBitSet();
+        traverse(roots, visited, type -> {
+        });
+        return visited;
+    }
+
+    private void push(Type type, boolean exit) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+            exits = Arrays.copyOf(exits, top * 2);
+        }
+        stack[top] = type;
+        exits[top] = exit;
+        top++;
+    }
+
+    /**
+     * Adds the types a type leads to through the enabled edges to the successors, in the order of the fields of the type.
+     */
+    private final class Successors implements TypeVisitor<Void> {
+        private void add(Edge edge, Type type) {
+            if (type != null && edges.contains(edge)) {
+                type = DelayedType.resolve(type);
+                if (type != null) {
+                    successors.add(type);
+                }
+            }
+        }
+
+        private void addAll(Edge edge, Collection<Type> types) {
+            if (types != null && edges.contains(edge)) {
+                for (Type type : types) {
+                    add(edge, type);
+                }
+            }
+        }
+
+        private void addProperties(Map<String, Type> properties) {
+            if (properties != null) {
+                addAll(Edge.PROPERTIES, properties.values());
+            }
+        }
+
+        /**
+         * Adds the types in the signatures that have not been followed yet, and in the signatures they are made from.
+         */
+        private void addSignatures(List<Signature> list) {
+            if (list == null || !edges.contains(Edge.SIGNATURES)) {
+                return;
+            }
+            List<Signature> work = pendingSignatures;
+            for (int i = list.size() - 1; i >= 0; i--) {
+                work.add(list.get(i));
+            }
+            while (!work.isEmpty()) {
+                Signature signature = work.remove(work.size() - 1);
+                if (signature == null || !signatures.add(signature)) {
+                    continue;
+                }
+                addAll(Edge.TYPE_PARAMETERS, signature.getTypeParameters());
+                if (signature.getParameters() != null) {
+                    for (Signature.Parameter parameter : signature.getParameters()) {
+                        add(Edge.SIGNATURES, parameter.getType());
+                    }
+                }
+                add(Edge.SIGNATURES, signature.getResolvedReturnType());
+                add(Edge.SIGNATURES, signature.getIsolatedSignatureType());
+                if (signature.getUnionSignatures() != null) {
+                    for (int i = signature.getUnionSignatures().size() - 1; i >= 0; i--) {
+                        work.add(signature.getUnionSignatures().get(i));
+                    }
+                }
+                work.add(signature.getTarget());
+            }
+        }
+
+        @Override
+        public Void visit(AnonymousType t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(ClassType t) {
+            addSignatures(t.getConstructors());
+            addSignatures(t.getCallSignatures());
+            addAll(Edge.BASE_TYPES, t.getBaseTypes());
+            addProperties(t.getStaticProperties());
+            addProperties(t.getInstanceProperties());
+            add(Edge.INDEX_TYPES, t.getDeclaredStringIndexType());
+            add(Edge.INDEX_TYPES, t.getDeclaredNumberIndexType());
+            add(Edge.TARGETS, t.getTarget());
+            addAll(Edge.TYPE_PARAMETERS, t.getTypeParameters());
+            addAll(Edge.TYPE_ARGUMENTS, t.getTypeArguments());
+            return null;
+        }
+
+        @Override
+        public Void visit(GenericType t) {
+            addAll(Edge.TYPE_PARAMETERS, t.getTypeParameters());
+            addAll(Edge.BASE_TYPES, t.getBaseTypes());
+            addProperties(t.getDeclaredProperties());
+            addSignatures(t.getDeclaredCallSignatures());
+            addSignatures(t.getDeclaredConstructSignatures());
+            add(Edge.INDEX_TYPES, t.getDeclaredStringIndexType());
+            add(Edge.INDEX_TYPES, t.getDeclaredNumberIndexType());
+            add(Edge.TARGETS, t.getTarget());
+            addAll(Edge.TYPE_ARGUMENTS, t.getTypeArguments());
+            return null;
+        }
+
+        @Override
+        public Void visit(InterfaceType t) {
+            addAll(Edge.TYPE_PARAMETERS, t.getTypeParameters());
+            addAll(Edge.BASE_TYPES, t.getBaseTypes());
+            addProperties(t.getDeclaredProperties());
+            addSignatures(t.getDeclaredCallSignatures());
+            addSignatures(t.getDeclaredConstructSignatures());
+            add(Edge.INDEX_TYPES, t.getDeclaredStringIndexType());
+            add(Edge.INDEX_TYPES, t.getDeclaredNumberIndexType());
+            return null;
+        }
+
+        @Override
+        public Void visit(ReferenceType t) {
+            add(Edge.TARGETS, t.getTarget());
+            addAll(Edge.TYPE_ARGUMENTS, t.getTypeArguments());
+            return null;
+        }
+
+        @Override
+        public Void visit(SimpleType t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(TupleType t) {
+            addAll(Edge.ELEMENTS, t.getElementTypes());
+            return null;
+        }
+
+        @Override
+        public Void visit(UnionType t) {
+            addAll(Edge.ELEMENTS, t.getElements());
+            return null;
+        }
+
+        @Override
+        public Void visit(UnresolvedType t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(TypeParameterType t) {
+            add(Edge.TYPE_PARAMETERS, t.getConstraint());
+            return null;
+        }
+
+        @Override
+        public Void visit(StringLiteral t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(BooleanLiteral t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(NumberLiteral t) {
+            return null;
+        }
+
+        @Override
+        public Void visit(IntersectionType t) {
+            addAll(Edge.ELEMENTS, t.getElements());
+            return null;
+        }
+
+        @Override
+        public Void visit(ClassInstanceType t) {
+            add(Edge.TARGETS, t.getClassType());
+            return null;
+        }
+
+        @Override
+        public Void visit(ThisType t) {
+            add(Edge.TYPE_PARAMETERS, t.getConstraint());
+            return null;
+        }
+
+        @Override
+        public Void visit(IndexType t) {
+            add(Edge.ELEMENTS, t.getType());
+            return null;
+        }
+
+        @Override
+        public Void visit(IndexedAccessType t) {
+            add(Edge.ELEMENTS, t.getObjectType());
+            add(Edge.ELEMENTS, t.getIndexType());
+            return null;
+        }
+    }
+}
@@ -3,11 +3,23 @@ package dk.au.cs.casa.typescript.types;
 import java.util.List;
 
 public class UnionType implements Type {
+    private final int typeId;
     private List<Type> elements;
+    private boolean frozen;
 
-    public UnionType() {}
+    public UnionType() {
+        this(TypeIds.UNOWNED.next());
+    }
+
+    /**
+     * @param id the id of the type in its specification, see {@link TypeIds}
+     */
+    public UnionType(int id) {
+        this.typeId = id;
+    }
 
     public UnionType(List<Type> elements) {
+        this();
         this.elements = elements;
     }
 
@@ -16,14 +28,15 @@ public class UnionType implements Type {
     }
 
     public void setElements(List<Type> types) {
+        TypeFreezer.checkMutable(frozen);
         this.elements = types;
     }
 
     @Override
     public String toString() {
-        return "Union(" +
-                elements +
-                ')';
+        return Structural.toString(this, () -> "Union(" +
+                        elements +
+                        ')');
     }
 
     @Override
@@ -31,6 +44,20 @@ public class UnionType implements Type {
         return v.visit(this, a);
     }
 
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        elements = TypeFreezer.unmodifiable(elements);
+        frozen = true;
+    }
+
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
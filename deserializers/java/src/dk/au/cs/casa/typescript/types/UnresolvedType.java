@@ -5,17 +5,34 @@ package dk.au.cs.casa.typescript.types;
  * (deserialization does not see all types at once)
  */
 public class UnresolvedType implements Type {
+    private final int typeId = TypeIds.UNOWNED.next();
     private final int id;
 
+    /**
+     * @param id the data id of the type the placeholder stands for, see {@link #getId()}
+     */
     public UnresolvedType(int id) {
         this.id = id;
     }
 
+    /**
+     * The id of the placeholder itself, a new unowned (negative) id, so the placeholder does not share the side table entry of the type it stands for.
+     * Use {@link #getId()} to find the type it stands for.
+     */
+    @Override
+    public int id() {
+        return typeId;
+    }
+
     @Override
     public <T> T accept(TypeVisitor<T> v) {
         return v.visit(this);
     }
 
+    /**
+     * @return the id of the type the placeholder stands for, its index in the data of the specification, which a {@link dk.au.cs.casa.typescript.TypeResolver} resolves.
+     * Unlike {@link #id()}, it is not the id of the placeholder.
+     */
     public int getId() {
         return id;
     }
@@ -0,0 +1,48 @@
+package dk.au.cs.casa.typescript;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.assertSameSpec;
+
+public class BinarySpecTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path convert(String name) throws IOException {
+        Path binary = folder.newFile(name + ".bin").toPath();
+        SpecConverter.convert(SpecFixtures.spec(name), binary);
+        return binary;
+    }
+
+    @Test
+    public void binaryEqualsJson() throws IOException {
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), BinarySpecReader.read(convert(ALL_KINDS)));
+    }
+
+    @Test
+    public void bufferEqualsFile() throws IOException {
+        Path binary = convert(ALL_KINDS);
+        assertSameSpec(BinarySpecReader.read(binary), BinarySpecReader.read(ByteBuffer.wrap(Files.readAllBytes(binary))));
+    }
+
+    @Test
+    public void rewrittenBinaryEqualsJson() throws IOException {
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        BinarySpecWriter.write(BinarySpecReader.read(convert(ALL_KINDS)), again);
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), BinarySpecReader.read(ByteBuffer.wrap(again.toByteArray())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsJson() throws IOException {
+        BinarySpecReader.read(ByteBuffer.wrap(Files.readAllBytes(SpecFixtures.spec(ALL_KINDS))));
+    }
+}
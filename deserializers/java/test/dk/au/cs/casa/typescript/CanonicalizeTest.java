@@ -0,0 +1,118 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.types.ClassType;
+import dk.au.cs.casa.typescript.types.InterfaceType;
+import dk.au.cs.casa.typescript.types.ReferenceType;
+import dk.au.cs.casa.typescript.types.Signature;
+import dk.au.cs.casa.typescript.types.Structural;
+import dk.au.cs.casa.typescript.types.TupleType;
+import dk.au.cs.casa.typescript.types.Type;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.assertSameSpec;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CanonicalizeTest {
+    /**
+     * Two equal unions, U and its duplicate, and an interface whose call signature refers to the duplicate through a union signature and its isolated signature type.
+     */
+    private static final String UNION_SIGNATURES = "{\"data\": ["
+            + "{\"kind\": \"String\"}, {\"kind\": \"Null\"},"
+            + "{\"kind\": \"Union\", \"elements\": [0, 1]}, {\"kind\": \"Union\", \"elements\": [0, 1]},"
+            + "{\"kind\": \"Interface\", \"typeParameters\": [], \"baseTypes\": [], \"declaredProperties\": {}, \"declaredConstructSignatures\": [],"
+            + " \"declaredCallSignatures\": [{\"typeParameters\": [], \"parameters\": [], \"resolvedReturnType\": 0, \"isolatedSignatureType\": 3,"
+            + "  \"unionSignatures\": [{\"typeParameters\": [], \"parameters\": [{\"name\": \"x\", \"type\": 3}], \"resolvedReturnType\": 3,"
+            + "   \"unionSignatures\": [], \"isolatedSignatureType\": 3}]}],"
+            + " \"declaredStringIndexType\": -1, \"declaredNumberIndexType\": -1}],"
+            + "\"globals\": [], \"types\": [{\"qName\": [\"U\"], \"type\": 2}, {\"qName\": [\"I\"], \"type\": 4}], \"ambient\": [], \"locations\": {}}";
+
+    /**
+     * [string, number], [string, number?] and a duplicate of the first.
+     */
+    private static final String OPTIONAL_TUPLE_ELEMENTS = "{\"data\": ["
+            + "{\"kind\": \"String\"}, {\"kind\": \"Number\"},"
+            + "{\"kind\": \"Tuple\", \"elementTypes\": [0, 1], \"minLength\": 2}, {\"kind\": \"Tuple\", \"elementTypes\": [0, 1], \"minLength\": 1},"
+            + "{\"kind\": \"Tuple\", \"elementTypes\": [0, 1], \"minLength\": 2}],"
+            + "\"globals\": [], \"types\": [{\"qName\": [\"Required\"], \"type\": 2}, {\"qName\": [\"Optional\"], \"type\": 3}, {\"qName\": [\"Again\"], \"type\": 4}],"
+            + " \"ambient\": [], \"locations\": {}}";
+
+    private static SpecReaderFactory factory() {
+        LoadOptions options = new LoadOptions();
+        options.setCanonicalize(true);
+        return new SpecReaderFactory(options);
+    }
+
+    private static SpecReader canonical() {
+        return factory().read(SpecFixtures.spec(ALL_KINDS));
+    }
+
+    @Test
+    public void equalUnionsAreMerged() {
+        SpecReader plain = SpecFixtures.read(ALL_KINDS);
+        assertNotSame(namedType(plain, "All.T31"), namedType(plain, "All.T32"));
+        SpecReader canonical = canonical();
+        assertSame(namedType(canonical, "All.T31"), namedType(canonical, "All.T32"));
+    }
+
+    @Test
+    public void referencesToTheMergedTypesAreReplaced() {
+        SpecReader canonical = canonical();
+        Type extra = ((ClassType) namedType(canonical, "Bar")).getInstanceProperties().get("extra");
+        assertSame(namedType(canonical, "All.T32"), extra);
+    }
+
+    @Test
+    public void differentTypesAreKept() {
+        SpecReader canonical = canonical();
+        assertNotSame(namedType(canonical, "All.T7"), namedType(canonical, "All.T10"));
+        assertSame(((ReferenceType) namedType(canonical, "All.T7")).getTarget(), ((ReferenceType) namedType(canonical, "All.T10")).getTarget());
+        assertNotSame(namedType(canonical, "All.T8"), namedType(canonical, "All.T31"));
+    }
+
+    @Test
+    public void canonicalSpecificationEqualsThePlainOne() {
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), canonical());
+    }
+
+    @Test
+    public void theRemappingMapsTheMergedTypes() {
+        SpecReader canonical = canonical();
+        Map<Type, Type> remapping = canonical.getCanonicalRemapping();
+        assertTrue(remapping.containsValue(namedType(canonical, "All.T31")));
+        assertTrue(!remapping.containsKey(namedType(canonical, "All.T31")));
+        assertTrue(SpecFixtures.read(ALL_KINDS).getCanonicalRemapping().isEmpty());
+    }
+
+    @Test
+    public void unionSignaturesAreRemapped() {
+        SpecReader canonical = factory().read(UNION_SIGNATURES);
+        Type union = namedType(canonical, "U");
+        assertEquals(1, canonical.getCanonicalRemapping().size());
+        Signature signature = ((InterfaceType) namedType(canonical, "I")).getDeclaredCallSignatures().get(0);
+        assertSame(union, signature.getIsolatedSignatureType());
+        Signature unionSignature = signature.getUnionSignatures().get(0);
+        assertSame(union, unionSignature.getParameters().get(0).getType());
+        assertSame(union, unionSignature.getResolvedReturnType());
+        assertSame(union, unionSignature.getIsolatedSignatureType());
+    }
+
+    @Test
+    public void tuplesWithDifferentMinimumLengthsAreKept() {
+        SpecReader canonical = factory().read(OPTIONAL_TUPLE_ELEMENTS);
+        TupleType required = (TupleType) namedType(canonical, "Required");
+        TupleType optional = (TupleType) namedType(canonical, "Optional");
+        assertNotSame(required, optional);
+        assertEquals(2, required.getMinLength());
+        assertEquals(1, optional.getMinLength());
+        assertFalse(Structural.equal(required, optional));
+        assertSame(required, namedType(canonical, "Again"));
+    }
+}
@@ -0,0 +1,164 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.types.InterfaceType;
+import dk.au.cs.casa.typescript.types.SimpleType;
+import dk.au.cs.casa.typescript.types.SimpleTypeKind;
+import dk.au.cs.casa.typescript.types.Type;
+import dk.au.cs.casa.typescript.types.TypeParameterType;
+import dk.au.cs.casa.typescript.types.UnionType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.assertSameSpec;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LazyBinarySpecTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path convert(Path json) throws IOException {
+        Path binary = folder.newFile(json.getFileName() + ".bin").toPath();
+        SpecConverter.convert(json, binary);
+        return binary;
+    }
+
+    @Test
+    public void mappedEqualsJson() throws IOException {
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), BinarySpecReader.map(convert(SpecFixtures.spec(ALL_KINDS))));
+    }
+
+    @Test
+    public void typesAreDecodedWhenAccessed() throws IOException {
+        Path binary = convert(SpecFixtures.spec(ALL_KINDS));
+        SpecReader reader = BinarySpecReader.map(binary);
+        // only the synthetic global interface is created up front, the globals are still ids
+        assertEquals(1, reader.getTypeIds().count());
+        assertTrue(reader.getGlobal().getDeclaredProperties() instanceof LazyTypeMap);
+
+        Type union = reader.getGlobal().getDeclaredProperties().get("u");
+        assertTrue(union instanceof UnionType);
+        assertTrue(((UnionType) union).getElements() instanceof LazyTypeList);
+    }
+
+    @Test
+    public void propertiesKeepDeclarationOrder() throws IOException {
+        SpecReader json = SpecFixtures.read(ALL_KINDS);
+        SpecReader mapped = BinarySpecReader.map(convert(SpecFixtures.spec(ALL_KINDS)));
+        assertEquals(new ArrayList<>(json.getGlobal().getDeclaredProperties().keySet()), new ArrayList<>(mapped.getGlobal().getDeclaredProperties().keySet()));
+        InterfaceType document = (InterfaceType) mapped.getGlobal().getDeclaredProperties().get("document");
+        assertEquals(new ArrayList<>(((InterfaceType) json.getGlobal().getDeclaredProperties().get("document")).getDeclaredProperties().keySet()),
+                new ArrayList<>(document.getDeclaredProperties().keySet()));
+        assertSame(SimpleType.get(SimpleTypeKind.String), document.getDeclaredProperties().get("name"));
+        assertNull(document.getDeclaredProperties().get("missing"));
+    }
+
+    /**
+     * A chain of constraints is decoded with the type at its start, this must not recurse once per link.
+     */
+    @Test
+    public void lazyMapsCanBeChanged() throws IOException {
+        SpecReader json = SpecFixtures.read(ALL_KINDS);
+        Map<String, Type> globals = BinarySpecReader.map(convert(SpecFixtures.spec(ALL_KINDS))).getGlobal().getDeclaredProperties();
+        List<String> names = new ArrayList<>(globals.keySet());
+        Iterator<Map.Entry<String, Type>> entries = globals.entrySet().iterator();
+        entries.next();
+        entries.remove();
+        assertEquals(names.get(1), entries.next().getKey());
+        assertNull(globals.put("extra", SimpleType.get(SimpleTypeKind.String)));
+        assertTrue(globals.remove("u") instanceof UnionType);
+
+        List<String> expected = new ArrayList<>(names.subList(1, names.size()));
+        expected.remove("u");
+        expected.add("extra");
+        assertEquals(expected, new ArrayList<>(globals.keySet()));
+        assertNull(globals.get(names.get(0)));
+        SpecFixtures.assertSameType(expected.get(0), json.getGlobal().getDeclaredProperties().get(expected.get(0)), globals.get(expected.get(0)));
+        assertSame(SimpleType.get(SimpleTypeKind.String), globals.get("extra"));
+    }
+
+    @Test
+    public void longChainOfConstraintsDecodesOnSmallStack() throws Exception {
+        int length = 100000;
+        StringBuilder json = new StringBuilder("{\"data\": [{\"kind\": \"String\"}");
+        for (int i = 1; i <= length; i++) {
+            json.append(",\n{\"kind\": \"TypeParameter\", \"constraint\": ").append(i < length ? i + 1 : 0).append('}');
+        }
+        json.append("],\n\"globals\": [{\"qName\": [\"T\"], \"type\": 1}], \"types\": [], \"ambient\": [], \"locations\": {}}");
+        Path file = folder.newFile("chain.json").toPath();
+        Files.write(file, json.toString().getBytes(StandardCharsets.UTF_8));
+        SpecReader reader = BinarySpecReader.map(convert(file));
+
+        AtomicInteger links = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(null, () -> {
+            try {
+                Type type = reader.getGlobal().getDeclaredProperties().get("T");
+                while (type instanceof TypeParameterType) {
+                    type = ((TypeParameterType) type).getConstraint();
+                    links.incrementAndGet();
+                }
+                assertSame(SimpleType.get(SimpleTypeKind.String), type);
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        }, "decode", 256 * 1024);
+        thread.start();
+        thread.join();
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(length, links.get());
+    }
+
+    /**
+     * Threads that start reading an unfrozen mapped specification together all decode the same types.
+     */
+    @Test
+    public void concurrentReadersDecodeTheSameTypes() throws Exception {
+        Path binary = convert(SpecFixtures.spec(ALL_KINDS));
+        SpecReader expected = SpecFixtures.read(ALL_KINDS);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                SpecReader reader = BinarySpecReader.map(binary);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Type>> futures = new ArrayList<>();
+                for (int thread = 0; thread < 8; thread++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        assertSameSpec(expected, reader);
+                        return reader.getNamedTypes().get(0).type;
+                    }));
+                }
+                start.countDown();
+                for (Future<Type> future : futures) {
+                    assertSame(futures.get(0).get(), future.get());
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.ElementInfo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LazyLocationsTest {
+    private static LazyLocations locations(SpecReader reader) {
+        assertTrue(reader.getLocations() instanceof LazyLocations);
+        return (LazyLocations) reader.getLocations();
+    }
+
+    @Test
+    public void skippedLocationsAreEmpty() {
+        LoadOptions options = new LoadOptions();
+        options.setSkipLocations(true);
+        SpecReader reader = new SpecReaderFactory(options).read(SpecFixtures.spec(ALL_KINDS));
+        assertTrue(reader.getLocations().isEmpty());
+        assertNull(reader.getLocations().get("a.ts"));
+        assertEquals(SpecFixtures.read(ALL_KINDS).getNamedTypes().size(), reader.getNamedTypes().size());
+    }
+
+    @Test
+    public void filesAreDecodedWhenFirstLookedUp() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        LazyLocations locations = locations(reader);
+        assertEquals(2, locations.undecodedCount());
+        assertEquals(Arrays.asList("a.ts", "b.ts"), new ArrayList<>(locations.keySet()));
+        assertTrue(locations.containsKey("b.ts"));
+        assertNull(locations.get("c.ts"));
+        assertEquals(2, locations.undecodedCount());
+
+        Map<String, ElementInfo> b = locations.get("b.ts");
+        assertEquals(1, locations.undecodedCount());
+        assertSame(b, locations.get("b.ts"));
+        assertSame(namedType(reader, "All.T2"), b.get("0:0-0:5").type);
+
+        assertEquals(5, locations.entrySet().iterator().next().getValue().size());
+        assertEquals(0, locations.undecodedCount());
+        assertSame(namedType(reader, "Foo"), locations.get("a.ts").get("2:0-4:1").type);
+    }
+
+    @Test
+    public void prunedLoadsOnlyKeepReachableLocations() {
+        LoadOptions options = new LoadOptions();
+        options.setRoots(Collections.singletonList("Foo"));
+        LazyLocations locations = locations(new SpecReaderFactory(options).read(SpecFixtures.spec(ALL_KINDS)));
+        assertEquals(Arrays.asList("a.ts", "b.ts"), new ArrayList<>(locations.keySet()));
+        assertEquals(Arrays.asList("1:0-1:20", "1:4-1:9", "2:0-4:1", "3:2-3:5"), sorted(locations.get("a.ts")));
+    }
+
+    private static List<String> sorted(Map<String, ElementInfo> fileLocations) {
+        List<String> keys = new ArrayList<>(fileLocations.keySet());
+        Collections.sort(keys);
+        return keys;
+    }
+
+    @Test
+    public void concurrentLookupsDecodeEachFileOnce() throws Exception {
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            files.add("f" + i + ".ts");
+        }
+        AtomicIntegerArray decodes = new AtomicIntegerArray(files.size());
+        LazyLocations locations = new LazyLocations(files, file -> {
+            decodes.incrementAndGet(file);
+            return Collections.singletonMap("0:0-0:1", new ElementInfo(null, "Identifier", files.get(file)));
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (String file : files) {
+                        assertEquals(file, locations.get(file).get("0:0-0:1").debug);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        for (int i = 0; i < files.size(); i++) {
+            assertEquals(1, decodes.get(i));
+        }
+        assertEquals(0, locations.undecodedCount());
+    }
+
+    @Test
+    public void forEachFileDoesNotKeepUndecodedFiles() {
+        List<String> files = Arrays.asList("a.ts", "b.ts", "c.ts");
+        AtomicIntegerArray decodes = new AtomicIntegerArray(files.size());
+        AtomicIntegerArray releases = new AtomicIntegerArray(files.size());
+        LazyLocations locations = new LazyLocations(files, new LazyLocations.Decoder() {
+            @Override
+            public Map<String, ElementInfo> decode(int file) {
+                decodes.incrementAndGet(file);
+                return Collections.singletonMap("0:0-0:1", new ElementInfo(null, "Identifier", files.get(file)));
+            }
+
+            @Override
+            public void release(int file) {
+                releases.incrementAndGet(file);
+            }
+        });
+        Map<String, ElementInfo> b = locations.get("b.ts");
+        List<String> visited = new ArrayList<>();
+        locations.forEachFile((file, fileLocations) -> {
+            visited.add(file);
+            assertEquals(file, fileLocations.get("0:0-0:1").debug);
+            if (file.equals("b.ts")) {
+                assertSame(b, fileLocations);
+            }
+        });
+        assertEquals(files, visited);
+        assertEquals(2, locations.undecodedCount());
+        assertEquals("[1, 1, 1]", decodes.toString());
+        assertEquals("[0, 1, 0]", releases.toString());
+
+        locations.get("a.ts");
+        locations.get("c.ts");
+        assertEquals("[2, 1, 2]", decodes.toString());
+        assertEquals("[1, 1, 1]", releases.toString());
+    }
+
+    /**
+     * The first change decodes all files, afterwards the map holds the changed locations.
+     */
+    @Test
+    public void locationsCanBeChanged() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        LazyLocations locations = locations(reader);
+        assertNull(locations.put("c.ts", Collections.emptyMap()));
+        assertEquals(0, locations.undecodedCount());
+        assertEquals(Arrays.asList("a.ts", "b.ts", "c.ts"), new ArrayList<>(locations.keySet()));
+        assertSame(namedType(reader, "All.T2"), locations.get("b.ts").get("0:0-0:5").type);
+
+        Map<String, ElementInfo> b = locations.remove("b.ts");
+        assertEquals(1, b.size());
+        assertFalse(locations.containsKey("b.ts"));
+        locations.entrySet().iterator().next().setValue(b);
+        assertSame(b, locations.get("a.ts"));
+        List<String> written = new ArrayList<>();
+        locations.forEachFile((file, fileLocations) -> written.add(file));
+        assertEquals(Arrays.asList("a.ts", "c.ts"), written);
+        locations.keySet().clear();
+        assertTrue(locations.isEmpty());
+    }
+
+    @Test
+    public void iteratorsRemoveFilesBeforeTheMapIsChanged() {
+        LazyLocations locations = locations(SpecFixtures.read(ALL_KINDS));
+        Iterator<String> files = locations.keySet().iterator();
+        assertEquals("a.ts", files.next());
+        files.remove();
+        assertTrue(files.hasNext());
+        assertEquals("b.ts", files.next());
+        assertFalse(files.hasNext());
+        assertEquals(Collections.singletonList("b.ts"), new ArrayList<>(locations.keySet()));
+        assertEquals(1, locations.size());
+
+        LazyLocations other = locations(SpecFixtures.read(ALL_KINDS));
+        Map<String, ElementInfo> b = other.get("b.ts");
+        Map.Entry<String, Map<String, ElementInfo>> a = other.entrySet().iterator().next();
+        a.setValue(b);
+        assertSame(b, other.get("a.ts"));
+        assertSame(b, a.getValue());
+    }
+}
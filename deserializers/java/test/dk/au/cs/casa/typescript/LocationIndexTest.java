@@ -0,0 +1,166 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.ElementInfo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LocationIndexTest {
+    /**
+     * @return an index of one file "f.ts" with an element per location whose debug text is the location
+     */
+    private static LocationIndex index(String... locations) {
+        Map<String, ElementInfo> file = new LinkedHashMap<>();
+        for (String location : locations) {
+            file.put(location, new ElementInfo(null, "Identifier", location));
+        }
+        Map<String, Map<String, ElementInfo>> files = new HashMap<>();
+        files.put("f.ts", file);
+        return new LocationIndex(files);
+    }
+
+    private static String innermost(LocationIndex index, int line, int character) {
+        ElementInfo element = index.getInnermost("f.ts", line, character);
+        return element == null ? null : element.debug;
+    }
+
+    private static List<String> within(LocationIndex index, int startLine, int startCharacter, int endLine, int endCharacter) {
+        List<String> debugs = new ArrayList<>();
+        for (ElementInfo element : index.getElementsIn("f.ts", startLine, startCharacter, endLine, endCharacter)) {
+            debugs.add(element.debug);
+        }
+        return debugs;
+    }
+
+    @Test
+    public void innermostOfTheFixture() {
+        LocationIndex index = LocationIndex.of(SpecFixtures.read(ALL_KINDS));
+        assertEquals("foo", index.getInnermost("a.ts", 1, 4).debug);
+        assertEquals("Identifier", index.getInnermost("a.ts", 1, 8).kind);
+        assertEquals("VariableDeclaration", index.getInnermost("a.ts", 1, 9).kind);
+        assertEquals("ClassDeclaration", index.getInnermost("a.ts", 2, 0).kind);
+        assertEquals("id", index.getInnermost("a.ts", 3, 4).debug);
+        assertEquals("ClassDeclaration", index.getInnermost("a.ts", 3, 5).kind);
+        assertEquals("SourceFile", index.getInnermost("a.ts", 5, 100).kind);
+        assertNull(index.getInnermost("a.ts", 10, 1));
+        assertEquals("x", index.getInnermost("b.ts", 0, 0).debug);
+        assertNull(index.getInnermost("c.ts", 0, 0));
+        assertTrue(index.getElementsIn("c.ts", 0, 0, 100, 0).isEmpty());
+    }
+
+    @Test
+    public void nestedElements() {
+        LocationIndex index = index("0:0-9:0", "1:0-8:0", "2:0-3:0", "5:0-6:0");
+        assertEquals("0:0-9:0", innermost(index, 0, 5));
+        assertEquals("1:0-8:0", innermost(index, 1, 0));
+        assertEquals("2:0-3:0", innermost(index, 2, 7));
+        assertEquals("1:0-8:0", innermost(index, 3, 0));
+        assertEquals("5:0-6:0", innermost(index, 5, 0));
+        assertEquals("1:0-8:0", innermost(index, 7, 0));
+        assertEquals("0:0-9:0", innermost(index, 8, 0));
+        assertNull(innermost(index, 9, 0));
+    }
+
+    @Test
+    public void adjacentElements() {
+        LocationIndex index = index("0:0-0:5", "0:5-0:9", "0:9-1:0");
+        assertEquals("0:0-0:5", innermost(index, 0, 4));
+        assertEquals("0:5-0:9", innermost(index, 0, 5));
+        assertEquals("0:5-0:9", innermost(index, 0, 8));
+        assertEquals("0:9-1:0", innermost(index, 0, 9));
+        assertNull(innermost(index, 1, 0));
+    }
+
+    @Test
+    public void zeroLengthElementsCoverNothing() {
+        LocationIndex index = index("0:0-0:9", "0:3-0:3", "0:9-0:9");
+        assertEquals("0:0-0:9", innermost(index, 0, 3));
+        assertNull(innermost(index, 0, 9));
+        assertEquals(Arrays.asList("0:0-0:9", "0:3-0:3", "0:9-0:9"), within(index, 0, 0, 0, 9));
+        assertEquals(Collections.singletonList("0:3-0:3"), within(index, 0, 3, 0, 3));
+    }
+
+    /**
+     * Elements with the same start are ordered outer first, whatever the order of the locations in the file.
+     */
+    @Test
+    public void elementsWithTheSameStart() {
+        LocationIndex index = index("0:0-0:2", "0:0-0:8", "0:0-0:4");
+        assertEquals("0:0-0:2", innermost(index, 0, 0));
+        assertEquals("0:0-0:4", innermost(index, 0, 2));
+        assertEquals("0:0-0:8", innermost(index, 0, 4));
+        assertEquals(Arrays.asList("0:0-0:8", "0:0-0:4", "0:0-0:2"), within(index, 0, 0, 0, 8));
+    }
+
+    @Test
+    public void positionsOutsideTheElements() {
+        LocationIndex index = index("2:4-2:8", "4:0-5:0");
+        assertNull(innermost(index, 0, 0));
+        assertNull(innermost(index, 2, 3));
+        assertNull(innermost(index, 3, 0));
+        assertNull(innermost(index, 5, 0));
+        assertNull(innermost(index, Integer.MAX_VALUE, Integer.MAX_VALUE));
+        assertTrue(within(index, 0, 0, 2, 7).isEmpty());
+        assertTrue(within(index, 6, 0, 9, 0).isEmpty());
+    }
+
+    /**
+     * The sweep closes several elements at one boundary, and reopens the outer element after a nested one that ends before its parent.
+     */
+    @Test
+    public void elementsClosingTogether() {
+        LocationIndex index = index("0:0-4:0", "1:0-4:0", "2:0-4:0", "2:5-3:0", "4:0-5:0");
+        assertEquals("2:0-4:0", innermost(index, 2, 4));
+        assertEquals("2:5-3:0", innermost(index, 2, 5));
+        assertEquals("2:0-4:0", innermost(index, 3, 0));
+        assertEquals("4:0-5:0", innermost(index, 4, 0));
+        assertNull(innermost(index, 5, 0));
+    }
+
+    @Test
+    public void elementsInARange() {
+        LocationIndex index = index("0:0-9:0", "1:0-8:0", "2:0-3:0", "5:0-6:0", "8:0-9:0");
+        assertEquals(Arrays.asList("1:0-8:0", "2:0-3:0", "5:0-6:0"), within(index, 1, 0, 8, 0));
+        assertEquals(Arrays.asList("2:0-3:0", "5:0-6:0"), within(index, 1, 1, 8, 0));
+        assertEquals(Collections.singletonList("2:0-3:0"), within(index, 2, 0, 5, 1));
+        assertEquals(Arrays.asList("0:0-9:0", "1:0-8:0", "2:0-3:0", "5:0-6:0", "8:0-9:0"), within(index, 0, 0, 9, 0));
+        assertTrue(within(index, 3, 0, 5, 0).isEmpty());
+    }
+
+    /**
+     * Location keys are compared by line first, and multi-digit lines and characters are parsed whole.
+     */
+    @Test
+    public void locationKeysAreParsedAsNumbers() {
+        LocationIndex index = index("10:0-10:12", "9:100-10:3", "2:7-123:45");
+        assertEquals("2:7-123:45", innermost(index, 9, 99));
+        assertEquals("9:100-10:3", innermost(index, 9, 100));
+        assertEquals("10:0-10:12", innermost(index, 10, 11));
+        assertEquals("2:7-123:45", innermost(index, 123, 44));
+        assertNull(innermost(index, 123, 45));
+    }
+
+    @Test
+    public void malformedLocationKeysAreRejected() {
+        for (String location : new String[]{"1:2", "1-2:3", "1:2-3"}) {
+            try {
+                index(location).getInnermost("f.ts", 0, 0);
+                fail(location);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.types.InterfaceType;
+import dk.au.cs.casa.typescript.types.Type;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.assertSameSpec;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ParallelSpecLoaderTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    private static SpecReaderFactory factory(boolean parallel) {
+        LoadOptions options = new LoadOptions();
+        options.setPool(parallel ? POOL : null);
+        return new SpecReaderFactory(options);
+    }
+
+    private static SpecReader read(String json, boolean parallel) {
+        return factory(parallel).read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @return an interface with a property of the given name and type
+     */
+    private static String element(String property, int type) {
+        return "{\"kind\": \"Interface\", \"typeParameters\": [], \"baseTypes\": [], \"declaredProperties\": {\"" + property + "\": " + type + "},"
+                + " \"declaredCallSignatures\": [], \"declaredConstructSignatures\": [], \"declaredStringIndexType\": -1, \"declaredNumberIndexType\": -1}";
+    }
+
+    /**
+     * @return a ring of interfaces whose property names contain the characters the scan of the data array looks for
+     */
+    private static String ring(int count) {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            data.append(i == 0 ? "" : ",\n ").append(element("next" + i + ",]}\\\"data\\\": [", (i + 1) % count));
+        }
+        return "{\"data\": [" + data + "], \"globals\": [{\"qName\": [\"first\"], \"type\": 0}],"
+                + " \"types\": [{\"qName\": [\"Last\"], \"type\": " + (count - 1) + "}], \"ambient\": [], \"locations\": {}}";
+    }
+
+    @Test
+    public void parallelLoadIsTheSameAsSequentialLoad() {
+        SpecReader sequential = factory(false).read(SpecFixtures.spec(ALL_KINDS));
+        SpecReader parallel = factory(true).read(SpecFixtures.spec(ALL_KINDS));
+        assertSameSpec(sequential, parallel);
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), parallel);
+    }
+
+    /**
+     * Enough elements to be split across several tasks.
+     */
+    @Test
+    public void elementsSplitAcrossTasksAreTheSameAsSequentialLoad() {
+        String json = ring(3000);
+        SpecReader parallel = read(json, true);
+        assertSameSpec(read(json, false), parallel);
+
+        Type first = parallel.getGlobal().getDeclaredProperties().get("first");
+        Type type = first;
+        for (int i = 0; i < 3000; i++) {
+            type = ((InterfaceType) type).getDeclaredProperties().get("next" + i + ",]}\"data\": [");
+        }
+        assertSame(first, type);
+        assertSame(first, ((InterfaceType) parallel.getNamedTypes().get(0).type).getDeclaredProperties().get("next2999,]}\"data\": ["));
+    }
+
+    /**
+     * Only a "data" key of the top-level object starts the data array, not a string value, an escaped quote or a nested key.
+     */
+    @Test
+    public void dataInStringsAndNestedObjectsIsNotTheDataArray() {
+        String json = "{\"note\": \"data\", \"comment\": \"\\\"data\\\": [1, 2]\","
+                + " \"globals\": [{\"qName\": [\"data\"], \"type\": 0}],"
+                + " \"types\": [], \"ambient\": [],"
+                + " \"locations\": {\"data\": {\"0:0-0:4\": {\"type\": 0, \"kind\": \"Identifier\", \"debug\": \"\\\"data\\\": []\"}}},"
+                + " \"data\": [" + element("data", 0) + "]}";
+        SpecReader parallel = read(json, true);
+        assertSameSpec(read(json, false), parallel);
+        Type data = parallel.getGlobal().getDeclaredProperties().get("data");
+        assertSame(data, ((InterfaceType) data).getDeclaredProperties().get("data"));
+        assertSame(data, parallel.getLocations().get("data").get("0:0-0:4").type);
+        assertEquals("\"data\": []", parallel.getLocations().get("data").get("0:0-0:4").debug);
+    }
+
+    /**
+     * The data array is found after the other sections, and the references to it of those sections are resolved.
+     */
+    @Test
+    public void dataAfterTheOtherSections() {
+        String json = "{\"globals\": [{\"qName\": [\"g\"], \"type\": 1}], \"types\": [{\"qName\": [\"T\"], \"type\": 0}], \"ambient\": [],"
+                + " \"locations\": {\"a.ts\": {\"0:0-0:1\": {\"type\": 1, \"kind\": \"Identifier\", \"debug\": \"g\"}}},\n"
+                + " \"data\" :\n [ " + element("b", 1) + " ,\n " + element("a", 0) + " ]\n}";
+        SpecReader parallel = read(json, true);
+        assertSameSpec(read(json, false), parallel);
+        Type g = parallel.getGlobal().getDeclaredProperties().get("g");
+        Type t = parallel.getNamedTypes().get(0).type;
+        assertSame(t, ((InterfaceType) g).getDeclaredProperties().get("a"));
+        assertSame(g, ((InterfaceType) t).getDeclaredProperties().get("b"));
+        assertSame(g, parallel.getLocations().get("a.ts").get("0:0-0:1").type);
+    }
+
+    @Test
+    public void emptyAndMissingDataArrays() {
+        String empty = "{\"data\": [ ], \"globals\": [], \"types\": [], \"ambient\": [], \"locations\": {}}";
+        assertSameSpec(read(empty, false), read(empty, true));
+        assertEquals(Collections.emptySet(), read(empty, true).getGlobal().getDeclaredProperties().keySet());
+        String missing = "{\"globals\": [], \"types\": [], \"ambient\": [], \"locations\": {}}";
+        assertSameSpec(read(missing, false), read(missing, true));
+    }
+}
@@ -0,0 +1,67 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.NamedType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.assertSameType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrunedLoadTest {
+    private static SpecReader read(String... roots) {
+        LoadOptions options = new LoadOptions();
+        options.setRoots(Arrays.asList(roots));
+        return new SpecReaderFactory(options).read(SpecFixtures.spec(ALL_KINDS));
+    }
+
+    private static Set<String> names(List<NamedType> namedTypes) {
+        Set<String> names = new HashSet<>();
+        for (NamedType namedType : namedTypes) {
+            names.add(String.join(".", namedType.qName));
+        }
+        return names;
+    }
+
+    @Test
+    public void keepsWhatIsReachableFromAGlobal() {
+        SpecReader full = SpecFixtures.read(ALL_KINDS);
+        SpecReader pruned = read("document");
+        assertEquals(new HashSet<>(Arrays.asList("document", "Array")), pruned.getGlobal().getDeclaredProperties().keySet());
+        assertSameType("document", full.getGlobal().getDeclaredProperties().get("document"), pruned.getGlobal().getDeclaredProperties().get("document"));
+
+        Set<String> named = names(pruned.getNamedTypes());
+        assertTrue(named.containsAll(Arrays.asList("Document", "NodeJS.Process", "Array")));
+        assertFalse(named.contains("Foo"));
+        assertFalse(named.contains("Bar"));
+        assertFalse(named.contains("NodeJS.Global"));
+        assertFalse(pruned.getLocations().get("a.ts").containsKey("2:0-4:1"));
+        assertTrue(pruned.getLocations().get("a.ts").containsKey("0:0-10:1"));
+    }
+
+    @Test
+    public void keepsWhatIsReachableFromANamedType() {
+        SpecReader pruned = read("Bar");
+        assertEquals(new HashSet<>(Arrays.asList("Array", "Foo")), pruned.getGlobal().getDeclaredProperties().keySet());
+        Set<String> named = names(pruned.getNamedTypes());
+        assertTrue(named.containsAll(Arrays.asList("Foo", "Bar")));
+        assertFalse(named.contains("Document"));
+        assertTrue(pruned.getAmbientTypes().isEmpty());
+    }
+
+    @Test
+    public void unknownRootLoadsNothing() {
+        SpecReader pruned = read("nothing");
+        assertTrue(pruned.getGlobal().getDeclaredProperties().isEmpty());
+        assertTrue(pruned.getNamedTypes().isEmpty());
+        assertTrue(pruned.getAmbientTypes().isEmpty());
+        assertEquals(Collections.emptyMap(), pruned.getLocations());
+    }
+}
@@ -0,0 +1,123 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.NamedType;
+import dk.au.cs.casa.typescript.types.Type;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QualifiedNameIndexTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<List<String>> qNames(List<NamedType> namedTypes) {
+        List<List<String>> qNames = new ArrayList<>();
+        for (NamedType namedType : namedTypes) {
+            qNames.add(namedType.qName);
+        }
+        return qNames;
+    }
+
+    @Test
+    public void findsNamesOfEachKind() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        QualifiedNameIndex index = reader.getQualifiedNames();
+        assertSame(reader.getGlobal().getDeclaredProperties().get("document"), index.getGlobal("document"));
+        assertSame(reader.getNamedTypes().get(1), index.getNamedType(Arrays.asList("NodeJS", "Process")));
+        assertSame(reader.getAmbientTypes().get(0), index.getAmbientType(Collections.singletonList("fs")));
+        assertNull(index.getNamedType(Collections.singletonList("NodeJS")));
+        assertNull(index.getNamedType(Arrays.asList("NodeJS", "Missing")));
+        assertNull(index.getGlobal("Document"));
+    }
+
+    @Test
+    public void findsNamesByPrefix() {
+        QualifiedNameIndex index = SpecFixtures.read(ALL_KINDS).getQualifiedNames();
+        assertEquals(Arrays.asList(Arrays.asList("NodeJS", "Process"), Arrays.asList("NodeJS", "Global")),
+                qNames(index.getNamedTypesWithPrefix(Collections.singletonList("NodeJS"))));
+        assertEquals(new HashSet<>(Arrays.asList("Process", "Global")), index.getMemberNames(Collections.singletonList("NodeJS")));
+        assertEquals(41, index.getNamedTypesWithPrefix(Collections.emptyList()).size());
+        assertEquals(1, index.getAmbientTypesWithPrefix(Collections.emptyList()).size());
+        assertTrue(index.containsPrefix(Collections.singletonList("All")));
+        assertFalse(index.containsPrefix(Collections.singletonList("Missing")));
+        assertTrue(index.getNamedTypesWithPrefix(Collections.singletonList("Missing")).isEmpty());
+    }
+
+    @Test
+    public void indexIsNotChangedByTheLists() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        QualifiedNameIndex index = reader.getQualifiedNames();
+        NamedType document = reader.getNamedTypes().get(0);
+        List<NamedType> namespace = index.getNamedTypesWithPrefix(Collections.singletonList("NodeJS"));
+
+        reader.getNamedTypes().remove(0);
+        assertSame(document, index.getNamedType(Collections.singletonList("Document")));
+        assertEquals(Arrays.asList("NodeJS", "Process"), namespace.get(0).qName);
+        assertEquals(Arrays.asList("NodeJS", "Process"), index.getNamedTypesWithPrefix(Collections.singletonList("NodeJS")).get(0).qName);
+    }
+
+    /**
+     * Every type record of the mapped file is made invalid, so any type that is decoded fails the test.
+     */
+    @Test
+    public void lazySpecificationsAreIndexedWithoutDecodingTypes() throws IOException {
+        Path binary = folder.newFile("all-kinds.bin").toPath();
+        SpecConverter.convert(SpecFixtures.spec(ALL_KINDS), binary);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(binary));
+        for (int id = 0; id < bytes.getInt(BinaryFormat.TYPE_COUNT); id++) {
+            bytes.put(bytes.getInt(bytes.getInt(BinaryFormat.TYPE_INDEX) + id * 4), (byte) 0xFE);
+        }
+        Files.write(binary, bytes.array());
+
+        SpecReader reader = BinarySpecReader.map(binary);
+        QualifiedNameIndex index = reader.getQualifiedNames();
+        assertEquals(new HashSet<>(Arrays.asList("Process", "Global")), index.getMemberNames(Collections.singletonList("NodeJS")));
+        assertTrue(index.containsPrefix(Collections.singletonList("document")));
+        assertTrue(index.containsPrefix(Collections.singletonList("fs")));
+        assertEquals(41, index.getNamedTypesWithPrefix(Collections.emptyList()).size());
+        assertNull(index.getNamedType(Arrays.asList("NodeJS", "Missing")));
+        try {
+            index.getNamedType(Collections.singletonList("Document"));
+            fail();
+        } catch (RuntimeException e) {
+            // the type is decoded on lookup
+        }
+    }
+
+    @Test
+    public void lazySpecificationsResolveTypesOnLookup() throws IOException {
+        Path binary = folder.newFile("all-kinds.bin").toPath();
+        SpecConverter.convert(SpecFixtures.spec(ALL_KINDS), binary);
+        SpecReader expected = SpecFixtures.read(ALL_KINDS);
+        SpecReader reader = BinarySpecReader.map(binary);
+        QualifiedNameIndex index = reader.getQualifiedNames();
+        assertSame(reader.getGlobal().getDeclaredProperties().get("document"), index.getGlobal("document"));
+        assertSame(reader.getNamedTypes().get(1), index.getNamedType(Arrays.asList("NodeJS", "Process")));
+        assertSame(reader.getAmbientTypes().get(0), index.getAmbientType(Collections.singletonList("fs")));
+        assertEquals(qNames(expected.getQualifiedNames().getNamedTypesWithPrefix(Collections.singletonList("NodeJS"))),
+                qNames(index.getNamedTypesWithPrefix(Collections.singletonList("NodeJS"))));
+
+        Type document = index.getGlobal("document");
+        reader.getGlobal().getDeclaredProperties().remove("document");
+        assertSame(document, index.getGlobal("document"));
+        assertTrue(index.containsPrefix(Collections.singletonList("document")));
+    }
+}
@@ -0,0 +1,228 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.types.InterfaceType;
+import dk.au.cs.casa.typescript.types.Signature;
+import dk.au.cs.casa.typescript.types.Type;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.assertSameSpec;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SpecCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SpecReaderFactory factory(SpecCache cache) {
+        LoadOptions options = new LoadOptions();
+        options.setCache(cache);
+        return new SpecReaderFactory(options);
+    }
+
+    private static List<Path> snapshots(Path directory) throws IOException {
+        List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.bin")) {
+            for (Path file : files) {
+                result.add(file);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void missThenHit() throws IOException {
+        SpecCache cache = new SpecCache(folder.newFolder("cache").toPath(), Long.MAX_VALUE);
+        SpecReaderFactory factory = factory(cache);
+        SpecReader expected = SpecFixtures.read(ALL_KINDS);
+
+        assertSameSpec(expected, factory.read(SpecFixtures.spec(ALL_KINDS)));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, snapshots(cache.getDirectory()).size());
+
+        assertSameSpec(expected, factory.read(SpecFixtures.spec(ALL_KINDS)));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    /**
+     * A miss writes the snapshot without keeping the locations decoded, a hit maps the snapshot and decodes it lazily.
+     */
+    @Test
+    public void snapshotsAreWrittenAndReadLazily() throws IOException {
+        SpecReaderFactory factory = factory(new SpecCache(folder.newFolder("cache").toPath(), Long.MAX_VALUE));
+        SpecReader missed = factory.read(SpecFixtures.spec(ALL_KINDS));
+        assertEquals(2, ((LazyLocations) missed.getLocations()).undecodedCount());
+
+        SpecReader hit = factory.read(SpecFixtures.spec(ALL_KINDS));
+        assertTrue(hit.getGlobal().getDeclaredProperties() instanceof LazyTypeMap);
+        assertEquals(2, ((LazyLocations) hit.getLocations()).undecodedCount());
+        assertSameSpec(missed, hit);
+    }
+
+    /**
+     * The ids of a hit are those of a miss, so side tables and caches keyed by id work the same for both.
+     */
+    @Test
+    public void hitsHaveTheIdsOfMisses() throws IOException {
+        SpecReaderFactory factory = factory(new SpecCache(folder.newFolder("cache").toPath(), Long.MAX_VALUE));
+        SpecReader missed = factory.read(SpecFixtures.spec(ALL_KINDS));
+        SpecReader hit = factory.read(SpecFixtures.spec(ALL_KINDS));
+        for (String name : new String[]{"Document", "All.T15", "NodeJS.Global", "All.T31", "Bar"}) {
+            assertEquals(name, namedType(missed, name).id(), namedType(hit, name).id());
+        }
+        assertEquals(missed.getGlobal().id(), hit.getGlobal().id());
+        assertEquals(missed.getTypeIds().getFirst(), hit.getTypeIds().getFirst());
+    }
+
+    /**
+     * The lists and maps of a hit can be changed as those of a miss, they are decoded completely when they are first changed.
+     */
+    @Test
+    public void hitsCanBeChangedAsMisses() throws IOException {
+        SpecReaderFactory factory = factory(new SpecCache(folder.newFolder("cache").toPath(), Long.MAX_VALUE));
+        SpecReader missed = factory.read(SpecFixtures.spec(ALL_KINDS));
+        SpecReader hit = factory.read(SpecFixtures.spec(ALL_KINDS));
+        for (SpecReader reader : Arrays.asList(missed, hit)) {
+            InterfaceType document = (InterfaceType) namedType(reader, "Document");
+            Type process = namedType(reader, "NodeJS.Process");
+            int namedTypes = reader.getNamedTypes().size();
+            reader.getNamedTypes().add(new SpecReader.NamedType(document, Collections.singletonList("Extra")));
+            assertEquals(namedTypes + 1, reader.getNamedTypes().size());
+            assertSame(document, reader.getNamedTypes().get(namedTypes).type);
+            assertSame(document, reader.getNamedTypes().get(0).type);
+
+            document.getBaseTypes().add(document);
+            assertEquals(Arrays.asList(process, document), document.getBaseTypes());
+            document.getBaseTypes().set(0, document);
+            assertEquals(Arrays.asList(document, document), document.getBaseTypes());
+
+            Signature signature = document.getDeclaredCallSignatures().get(0);
+            document.getDeclaredCallSignatures().add(signature);
+            assertEquals(2, document.getDeclaredCallSignatures().size());
+            document.getDeclaredCallSignatures().remove(0);
+            assertEquals(Collections.singletonList(signature), document.getDeclaredCallSignatures());
+
+            Map.Entry<String, Type> first = reader.getGlobal().getDeclaredProperties().entrySet().iterator().next();
+            first.setValue(document);
+            assertSame(document, reader.getGlobal().getDeclaredProperties().get(first.getKey()));
+        }
+    }
+
+    @Test
+    public void hitsInternTheirStringsIntoThePoolOfTheOptions() throws IOException {
+        SpecCache cache = new SpecCache(folder.newFolder("cache").toPath(), Long.MAX_VALUE);
+        StringPool pool = new StringPool();
+        LoadOptions options = new LoadOptions();
+        options.setCache(cache);
+        options.setStringPool(pool);
+        SpecReader missed = new SpecReaderFactory(options).read(SpecFixtures.spec(ALL_KINDS));
+        SpecReader hit = new SpecReaderFactory(options).read(SpecFixtures.spec(ALL_KINDS));
+        assertEquals(1, cache.getHits());
+        String missedName = ((InterfaceType) namedType(missed, "Document")).getDeclaredProperties().keySet().iterator().next();
+        String hitName = ((InterfaceType) namedType(hit, "Document")).getDeclaredProperties().keySet().iterator().next();
+        assertEquals(missedName, hitName);
+        assertSame(missedName, hitName);
+    }
+
+    @Test
+    public void unreadableSnapshotIsReplaced() throws IOException {
+        SpecCache cache = new SpecCache(folder.newFolder("cache").toPath(), Long.MAX_VALUE);
+        factory(cache).read(SpecFixtures.spec(ALL_KINDS));
+        Path snapshot = snapshots(cache.getDirectory()).get(0);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[4] = 0x7F; // an unknown version of the format
+        Files.write(snapshot, bytes);
+
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), factory(cache).read(SpecFixtures.spec(ALL_KINDS)));
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        factory(cache).read(SpecFixtures.spec(ALL_KINDS));
+        assertEquals(1, cache.getHits());
+
+        Files.write(snapshot, new byte[3]);
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), factory(cache).read(SpecFixtures.spec(ALL_KINDS)));
+        assertEquals(3, cache.getMisses());
+    }
+
+    @Test
+    public void constructorGoesThroughTheCache() throws IOException {
+        SpecCache cache = new SpecCache(folder.newFolder("cache").toPath(), Long.MAX_VALUE);
+        LoadOptions options = new LoadOptions();
+        options.setCache(cache);
+        SpecReader expected = SpecFixtures.read(ALL_KINDS);
+        assertSameSpec(expected, new SpecReader(SpecFixtures.spec(ALL_KINDS), options));
+        options.setFreeze(true);
+        SpecReader frozen = new SpecReader(SpecFixtures.spec(ALL_KINDS), options);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertTrue(frozen.isFrozen());
+        assertSameSpec(expected, frozen);
+    }
+
+    @Test
+    public void optionsThatChangeTheSpecificationAreSeparateEntries() throws IOException {
+        SpecCache cache = new SpecCache(folder.newFolder("cache").toPath(), Long.MAX_VALUE);
+        factory(cache).read(SpecFixtures.spec(ALL_KINDS));
+        LoadOptions pruned = new LoadOptions();
+        pruned.setCache(cache);
+        pruned.setRoots(Collections.singleton("document"));
+        new SpecReaderFactory(pruned).read(SpecFixtures.spec(ALL_KINDS));
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, snapshots(cache.getDirectory()).size());
+    }
+
+    @Test
+    public void changedFileIsAMiss() throws IOException {
+        SpecCache cache = new SpecCache(folder.newFolder("cache").toPath(), Long.MAX_VALUE);
+        Path spec = folder.newFile("spec.json").toPath();
+        Files.copy(SpecFixtures.spec(ALL_KINDS), spec, StandardCopyOption.REPLACE_EXISTING);
+        factory(cache).read(spec);
+        Files.write(spec, "\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        factory(cache).read(spec);
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void leastRecentlyUsedSnapshotIsEvicted() throws IOException {
+        Path directory = folder.newFolder("cache").toPath();
+        factory(new SpecCache(directory, Long.MAX_VALUE)).read(SpecFixtures.spec(ALL_KINDS));
+        Path first = snapshots(directory).get(0);
+        long size = Files.size(first);
+        Files.setLastModifiedTime(first, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+
+        Path other = folder.newFile("other.json").toPath();
+        Files.copy(SpecFixtures.spec(ALL_KINDS), other, StandardCopyOption.REPLACE_EXISTING);
+        Files.write(other, "\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        SpecCache cache = new SpecCache(directory, size + size / 2);
+        factory(cache).read(other);
+
+        List<Path> remaining = snapshots(directory);
+        assertEquals(1, remaining.size());
+        assertFalse(remaining.contains(first));
+        factory(cache).read(SpecFixtures.spec(ALL_KINDS));
+        assertEquals(2, cache.getMisses());
+    }
+}
@@ -0,0 +1,104 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.ElementInfo;
+import dk.au.cs.casa.typescript.SpecReader.NamedType;
+import dk.au.cs.casa.typescript.types.Structural;
+import dk.au.cs.casa.typescript.types.Type;
+
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * The JSON specifications in test/fixtures/specs, and assertions that compare loaded specifications.
+ */
+public final class SpecFixtures {
+    /**
+     * One type of every kind, named types in a namespace, an ambient type and locations in two files.
+     */
+    public static final String ALL_KINDS = "all-kinds.json";
+
+    private SpecFixtures() {}
+
+    /**
+     * Finds a fixture on the test class path, or below the working directory or one of its parents if the fixtures are not on the class path.
+     */
+    public static Path spec(String name) {
+        URL resource = SpecFixtures.class.getClassLoader().getResource("specs/" + name);
+        if (resource != null) {
+            try {
+                return Paths.get(resource.toURI());
+            } catch (URISyntaxException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        for (Path directory = Paths.get("").toAbsolutePath(); directory != null; directory = directory.getParent()) {
+            Path file = directory.resolve("test").resolve("fixtures").resolve("specs").resolve(name);
+            if (Files.isRegularFile(file)) {
+                return file;
+            }
+        }
+        throw new IllegalArgumentException("No such fixture: " + name);
+    }
+
+    public static SpecReader read(String name) {
+        return new SpecReader(spec(name));
+    }
+
+    /**
+     * Asserts that the specifications have structurally equal globals, named types, ambient types and locations, in the same order.
+     */
+    public static void assertSameSpec(SpecReader expected, SpecReader actual) {
+        assertSameType("global", expected.getGlobal(), actual.getGlobal());
+        assertSameNamedTypes(expected.getNamedTypes(), actual.getNamedTypes());
+        assertSameNamedTypes(expected.getAmbientTypes(), actual.getAmbientTypes());
+        assertEquals(expected.getLocations().keySet(), actual.getLocations().keySet());
+        for (Map.Entry<String, Map<String, ElementInfo>> file : expected.getLocations().entrySet()) {
+            Map<String, ElementInfo> actualFile = actual.getLocations().get(file.getKey());
+            assertEquals(file.getValue().keySet(), actualFile.keySet());
+            for (Map.Entry<String, ElementInfo> location : file.getValue().entrySet()) {
+                ElementInfo info = actualFile.get(location.getKey());
+                assertEquals(location.getValue().kind, info.kind);
+                assertEquals(location.getValue().debug, info.debug);
+                assertSameType(file.getKey() + ":" + location.getKey(), location.getValue().type, info.type);
+            }
+        }
+    }
+
+    private static void assertSameNamedTypes(List<NamedType> expected, List<NamedType> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).qName, actual.get(i).qName);
+            assertSameType(String.join(".", expected.get(i).qName), expected.get(i).type, actual.get(i).type);
+        }
+    }
+
+    public static void assertSameType(String what, Type expected, Type actual) {
+        if (expected == null || actual == null) {
+            assertEquals(what, expected, actual);
+            return;
+        }
+        if (!Structural.equal(expected, actual)) {
+            fail(what + ": expected " + expected + " but was " + actual);
+        }
+    }
+
+    /**
+     * @return the type of the named type with the dot-separated qualified name
+     */
+    public static Type namedType(SpecReader reader, String qName) {
+        NamedType namedType = reader.getQualifiedNames().getNamedType(Arrays.asList(qName.split("\\.")));
+        assertNotNull(qName, namedType);
+        assertNotNull(qName, namedType.type);
+        return namedType.type;
+    }
+}
@@ -0,0 +1,144 @@
+package dk.au.cs.casa.typescript;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.assertSameSpec;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the stream, reader and channel entry points, and the detection of gzipped input.
+ */
+public class SpecInputTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] fixture() throws IOException {
+        return Files.readAllBytes(SpecFixtures.spec(ALL_KINDS));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A stream that does not support mark and records whether it was closed.
+     */
+    private static final class UnmarkableStream extends FilterInputStream {
+        private boolean closed;
+
+        private UnmarkableStream(byte[] bytes) {
+            super(new ByteArrayInputStream(bytes));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
+    @Test
+    public void gzippedAndPlainFilesAreTheSame() throws IOException {
+        Path gzipped = folder.newFile("all-kinds.json.gz").toPath();
+        Files.write(gzipped, gzip(fixture()));
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), new SpecReader(gzipped));
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), new SpecReaderFactory().read(gzipped));
+    }
+
+    @Test
+    public void gzippedAndPlainStreamsAreTheSame() throws IOException {
+        SpecReader expected = SpecFixtures.read(ALL_KINDS);
+        assertSameSpec(expected, new SpecReader(new ByteArrayInputStream(fixture())));
+        assertSameSpec(expected, new SpecReader(new ByteArrayInputStream(gzip(fixture()))));
+        assertSameSpec(expected, new SpecReader(new UnmarkableStream(fixture())));
+        assertSameSpec(expected, new SpecReader(new UnmarkableStream(gzip(fixture()))));
+    }
+
+    @Test
+    public void streamsAreNotClosed() throws IOException {
+        UnmarkableStream plain = new UnmarkableStream(fixture());
+        new SpecReader(plain);
+        assertFalse(plain.closed);
+        UnmarkableStream gzipped = new UnmarkableStream(gzip(fixture()));
+        new SpecReaderFactory().read(gzipped);
+        assertFalse(gzipped.closed);
+    }
+
+    @Test
+    public void channelsAndReaders() throws IOException {
+        SpecReader expected = SpecFixtures.read(ALL_KINDS);
+        assertSameSpec(expected, new SpecReader(Channels.newChannel(new ByteArrayInputStream(fixture()))));
+        assertSameSpec(expected, new SpecReader(Channels.newChannel(new ByteArrayInputStream(gzip(fixture())))));
+        assertSameSpec(expected, SpecReader.fromChannel(Channels.newChannel(new ByteArrayInputStream(fixture()))));
+        assertSameSpec(expected, SpecReader.fromChannel(Channels.newChannel(new ByteArrayInputStream(gzip(fixture())))));
+        assertSameSpec(expected, new SpecReaderFactory().read(Channels.newChannel(new ByteArrayInputStream(gzip(fixture())))));
+        String json = new String(fixture(), StandardCharsets.UTF_8);
+        assertSameSpec(expected, new SpecReader(new StringReader(json)));
+        assertSameSpec(expected, new SpecReader(json));
+        assertSameSpec(expected, new SpecReaderFactory().read(new StringReader(json)));
+        assertSameSpec(expected, new SpecReaderFactory().read(json));
+    }
+
+    /**
+     * Only the two magic bytes select decompression, and sniffing them does not consume input.
+     */
+    @Test
+    public void decompressSniffsTheMagicBytes() throws IOException {
+        byte[] gzipped = gzip("{}".getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), SpecInput.readFully(new ByteArrayInputStream(gzipped)));
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), SpecInput.readFully(new UnmarkableStream(gzipped)));
+
+        byte[] onlyFirstMagicByte = {gzipped[0], '{', '}'};
+        assertArrayEquals(onlyFirstMagicByte, SpecInput.readFully(new ByteArrayInputStream(onlyFirstMagicByte)));
+        assertArrayEquals(new byte[]{gzipped[0]}, SpecInput.readFully(new ByteArrayInputStream(new byte[]{gzipped[0]})));
+        assertArrayEquals(new byte[0], SpecInput.readFully(new ByteArrayInputStream(new byte[0])));
+
+        InputStream decompressed = SpecInput.decompress(new UnmarkableStream("[1]".getBytes(StandardCharsets.UTF_8)));
+        assertEquals('[', decompressed.read());
+    }
+
+    @Test
+    public void nonAsciiTextIsDecodedAsUtf8() throws IOException {
+        String json = "{\"data\": [], \"globals\": [], \"types\": [], \"ambient\": [], \"locations\": {\"\u00e6\u00f8\u00e5.ts\": {}}}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        assertEquals(new SpecReader(json).getLocations().keySet(), new SpecReader(new ByteArrayInputStream(gzip(bytes))).getLocations().keySet());
+        assertEquals("\u00e6\u00f8\u00e5.ts", new SpecReader(new ByteArrayInputStream(bytes)).getLocations().keySet().iterator().next());
+    }
+
+    @Test
+    public void streamWithOptionsIsFrozen() throws IOException {
+        LoadOptions options = new LoadOptions();
+        options.setFreeze(true);
+        SpecReader reader = new SpecReader(new ByteArrayInputStream(fixture()), options);
+        assertTrue(reader.isFrozen());
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), reader);
+        assertFalse(new SpecReader(new ByteArrayInputStream(fixture()), new LoadOptions()).isFrozen());
+    }
+}
@@ -0,0 +1,62 @@
+package dk.au.cs.casa.typescript;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Compares the load time and the allocation of loading JSON specifications with those of their binary encoding.
+ * <p>
+ * Usage: {@code SpecLoadBenchmark <spec.json>...}, e.g. the files produced by bin/make-standard-files.sh
+ */
+public class SpecLoadBenchmark {
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            Path json = Paths.get(arg);
+            Path binary = Files.createTempFile(SpecLoadBenchmark.class.getSimpleName(), ".bin");
+            try {
+                SpecConverter.convert(json, binary);
+                System.out.printf("%s: %d bytes JSON, %d bytes binary%n", json.getFileName(), Files.size(json), Files.size(binary));
+                report("json", () -> new SpecReader(json));
+                report("binary", () -> BinarySpecReader.read(binary));
+            } finally {
+                Files.delete(binary);
+            }
+        }
+    }
+
+    private static void report(String name, Runnable load) {
+        for (int i = 0; i < WARMUP; i++) {
+            load.run();
+        }
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        long allocated = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            load.run();
+            long time = System.nanoTime() - start;
+            allocated += allocatedBytes() - allocatedBefore;
+            best = Math.min(best, time);
+            total += time;
+        }
+        System.out.printf("  %-8s best %6.1f ms, mean %6.1f ms, %6.1f MB allocated per load%n", name, best / 1e6, total / 1e6 / ITERATIONS, allocated / 1e6 / ITERATIONS);
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or 0 if the JVM does not count them
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
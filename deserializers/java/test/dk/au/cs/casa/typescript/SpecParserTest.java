@@ -0,0 +1,161 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.SpecReader.ElementInfo;
+import dk.au.cs.casa.typescript.SpecReader.NamedType;
+import dk.au.cs.casa.typescript.types.ClassType;
+import dk.au.cs.casa.typescript.types.InterfaceType;
+import dk.au.cs.casa.typescript.types.ReferenceType;
+import dk.au.cs.casa.typescript.types.Signature;
+import dk.au.cs.casa.typescript.types.SimpleType;
+import dk.au.cs.casa.typescript.types.SimpleTypeKind;
+import dk.au.cs.casa.typescript.types.Type;
+import dk.au.cs.casa.typescript.types.UnionType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the streaming parser against hand-written expectations of the fixture.
+ */
+public class SpecParserTest {
+    private static final Type STRING = SimpleType.get(SimpleTypeKind.String);
+    private static final Type NUMBER = SimpleType.get(SimpleTypeKind.Number);
+
+    private static List<List<String>> qNames(List<NamedType> namedTypes) {
+        List<List<String>> qNames = new ArrayList<>();
+        for (NamedType namedType : namedTypes) {
+            qNames.add(namedType.qName);
+        }
+        return qNames;
+    }
+
+    @Test
+    public void globalsNamedTypesAndAmbientTypes() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        Map<String, Type> globals = reader.getGlobal().getDeclaredProperties();
+        assertEquals(new HashSet<>(Arrays.asList("document", "Array", "Foo", "u")), globals.keySet());
+        assertSame(namedType(reader, "Document"), globals.get("document"));
+        assertSame(namedType(reader, "Array"), globals.get("Array"));
+        assertSame(namedType(reader, "Foo"), globals.get("Foo"));
+        assertEquals(Arrays.asList(STRING, SimpleType.get(SimpleTypeKind.Null), namedType(reader, "All.T12")), ((UnionType) globals.get("u")).getElements());
+
+        List<List<String>> qNames = qNames(reader.getNamedTypes());
+        assertEquals(41, qNames.size());
+        assertEquals(Arrays.asList(Collections.singletonList("Document"), Arrays.asList("NodeJS", "Process"), Arrays.asList("NodeJS", "Global"),
+                Collections.singletonList("Array"), Collections.singletonList("Foo"), Collections.singletonList("Bar"), Arrays.asList("All", "T0")), qNames.subList(0, 7));
+        assertEquals(Arrays.asList("All", "T34"), qNames.get(40));
+        assertSame(namedType(reader, "NodeJS.Global"), namedType(reader, "All.T34"));
+
+        assertEquals(Collections.singletonList(Collections.singletonList("fs")), qNames(reader.getAmbientTypes()));
+        assertSame(namedType(reader, "NodeJS.Process"), reader.getAmbientTypes().get(0).type);
+    }
+
+    @Test
+    public void fieldsReferToTheResolvedTypes() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        InterfaceType document = (InterfaceType) namedType(reader, "Document");
+        assertEquals(Collections.singletonList(namedType(reader, "NodeJS.Process")), document.getBaseTypes());
+        assertEquals(Arrays.asList("length", "self", "name", "onload"), new ArrayList<>(document.getDeclaredProperties().keySet()));
+        assertSame(document, document.getDeclaredProperties().get("self"));
+        assertEquals(Collections.singletonList("length"), document.getReadonlyDeclarations());
+        assertNull(document.getDeclaredStringIndexType());
+        assertSame(STRING, document.getDeclaredNumberIndexType());
+
+        ReferenceType reference = (ReferenceType) namedType(reader, "All.T7");
+        assertSame(namedType(reader, "Array"), reference.getTarget());
+        assertEquals(Collections.singletonList(STRING), reference.getTypeArguments());
+
+        ClassType foo = (ClassType) namedType(reader, "Foo");
+        assertSame(foo, foo.getTarget());
+        assertEquals(Arrays.asList("id", "label"), new ArrayList<>(foo.getInstanceProperties().keySet()));
+        assertEquals(Collections.singletonList("create"), foo.getStaticReadonlyProperties());
+        assertEquals(Collections.singletonList("id"), foo.getInstanceReadOnlyProperties());
+    }
+
+    @Test
+    public void signatures() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        Signature call = ((InterfaceType) namedType(reader, "Document")).getDeclaredCallSignatures().get(0);
+        assertEquals(1, call.getParameters().size());
+        assertEquals("x", call.getParameters().get(0).getName());
+        assertSame(NUMBER, call.getParameters().get(0).getType());
+        assertSame(namedType(reader, "Document"), call.getResolvedReturnType());
+        assertEquals(1, call.getMinArgumentCount());
+        assertFalse(call.isHasRestParameter());
+        assertTrue(call.getUnionSignatures().isEmpty());
+        assertSame(NUMBER, call.getIsolatedSignatureType());
+
+        Signature generic = ((InterfaceType) namedType(reader, "All.T9")).getDeclaredCallSignatures().get(0);
+        assertEquals(Collections.singletonList(namedType(reader, "All.T6")), generic.getTypeParameters());
+        assertSame(namedType(reader, "All.T7"), generic.getParameters().get(0).getType());
+        assertSame(namedType(reader, "All.T10"), generic.getResolvedReturnType());
+        assertTrue(generic.isHasRestParameter());
+        assertSame(STRING, generic.getTarget().getResolvedReturnType());
+        assertTrue(generic.getTarget().getParameters().isEmpty());
+
+        Signature constructor = ((ClassType) namedType(reader, "Foo")).getConstructors().get(0);
+        assertSame(STRING, constructor.getParameters().get(0).getType());
+        assertNull(constructor.getResolvedReturnType());
+    }
+
+    @Test
+    public void locations() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        assertEquals(new HashSet<>(Arrays.asList("a.ts", "b.ts")), reader.getLocations().keySet());
+        Map<String, ElementInfo> a = reader.getLocations().get("a.ts");
+        assertEquals(5, a.size());
+        ElementInfo declaration = a.get("2:0-4:1");
+        assertSame(namedType(reader, "Foo"), declaration.type);
+        assertEquals("ClassDeclaration", declaration.kind);
+        assertEquals("implement me", declaration.debug);
+        ElementInfo x = reader.getLocations().get("b.ts").get("0:0-0:5");
+        assertSame(NUMBER, x.type);
+        assertEquals("Identifier", x.kind);
+        assertEquals("x", x.debug);
+    }
+
+    /**
+     * The named types, globals and locations refer to ids of "data" that come later in the document, and the first element refers to the second.
+     */
+    @Test
+    public void sectionsBeforeTheDataAreResolvedAfterIt() {
+        SpecReader reader = new SpecReader("{\"globals\": [{\"qName\": [\"g\"], \"type\": 1}],"
+                + "\"types\": [{\"qName\": [\"R\"], \"type\": 0}, {\"qName\": [\"Missing\"], \"type\": -1}],"
+                + "\"ambient\": [{\"qName\": [\"m\"], \"type\": 1}],"
+                + "\"locations\": {\"c.ts\": {\"0:0-0:1\": {\"type\": 0, \"kind\": \"Identifier\", \"debug\": \"r\"}}},"
+                + "\"data\": [{\"kind\": \"Reference\", \"target\": 1, \"typeArguments\": []},"
+                + " {\"kind\": \"Interface\", \"typeParameters\": [], \"baseTypes\": [], \"declaredProperties\": {\"self\": 0}, \"declaredCallSignatures\": [],"
+                + " \"declaredConstructSignatures\": [], \"declaredStringIndexType\": -1, \"declaredNumberIndexType\": -1}]}");
+        Type reference = reader.getNamedTypes().get(0).type;
+        Type declaration = reader.getGlobal().getDeclaredProperties().get("g");
+        assertSame(declaration, ((ReferenceType) reference).getTarget());
+        assertSame(reference, ((InterfaceType) declaration).getDeclaredProperties().get("self"));
+        assertNull(reader.getNamedTypes().get(1).type);
+        assertSame(declaration, reader.getAmbientTypes().get(0).type);
+        assertSame(reference, reader.getLocations().get("c.ts").get("0:0-0:1").type);
+    }
+
+    @Test
+    public void idsWithoutATypeAreRejected() {
+        try {
+            new SpecReader("{\"data\": [{\"kind\": \"Union\", \"elements\": [5]}], \"globals\": [], \"types\": [], \"ambient\": [], \"locations\": {}}");
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("5"));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.types.Type;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.assertSameSpec;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SpecReaderFactoryTest {
+    private static final int THREADS = 8;
+    private static final int LOADS_PER_THREAD = 10;
+
+    /**
+     * @return the specifications loaded by several threads that start together
+     */
+    private static List<SpecReader> readConcurrently(SpecReaderFactory factory) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<SpecReader>>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit((Callable<List<SpecReader>>) () -> {
+                    start.await();
+                    List<SpecReader> readers = new ArrayList<>();
+                    for (int i = 0; i < LOADS_PER_THREAD; i++) {
+                        readers.add(factory.read(SpecFixtures.spec(ALL_KINDS)));
+                    }
+                    return readers;
+                }));
+            }
+            start.countDown();
+            List<SpecReader> readers = new ArrayList<>();
+            for (Future<List<SpecReader>> future : futures) {
+                readers.addAll(future.get());
+            }
+            return readers;
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void concurrentLoadsAreIndependent() throws Exception {
+        SpecReader expected = SpecFixtures.read(ALL_KINDS);
+        List<SpecReader> readers = readConcurrently(new SpecReaderFactory());
+        assertEquals(THREADS * LOADS_PER_THREAD, readers.size());
+        Set<Type> documents = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (SpecReader reader : readers) {
+            assertSameSpec(expected, reader);
+            assertTrue(documents.add(namedType(reader, "Document")));
+        }
+    }
+
+    @Test
+    public void concurrentParallelAndFrozenLoads() throws Exception {
+        LoadOptions options = new LoadOptions();
+        options.setParallel(true);
+        options.setFreeze(true);
+        SpecReader expected = SpecFixtures.read(ALL_KINDS);
+        for (SpecReader reader : readConcurrently(new SpecReaderFactory(options))) {
+            assertTrue(reader.isFrozen());
+            assertSameSpec(expected, reader);
+        }
+    }
+
+    @Test
+    public void concurrentPrunedLoads() throws Exception {
+        LoadOptions options = new LoadOptions();
+        options.setRoots(Collections.singletonList("document"));
+        options.setSkipLocations(true);
+        Set<Set<String>> globals = new HashSet<>();
+        for (SpecReader reader : readConcurrently(new SpecReaderFactory(options))) {
+            globals.add(reader.getGlobal().getDeclaredProperties().keySet());
+            assertTrue(reader.getLocations().isEmpty());
+        }
+        assertEquals(1, globals.size());
+        assertFalse(globals.iterator().next().contains("Foo"));
+    }
+
+    /**
+     * The factory copies the options, so changing them afterwards, or changing the copy it hands out, does not affect its loads.
+     */
+    @Test
+    public void optionsAreCopied() {
+        LoadOptions options = new LoadOptions();
+        SpecReaderFactory factory = new SpecReaderFactory(options);
+        options.setFreeze(true);
+        options.setRoots(Collections.singletonList("document"));
+        factory.getOptions().setSkipLocations(true);
+
+        assertNotSame(factory.getOptions(), factory.getOptions());
+        assertFalse(factory.getOptions().isFreeze());
+        assertNull(factory.getOptions().getRoots());
+        SpecReader reader = factory.read(SpecFixtures.spec(ALL_KINDS));
+        assertFalse(reader.isFrozen());
+        assertTrue(reader.getGlobal().getDeclaredProperties().containsKey("Foo"));
+        assertFalse(reader.getLocations().isEmpty());
+    }
+}
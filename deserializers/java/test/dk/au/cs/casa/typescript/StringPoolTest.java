@@ -0,0 +1,132 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.types.InterfaceType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StringPoolTest {
+    @Test
+    public void countersOfLookupsHitsAndSavedBytes() {
+        StringPool pool = new StringPool();
+        String first = new String("length");
+        String second = new String("length");
+        assertSame(first, pool.intern(first));
+        assertEquals(1, pool.getLookups());
+        assertEquals(0, pool.getHits());
+        assertEquals(0, pool.getSavedBytes());
+
+        assertSame(first, pool.intern(second));
+        assertEquals(2, pool.getLookups());
+        assertEquals(1, pool.getHits());
+        // 6 characters take 12 bytes, padded to 16
+        assertEquals(24 + 16 + 16, pool.getSavedBytes());
+
+        assertSame(first, pool.intern(first));
+        pool.intern("");
+        pool.intern("");
+        assertEquals(5, pool.getLookups());
+        assertEquals(3, pool.getHits());
+        assertEquals(2 * (24 + 16 + 16) + 24 + 16, pool.getSavedBytes());
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void nullIsNotCounted() {
+        StringPool pool = new StringPool();
+        assertNull(pool.intern(null));
+        assertEquals(0, pool.getLookups());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void sharedPoolDeduplicatesAcrossLoads() {
+        LoadOptions options = new LoadOptions();
+        StringPool pool = new StringPool();
+        options.setStringPool(pool);
+        SpecReaderFactory factory = new SpecReaderFactory(options);
+
+        SpecReader first = factory.read(SpecFixtures.spec(ALL_KINDS));
+        int size = pool.size();
+        long lookups = pool.getLookups();
+        assertTrue(pool.getHits() > 0);
+        SpecReader second = factory.read(SpecFixtures.spec(ALL_KINDS));
+        assertEquals(size, pool.size());
+        assertEquals(2 * lookups, pool.getLookups());
+        assertTrue(pool.getHits() >= lookups);
+
+        String name = ((InterfaceType) namedType(first, "Document")).getDeclaredProperties().keySet().iterator().next();
+        assertSame(name, ((InterfaceType) namedType(second, "Document")).getDeclaredProperties().keySet().iterator().next());
+        assertSame(first.getNamedTypes().get(0).qName.get(0), second.getNamedTypes().get(0).qName.get(0));
+    }
+
+    @Test
+    public void debugTextsArePooledWhenTheirFileIsDecoded() {
+        LoadOptions options = new LoadOptions();
+        StringPool pool = new StringPool();
+        options.setStringPool(pool);
+        SpecReaderFactory factory = new SpecReaderFactory(options);
+        SpecReader first = factory.read(SpecFixtures.spec(ALL_KINDS));
+        SpecReader second = factory.read(SpecFixtures.spec(ALL_KINDS));
+
+        long lookups = pool.getLookups();
+        String debug = first.getLocations().get("a.ts").get("1:4-1:9").debug;
+        assertEquals("foo", debug);
+        assertEquals(lookups + 5, pool.getLookups());
+        assertSame(debug, first.getLocations().get("a.ts").get("1:0-1:20").debug);
+        assertSame(debug, second.getLocations().get("a.ts").get("1:4-1:9").debug);
+    }
+
+    @Test
+    public void eachLoadHasItsOwnPoolByDefault() {
+        SpecReader first = SpecFixtures.read(ALL_KINDS);
+        SpecReader second = SpecFixtures.read(ALL_KINDS);
+        assertEquals(first.getNamedTypes().get(0).qName, second.getNamedTypes().get(0).qName);
+        assertNotSame(first.getNamedTypes().get(0).qName.get(0), second.getNamedTypes().get(0).qName.get(0));
+    }
+
+    @Test
+    public void countersAreExactUnderConcurrentLookups() throws Exception {
+        StringPool pool = new StringPool();
+        int threads = 4;
+        int count = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < count; i++) {
+                        pool.intern("s" + i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        assertEquals(count, pool.size());
+        assertEquals(threads * count, pool.getLookups());
+        assertEquals((threads - 1) * count, pool.getHits());
+    }
+}
@@ -0,0 +1,207 @@
+package dk.au.cs.casa.typescript;
+
+import dk.au.cs.casa.typescript.types.DelayedType;
+import dk.au.cs.casa.typescript.types.InterfaceType;
+import dk.au.cs.casa.typescript.types.Type;
+import dk.au.cs.casa.typescript.types.TypeParameterType;
+import dk.au.cs.casa.typescript.types.UnionType;
+import dk.au.cs.casa.typescript.types.UnresolvedType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class TypeResolverTest {
+    @Test
+    public void resolvesRegisteredIds() {
+        TypeResolver resolver = new TypeResolver(4);
+        Type a = new TypeParameterType(0);
+        Type b = new TypeParameterType(3);
+        resolver.register(0, a);
+        resolver.register(3, b);
+        resolver.register(1, null);
+        assertSame(a, resolver.resolve(0));
+        assertSame(b, resolver.resolve(3));
+        assertNull(resolver.resolve(1));
+        assertNull(resolver.resolve(-1));
+    }
+
+    @Test
+    public void tableGrowsBeyondTheExpectedSize() {
+        TypeResolver resolver = new TypeResolver(1);
+        Type[] types = new Type[1000];
+        for (int id = types.length - 1; id >= 0; id--) {
+            types[id] = new TypeParameterType(id);
+            resolver.register(id, types[id]);
+        }
+        for (int id = 0; id < types.length; id++) {
+            assertSame(types[id], resolver.resolve(id));
+        }
+        assertEquals(1000, resolver.newTypeIds().getFirst());
+    }
+
+    @Test
+    public void unknownAndReusedIdsAreRejected() {
+        TypeResolver resolver = new TypeResolver(4);
+        resolver.register(0, new TypeParameterType(0));
+        try {
+            resolver.resolve(2);
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+        try {
+            resolver.resolve(10);
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+        try {
+            resolver.register(0, new TypeParameterType(0));
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+        try {
+            resolver.register(-1, new TypeParameterType());
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void idsAfterTheLastRegisteredId() {
+        TypeResolver resolver = new TypeResolver(100);
+        assertEquals(0, resolver.newTypeIds().getFirst());
+        resolver.register(5, null);
+        resolver.register(2, new TypeParameterType(2));
+        assertEquals(6, resolver.newTypeIds().getFirst());
+        assertEquals(6, resolver.newTypeIds().next());
+    }
+
+    /**
+     * The decoder is only asked for ids that are not registered yet, and it may resolve the ids of the types it refers to.
+     */
+    @Test
+    public void decoderIsCalledOncePerId() {
+        int[] decodes = new int[3];
+        TypeResolver[] resolver = new TypeResolver[1];
+        resolver[0] = new TypeResolver(3, id -> {
+            decodes[id]++;
+            UnionType union = new UnionType(id);
+            resolver[0].register(id, union);
+            union.setElements(Arrays.asList(resolver[0].resolve((id + 1) % 3)));
+            return union;
+        });
+        UnionType first = (UnionType) resolver[0].resolve(0);
+        assertSame(first, resolver[0].resolve(0));
+        UnionType second = (UnionType) first.getElements().get(0);
+        assertSame(resolver[0].resolve(1), second);
+        assertSame(first, ((UnionType) second.getElements().get(0)).getElements().get(0));
+        assertEquals(Arrays.asList(1, 1, 1), Arrays.asList(decodes[0], decodes[1], decodes[2]));
+        assertEquals(3, resolver[0].newTypeIds().getFirst());
+        try {
+            resolver[0].canonicalize();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        for (Runnable register : Arrays.<Runnable>asList(() -> resolver[0].register(1, second), () -> resolver[0].register(3, second))) {
+            try {
+                register.run();
+                fail();
+            } catch (RuntimeException e) {
+                // the id is taken, or not below the size of the resolver
+            }
+        }
+    }
+
+    @Test
+    public void distinctIdsCanBeRegisteredConcurrently() throws Exception {
+        int count = 10000;
+        TypeResolver resolver = new TypeResolver(count);
+        Type[] types = new Type[count];
+        for (int id = 0; id < count; id++) {
+            types[id] = new TypeParameterType(id);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                int first = thread;
+                futures.add(executor.submit(() -> {
+                    for (int id = first; id < count; id += 4) {
+                        resolver.register(id, types[id]);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        for (int id = 0; id < count; id++) {
+            assertSame(types[id], resolver.resolve(id));
+        }
+    }
+
+    /**
+     * The visitor replaces the placeholders of the fields, and keeps the lists and maps whose elements do not change.
+     */
+    @Test
+    public void visitorReplacesPlaceholders() {
+        TypeResolver resolver = new TypeResolver(2);
+        InterfaceType target = new InterfaceType(0);
+        resolver.register(0, target);
+        Type parameter = new TypeParameterType(1);
+        resolver.register(1, parameter);
+
+        UnionType union = new UnionType(2);
+        union.setElements(Arrays.asList(parameter, new UnresolvedType(0)));
+        TypeResolver.ResolverVisitor visitor = new TypeResolver.ResolverVisitor(type -> type instanceof UnresolvedType ? resolver.resolve(((UnresolvedType) type).getId()) : type);
+        union.accept(visitor);
+        assertEquals(Arrays.asList(parameter, target), union.getElements());
+
+        List<Type> elements = union.getElements();
+        union.accept(visitor);
+        assertSame(elements, union.getElements());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void resolveAllReplacesThePlaceholdersOfRegisteredTypes() {
+        TypeResolver resolver = new TypeResolver(3);
+        InterfaceType target = new InterfaceType(0);
+        resolver.register(0, target);
+        UnionType union = new UnionType(1);
+        union.setElements(Arrays.asList(new UnresolvedType(0), new DelayedType(() -> target)));
+        resolver.register(1, union);
+        resolver.resolveAll();
+        assertEquals(Arrays.asList(target, target), union.getElements());
+        try {
+            resolver.register(2, new TypeParameterType(2));
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+        try {
+            resolver.resolveAll();
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AssignabilityCheckerTest {
+    private final SpecReader reader = SpecFixtures.read(ALL_KINDS);
+    private final AssignabilityChecker checker = reader.newAssignabilityChecker();
+
+    private Type t(int index) {
+        return namedType(reader, "All.T" + index);
+    }
+
+    @Test
+    public void primitivesAndLiterals() {
+        Type string = t(1);
+        Type number = t(2);
+        assertTrue(checker.isAssignable(t(30), string));
+        assertTrue(checker.isAssignable(t(12), t(30)));
+        assertFalse(checker.isAssignable(string, t(30)));
+        assertTrue(checker.isAssignable(t(13), number));
+        assertFalse(checker.isAssignable(t(13), string));
+        assertTrue(checker.isAssignable(t(14), t(23)));
+        assertFalse(checker.isAssignable(string, number));
+        assertTrue(checker.isAssignable(t(28), string));
+        assertTrue(checker.isAssignable(string, t(0)));
+        assertTrue(checker.isAssignable(t(0), number));
+    }
+
+    @Test
+    public void unions() {
+        assertTrue(checker.isAssignable(t(31), t(8)));
+        assertTrue(checker.isAssignable(t(8), t(31)));
+        assertTrue(checker.isAssignable(t(30), t(8)));
+        assertFalse(checker.isAssignable(t(2), t(8)));
+        assertFalse(checker.isAssignable(t(31), t(2)));
+    }
+
+    @Test
+    public void nullIsAssignableToEverythingUnlessStrict() {
+        Type string = t(1);
+        assertTrue(checker.isAssignable(t(11), string));
+        assertTrue(checker.isAssignable(t(8), string));
+        checker.setStrictNullChecks(true);
+        assertFalse(checker.isAssignable(t(11), string));
+        assertFalse(checker.isAssignable(t(8), string));
+        assertTrue(checker.isAssignable(t(11), t(31)));
+    }
+
+    @Test
+    public void declarationsAreAssignableToWhatTheyInheritFrom() {
+        Type global = namedType(reader, "NodeJS.Global");
+        Type document = namedType(reader, "Document");
+        assertTrue(checker.isAssignable(global, document));
+        assertTrue(checker.isAssignable(global, namedType(reader, "NodeJS.Process")));
+        assertFalse(checker.isAssignable(document, global));
+
+        Type barInstance = new ClassInstanceType(namedType(reader, "Bar"));
+        assertTrue(checker.isAssignable(barInstance, t(18)));
+        assertFalse(checker.isAssignable(t(18), barInstance));
+    }
+
+    @Test
+    public void intersections() {
+        assertTrue(checker.isAssignable(t(15), namedType(reader, "NodeJS.Process")));
+        assertTrue(checker.isAssignable(t(15), namedType(reader, "Document")));
+        assertFalse(checker.isAssignable(namedType(reader, "NodeJS.Process"), t(15)));
+    }
+
+    /**
+     * @return an interface with a property that refers to the interface itself, and the given properties
+     */
+    private static InterfaceType recursive(String... properties) {
+        InterfaceType type = SpecReader.makeEmptySyntheticInterfaceType();
+        type.getDeclaredProperties().put("self", type);
+        for (String property : properties) {
+            type.getDeclaredProperties().put(property, SimpleType.get(SimpleTypeKind.String));
+        }
+        return type;
+    }
+
+    @Test
+    public void recursiveTypesAreComparedByTheirMembers() {
+        AssignabilityChecker checker = new AssignabilityChecker(new MemberResolver(), null);
+        Type a = recursive("name");
+        Type b = recursive("name");
+        Type c = recursive();
+        assertTrue(checker.isAssignable(a, b));
+        assertTrue(checker.isAssignable(b, a));
+        assertTrue(checker.isAssignable(a, c));
+        assertFalse(checker.isAssignable(c, a));
+    }
+
+    @Test
+    public void placeholdersAreRelatedToEverything() {
+        assertTrue(checker.isAssignable(new UnresolvedType(3), t(1)));
+        assertTrue(checker.isAssignable(t(2), new UnresolvedType(3)));
+        assertTrue(checker.isAssignable(t(22), namedType(reader, "Document")));
+    }
+
+    @Test
+    public void oneSourceAgainstManyTargets() {
+        BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(2);
+        assertEquals(expected, checker.getAssignableTargets(t(30), Arrays.asList(t(1), t(2), t(8))));
+    }
+}
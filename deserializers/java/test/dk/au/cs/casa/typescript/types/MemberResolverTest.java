@@ -0,0 +1,139 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MemberResolverTest {
+    private static List<String> names(MemberTable table) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < table.size(); i++) {
+            names.add(table.nameAt(i));
+        }
+        return names;
+    }
+
+    private static InterfaceType declare(String property) {
+        InterfaceType type = new InterfaceType();
+        type.setTypeParameters(new ArrayList<>());
+        type.setBaseTypes(new ArrayList<>());
+        Map<String, Type> properties = new LinkedHashMap<>();
+        properties.put(property, SimpleType.get(SimpleTypeKind.String));
+        type.setDeclaredProperties(properties);
+        type.setDeclaredCallSignatures(new ArrayList<>());
+        type.setDeclaredConstructSignatures(new ArrayList<>());
+        type.setReadonlyDeclarations(new ArrayList<>());
+        return type;
+    }
+
+    @Test
+    public void classesInheritFromTheirBaseClasses() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        MemberResolver members = reader.getMembers();
+        ClassType foo = (ClassType) namedType(reader, "Foo");
+        ClassType bar = (ClassType) namedType(reader, "Bar");
+
+        MemberTable instance = members.getInstanceMembers(bar);
+        assertEquals(Arrays.asList("extra", "id", "label"), names(instance));
+        assertSame(namedType(reader, "All.T31"), instance.getProperty("extra"));
+        assertSame(bar, instance.getOwner("extra"));
+        assertSame(foo, instance.getOwner("id"));
+        assertTrue(instance.isReadonly("id"));
+        assertFalse(instance.isReadonly("label"));
+
+        MemberTable statics = members.getStaticMembers(bar);
+        assertEquals(Collections.singletonList("create"), names(statics));
+        assertTrue(statics.isReadonly("create"));
+        assertEquals(1, statics.getConstructSignatures().size());
+        assertSame(statics, members.getMembers(bar));
+        assertSame(members.getInstanceMembers(foo), members.getMembers(namedType(reader, "All.T18")));
+    }
+
+    @Test
+    public void interfacesInheritFromAllTheirBaseTypes() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        MemberResolver members = reader.getMembers();
+        Type document = namedType(reader, "Document");
+        MemberTable global = members.getMembers(namedType(reader, "NodeJS.Global"));
+
+        List<String> names = names(global);
+        assertEquals(Arrays.asList("tag", "kids"), names.subList(0, 2));
+        assertTrue(names.containsAll(Arrays.asList("length", "self", "name", "onload", "toString")));
+        assertSame(document, global.getOwner("length"));
+        assertSame(namedType(reader, "NodeJS.Process"), global.getOwner("toString"));
+        assertTrue(global.isReadonly("length"));
+        assertSame(namedType(reader, "NodeJS.Global"), global.getProperty("kids"));
+        assertEquals(1, global.getCallSignatures().size());
+        assertSame(members.getMembers(document).getNumberIndexType(), global.getNumberIndexType());
+        assertSame(namedType(reader, "All.T2"), global.getStringIndexType());
+        assertNull(members.getMembers(namedType(reader, "All.T8")));
+    }
+
+    @Test
+    public void tablesAreComputedOnce() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        Type global = namedType(reader, "NodeJS.Global");
+        assertSame(reader.getMembers().getMembers(global), reader.getMembers().getMembers(global));
+        assertSame(reader.getMembers().getMembers(namedType(reader, "Array")), reader.getMembers().getMembers(namedType(reader, "All.T7")));
+    }
+
+    /**
+     * A and B and C are on a cycle, C also inherits from E, and both A and E from D.
+     */
+    @Test
+    public void cyclesDoNotDependOnTheOrderOfResolution() {
+        for (boolean reversed : new boolean[]{false, true}) {
+            InterfaceType a = declare("a");
+            InterfaceType b = declare("b");
+            InterfaceType c = declare("c");
+            InterfaceType d = declare("d");
+            InterfaceType e = declare("e");
+            a.getBaseTypes().addAll(Arrays.asList(b, d));
+            b.getBaseTypes().add(c);
+            c.getBaseTypes().addAll(Arrays.asList(a, e));
+            e.getBaseTypes().add(d);
+            List<InterfaceType> order = Arrays.asList(a, b, c, d, e);
+            if (reversed) {
+                Collections.reverse(order);
+            }
+            MemberResolver members = new MemberResolver();
+            for (InterfaceType type : order) {
+                members.getMembers(type);
+            }
+            assertEquals(Arrays.asList("a", "d"), names(members.getMembers(a)));
+            assertEquals(Collections.singletonList("b"), names(members.getMembers(b)));
+            assertEquals(Arrays.asList("c", "e", "d"), names(members.getMembers(c)));
+            assertEquals(Collections.singletonList("d"), names(members.getMembers(d)));
+            assertEquals(Arrays.asList("e", "d"), names(members.getMembers(e)));
+        }
+    }
+
+    @Test
+    public void deepHierarchiesAreResolved() {
+        InterfaceType leaf = declare("p0");
+        for (int i = 1; i < 2000; i++) {
+            InterfaceType type = declare("p" + i);
+            type.getBaseTypes().add(leaf);
+            leaf = type;
+        }
+        MemberTable table = new MemberResolver().getMembers(leaf);
+        assertEquals(2000, table.size());
+        assertEquals("p1999", table.nameAt(0));
+        assertEquals("p0", table.nameAt(1999));
+    }
+}
@@ -0,0 +1,318 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PropertyTableTest {
+    private static final Type STRING = SimpleType.get(SimpleTypeKind.String);
+    private static final Type NUMBER = SimpleType.get(SimpleTypeKind.Number);
+
+    /**
+     * @return the names p0 ... p(count - 1)
+     */
+    private static List<String> names(int count) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add("p" + i);
+        }
+        return names;
+    }
+
+    /**
+     * @return distinct names that all have the same hash code, as "Aa" and "BB" do
+     */
+    private static List<String> colliding(int halves) {
+        List<String> names = Collections.singletonList("");
+        for (int i = 0; i < halves; i++) {
+            List<String> longer = new ArrayList<>();
+            for (String name : names) {
+                longer.add(name + "Aa");
+                longer.add(name + "BB");
+            }
+            names = longer;
+        }
+        return names;
+    }
+
+    /**
+     * @return a table of the names, the type of the name at index i is a number literal i
+     */
+    private static PropertyTable table(List<String> names) {
+        Type[] types = new Type[names.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = NumberLiteral.of(i);
+        }
+        return new PropertyTable(names.toArray(new String[0]), types);
+    }
+
+    private static void assertLookups(PropertyTable table, List<String> names) {
+        assertEquals(names.size(), table.size());
+        assertEquals(names, new ArrayList<>(table.keySet()));
+        for (int i = 0; i < names.size(); i++) {
+            assertEquals(i, table.indexOf(names.get(i)));
+            assertEquals(names.get(i), table.nameAt(i));
+            assertTrue(table.containsKey(names.get(i)));
+        }
+        assertEquals(-1, table.indexOf("missing"));
+        assertEquals(-1, table.indexOf(42));
+        assertNull(table.get("missing"));
+    }
+
+    @Test
+    public void smallAndLargeTables() {
+        for (int count : new int[]{0, 1, 8, 9, 16, 17, 100}) {
+            List<String> names = names(count);
+            PropertyTable table = table(names);
+            assertLookups(table, names);
+            for (int i = 0; i < count; i++) {
+                assertSame(NumberLiteral.of(i), table.get(names.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void collidingHashes() {
+        List<String> small = colliding(2);
+        List<String> large = colliding(5);
+        assertEquals(4, small.size());
+        assertEquals(32, large.size());
+        assertEquals(large.get(0).hashCode(), large.get(31).hashCode());
+        assertLookups(table(small), small);
+        assertLookups(table(large), large);
+        assertEquals(-1, table(large).indexOf("AaAaAaAaAaAa"));
+
+        PropertyTable table = table(large);
+        assertSame(NumberLiteral.of(5), table.remove(large.get(5)));
+        assertEquals(-1, table.indexOf(large.get(5)));
+        assertEquals(5, table.indexOf(large.get(6)));
+        assertNull(table.put(large.get(5), STRING));
+        assertEquals(31, table.indexOf(large.get(5)));
+        assertSame(NumberLiteral.of(31), table.get(large.get(31)));
+    }
+
+    @Test
+    public void repeatedNamesKeepTheFirstPositionAndTheLastType() {
+        PropertyTable table = new PropertyTable(new String[]{"a", "b", "a"}, new Type[]{STRING, NUMBER, NUMBER});
+        assertEquals(Arrays.asList("a", "b"), new ArrayList<>(table.keySet()));
+        assertSame(NUMBER, table.get("a"));
+        List<String> names = new ArrayList<>(names(20));
+        names.addAll(names(20));
+        assertLookups(table(names), names(20));
+        assertSame(NumberLiteral.of(39), table(names).get("p19"));
+    }
+
+    /**
+     * Tables grow from linear search to slots and back as properties are added and removed.
+     */
+    @Test
+    public void putAndRemove() {
+        PropertyTable table = table(names(3));
+        List<String> expected = new ArrayList<>(names(3));
+        for (int i = 3; i < 40; i++) {
+            assertNull(table.put("p" + i, STRING));
+            expected.add("p" + i);
+            assertLookups(table, expected);
+        }
+        assertSame(NumberLiteral.of(0), table.put("p0", NUMBER));
+        assertEquals(0, table.indexOf("p0"));
+        for (int i = 0; i < 40; i += 2) {
+            assertSame(i == 0 ? NUMBER : i < 3 ? NumberLiteral.of(i) : STRING, table.remove("p" + i));
+            expected.remove("p" + i);
+            assertLookups(table, expected);
+        }
+        assertNull(table.remove("p0"));
+        for (int i = 1; i < 40; i += 2) {
+            table.remove("p" + i);
+        }
+        assertTrue(table.isEmpty());
+        assertNull(table.put("again", STRING));
+        assertLookups(table, Collections.singletonList("again"));
+        table.clear();
+        assertLookups(table, Collections.emptyList());
+        try {
+            table.nameAt(0);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void mapViews() {
+        PropertyTable table = table(names(12));
+        Map<String, Type> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 12; i++) {
+            expected.put("p" + i, NumberLiteral.of(i));
+        }
+        assertEquals(expected, table);
+        assertEquals(table, expected);
+        assertEquals(expected.hashCode(), table.hashCode());
+        assertEquals(expected.toString(), table.toString());
+        assertEquals(expected.entrySet(), table.entrySet());
+        assertEquals(new ArrayList<>(expected.values()), new ArrayList<>(table.values()));
+        assertTrue(table.entrySet().contains(new AbstractMap.SimpleEntry<>("p3", NumberLiteral.of(3))));
+        assertFalse(table.entrySet().contains(new AbstractMap.SimpleEntry<>("p3", NumberLiteral.of(4))));
+
+        for (Iterator<Map.Entry<String, Type>> entries = table.entrySet().iterator(); entries.hasNext(); ) {
+            if (entries.next().getKey().endsWith("1")) {
+                entries.remove();
+            }
+        }
+        assertTrue(table.keySet().remove("p2"));
+        assertTrue(table.values().remove(NumberLiteral.of(3)));
+        expected.keySet().removeAll(Arrays.asList("p1", "p11", "p2", "p3"));
+        assertEquals(expected, table);
+        assertLookups(table, new ArrayList<>(expected.keySet()));
+
+        Iterator<String> keys = table.keySet().iterator();
+        try {
+            keys.remove();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        table.putAll(Collections.singletonMap("p1", STRING));
+        assertEquals("p1", table.nameAt(table.size() - 1));
+        table.entrySet().clear();
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    public void frozenTablesCannotBeChanged() {
+        PropertyTable table = table(names(10));
+        PropertyTable copy = table.frozenCopy();
+        assertTrue(copy.isFrozen());
+        assertFalse(table.isFrozen());
+        table.put("extra", STRING);
+        assertFalse(copy.containsKey("extra"));
+        assertSame(copy, copy.frozenCopy());
+        assertSame(table, table.freeze());
+        assertSame(table, table.frozenCopy());
+        assertTrue(PropertyTable.EMPTY.isFrozen());
+        try {
+            PropertyTable.EMPTY.put("p0", STRING);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        for (PropertyTable frozen : Arrays.asList(table, copy)) {
+            for (Runnable change : Arrays.<Runnable>asList(() -> frozen.put("p0", STRING), () -> frozen.remove("p0"), frozen::clear, () -> frozen.keySet().remove("p1"))) {
+                try {
+                    change.run();
+                    fail();
+                } catch (UnsupportedOperationException e) {
+                    // expected
+                }
+            }
+        }
+        assertSame(STRING, table.get("extra"));
+        assertEquals(11, table.size());
+    }
+
+    @Test
+    public void loadedPropertyMapsCanBeChanged() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        InterfaceType document = (InterfaceType) namedType(reader, "Document");
+        assertNull(document.getDeclaredProperties().put("extra", STRING));
+        assertSame(STRING, document.getDeclaredProperties().get("extra"));
+        assertSame(NUMBER, document.getDeclaredProperties().remove("length"));
+        assertFalse(document.getDeclaredProperties().containsKey("length"));
+
+        ClassType foo = (ClassType) namedType(reader, "Foo");
+        foo.getInstanceProperties().put("extra", STRING);
+        foo.getStaticProperties().remove("create");
+        assertEquals(Arrays.asList("id", "label", "extra"), new ArrayList<>(foo.getInstanceProperties().keySet()));
+        assertTrue(foo.getStaticProperties().isEmpty());
+
+        reader.getGlobal().getDeclaredProperties().put("extra", document);
+        assertSame(document, reader.getGlobal().getDeclaredProperties().get("extra"));
+
+        Map.Entry<String, Type> first = document.getDeclaredProperties().entrySet().iterator().next();
+        first.setValue(NUMBER);
+        assertSame(NUMBER, document.getDeclaredProperties().get(first.getKey()));
+        document.getDeclaredProperties().replaceAll((name, type) -> STRING);
+        assertSame(STRING, document.getDeclaredProperties().get(first.getKey()));
+    }
+
+    @Test
+    public void entriesAndReplaceAllChangeTheTable() {
+        PropertyTable table = table(names(12));
+        for (Map.Entry<String, Type> entry : table.entrySet()) {
+            if (entry.getKey().equals("p3")) {
+                assertSame(NumberLiteral.of(3), entry.setValue(STRING));
+                assertSame(STRING, entry.getValue());
+            }
+        }
+        assertSame(STRING, table.get("p3"));
+        Map.Entry<String, Type> last = null;
+        for (Map.Entry<String, Type> entry : table.entrySet()) {
+            last = entry;
+        }
+        table.remove("p0");
+        assertSame(NumberLiteral.of(11), last.setValue(NUMBER));
+        assertSame(NUMBER, table.get("p11"));
+        table.remove("p11");
+        try {
+            last.setValue(STRING);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        table.replaceAll((name, type) -> name.equals("p5") ? NUMBER : type);
+        assertSame(NUMBER, table.get("p5"));
+        assertSame(NumberLiteral.of(6), table.get("p6"));
+        assertEquals(10, table.size());
+
+        table.freeze();
+        Map.Entry<String, Type> frozen = table.entrySet().iterator().next();
+        for (Runnable change : Arrays.<Runnable>asList(() -> frozen.setValue(STRING), () -> table.replaceAll((name, type) -> STRING))) {
+            try {
+                change.run();
+                fail();
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+        assertSame(NumberLiteral.of(1), table.get("p1"));
+    }
+
+    /**
+     * The readonly checks follow properties that move when others are removed or added.
+     */
+    @Test
+    public void readonlyChecksFollowChangedTables() {
+        InterfaceType type = new InterfaceType();
+        type.setDeclaredProperties(table(names(20)));
+        type.setReadonlyDeclarations(Arrays.asList("p5", "p15"));
+        assertTrue(type.isReadonly("p5"));
+        assertFalse(type.isReadonly("p6"));
+        type.getDeclaredProperties().remove("p0");
+        assertTrue(type.isReadonly("p5"));
+        assertTrue(type.isReadonly("p15"));
+        assertFalse(type.isReadonly("p6"));
+        assertFalse(type.isReadonly("p16"));
+        type.getDeclaredProperties().put("p0", STRING);
+        assertTrue(type.isReadonly("p15"));
+        assertFalse(type.isReadonly("p0"));
+    }
+}
@@ -0,0 +1,146 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.LoadOptions;
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import dk.au.cs.casa.typescript.SpecReaderFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link InterfaceType#isReadonly(String)}, {@link ClassType#isStaticReadonly(String)} and {@link ClassType#isInstanceReadonly(String)}.
+ */
+public class ReadonlyPropertiesTest {
+    private static final Type STRING = SimpleType.get(SimpleTypeKind.String);
+
+    private static PropertyTable table(int count) {
+        String[] names = new String[count];
+        Type[] types = new Type[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "p" + i;
+            types[i] = STRING;
+        }
+        return new PropertyTable(names, types);
+    }
+
+    /**
+     * The checks agree with the readonly lists for every property and for names that are not properties.
+     */
+    private static void assertAgreesWithLists(SpecReader reader) {
+        InterfaceType document = (InterfaceType) namedType(reader, "Document");
+        List<String> names = new ArrayList<>(document.getDeclaredProperties().keySet());
+        names.add("missing");
+        for (String name : names) {
+            assertEquals(name, document.getReadonlyDeclarations().contains(name), document.isReadonly(name));
+        }
+        ClassType foo = (ClassType) namedType(reader, "Foo");
+        names = new ArrayList<>(foo.getStaticProperties().keySet());
+        names.addAll(foo.getInstanceProperties().keySet());
+        names.add("missing");
+        for (String name : names) {
+            assertEquals(name, foo.getStaticReadonlyProperties().contains(name), foo.isStaticReadonly(name));
+            assertEquals(name, foo.getInstanceReadOnlyProperties().contains(name), foo.isInstanceReadonly(name));
+        }
+    }
+
+    @Test
+    public void loadedSpecifications() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        assertTrue(((InterfaceType) namedType(reader, "Document")).isReadonly("length"));
+        assertFalse(((InterfaceType) namedType(reader, "Document")).isReadonly("self"));
+        ClassType foo = (ClassType) namedType(reader, "Foo");
+        assertTrue(foo.isStaticReadonly("create"));
+        assertFalse(foo.isInstanceReadonly("create"));
+        assertTrue(foo.isInstanceReadonly("id"));
+        assertFalse(foo.isStaticReadonly("id"));
+        assertFalse(foo.isInstanceReadonly("label"));
+        assertAgreesWithLists(reader);
+
+        LoadOptions options = new LoadOptions();
+        options.setFreeze(true);
+        assertAgreesWithLists(new SpecReaderFactory(options).read(SpecFixtures.spec(ALL_KINDS)));
+    }
+
+    @Test
+    public void missingAndEmptyLists() {
+        InterfaceType type = new InterfaceType();
+        type.setDeclaredProperties(table(3));
+        assertFalse(type.isReadonly("p0"));
+        type.setReadonlyDeclarations(Collections.emptyList());
+        assertFalse(type.isReadonly("p0"));
+
+        ClassType classType = new ClassType();
+        classType.setStaticProperties(table(3));
+        assertFalse(classType.isStaticReadonly("p0"));
+        assertFalse(classType.isInstanceReadonly("p0"));
+    }
+
+    /**
+     * The bits of the properties span several words, readonly names that are not properties are still found.
+     */
+    @Test
+    public void manyPropertiesAndNamesOutsideTheTable() {
+        InterfaceType type = new InterfaceType();
+        type.setDeclaredProperties(table(130));
+        type.setReadonlyDeclarations(Arrays.asList("p0", "p63", "p64", "p129", "other"));
+        for (int i = 0; i < 130; i++) {
+            assertEquals("p" + i, i == 0 || i == 63 || i == 64 || i == 129, type.isReadonly("p" + i));
+        }
+        assertTrue(type.isReadonly("other"));
+        assertFalse(type.isReadonly("p130"));
+    }
+
+    @Test
+    public void mapsThatAreNotTables() {
+        Map<String, Type> properties = new LinkedHashMap<>();
+        properties.put("a", STRING);
+        properties.put("b", STRING);
+        ClassType type = new ClassType();
+        type.setInstanceProperties(properties);
+        type.setInstanceReadOnlyProperties(Collections.singletonList("b"));
+        assertTrue(type.isInstanceReadonly("b"));
+        assertFalse(type.isInstanceReadonly("a"));
+        properties.remove("b");
+        assertTrue(type.isInstanceReadonly("b"));
+    }
+
+    /**
+     * Setting the list or the map again replaces the cached check.
+     */
+    @Test
+    public void settersResetTheCheck() {
+        ClassType type = new ClassType();
+        type.setStaticProperties(table(5));
+        type.setStaticReadonlyProperties(Collections.singletonList("p1"));
+        assertTrue(type.isStaticReadonly("p1"));
+        type.setStaticReadonlyProperties(Collections.singletonList("p2"));
+        assertFalse(type.isStaticReadonly("p1"));
+        assertTrue(type.isStaticReadonly("p2"));
+
+        PropertyTable reordered = new PropertyTable(new String[]{"p2", "p0"}, new Type[]{STRING, STRING});
+        type.setStaticProperties(reordered);
+        assertTrue(type.isStaticReadonly("p2"));
+        assertFalse(type.isStaticReadonly("p0"));
+
+        InterfaceType interfaceType = new InterfaceType();
+        interfaceType.setDeclaredProperties(table(5));
+        interfaceType.setReadonlyDeclarations(Collections.singletonList("p4"));
+        assertTrue(interfaceType.isReadonly("p4"));
+        interfaceType.setDeclaredProperties(new PropertyTable(new String[]{"p4"}, new Type[]{STRING}));
+        assertTrue(interfaceType.isReadonly("p4"));
+        interfaceType.setReadonlyDeclarations(null);
+        assertFalse(interfaceType.isReadonly("p4"));
+    }
+}
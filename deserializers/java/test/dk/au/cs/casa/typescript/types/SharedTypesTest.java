@@ -0,0 +1,111 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the shared instances of {@link SimpleType} and the literal types.
+ */
+public class SharedTypesTest {
+    @Test
+    @SuppressWarnings("deprecation")
+    public void simpleTypesAreSharedPerKind() {
+        for (SimpleTypeKind kind : SimpleTypeKind.values()) {
+            SimpleType type = SimpleType.get(kind);
+            assertSame(type, SimpleType.get(kind));
+            assertEquals(kind, type.getKind());
+            assertTrue(type.isFrozen());
+            SimpleType fresh = new SimpleType(kind);
+            assertNotSame(type, fresh);
+            assertEquals(type, fresh);
+        }
+        try {
+            SimpleType.get(SimpleTypeKind.String).setKind(SimpleTypeKind.Number);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(SimpleTypeKind.String, SimpleType.get(SimpleTypeKind.String).getKind());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void literalsAreSharedPerValue() {
+        assertSame(StringLiteral.of("click"), StringLiteral.of(new String("click")));
+        assertNotSame(StringLiteral.of("click"), StringLiteral.of("clack"));
+        assertNotSame(StringLiteral.of("click"), new StringLiteral("click"));
+        assertEquals(StringLiteral.of("click"), new StringLiteral("click"));
+
+        assertSame(NumberLiteral.of(42), NumberLiteral.of(42.0));
+        assertNotSame(NumberLiteral.of(42), NumberLiteral.of(43));
+        assertSame(NumberLiteral.of(Double.NaN), NumberLiteral.of(Double.NaN));
+        assertNotSame(NumberLiteral.of(0.0), NumberLiteral.of(-0.0));
+
+        assertSame(BooleanLiteral.TRUE, BooleanLiteral.of(true));
+        assertSame(BooleanLiteral.FALSE, BooleanLiteral.of(false));
+        try {
+            StringLiteral.of(null);
+            fail();
+        } catch (RuntimeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void loadedSpecificationsShareTheInstances() {
+        SpecReader first = SpecFixtures.read(ALL_KINDS);
+        SpecReader second = SpecFixtures.read(ALL_KINDS);
+        assertSame(SimpleType.get(SimpleTypeKind.String), namedType(first, "All.T1"));
+        assertSame(SimpleType.get(SimpleTypeKind.Object), namedType(second, "All.T29"));
+        assertSame(StringLiteral.of("click"), namedType(first, "All.T12"));
+        assertSame(namedType(first, "All.T12"), namedType(first, "All.T30"));
+        assertSame(namedType(first, "All.T12"), namedType(second, "All.T12"));
+        assertSame(NumberLiteral.of(42), namedType(second, "All.T13"));
+        assertSame(BooleanLiteral.TRUE, namedType(first, "All.T14"));
+    }
+
+    @Test
+    public void concurrentInterningReturnsOneInstance() throws Exception {
+        int threads = 4;
+        int count = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<StringLiteral[]>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    StringLiteral[] literals = new StringLiteral[count];
+                    for (int i = 0; i < count; i++) {
+                        literals[i] = StringLiteral.of("concurrent" + i);
+                    }
+                    return literals;
+                }));
+            }
+            StringLiteral[] expected = futures.get(0).get();
+            for (Future<StringLiteral[]> future : futures) {
+                StringLiteral[] literals = future.get();
+                for (int i = 0; i < count; i++) {
+                    assertSame(expected[i], literals[i]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
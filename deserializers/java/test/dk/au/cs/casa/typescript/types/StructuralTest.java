@@ -0,0 +1,100 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StructuralTest {
+    private static UnionType union(Type... elements) {
+        UnionType union = new UnionType();
+        union.setElements(new ArrayList<>(Arrays.asList(elements)));
+        return union;
+    }
+
+    @Test
+    public void typesOfSeparateLoadsAreStructurallyEqual() {
+        SpecReader first = SpecFixtures.read(ALL_KINDS);
+        SpecReader second = SpecFixtures.read(ALL_KINDS);
+        for (int i = 0; i <= 34; i++) {
+            Type a = namedType(first, "All.T" + i);
+            Type b = namedType(second, "All.T" + i);
+            assertTrue("T" + i, Structural.equal(a, b));
+            assertEquals("T" + i, Structural.hash(a), Structural.hash(b));
+        }
+    }
+
+    @Test
+    public void differentTypesAreNotEqual() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        assertFalse(Structural.equal(namedType(reader, "All.T8"), namedType(reader, "All.T31")));
+        assertFalse(Structural.equal(namedType(reader, "All.T3"), namedType(reader, "All.T4")));
+        assertFalse(Structural.equal(namedType(reader, "All.T7"), namedType(reader, "All.T10")));
+    }
+
+    /**
+     * NodeJS.Global has a property of its own type.
+     */
+    @Test
+    public void cyclicTypesAreCompared() {
+        Type a = namedType(SpecFixtures.read(ALL_KINDS), "NodeJS.Global");
+        Type b = namedType(SpecFixtures.read(ALL_KINDS), "NodeJS.Global");
+        assertTrue(Structural.equal(a, b));
+        assertTrue(a.toString().length() > 0);
+    }
+
+    @Test
+    public void typesKeepIdentityEquality() {
+        Type a = namedType(SpecFixtures.read(ALL_KINDS), "All.T31");
+        Type b = namedType(SpecFixtures.read(ALL_KINDS), "All.T31");
+        assertTrue(Structural.equal(a, b));
+        assertNotEquals(a, b);
+        Set<Type> set = new HashSet<>(Arrays.asList(a, b));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void structuralKeysMergeEqualTypes() {
+        Type a = namedType(SpecFixtures.read(ALL_KINDS), "All.T31");
+        Type b = namedType(SpecFixtures.read(ALL_KINDS), "All.T31");
+        Set<StructuralKey> set = new HashSet<>(Arrays.asList(new StructuralKey(a), new StructuralKey(b)));
+        assertEquals(1, set.size());
+        assertTrue(set.contains(new StructuralKey(union(SimpleType.get(SimpleTypeKind.String), SimpleType.get(SimpleTypeKind.Null)))));
+    }
+
+    @Test
+    public void hashFollowsChanges() {
+        InterfaceType a = new InterfaceType();
+        a.setDeclaredProperties(new LinkedHashMap<>());
+        InterfaceType b = new InterfaceType();
+        b.setDeclaredProperties(new LinkedHashMap<>());
+        assertTrue(Structural.equal(a, b));
+        int hash = Structural.hash(a);
+
+        a.getDeclaredProperties().put("x", SimpleType.get(SimpleTypeKind.String));
+        assertNotEquals(hash, Structural.hash(a));
+        assertFalse(Structural.equal(a, b));
+        b.getDeclaredProperties().put("x", SimpleType.get(SimpleTypeKind.String));
+        assertTrue(Structural.equal(a, b));
+        assertEquals(Structural.hash(a), Structural.hash(b));
+    }
+
+    @Test
+    public void unresolvedTypesAreComparedById() {
+        assertTrue(Structural.equal(union(new UnresolvedType(3)), union(new UnresolvedType(3))));
+        assertFalse(Structural.equal(union(new UnresolvedType(3)), union(new UnresolvedType(4))));
+        assertEquals(Structural.hash(new UnresolvedType(3)), Structural.hash(new UnresolvedType(3)));
+    }
+}
@@ -0,0 +1,91 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.LoadOptions;
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import dk.au.cs.casa.typescript.SpecReaderFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.assertSameSpec;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TypeFreezerTest {
+    private static SpecReader frozen() {
+        LoadOptions options = new LoadOptions();
+        options.setFreeze(true);
+        return new SpecReaderFactory(options).read(SpecFixtures.spec(ALL_KINDS));
+    }
+
+    @Test
+    public void everyReachableTypeIsFrozen() {
+        SpecReader reader = frozen();
+        assertTrue(reader.isFrozen());
+        for (int i = 0; i <= 34; i++) {
+            assertTrue("T" + i, TypeFreezer.isFrozen(namedType(reader, "All.T" + i)));
+        }
+    }
+
+    @Test
+    public void typesAreMutableUntilFrozen() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        InterfaceType document = (InterfaceType) namedType(reader, "Document");
+        assertFalse(TypeFreezer.isFrozen(document));
+        document.setDeclaredStringIndexType(null);
+        TypeFreezer.freeze(Collections.singletonList(document));
+        assertTrue(TypeFreezer.isFrozen(document));
+    }
+
+    @Test
+    public void settersOfFrozenTypesThrow() {
+        SpecReader reader = frozen();
+        InterfaceType document = (InterfaceType) namedType(reader, "Document");
+        try {
+            document.setBaseTypes(new ArrayList<>());
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            ((UnionType) namedType(reader, "All.T8")).setElements(new ArrayList<>());
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            document.getDeclaredCallSignatures().get(0).setResolvedReturnType(null);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void collectionsOfFrozenTypesAreUnmodifiable() {
+        SpecReader reader = frozen();
+        InterfaceType document = (InterfaceType) namedType(reader, "Document");
+        try {
+            document.getBaseTypes().clear();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            document.getDeclaredProperties().put("x", null);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void freezingKeepsTheSpecification() {
+        assertSameSpec(SpecFixtures.read(ALL_KINDS), frozen());
+    }
+}
@@ -0,0 +1,95 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TypeHierarchyTest {
+    private static InterfaceType declare(Type... baseTypes) {
+        InterfaceType type = new InterfaceType();
+        type.setBaseTypes(new ArrayList<>(Arrays.asList(baseTypes)));
+        return type;
+    }
+
+    private static <T> HashSet<T> set(List<T> list) {
+        return new HashSet<>(list);
+    }
+
+    @Test
+    public void inheritanceOfTheSpecification() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        TypeHierarchy hierarchy = reader.getHierarchy();
+        Type document = namedType(reader, "Document");
+        Type process = namedType(reader, "NodeJS.Process");
+        Type global = namedType(reader, "NodeJS.Global");
+        Type array = namedType(reader, "Array");
+        Type foo = namedType(reader, "Foo");
+        Type bar = namedType(reader, "Bar");
+
+        assertTrue(hierarchy.inheritsFrom(bar, foo));
+        assertFalse(hierarchy.inheritsFrom(foo, bar));
+        assertFalse(hierarchy.inheritsFrom(foo, foo));
+        assertEquals(Collections.singletonList(process), hierarchy.getAncestors(document));
+        assertEquals(set(Arrays.asList(document, process, array)), set(hierarchy.getAncestors(global)));
+        assertEquals(set(Arrays.asList(document, array)), set(hierarchy.getSupertypes(global)));
+        assertEquals(set(Arrays.asList(document, global)), set(hierarchy.getDescendants(process)));
+        assertEquals(Collections.singletonList(global), hierarchy.getSubtypes(document));
+    }
+
+    @Test
+    public void referencesAreMappedToTheirDeclarations() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        TypeHierarchy hierarchy = reader.getHierarchy();
+        Type array = namedType(reader, "Array");
+        assertSame(array, TypeHierarchy.declarationOf(namedType(reader, "All.T7")));
+        assertSame(namedType(reader, "Foo"), TypeHierarchy.declarationOf(namedType(reader, "All.T18")));
+        assertTrue(hierarchy.inheritsFrom(namedType(reader, "NodeJS.Global"), namedType(reader, "All.T7")));
+        assertTrue(hierarchy.contains(namedType(reader, "All.T10")));
+        assertFalse(hierarchy.contains(namedType(reader, "All.T8")));
+        assertEquals(Collections.emptyList(), hierarchy.getAncestors(namedType(reader, "All.T8")));
+    }
+
+    @Test
+    public void declarationsOnACycleAreNotTheirOwnAncestors() {
+        InterfaceType a = declare();
+        InterfaceType b = declare(a);
+        InterfaceType c = declare(b);
+        a.getBaseTypes().add(c);
+        InterfaceType below = declare(a);
+        TypeHierarchy hierarchy = TypeHierarchy.of(Collections.singletonList(below));
+
+        assertEquals(4, hierarchy.size());
+        assertEquals(set(Arrays.asList(b, c)), set(hierarchy.getAncestors(a)));
+        assertEquals(set(Arrays.asList(a, c)), set(hierarchy.getAncestors(b)));
+        assertEquals(set(Arrays.asList(a, b, c)), set(hierarchy.getAncestors(below)));
+        assertEquals(set(Arrays.asList(a, b, below)), set(hierarchy.getDescendants(c)));
+        assertFalse(hierarchy.inheritsFrom(a, a));
+    }
+
+    @Test
+    public void deepHierarchiesAreClosed() {
+        InterfaceType root = declare();
+        InterfaceType leaf = root;
+        for (int i = 0; i < 10000; i++) {
+            leaf = declare(leaf);
+        }
+        TypeHierarchy hierarchy = TypeHierarchy.of(Collections.singletonList(leaf));
+        assertEquals(10001, hierarchy.size());
+        assertEquals(10000, hierarchy.getAncestors(leaf).size());
+        assertTrue(hierarchy.inheritsFrom(leaf, root));
+        assertEquals(10000, hierarchy.getDescendants(root).size());
+    }
+}
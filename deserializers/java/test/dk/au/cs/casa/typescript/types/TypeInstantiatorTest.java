@@ -0,0 +1,131 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TypeInstantiatorTest {
+    private static final Type STRING = SimpleType.get(SimpleTypeKind.String);
+
+    private static InterfaceType declare(String property, TypeParameterType parameter) {
+        InterfaceType type = new InterfaceType();
+        type.setTypeParameters(parameter == null ? new ArrayList<>() : new ArrayList<>(Collections.singletonList(parameter)));
+        type.setBaseTypes(new ArrayList<>());
+        type.setDeclaredProperties(new LinkedHashMap<>(Collections.singletonMap(property, parameter == null ? STRING : parameter)));
+        type.setDeclaredCallSignatures(new ArrayList<>());
+        type.setDeclaredConstructSignatures(new ArrayList<>());
+        type.setReadonlyDeclarations(new ArrayList<>());
+        return type;
+    }
+
+    private static ReferenceType reference(Type target, Type argument) {
+        ReferenceType reference = new ReferenceType();
+        reference.setTarget(target);
+        reference.setTypeArguments(new ArrayList<>(Collections.singletonList(argument)));
+        return reference;
+    }
+
+    private static List<String> names(MemberTable table) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < table.size(); i++) {
+            names.add(table.nameAt(i));
+        }
+        return names;
+    }
+
+    @Test
+    public void membersAreInstantiatedWithTheTypeArguments() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        TypeInstantiator instantiator = reader.getInstantiator();
+        Type array = namedType(reader, "Array");
+        Instantiation instantiation = instantiator.instantiate(namedType(reader, "All.T7"));
+
+        assertSame(array, instantiation.getDeclaration());
+        assertEquals(Collections.singletonList(STRING), instantiation.getTypeArguments());
+        MemberTable members = instantiation.getMembers();
+        assertEquals(Arrays.asList("length", "concat", "pop"), names(members));
+        assertSame(STRING, members.getProperty("pop"));
+        assertSame(namedType(reader, "All.T2"), members.getProperty("length"));
+        assertSame(STRING, members.getNumberIndexType());
+        assertSame(array, members.getOwner("pop"));
+    }
+
+    @Test
+    public void instantiationsAndReferencesAreShared() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        TypeInstantiator instantiator = reader.getInstantiator();
+        Type array = namedType(reader, "Array");
+        Instantiation instantiation = instantiator.instantiate(array, Collections.singletonList(STRING));
+
+        assertSame(instantiation, instantiator.instantiate(namedType(reader, "All.T7")));
+        assertSame(instantiation.getMembers(), instantiation.getMembers());
+        ReferenceType reference = instantiation.getReference();
+        assertSame(reference, instantiator.reference(array, Collections.singletonList(STRING)));
+        assertTrue(reference.isFrozen());
+        assertNull(instantiator.instantiate(namedType(reader, "All.T8")));
+    }
+
+    @Test
+    public void substitutionReplacesTheTypeParameters() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        TypeInstantiator instantiator = reader.getInstantiator();
+        List<Type> parameters = Collections.singletonList(namedType(reader, "All.T6"));
+        List<Type> arguments = Collections.singletonList(STRING);
+
+        Type substituted = instantiator.substitute(namedType(reader, "All.T10"), parameters, arguments);
+        assertSame(instantiator.reference(namedType(reader, "Array"), arguments), substituted);
+        Type unrelated = namedType(reader, "All.T8");
+        assertSame(unrelated, instantiator.substitute(unrelated, parameters, arguments));
+    }
+
+    @Test
+    public void inheritedMembersAreInstantiated() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        MemberTable members = reader.getInstantiator().instantiate(namedType(reader, "NodeJS.Global")).getMembers();
+        assertSame(STRING, members.getProperty("pop"));
+        assertSame(namedType(reader, "NodeJS.Global"), members.getProperty("kids"));
+        assertSame(namedType(reader, "Document"), members.getOwner("length"));
+    }
+
+    /**
+     * A&lt;T&gt; extends B&lt;T&gt;, which extends A&lt;U&gt; and D.
+     */
+    @Test
+    public void cyclesDoNotDependOnTheOrderOfInstantiation() {
+        for (boolean bFirst : new boolean[]{false, true}) {
+            TypeParameterType t = new TypeParameterType();
+            TypeParameterType u = new TypeParameterType();
+            InterfaceType a = declare("a", t);
+            InterfaceType b = declare("b", u);
+            InterfaceType d = declare("d", null);
+            a.getBaseTypes().add(reference(b, t));
+            b.getBaseTypes().add(reference(a, u));
+            b.getBaseTypes().add(d);
+            TypeInstantiator instantiator = new TypeInstantiator(new MemberResolver(), new TypeIds(0));
+            Instantiation instantiationOfA = instantiator.instantiate(a, Collections.singletonList(STRING));
+            Instantiation instantiationOfB = instantiator.instantiate(b, Collections.singletonList(STRING));
+            (bFirst ? instantiationOfB : instantiationOfA).getMembers();
+
+            MemberTable membersOfA = instantiationOfA.getMembers();
+            MemberTable membersOfB = instantiationOfB.getMembers();
+            assertEquals(Collections.singletonList("a"), names(membersOfA));
+            assertSame(STRING, membersOfA.getProperty("a"));
+            assertEquals(Arrays.asList("b", "d"), names(membersOfB));
+            assertSame(STRING, membersOfB.getProperty("b"));
+            assertSame(STRING, membersOfB.getProperty("d"));
+        }
+    }
+}
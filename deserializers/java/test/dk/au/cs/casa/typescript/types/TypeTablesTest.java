@@ -0,0 +1,219 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link TypeIds}, {@link TypeBitSet}, {@link TypeIntMap} and {@link TypeTable}.
+ */
+public class TypeTablesTest {
+    /**
+     * @return two unowned types whose ids are many pages apart
+     */
+    private static Type[] farApart() {
+        Type near = new TypeParameterType();
+        for (int i = 0; i < 1000 * TypeIds.PAGE_SIZE; i++) {
+            TypeIds.UNOWNED.next();
+        }
+        Type far = new TypeParameterType();
+        assertTrue(near.id() - far.id() > 1000 * TypeIds.PAGE_SIZE);
+        return new Type[]{near, far};
+    }
+
+    @Test
+    public void idsOfASpecificationAreTheIndicesOfTheData() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        assertEquals(3, namedType(reader, "Document").id());
+        assertEquals(15, namedType(reader, "All.T15").id());
+        assertEquals(34, namedType(reader, "NodeJS.Global").id());
+        // the shared simple types and literals belong to no specification
+        assertTrue(namedType(reader, "All.T1").id() < 0);
+        assertTrue(namedType(reader, "All.T12").id() < 0);
+
+        // the types created for the specification follow the data
+        assertEquals(35, reader.getTypeIds().getFirst());
+        assertEquals(35, reader.getGlobal().id());
+        ReferenceType reference = reader.getInstantiator().reference(namedType(reader, "Array"), Collections.singletonList(namedType(reader, "All.T2")));
+        assertTrue(reference.id() > 35);
+        assertEquals(reference.id() + 1, reader.getTypeIds().getFirst() + reader.getTypeIds().count());
+
+        assertEquals(namedType(reader, "All.T16").id(), namedType(SpecFixtures.read(ALL_KINDS), "All.T16").id());
+    }
+
+    @Test
+    public void typesCreatedFromTypesOfASpecificationGetItsIds() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        int before = reader.getTypeIds().count();
+        GenericType generic = SpecReader.makeEmptySyntheticGenericType(reader.getTypeIds());
+        InterfaceType erased = generic.toInterface(reader.getTypeIds());
+        assertSame(erased, generic.toInterface());
+        ClassInstanceType instance = new ClassType(0).getInstance(reader.getTypeIds());
+        assertEquals(reader.getTypeIds().getFirst() + before, generic.id());
+        assertEquals(generic.id() + 1, erased.id());
+        assertEquals(generic.id() + 2, instance.id());
+        assertTrue(SpecReader.makeEmptySyntheticGenericType().toInterface().id() < 0);
+    }
+
+    @Test
+    public void unownedIdsAreNegativeAndDecreasing() {
+        Type a = new UnionType();
+        Type b = new UnionType();
+        assertTrue(a.id() < 0);
+        assertTrue(b.id() < a.id());
+        assertTrue(TypeIds.UNOWNED.count() >= -b.id());
+        assertEquals(7, new UnionType(7).id());
+    }
+
+    @Test
+    public void bitSetHoldsOwnedAndUnownedTypes() {
+        Type owned = new TypeParameterType(100);
+        Type unowned = new TypeParameterType();
+        TypeBitSet set = new TypeBitSet();
+        assertTrue(set.add(owned));
+        assertTrue(set.add(unowned));
+        assertFalse(set.add(unowned));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(owned));
+        assertTrue(set.contains(unowned));
+        assertFalse(set.contains(new TypeParameterType(99)));
+        assertFalse(set.contains(new UnionType()));
+
+        assertTrue(set.remove(owned));
+        assertFalse(set.remove(owned));
+        assertFalse(set.contains(owned));
+        assertEquals(1, set.size());
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertEquals(0, set.capacity());
+    }
+
+    @Test
+    public void intMapHoldsOwnedAndUnownedTypes() {
+        Type owned = new TypeParameterType(5);
+        Type unowned = new TypeParameterType();
+        TypeIntMap map = new TypeIntMap(-1);
+        assertEquals(-1, map.get(owned));
+        assertEquals(-1, map.put(owned, 7));
+        assertEquals(7, map.put(owned, 8));
+        map.put(unowned, 0);
+        assertEquals(2, map.size());
+        assertEquals(8, map.get(owned));
+        assertTrue(map.containsKey(unowned));
+        assertFalse(map.containsKey(new TypeParameterType(6)));
+
+        assertEquals(8, map.remove(owned));
+        assertEquals(-1, map.remove(owned));
+        assertFalse(map.containsKey(owned));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void tableHoldsOwnedAndUnownedTypes() {
+        Type owned = new TypeParameterType(0);
+        Type unowned = new TypeParameterType();
+        TypeTable<String> table = new TypeTable<>();
+        assertNull(table.put(owned, "owned"));
+        assertEquals("unowned", table.computeIfAbsent(unowned, type -> "unowned"));
+        assertEquals("unowned", table.computeIfAbsent(unowned, type -> "other"));
+        assertEquals(2, table.size());
+        assertSame("owned", table.get(owned));
+
+        assertEquals("owned", table.remove(owned));
+        assertNull(table.get(owned));
+        assertFalse(table.containsKey(owned));
+        assertEquals(1, table.size());
+    }
+
+    /**
+     * The unowned types of one batch have ids close together, the tables only allocate the one or two pages of those ids however many ids were allocated before.
+     */
+    @Test
+    public void unownedTypesOfABatchShareTheirPages() {
+        Type[] types = new Type[100];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = new IndexType();
+        }
+        TypeTable<Integer> table = new TypeTable<>();
+        TypeBitSet set = new TypeBitSet();
+        TypeIntMap map = new TypeIntMap(0);
+        for (int i : new int[]{50, 99, 0, 49, 51, 1, 98}) {
+            table.put(types[i], i);
+            set.add(types[i]);
+            map.put(types[i], i + 1);
+        }
+        for (int i = 0; i < types.length; i++) {
+            boolean added = i == 50 || i == 99 || i == 0 || i == 49 || i == 51 || i == 1 || i == 98;
+            assertEquals(added ? Integer.valueOf(i) : null, table.get(types[i]));
+            assertEquals(added, set.contains(types[i]));
+            assertEquals(added ? i + 1 : 0, map.get(types[i]));
+        }
+        assertTrue(table.capacity() <= 2 * TypeIds.PAGE_SIZE);
+        assertTrue(map.capacity() <= 2 * TypeIds.PAGE_SIZE);
+        assertTrue(set.capacity() <= 2 * TypeIds.PAGE_SIZE / 64);
+    }
+
+    @Test
+    public void bitSetOnlyAllocatesThePagesInUse() {
+        Type[] types = farApart();
+        TypeBitSet set = new TypeBitSet();
+        assertTrue(set.add(SimpleType.get(SimpleTypeKind.String)));
+        assertTrue(set.add(types[0]));
+        assertTrue(set.add(types[1]));
+        assertFalse(set.add(types[1]));
+        assertEquals(3, set.size());
+        assertTrue(set.contains(types[0]));
+        assertFalse(set.contains(new UnionType()));
+        assertTrue(set.capacity() <= 3 * TypeIds.PAGE_SIZE / 64);
+
+        assertTrue(set.remove(types[0]));
+        assertFalse(set.remove(types[0]));
+        assertFalse(set.contains(types[0]));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void intMapOnlyAllocatesThePagesInUse() {
+        Type[] types = farApart();
+        TypeIntMap map = new TypeIntMap(-1);
+        map.put(SimpleType.get(SimpleTypeKind.String), 1);
+        assertEquals(-1, map.put(types[0], 7));
+        assertEquals(7, map.put(types[0], 8));
+        map.put(types[1], 0);
+        assertEquals(3, map.size());
+        assertEquals(8, map.get(types[0]));
+        assertEquals(0, map.get(types[1]));
+        assertTrue(map.capacity() <= 3 * TypeIds.PAGE_SIZE);
+
+        assertEquals(8, map.remove(types[0]));
+        assertFalse(map.containsKey(types[0]));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void tableOnlyAllocatesThePagesInUse() {
+        Type[] types = farApart();
+        TypeTable<String> table = new TypeTable<>();
+        table.put(SimpleType.get(SimpleTypeKind.String), "string");
+        assertNull(table.put(types[0], "near"));
+        assertEquals("far", table.computeIfAbsent(types[1], type -> "far"));
+        assertEquals("far", table.computeIfAbsent(types[1], type -> "other"));
+        assertEquals(3, table.size());
+        assertSame("near", table.get(types[0]));
+        assertTrue(table.capacity() <= 3 * TypeIds.PAGE_SIZE);
+
+        assertEquals("near", table.remove(types[0]));
+        assertNull(table.get(types[0]));
+        assertEquals(2, table.size());
+    }
+}
@@ -0,0 +1,125 @@
+package dk.au.cs.casa.typescript.types;
+
+import dk.au.cs.casa.typescript.SpecFixtures;
+import dk.au.cs.casa.typescript.SpecReader;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+
+import static dk.au.cs.casa.typescript.SpecFixtures.ALL_KINDS;
+import static dk.au.cs.casa.typescript.SpecFixtures.namedType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TypeTraversalTest {
+    private static UnionType union(Type... elements) {
+        UnionType union = new UnionType();
+        union.setElements(new ArrayList<>(Arrays.asList(elements)));
+        return union;
+    }
+
+    private static List<Type> walk(TypeTraversal traversal, Type... roots) {
+        List<Type> passed = new ArrayList<>();
+        traversal.traverse(Arrays.asList(roots), new TypeBitSet(), passed::add);
+        return passed;
+    }
+
+    private static TypeTraversal inOrder(TypeTraversal.Order order) {
+        TypeTraversal traversal = new TypeTraversal();
+        traversal.setOrder(order);
+        return traversal;
+    }
+
+    @Test
+    public void typesArePassedInPreAndPostOrder() {
+        UnionType d = union();
+        UnionType c = union();
+        UnionType b = union(d);
+        UnionType a = union(b, c);
+        assertEquals(Arrays.asList(a, b, d, c), walk(inOrder(TypeTraversal.Order.PRE), a));
+        assertEquals(Arrays.asList(d, b, c, a), walk(inOrder(TypeTraversal.Order.POST), a));
+    }
+
+    @Test
+    public void typesOnACycleArePassedOnce() {
+        UnionType a = union();
+        UnionType b = union(a);
+        a.getElements().add(b);
+        assertEquals(Arrays.asList(a, b), walk(inOrder(TypeTraversal.Order.PRE), a, b));
+        assertEquals(Arrays.asList(b, a), walk(inOrder(TypeTraversal.Order.POST), a, b));
+    }
+
+    @Test
+    public void onlyTheEnabledEdgesAreFollowed() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        Type document = namedType(reader, "Document");
+        TypeTraversal traversal = new TypeTraversal();
+
+        traversal.setEdges(EnumSet.of(TypeTraversal.Edge.BASE_TYPES));
+        assertEquals(Arrays.asList(document, namedType(reader, "NodeJS.Process")), walk(traversal, document));
+
+        traversal.setEdges(EnumSet.of(TypeTraversal.Edge.PROPERTIES));
+        assertEquals(new HashSet<>(Arrays.asList(document, namedType(reader, "All.T1"), namedType(reader, "All.T2"), namedType(reader, "All.T9"))),
+                new HashSet<>(walk(traversal, document)));
+
+        traversal.setEdges(Collections.emptyList());
+        assertEquals(Collections.singletonList(document), walk(traversal, document));
+        assertTrue(traversal.getEdges().isEmpty());
+    }
+
+    @Test
+    public void sharedSetsPassEachTypeOnce() {
+        UnionType shared = union();
+        UnionType a = union(shared);
+        UnionType b = union(shared);
+        TypeTraversal traversal = new TypeTraversal();
+        TypeBitSet visited = new TypeBitSet();
+        List<Type> first = new ArrayList<>();
+        traversal.traverse(Collections.singletonList(a), visited, first::add);
+        List<Type> second = new ArrayList<>();
+        traversal.traverse(Arrays.asList(a, b), visited, second::add);
+
+        assertEquals(Arrays.asList(a, shared), first);
+        assertEquals(Collections.singletonList(b), second);
+        assertEquals(3, visited.size());
+    }
+
+    @Test
+    public void everyTypeOfTheSpecificationIsReachable() {
+        SpecReader reader = SpecFixtures.read(ALL_KINDS);
+        List<Type> roots = new ArrayList<>();
+        for (int i = 0; i <= 34; i++) {
+            roots.add(namedType(reader, "All.T" + i));
+        }
+        TypeBitSet reachable = new TypeTraversal().reachable(Collections.singletonList(namedType(reader, "NodeJS.Global")));
+        assertTrue(reachable.contains(namedType(reader, "Array")));
+        assertTrue(reachable.contains(namedType(reader, "All.T6")));
+        assertFalse(reachable.contains(namedType(reader, "Foo")));
+        TypeBitSet all = new TypeTraversal().reachable(roots);
+        for (Type root : roots) {
+            assertTrue(all.contains(root));
+        }
+        assertEquals(new HashSet<>(roots).size(), all.size());
+    }
+
+    @Test
+    public void deepChainsAreWalked() {
+        UnionType root = union();
+        UnionType leaf = root;
+        for (int i = 0; i < 100000; i++) {
+            UnionType next = union();
+            leaf.getElements().add(next);
+            leaf = next;
+        }
+        List<Type> post = walk(inOrder(TypeTraversal.Order.POST), root);
+        assertEquals(100001, post.size());
+        assertEquals(leaf, post.get(0));
+        assertEquals(root, post.get(100000));
+    }
+}